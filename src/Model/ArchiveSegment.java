@@ -0,0 +1,620 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable file of archived events, stored column by column so similar
+ * values sit together and compress well. Segments are written once by
+ * {@link EventArchive} and only ever read or deleted after.
+ *
+ * <p>A segment starts with a fixed header: {@link #MAGIC}, {@link #VERSION},
+ * the number of events, the smallest and largest time and id, and the sizes
+ * of the parts that follow. Then come the dictionaries of the event types,
+ * extensions and parent directories in the segment, which double as
+ * statistics: a search for an extension not in the dictionary skips the
+ * segment without reading further. Last is one deflated block of columns,
+ * each holding one field of every event in (time, id) order:</p>
+ * <ol>
+ *     <li>times and ids, each as zigzag varint deltas from the one before;</li>
+ *     <li>type, extension and directory, as varint dictionary indexes;</li>
+ *     <li>separators as varints, last-seen time minus time as zigzag varints,
+ *     counts as varints and sequences as zigzag varint deltas;</li>
+ *     <li>flags, then file names, previous paths and raw last-seen
+ *     timestamps, the last two only for events flagged to have them.</li>
+ * </ol>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class ArchiveSegment {
+
+    /**
+     * First four bytes of a segment, "FWAS".
+     */
+    public static final int MAGIC = 0x46574153;
+
+    /**
+     * Version of the segment format written by this class.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Size of the fixed header in bytes.
+     */
+    static final int HEADER_SIZE = Integer.BYTES + 1 + Integer.BYTES + 4 * Long.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * Flag set if the event has a previous path.
+     */
+    private static final int HAS_PREVIOUS_PATH = 1;
+
+    /**
+     * Flag set if the last-seen timestamp is kept as a string.
+     */
+    private static final int HAS_RAW_LAST_SEEN = 1 << 1;
+
+    /**
+     * The segment file.
+     */
+    private final Path myPath;
+
+    /**
+     * Number of events.
+     */
+    private final int myCount;
+
+    /**
+     * Smallest time.
+     */
+    private final long myMinTime;
+
+    /**
+     * Largest time.
+     */
+    private final long myMaxTime;
+
+    /**
+     * Smallest id.
+     */
+    private final long myMinId;
+
+    /**
+     * Largest id.
+     */
+    private final long myMaxId;
+
+    /**
+     * Event type names in the segment.
+     */
+    private final String[] myTypes;
+
+    /**
+     * Extensions in the segment.
+     */
+    private final String[] myExtensions;
+
+    /**
+     * Parent directories in the segment.
+     */
+    private final String[] myDirectories;
+
+    /**
+     * Position of the column block in the file.
+     */
+    private final long myBlockOffset;
+
+    /**
+     * Size of the column block in the file.
+     */
+    private final int myBlockLength;
+
+    /**
+     * Size of the column block once inflated.
+     */
+    private final int myRawLength;
+
+    /**
+     * Creates a segment from its header and dictionaries.
+     *
+     * @param thePath the file.
+     * @param theHeader the header, at its start.
+     * @param theDictionaries the dictionaries.
+     * @throws StreamCorruptedException if the header or dictionaries are malformed.
+     */
+    private ArchiveSegment(final Path thePath, final ByteBuffer theHeader,
+                           final ByteBuffer theDictionaries) throws StreamCorruptedException {
+        myPath = thePath;
+        if (theHeader.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Not an archive segment: " + thePath);
+        }
+        final int version = theHeader.get();
+        if (version < 1 || version > VERSION) {
+            throw new StreamCorruptedException("Unsupported archive segment version " + version);
+        }
+        myCount = theHeader.getInt();
+        myMinTime = theHeader.getLong();
+        myMaxTime = theHeader.getLong();
+        myMinId = theHeader.getLong();
+        myMaxId = theHeader.getLong();
+        final int dictionaryLength = theHeader.getInt();
+        myBlockLength = theHeader.getInt();
+        myRawLength = theHeader.getInt();
+        myBlockOffset = HEADER_SIZE + (long) dictionaryLength;
+        if (myCount < 0 || myBlockLength < 0 || myRawLength < 0 || dictionaryLength < 0) {
+            throw new StreamCorruptedException("Negative size in archive segment " + thePath);
+        }
+        try {
+            myTypes = getDictionary(theDictionaries);
+            myExtensions = getDictionary(theDictionaries);
+            myDirectories = getDictionary(theDictionaries);
+        } catch (BufferUnderflowException e) {
+            throw new StreamCorruptedException("Truncated dictionaries in " + thePath);
+        }
+    }
+
+    /**
+     * Writes events to a new segment file. The file is written under a
+     * temporary name, forced to disk and then renamed, so it either exists
+     * complete or not at all.
+     *
+     * @param thePath the segment file.
+     * @param theEvents the events, in (time, id) order, all with a time.
+     * @param theIds the ids of the events.
+     * @return the segment.
+     * @throws IOException if the file cannot be written.
+     * @throws IllegalArgumentException if there are no events, or one has no time.
+     */
+    public static ArchiveSegment write(final Path thePath, final List<Event> theEvents,
+                                final long[] theIds) throws IOException {
+        final int count = theEvents.size();
+        if (count == 0 || theIds.length != count) {
+            throw new IllegalArgumentException("Need events and an id for each");
+        }
+        final Map<String, Integer> types = new HashMap<>();
+        final Map<String, Integer> extensions = new HashMap<>();
+        final Map<String, Integer> directories = new HashMap<>();
+        int strings = 0;
+        for (Event e : theEvents) {
+            if (e.getRawTimestamp() != null) {
+                throw new IllegalArgumentException("Cannot archive an event without a time");
+            }
+            types.putIfAbsent(e.getEventType(), types.size());
+            extensions.putIfAbsent(e.getExtension(), extensions.size());
+            directories.putIfAbsent(e.getParent(), directories.size());
+            strings += EventCodec.stringSize(e.getFilename());
+            if (e.getPreviousPath() != null) {
+                strings += EventCodec.stringSize(e.getPreviousPath());
+            }
+            if (e.getRawLastSeen() != null) {
+                strings += EventCodec.stringSize(e.getRawLastSeen());
+            }
+        }
+
+        // ten columns of at most a varint each, plus the strings
+        final ByteBuffer columns = ByteBuffer.allocate(count * 10 * 10 + strings);
+        long previous = 0;
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, EventCodec.zigzag(e.getTime() - previous));
+            previous = e.getTime();
+        }
+        previous = 0;
+        for (long id : theIds) {
+            EventCodec.putVarLong(columns, EventCodec.zigzag(id - previous));
+            previous = id;
+        }
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, types.get(e.getEventType()));
+        }
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, extensions.get(e.getExtension()));
+        }
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, directories.get(e.getParent()));
+        }
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, e.getSeparator());
+        }
+        for (Event e : theEvents) {
+            final long delta = e.getRawLastSeen() == null ? e.getLastSeenTime() - e.getTime() : 0;
+            EventCodec.putVarLong(columns, EventCodec.zigzag(delta));
+        }
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, e.getCount());
+        }
+        previous = 0;
+        for (Event e : theEvents) {
+            EventCodec.putVarLong(columns, EventCodec.zigzag(e.getSequence() - previous));
+            previous = e.getSequence();
+        }
+        for (Event e : theEvents) {
+            columns.put((byte) ((e.getPreviousPath() != null ? HAS_PREVIOUS_PATH : 0)
+                    | (e.getRawLastSeen() != null ? HAS_RAW_LAST_SEEN : 0)));
+        }
+        for (Event e : theEvents) {
+            EventCodec.putString(columns, e.getFilename());
+        }
+        for (Event e : theEvents) {
+            if (e.getPreviousPath() != null) {
+                EventCodec.putString(columns, e.getPreviousPath());
+            }
+        }
+        for (Event e : theEvents) {
+            if (e.getRawLastSeen() != null) {
+                EventCodec.putString(columns, e.getRawLastSeen());
+            }
+        }
+        columns.flip();
+        final int rawLength = columns.remaining();
+        final ByteBuffer block = deflate(columns);
+
+        final ByteBuffer dictionaries = dictionaries(types, extensions, directories);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).putInt(count)
+                .putLong(theEvents.getFirst().getTime()).putLong(theEvents.getLast().getTime())
+                .putLong(Arrays.stream(theIds).min().getAsLong()).putLong(Arrays.stream(theIds).max().getAsLong())
+                .putInt(dictionaries.remaining()).putInt(block.remaining()).putInt(rawLength);
+        header.flip();
+
+        final Path part = thePath.resolveSibling(thePath.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer[] parts = {header, dictionaries, block};
+            while (block.hasRemaining()) {
+                channel.write(parts);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        Files.move(part, thePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(thePath);
+    }
+
+    /**
+     * Opens a segment, reading only its header and dictionaries.
+     *
+     * @param thePath the segment file.
+     * @return the segment.
+     * @throws IOException if the file cannot be read or is not a segment.
+     */
+    public static ArchiveSegment open(final Path thePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(thePath, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, thePath);
+            header.flip();
+            final int dictionaryLength = header.getInt(HEADER_SIZE - 3 * Integer.BYTES);
+            final int blockLength = header.getInt(HEADER_SIZE - 2 * Integer.BYTES);
+            if (dictionaryLength < 0 || blockLength < 0
+                    || channel.size() < HEADER_SIZE + (long) dictionaryLength + blockLength) {
+                throw new StreamCorruptedException("Truncated archive segment " + thePath);
+            }
+            final ByteBuffer dictionaries = ByteBuffer.allocate(dictionaryLength);
+            readFully(channel, dictionaries, thePath);
+            dictionaries.flip();
+            return new ArchiveSegment(thePath, header, dictionaries);
+        }
+    }
+
+    /**
+     * Reads every event of the segment.
+     *
+     * @param theIds receives the ids of the events, at least {@link #getCount()} long.
+     * @return the events, in (time, id) order.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public Event[] read(final long[] theIds) throws IOException {
+        final ByteBuffer block = ByteBuffer.allocate(myBlockLength);
+        try (FileChannel channel = FileChannel.open(myPath, StandardOpenOption.READ)) {
+            channel.position(myBlockOffset);
+            readFully(channel, block, myPath);
+        }
+        final ByteBuffer columns = inflate(block.array(), myRawLength);
+        try {
+            return decode(columns, theIds);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new StreamCorruptedException("Corrupt archive segment " + myPath + ": " + e);
+        }
+    }
+
+    /**
+     * Returns whether the segment may hold events matching a query after a
+     * key, judging by its time range and dictionaries only.
+     *
+     * @param theQuery the query.
+     * @param theAfterTime the time events must be at or after.
+     * @return false if no event of the segment can match.
+     */
+    public boolean mayMatch(final EventQuery theQuery, final long theAfterTime) {
+        return myMaxTime >= theAfterTime
+                && theQuery.mayMatch(myMinTime, myMaxTime, myTypes, myExtensions, myDirectories);
+    }
+
+    /**
+     * Returns the segment file.
+     *
+     * @return the path.
+     */
+    public Path getPath() {
+        return myPath;
+    }
+
+    /**
+     * Returns the number of events in the segment.
+     *
+     * @return the count.
+     */
+    public int getCount() {
+        return myCount;
+    }
+
+    /**
+     * Returns the time of the earliest event.
+     *
+     * @return nanoseconds since the epoch.
+     */
+    public long getMinTime() {
+        return myMinTime;
+    }
+
+    /**
+     * Returns the time of the latest event.
+     *
+     * @return nanoseconds since the epoch.
+     */
+    public long getMaxTime() {
+        return myMaxTime;
+    }
+
+    /**
+     * Returns the smallest id in the segment.
+     *
+     * @return the id.
+     */
+    public long getMinId() {
+        return myMinId;
+    }
+
+    /**
+     * Returns the largest id in the segment.
+     *
+     * @return the id.
+     */
+    public long getMaxId() {
+        return myMaxId;
+    }
+
+    /**
+     * Returns the size of the segment file.
+     *
+     * @return the size in bytes.
+     */
+    public long getSize() {
+        return myBlockOffset + myBlockLength;
+    }
+
+    /**
+     * Decodes the columns.
+     *
+     * @param theColumns the inflated column block.
+     * @param theIds receives the ids.
+     * @return the events.
+     * @throws StreamCorruptedException if a varint or string is malformed.
+     */
+    private Event[] decode(final ByteBuffer theColumns, final long[] theIds) throws StreamCorruptedException {
+        final int count = myCount;
+        final long[] times = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += EventCodec.unzigzag(EventCodec.getVarLong(theColumns));
+            times[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += EventCodec.unzigzag(EventCodec.getVarLong(theColumns));
+            theIds[i] = previous;
+        }
+        final int[] types = indexes(theColumns, count);
+        final int[] extensions = indexes(theColumns, count);
+        final int[] directories = indexes(theColumns, count);
+        final char[] separators = new char[count];
+        for (int i = 0; i < count; i++) {
+            separators[i] = (char) EventCodec.getVarLong(theColumns);
+        }
+        final long[] lastSeen = new long[count];
+        for (int i = 0; i < count; i++) {
+            lastSeen[i] = times[i] + EventCodec.unzigzag(EventCodec.getVarLong(theColumns));
+        }
+        final int[] counts = new int[count];
+        for (int i = 0; i < count; i++) {
+            counts[i] = Math.toIntExact(EventCodec.getVarLong(theColumns));
+        }
+        final long[] sequences = new long[count];
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += EventCodec.unzigzag(EventCodec.getVarLong(theColumns));
+            sequences[i] = previous;
+        }
+        final byte[] flags = new byte[count];
+        theColumns.get(flags);
+        final String[] filenames = new String[count];
+        for (int i = 0; i < count; i++) {
+            filenames[i] = EventCodec.getString(theColumns);
+        }
+        final String[] previousPaths = new String[count];
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & HAS_PREVIOUS_PATH) != 0) {
+                previousPaths[i] = EventCodec.getString(theColumns);
+            }
+        }
+
+        final EventKind[] kinds = new EventKind[myTypes.length];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = EventKind.of(myTypes[i]);
+        }
+        final Event[] events = new Event[count];
+        for (int i = 0; i < count; i++) {
+            final String rawLast = (flags[i] & HAS_RAW_LAST_SEEN) != 0 ? EventCodec.getString(theColumns) : null;
+            final EventKind kind = kinds[types[i]];
+            events[i] = new Event(kind, kind == EventKind.OTHER ? myTypes[types[i]] : null,
+                    myDirectories[directories[i]], separators[i], filenames[i], myExtensions[extensions[i]],
+                    times[i], null, rawLast == null ? lastSeen[i] : Event.UNKNOWN_TIME, rawLast,
+                    counts[i], sequences[i], previousPaths[i]);
+        }
+        return events;
+    }
+
+    /**
+     * Reads a column of dictionary indexes.
+     *
+     * @param theColumns the column block.
+     * @param theCount the number of events.
+     * @return the indexes.
+     * @throws StreamCorruptedException if a varint is malformed.
+     */
+    private static int[] indexes(final ByteBuffer theColumns, final int theCount) throws StreamCorruptedException {
+        final int[] indexes = new int[theCount];
+        for (int i = 0; i < theCount; i++) {
+            indexes[i] = Math.toIntExact(EventCodec.getVarLong(theColumns));
+        }
+        return indexes;
+    }
+
+    /**
+     * Writes the dictionaries, each as a varint size and its strings in index order.
+     *
+     * @param theDictionaries the index of each string, by string.
+     * @return the dictionaries, ready to read.
+     */
+    @SafeVarargs
+    private static ByteBuffer dictionaries(final Map<String, Integer>... theDictionaries) {
+        int size = 0;
+        for (Map<String, Integer> dictionary : theDictionaries) {
+            size += 10;
+            for (String value : dictionary.keySet()) {
+                size += EventCodec.stringSize(value);
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Map<String, Integer> dictionary : theDictionaries) {
+            final String[] values = new String[dictionary.size()];
+            dictionary.forEach((value, index) -> values[index] = value);
+            EventCodec.putVarLong(buffer, values.length);
+            for (String value : values) {
+                EventCodec.putString(buffer, value);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads a dictionary written by {@link #dictionaries}.
+     *
+     * @param theBuffer the dictionaries.
+     * @return the strings in index order, interned like those of captured events.
+     * @throws StreamCorruptedException if it is malformed.
+     */
+    private static String[] getDictionary(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        final long size = EventCodec.getVarLong(theBuffer);
+        if (size < 0 || size > theBuffer.remaining()) {
+            throw new StreamCorruptedException("Dictionary of " + size + " entries runs past the segment");
+        }
+        final String[] values = new String[(int) size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = EventCodec.getString(theBuffer).intern();
+        }
+        return values;
+    }
+
+    /**
+     * Compresses the column block.
+     *
+     * @param theColumns the columns, from position to limit.
+     * @return the compressed block, ready to read.
+     */
+    private static ByteBuffer deflate(final ByteBuffer theColumns) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(theColumns);
+            deflater.finish();
+            ByteBuffer out = ByteBuffer.allocate(Math.max(64, theColumns.remaining() / 4));
+            while (!deflater.finished()) {
+                if (!out.hasRemaining()) {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+                deflater.deflate(out);
+            }
+            return out.flip();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses the column block.
+     *
+     * @param theBlock the compressed block.
+     * @param theLength the size of the block inflated.
+     * @return the columns, ready to read.
+     * @throws StreamCorruptedException if the block is corrupt or of another size.
+     */
+    private ByteBuffer inflate(final byte[] theBlock, final int theLength) throws StreamCorruptedException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(theBlock);
+            final byte[] columns = new byte[theLength];
+            int length = 0;
+            while (length < theLength && !inflater.finished()) {
+                final int n = inflater.inflate(columns, length, theLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != theLength || !inflater.finished()) {
+                throw new StreamCorruptedException("Column block of " + myPath + " is not " + theLength + " bytes");
+            }
+            return ByteBuffer.wrap(columns);
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Corrupt column block in " + myPath + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Fills a buffer from a file.
+     *
+     * @param theChannel the file.
+     * @param theBuffer the buffer to fill.
+     * @param thePath the file, for the message.
+     * @throws IOException if it cannot be read or ends first.
+     */
+    private static void readFully(final FileChannel theChannel, final ByteBuffer theBuffer,
+                                  final Path thePath) throws IOException {
+        while (theBuffer.hasRemaining()) {
+            if (theChannel.read(theBuffer) < 0) {
+                throw new StreamCorruptedException("Truncated archive segment " + thePath);
+            }
+        }
+    }
+}
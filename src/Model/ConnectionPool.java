@@ -0,0 +1,446 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connections to the SQLite database: one writer and a small pool of read-only
+ * readers. In WAL mode readers see the last committed state and never wait
+ * for the writer, nor the writer for them, so searches and exports run while
+ * events are being stored.
+ *
+ * <p>The writer keeps synchronous=FULL, so a commit is on disk when it
+ * returns: the event journal drops its copy of events as soon as they are
+ * committed, so it cannot make up for commits lost on power loss. In WAL mode
+ * that is one sync of the log per commit, and commits are grouped. Every
+ * connection is also tuned with pragmas: a larger page cache; memory-mapped
+ * reads; and temporary tables in memory, except while {@link #readLarge}
+ * runs.</p>
+ *
+ * <p>The writer must only be used by one thread at a time. Readers are
+ * borrowed for the length of a {@link #read} call.</p>
+ *
+ * <p>Each connection keeps its most recently used statements prepared (see
+ * {@link #prepare}), so a search run again skips SQLite's parsing and
+ * planning.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Work done with a borrowed reader.
+     *
+     * @param <T> the type of the result.
+     */
+    @FunctionalInterface
+    public interface ReadTask<T> {
+
+        /**
+         * Runs queries on the reader.
+         *
+         * @param theConnection the reader, read-only.
+         * @return the result.
+         * @throws SQLException if a query fails.
+         */
+        T run(Connection theConnection) throws SQLException;
+    }
+
+    /**
+     * Default number of reader connections.
+     */
+    public static final int DEFAULT_READERS = 3;
+
+    /**
+     * Number of prepared statements kept per connection.
+     */
+    public static final int STATEMENTS_PER_CONNECTION = 32;
+
+    /**
+     * Page cache size of each connection in KiB, as a negative cache_size.
+     */
+    private static final int CACHE_KIB = 16 * 1024;
+
+    /**
+     * Bytes of the database file each connection reads through memory mapping.
+     */
+    private static final long MMAP_SIZE = 256L << 20;
+
+    /**
+     * How long a connection waits for a lock held by another, in milliseconds.
+     */
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    /**
+     * Database URL.
+     */
+    private final String myUrl;
+
+    /**
+     * Whether the database is in WAL mode.
+     */
+    private final boolean myWal;
+
+    /**
+     * The writer connection.
+     */
+    private final Connection myWriter;
+
+    /**
+     * Readers not borrowed right now.
+     */
+    private final BlockingQueue<Connection> myIdle;
+
+    /**
+     * Every reader opened, to close them.
+     */
+    private final List<Connection> myReaders;
+
+    /**
+     * Largest number of readers.
+     */
+    private final int myMaxReaders;
+
+    /**
+     * Prepared statements of each connection by SQL, least recently used first.
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> myStatements;
+
+    /**
+     * Number of statements found prepared.
+     */
+    private final AtomicLong myStatementHits;
+
+    /**
+     * Number of statements that had to be prepared.
+     */
+    private final AtomicLong myStatementMisses;
+
+    /**
+     * Whether the pool has been closed.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Opens the writer of a database in WAL mode. Readers are opened when first needed.
+     *
+     * @param theUrl the JDBC URL of the database.
+     * @param theReaders the largest number of readers.
+     * @throws SQLException if the database cannot be opened.
+     */
+    public ConnectionPool(final String theUrl, final int theReaders) throws SQLException {
+        this(theUrl, theReaders, true);
+    }
+
+    /**
+     * Opens the writer of a database. Readers are opened when first needed.
+     *
+     * @param theUrl the JDBC URL of the database.
+     * @param theReaders the largest number of readers.
+     * @param theWal whether to use WAL mode, or the rollback journal, e.g. for comparison.
+     * @throws IllegalArgumentException if the number of readers is not positive.
+     * @throws SQLException if the database cannot be opened.
+     */
+    public ConnectionPool(final String theUrl, final int theReaders, final boolean theWal) throws SQLException {
+        if (theReaders < 1) {
+            throw new IllegalArgumentException("Need at least one reader: " + theReaders);
+        }
+        myUrl = Objects.requireNonNull(theUrl);
+        myMaxReaders = theReaders;
+        myIdle = new ArrayBlockingQueue<>(theReaders);
+        myReaders = new ArrayList<>();
+        myStatements = new ConcurrentHashMap<>();
+        myStatementHits = new AtomicLong();
+        myStatementMisses = new AtomicLong();
+        myWriter = DriverManager.getConnection(theUrl);
+        boolean wal = false;
+        try (Statement statement = myWriter.createStatement()) {
+            if (theWal) {
+                // in-memory databases stay in their own journal mode
+                try (ResultSet mode = statement.executeQuery("PRAGMA journal_mode=WAL")) {
+                    wal = mode.next() && "wal".equalsIgnoreCase(mode.getString(1));
+                }
+            } else {
+                statement.execute("PRAGMA journal_mode=DELETE");
+            }
+            // the journal checkpoint moves past events once committed, so commits must be durable
+            statement.execute("PRAGMA synchronous=FULL");
+            tune(statement);
+        } catch (SQLException e) {
+            myWriter.close();
+            throw e;
+        }
+        myWal = wal;
+    }
+
+    /**
+     * Returns the writer connection.
+     *
+     * @return the writer; callers take turns using it.
+     */
+    public Connection getWriter() {
+        return myWriter;
+    }
+
+    /**
+     * Returns whether the database is in WAL mode.
+     *
+     * @return false if WAL was not asked for or not available.
+     */
+    public boolean isWal() {
+        return myWal;
+    }
+
+    /**
+     * Runs work on a borrowed reader, waiting for one if all are in use.
+     *
+     * @param theTask the work.
+     * @param <T> the type of the result.
+     * @return the result of the work.
+     * @throws SQLException if the work fails, or a reader cannot be opened or borrowed.
+     */
+    public <T> T read(final ReadTask<T> theTask) throws SQLException {
+        final Connection reader = borrow();
+        try {
+            return theTask.run(reader);
+        } finally {
+            if (!myIdle.offer(reader)) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Runs work on a borrowed reader like {@link #read}, but with temporary
+     * tables and sorts kept in a file instead of memory, for queries that may
+     * sort more rows than should be held in memory, such as exports.
+     *
+     * @param theTask the work.
+     * @param <T> the type of the result.
+     * @return the result of the work.
+     * @throws SQLException if the work fails, or a reader cannot be opened or borrowed.
+     */
+    public <T> T readLarge(final ReadTask<T> theTask) throws SQLException {
+        return read(conn -> {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("PRAGMA temp_store=FILE");
+                try {
+                    return theTask.run(conn);
+                } finally {
+                    statement.execute("PRAGMA temp_store=MEMORY");
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns a statement of a connection of this pool prepared from SQL,
+     * preparing it only if it is not among the connection's most recently
+     * used. Its parameters are cleared; the caller must close the result sets
+     * it opens, but not the statement, and may only use it while it holds the
+     * connection.
+     *
+     * @param theConnection the writer, or a reader borrowed in {@link #read}.
+     * @param theSql the SQL.
+     * @return the prepared statement.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    public PreparedStatement prepare(final Connection theConnection, final String theSql) throws SQLException {
+        final Map<String, PreparedStatement> statements =
+                myStatements.computeIfAbsent(theConnection, c -> new StatementCache());
+        PreparedStatement statement = statements.get(theSql);
+        if (statement != null && !statement.isClosed()) {
+            myStatementHits.incrementAndGet();
+            statement.clearParameters();
+            return statement;
+        }
+        myStatementMisses.incrementAndGet();
+        statement = theConnection.prepareStatement(theSql);
+        statements.put(theSql, statement);
+        return statement;
+    }
+
+    /**
+     * Returns how many times {@link #prepare} found the statement prepared.
+     *
+     * @return the number of cache hits.
+     */
+    public long getStatementCacheHits() {
+        return myStatementHits.get();
+    }
+
+    /**
+     * Returns how many times {@link #prepare} had to prepare the statement.
+     *
+     * @return the number of cache misses.
+     */
+    public long getStatementCacheMisses() {
+        return myStatementMisses.get();
+    }
+
+    /**
+     * Returns the number of readers opened so far.
+     *
+     * @return the number of readers.
+     */
+    public synchronized int getReaderCount() {
+        return myReaders.size();
+    }
+
+    /**
+     * Closes every connection.
+     *
+     * @throws SQLException if a connection fails to close.
+     */
+    @Override
+    public void close() throws SQLException {
+        final List<Connection> readers;
+        synchronized (this) {
+            if (myClosed) {
+                return;
+            }
+            myClosed = true;
+            readers = List.copyOf(myReaders);
+            myReaders.clear();
+        }
+        SQLException failure = null;
+        for (Map<String, PreparedStatement> statements : myStatements.values()) {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+        }
+        myStatements.clear();
+        for (Connection connection : readers) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        myWriter.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Takes an idle reader, opens a new one if there are fewer than the
+     * largest number, or waits for one to be returned.
+     *
+     * @return the reader.
+     * @throws SQLException if the pool is closed or a reader cannot be opened.
+     */
+    private Connection borrow() throws SQLException {
+        Connection reader = myIdle.poll();
+        if (reader != null) {
+            return reader;
+        }
+        synchronized (this) {
+            if (myClosed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            if (myReaders.size() < myMaxReaders) {
+                reader = openReader();
+                myReaders.add(reader);
+                return reader;
+            }
+        }
+        try {
+            reader = myIdle.poll(BUSY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a reader", e);
+        }
+        if (reader == null) {
+            throw new SQLException("No reader free after " + BUSY_TIMEOUT_MS + " ms");
+        }
+        return reader;
+    }
+
+    /**
+     * Opens a read-only connection.
+     *
+     * @return the reader.
+     * @throws SQLException if it cannot be opened.
+     */
+    private Connection openReader() throws SQLException {
+        final Connection reader = DriverManager.getConnection(myUrl);
+        try (Statement statement = reader.createStatement()) {
+            statement.execute("PRAGMA query_only=ON");
+            tune(statement);
+        } catch (SQLException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Prepared statements of one connection, closing the least recently used
+     * beyond {@link #STATEMENTS_PER_CONNECTION}. Only used by the thread
+     * holding the connection.
+     */
+    private static final class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+
+        /**
+         * Version of the serialized form, which is never used.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an empty cache in access order.
+         */
+        StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> theEldest) {
+            if (size() <= STATEMENTS_PER_CONNECTION) {
+                return false;
+            }
+            try {
+                theEldest.getValue().close();
+            } catch (SQLException e) {
+                System.out.println("Error caught in ConnectionPool: " + e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sets the pragmas every connection shares.
+     *
+     * @param theStatement a statement of the connection.
+     * @throws SQLException if a pragma fails.
+     */
+    private static void tune(final Statement theStatement) throws SQLException {
+        theStatement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+        theStatement.execute("PRAGMA cache_size=-" + CACHE_KIB);
+        theStatement.execute("PRAGMA mmap_size=" + MMAP_SIZE);
+        theStatement.execute("PRAGMA temp_store=MEMORY");
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Finds modifications that left a file's content as it was, such as a touch,
+ * a permission change or a rewrite of the same bytes.
+ *
+ * <p>Batches of events are processed in order. Each modified regular file is
+ * hashed once per batch on a bounded pool of workers: small files with chunked
+ * reads, large ones by mapping windows of the file. The last digest of every
+ * path is cached. A modification whose digest equals the cached one is dropped,
+ * or tagged as {@link #UNCHANGED} instead.</p>
+ *
+ * <p>Hashing never holds up delivery. A modification is held until its digest
+ * is ready, and later events of the same file are held behind it; every other
+ * event is returned at once. Files above a size limit are not hashed. Neither
+ * are files beyond a budget of bytes per second, and a digest not ready by the
+ * timeout is given up on. Such events are kept as modifications. The digest is
+ * a CRC-32C and a CRC-32 of the content, both computed in hardware on common
+ * processors. Unrelated contents share a digest with a chance of about 2^-64.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class ContentHasher implements AutoCloseable {
+
+    /**
+     * What happens to modifications that did not change the content.
+     */
+    public enum Mode {
+        /** They are removed from the batch. */
+        DROP,
+        /** Their type is replaced by {@link #UNCHANGED}. */
+        TAG
+    }
+
+    /**
+     * Event type of a modification that left the content unchanged, in {@link Mode#TAG}.
+     */
+    public static final String UNCHANGED = EventKind.TOUCH.getName();
+
+    /**
+     * Size from which files are hashed by mapping them instead of reading them.
+     */
+    private static final long MAP_THRESHOLD = 1L << 20;
+
+    /**
+     * Size of each mapped window of a large file.
+     */
+    private static final long MAP_WINDOW = 64L << 20;
+
+    /**
+     * Size of the buffer small files are read with.
+     */
+    private static final int READ_BUFFER = 64 << 10;
+
+    /**
+     * Default largest file that is hashed.
+     */
+    private static final long DEFAULT_MAX_SIZE = 256L << 20;
+
+    /**
+     * Default number of bytes that may be hashed per second.
+     */
+    private static final long DEFAULT_RATE = 512L << 20;
+
+    /**
+     * Default longest a modification is held for its digest.
+     */
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(100);
+
+    /**
+     * Default number of paths whose digest is remembered.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    /**
+     * Read buffer of each worker.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER));
+
+    /**
+     * Workers hashing files.
+     */
+    private final ExecutorService myWorkers;
+
+    /**
+     * Last digest of each path, least recently used first. Only used by the caller of {@link #process}.
+     */
+    private final LinkedHashMap<Path, Long> myDigests;
+
+    /**
+     * Events not returned yet, in order. Only used by the caller of {@link #process}.
+     */
+    private final List<Held> myHeld;
+
+    /**
+     * What happens to unchanged modifications.
+     */
+    private volatile Mode myMode;
+
+    /**
+     * Largest file that is hashed, in bytes.
+     */
+    private volatile long myMaxSize;
+
+    /**
+     * Number of bytes that may be hashed per second.
+     */
+    private volatile long myRate;
+
+    /**
+     * Longest a modification is held for its digest, in nanoseconds.
+     */
+    private volatile long myTimeoutNanos;
+
+    /**
+     * Bytes that may still be hashed right now.
+     */
+    private long myBudget;
+
+    /**
+     * Time the budget was last refilled.
+     */
+    private long myRefilled;
+
+    /**
+     * Number of files hashed.
+     */
+    private final AtomicLong myHashed;
+
+    /**
+     * Number of bytes hashed.
+     */
+    private final AtomicLong myBytes;
+
+    /**
+     * Number of modifications found to leave the content unchanged.
+     */
+    private final AtomicLong myUnchanged;
+
+    /**
+     * Number of modifications kept without hashing, because of a limit.
+     */
+    private final AtomicLong mySkipped;
+
+    /**
+     * Creates a hasher that drops unchanged modifications.
+     *
+     * @param theWorkers the number of threads hashing files.
+     * @throws IllegalArgumentException if the number of workers is not positive.
+     */
+    public ContentHasher(final int theWorkers) {
+        if (theWorkers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + theWorkers);
+        }
+        myDigests = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Path, Long> theEldest) {
+                return size() > DEFAULT_CACHE_SIZE;
+            }
+        };
+        myHeld = new ArrayList<>();
+        myMode = Mode.DROP;
+        myMaxSize = DEFAULT_MAX_SIZE;
+        myRate = DEFAULT_RATE;
+        myTimeoutNanos = DEFAULT_TIMEOUT.toNanos();
+        myBudget = DEFAULT_RATE;
+        myRefilled = System.nanoTime();
+        myHashed = new AtomicLong();
+        myBytes = new AtomicLong();
+        myUnchanged = new AtomicLong();
+        mySkipped = new AtomicLong();
+
+        final AtomicInteger count = new AtomicInteger();
+        myWorkers = Executors.newFixedThreadPool(theWorkers, task -> {
+            final Thread thread = new Thread(task, "hashing-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Drops or tags the modifications in a batch that left their file's content
+     * unchanged, without waiting for their digests. A modification is held
+     * until its digest is ready, and is returned by a later call of this method
+     * or of {@link #poll}. Must not be called by more than one thread at a time.
+     *
+     * @param theBatch the events, in order.
+     * @return the events ready to deliver, those held from earlier batches first;
+     * the events of each file keep their order.
+     */
+    public List<Event> process(final List<Event> theBatch) {
+        // hash every modified file once, all at the same time
+        final Map<Path, Future<Long>> submitted = new HashMap<>();
+        final long deadline = System.nanoTime() + myTimeoutNanos;
+        for (Event event : theBatch) {
+            final Path path = Paths.get(event.getDirectory());
+            if (event.getKind() != EventKind.MODIFY) {
+                myHeld.add(new Held(event, path, null, false, deadline));
+            } else if (submitted.containsKey(path)) {
+                myHeld.add(new Held(event, path, submitted.get(path), true, deadline));
+            } else {
+                final Future<Long> digest = submit(path);
+                submitted.put(path, digest);
+                myHeld.add(new Held(event, path, digest, false, deadline));
+            }
+        }
+        return release(false);
+    }
+
+    /**
+     * Returns the held events whose digests have come in or timed out since,
+     * without waiting. Must be called by the thread calling {@link #process}.
+     *
+     * @return the events ready to deliver, in order.
+     */
+    public List<Event> poll() {
+        return release(false);
+    }
+
+    /**
+     * Waits for the digests of the held modifications, each up to its timeout,
+     * and returns every held event. Must be called by the thread calling
+     * {@link #process}.
+     *
+     * @return the held events, in order.
+     */
+    public List<Event> flush() {
+        return release(true);
+    }
+
+    /**
+     * Returns the number of events held for a digest. Must be called by the
+     * thread calling {@link #process}.
+     *
+     * @return the number of held events.
+     */
+    public int getHeldCount() {
+        return myHeld.size();
+    }
+
+    /**
+     * Sets what happens to modifications that did not change the content.
+     *
+     * @param theMode drop or tag them.
+     * @throws NullPointerException if the mode is null.
+     */
+    public void setMode(final Mode theMode) {
+        myMode = Objects.requireNonNull(theMode);
+    }
+
+    /**
+     * Returns what happens to modifications that did not change the content.
+     *
+     * @return the mode.
+     */
+    public Mode getMode() {
+        return myMode;
+    }
+
+    /**
+     * Sets the largest file that is hashed. Modifications of larger files are kept.
+     *
+     * @param theBytes the size in bytes.
+     * @throws IllegalArgumentException if the size is negative.
+     */
+    public void setMaxFileSize(final long theBytes) {
+        if (theBytes < 0) {
+            throw new IllegalArgumentException("Size cannot be negative: " + theBytes);
+        }
+        myMaxSize = theBytes;
+    }
+
+    /**
+     * Sets how many bytes may be hashed per second, in bursts of up to one
+     * second's worth. Modifications beyond it are kept without hashing.
+     *
+     * @param theBytesPerSecond the rate.
+     * @throws IllegalArgumentException if the rate is not positive.
+     */
+    public void setRateLimit(final long theBytesPerSecond) {
+        if (theBytesPerSecond < 1) {
+            throw new IllegalArgumentException("Rate must be positive: " + theBytesPerSecond);
+        }
+        myRate = theBytesPerSecond;
+    }
+
+    /**
+     * Sets how long a modification is held for its digest. Modifications whose
+     * digest is late are kept.
+     *
+     * @param theTimeout the longest wait.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public void setTimeout(final Duration theTimeout) {
+        if (theTimeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        myTimeoutNanos = theTimeout.toNanos();
+    }
+
+    /**
+     * Returns the number of files hashed.
+     *
+     * @return the number of digests computed.
+     */
+    public long getHashedCount() {
+        return myHashed.get();
+    }
+
+    /**
+     * Returns the number of bytes hashed.
+     *
+     * @return the number of bytes.
+     */
+    public long getHashedBytes() {
+        return myBytes.get();
+    }
+
+    /**
+     * Returns the number of modifications that left the content unchanged.
+     *
+     * @return the number of dropped or tagged events.
+     */
+    public long getUnchangedCount() {
+        return myUnchanged.get();
+    }
+
+    /**
+     * Returns the number of modifications kept without hashing because of the
+     * size limit, the rate limit or the deadline.
+     *
+     * @return the number of skipped files.
+     */
+    public long getSkippedCount() {
+        return mySkipped.get();
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @Override
+    public void close() {
+        for (Runnable task : myWorkers.shutdownNow()) {
+            // held modifications waiting for a digest that will never come are released
+            if (task instanceof Future<?> digest) {
+                digest.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files hashed (%d bytes), %d unchanged, %d skipped",
+                getHashedCount(), getHashedBytes(), getUnchangedCount(), getSkippedCount());
+    }
+
+    /**
+     * Starts hashing a modified file, if it is a regular file within the limits.
+     *
+     * @param thePath the file.
+     * @return the digest to come, or null if the file is not hashed.
+     */
+    private Future<Long> submit(final Path thePath) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(thePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // deleted since; the modification stands
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        final long size = attributes.size();
+        if (size > myMaxSize || !spend(size)) {
+            mySkipped.incrementAndGet();
+            return null;
+        }
+        try {
+            return myWorkers.submit(() -> digest(thePath, size));
+        } catch (RejectedExecutionException e) {
+            // closed while a batch was in progress
+            return null;
+        }
+    }
+
+    /**
+     * Returns the held events that are ready, in order: an event is ready once
+     * nothing before it on the same file is held and, for a modification, its
+     * digest is done or late.
+     *
+     * @param theWait whether to wait for every digest instead.
+     * @return the events to deliver.
+     */
+    private List<Event> release(final boolean theWait) {
+        final List<Event> out = new ArrayList<>();
+        final Set<Path> blocked = new HashSet<>();
+        final long now = System.nanoTime();
+        int kept = 0;
+        for (Held held : myHeld) {
+            if (!theWait && (blocked.contains(held.myPath) || !held.isReady(now))) {
+                blocked.add(held.myPath);
+                myHeld.set(kept++, held);
+            } else {
+                resolve(held, out);
+            }
+        }
+        myHeld.subList(kept, myHeld.size()).clear();
+        return out;
+    }
+
+    /**
+     * Updates the cache for a released event and drops or tags it if it is a
+     * modification that left the content unchanged.
+     *
+     * @param theHeld the released event.
+     * @param theOut the events to deliver.
+     */
+    private void resolve(final Held theHeld, final List<Event> theOut) {
+        final Event event = theHeld.myEvent;
+        final EventKind kind = event.getKind();
+        if (kind != EventKind.MODIFY) {
+            if (kind != EventKind.TOUCH) {
+                // created or deleted: whatever was cached is no longer the content
+                myDigests.remove(theHeld.myPath);
+            }
+            theOut.add(event);
+        } else if (theHeld.myDigest == null) {
+            // not hashed: whatever was cached may be out of date
+            myDigests.remove(theHeld.myPath);
+            theOut.add(event);
+        } else if (theHeld.myRepeat) {
+            // the digest was taken after all of its batch's writes, which the first one reported
+            unchanged(event, theOut);
+        } else if (sameContent(theHeld.myPath, theHeld.myDigest, theHeld.myDeadline)) {
+            unchanged(event, theOut);
+        } else {
+            theOut.add(event);
+        }
+    }
+
+    /**
+     * Waits for the digest of a modified file and compares it with the cached one.
+     *
+     * @param thePath the file.
+     * @param theDigest its digest to come.
+     * @param theDeadline the time the modification stops waiting.
+     * @return true if the content is the same as before.
+     */
+    private boolean sameContent(final Path thePath, final Future<Long> theDigest, final long theDeadline) {
+        final Long digest;
+        try {
+            digest = theDigest.get(Math.max(0, theDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            theDigest.cancel(false);
+            mySkipped.incrementAndGet();
+            myDigests.remove(thePath);
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            // unreadable or deleted while hashing
+            myDigests.remove(thePath);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            myDigests.remove(thePath);
+            return false;
+        }
+        return digest.equals(myDigests.put(thePath, digest));
+    }
+
+    /**
+     * Drops or tags a modification that left the content unchanged.
+     *
+     * @param theEvent the modification.
+     * @param theOut the events to deliver.
+     */
+    private void unchanged(final Event theEvent, final List<Event> theOut) {
+        myUnchanged.incrementAndGet();
+        if (myMode == Mode.TAG) {
+            theOut.add(theEvent.withKind(EventKind.TOUCH));
+        }
+    }
+
+    /**
+     * Takes bytes from the hashing budget, which refills at the rate limit.
+     *
+     * @param theBytes the size of the file to hash.
+     * @return false if the budget does not allow it.
+     */
+    private boolean spend(final long theBytes) {
+        final long now = System.nanoTime();
+        final long rate = myRate;
+        final long refill = (long) ((now - myRefilled) / 1e9 * rate);
+        if (refill > 0) {
+            myBudget += refill;
+            myRefilled = now;
+        }
+        // a burst is at most one second's worth, also right after the rate was lowered
+        myBudget = Math.min(rate, myBudget);
+        if (theBytes > myBudget) {
+            return false;
+        }
+        myBudget -= theBytes;
+        return true;
+    }
+
+    /**
+     * Computes the digest of a file's content.
+     *
+     * @param thePath the file.
+     * @param theSize the size of the file when it was chosen for hashing.
+     * @return the digest.
+     * @throws IOException if the file cannot be read.
+     */
+    private long digest(final Path thePath, final long theSize) throws IOException {
+        final CRC32C first = new CRC32C();
+        final CRC32 second = new CRC32();
+        long read = 0;
+        try (FileChannel channel = FileChannel.open(thePath, StandardOpenOption.READ)) {
+            if (theSize < MAP_THRESHOLD) {
+                final ByteBuffer buffer = BUFFER.get();
+                buffer.clear();
+                int n;
+                while ((n = channel.read(buffer)) > 0) {
+                    buffer.flip();
+                    first.update(buffer);
+                    buffer.rewind();
+                    second.update(buffer);
+                    buffer.clear();
+                    read += n;
+                }
+            } else {
+                // the file may have shrunk since; never map past its end
+                final long size = Math.min(theSize, channel.size());
+                for (long position = 0; position < size; position += MAP_WINDOW) {
+                    final long length = Math.min(MAP_WINDOW, size - position);
+                    // a confined arena unmaps the window as soon as it is hashed
+                    try (Arena arena = Arena.ofConfined()) {
+                        final MemorySegment window =
+                                channel.map(FileChannel.MapMode.READ_ONLY, position, length, arena);
+                        final ByteBuffer bytes = window.asByteBuffer();
+                        first.update(bytes);
+                        bytes.rewind();
+                        second.update(bytes);
+                    }
+                    read += length;
+                }
+            }
+        }
+        myHashed.incrementAndGet();
+        myBytes.addAndGet(read);
+        return first.getValue() << 32 | second.getValue();
+    }
+
+    /**
+     * An event waiting to be returned.
+     */
+    private static final class Held {
+
+        /**
+         * The event.
+         */
+        private final Event myEvent;
+
+        /**
+         * The file it is about.
+         */
+        private final Path myPath;
+
+        /**
+         * Digest of the file to come, or null if it is not a hashed modification.
+         */
+        private final Future<Long> myDigest;
+
+        /**
+         * Whether an earlier modification in the same batch waits for the same digest.
+         */
+        private final boolean myRepeat;
+
+        /**
+         * Time the modification stops waiting for its digest.
+         */
+        private final long myDeadline;
+
+        /**
+         * Creates a held event.
+         *
+         * @param theEvent the event.
+         * @param thePath the file it is about.
+         * @param theDigest digest of the file to come, or null.
+         * @param theRepeat whether an earlier modification waits for the same digest.
+         * @param theDeadline the time it stops waiting.
+         */
+        private Held(final Event theEvent, final Path thePath, final Future<Long> theDigest,
+                     final boolean theRepeat, final long theDeadline) {
+            myEvent = theEvent;
+            myPath = thePath;
+            myDigest = theDigest;
+            myRepeat = theRepeat;
+            myDeadline = theDeadline;
+        }
+
+        /**
+         * Checks whether the event can be released without waiting.
+         *
+         * @param theNow the current time, from {@link System#nanoTime()}.
+         * @return true unless its digest is still being computed and not late.
+         */
+        private boolean isReady(final long theNow) {
+            return myDigest == null || myRepeat || myDigest.isDone() || theNow - myDeadline >= 0;
+        }
+    }
+}
@@ -8,23 +8,52 @@ import com.opencsv.CSVWriter;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-
+import java.time.Duration;
 import java.time.Instant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 /**
  * Handles SQLite database operations for file events.
  *
+ * <p>Every event delivered by the {@link Monitor} is appended to an
+ * {@link EventJournal}, which a {@link JournalReplayer} thread commits to the
+ * events table continuously, in groups. Events journaled but not stored when
+ * the program stopped are stored when it starts again.</p>
+ *
+ * <p>The database is in WAL mode with one writer connection and a few
+ * read-only ones (see {@link ConnectionPool}), so searches run while events
+ * are being stored.</p>
+ *
+ * <p>Events are stored in the typed tables of {@link EventSchema} and read
+ * through its events view. A database of the old all-TEXT layout is migrated
+ * in the background, a batch at a time, while events are captured.</p>
+ *
+ * <p>Events older than a cutoff can be moved to a compressed
+ * {@link EventArchive} by {@link #archive(Instant)}. Searches and exports
+ * read the archive too, so archived events are still found.</p>
+ *
+ * <p>With a {@link #setRetention retention policy}, a maintenance thread
+ * archives events as they age and expires the archive a day at a time by
+ * dropping whole partitions. While no events are being written, it returns
+ * the freed pages of a database created with incremental vacuum, a few at a
+ * time, so capture never waits long for the writer.</p>
+ *
  * @author Adin Smith
  * @author Marcus Nguyen
  * @version 6/12/2025
@@ -38,8 +67,47 @@ public class DataBase {
     /** SQLite connection string (creates file if not exists). */
     private static final String DB_URL = "jdbc:sqlite:file_watcher.db";
 
-    /** Connection to the SQLite database. */
-    private Connection myConn;
+    /** Default number of rows inserted per transaction. */
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    /** Searches taking longer than this, in milliseconds, are logged with their plan. */
+    private static final long SLOW_QUERY_MS = 250;
+
+    /** Time between migration, archive and vacuum batches, so capture gets the writer in between. */
+    private static final long MIGRATION_PAUSE_MS = 50;
+
+    /** Time between maintenance passes. */
+    private static final long MAINTENANCE_INTERVAL_MS = 60_000;
+
+    /** Pages returned to the file system per incremental vacuum transaction. */
+    private static final int VACUUM_PAGES = 256;
+
+    /** Connections to the SQLite database, or null if it could not be opened. */
+    private ConnectionPool myConnections;
+
+    /** Layout of the event tables, used with the writer connection. */
+    private EventSchema mySchema;
+
+    /** Archive of old events, or null if the database or the archive could not be opened. */
+    private EventArchive myArchive;
+
+    /** Thread migrating old rows, or null if there is nothing to migrate. */
+    private Thread myMigration;
+
+    /** Thread applying the retention policy and vacuuming, or null without a database. */
+    private Thread myMaintenance;
+
+    /** Age at which events are archived, or null to keep them in the database. */
+    private volatile Duration myArchiveAge;
+
+    /** Age at which archived events are deleted, or null to keep them. */
+    private volatile Duration myRetention;
+
+    /** Number of rows written when the last vacuum step ran. */
+    private long myVacuumedRows = -1;
+
+    /** Guards the writer connection and the write counters. */
+    private final Object myWriteLock = new Object();
 
     /**
      * List of results from query to be displayed to the QueryView and to be
@@ -47,116 +115,517 @@ public class DataBase {
      */
     private final ObservableList<Event> myQuery;
 
+    /**
+     * Query of the last search.
+     */
+    private EventQuery myLastQuery = new EventQuery();
+
+    /**
+     * Cursor of the paged search shown in myQuery, or null after a full search.
+     */
+    private EventCursor myCursor;
+
+    /**
+     * Journal the monitor appends events to, or null if it could not be opened.
+     */
+    private EventJournal myJournal;
+
+    /**
+     * Loads the journal into the events table, or null if there is no journal.
+     */
+    private JournalReplayer myReplayer;
+
+    /** Number of rows inserted per transaction. */
+    private volatile int myBatchSize;
+
+    /** Number of rows written since the program started. */
+    private long myRowsWritten;
+
+    /** Time spent writing those rows, in nanoseconds. */
+    private long myWriteNanos;
+
     /**
      * Constructs the database and sets up the connection.
      */
     private DataBase() {
 
         myQuery = FXCollections.observableArrayList();
+        myBatchSize = DEFAULT_BATCH_SIZE;
 
         try {
-            myConn = DriverManager.getConnection(DB_URL);
-            createTableIfNotExists();
+            myConnections = new ConnectionPool(DB_URL, ConnectionPool.DEFAULT_READERS);
+            mySchema = new EventSchema(myConnections.getWriter());
+            mySchema.open();
+            if (mySchema.isMigrating()) {
+                myMigration = new Thread(this::migrate, "database-migration");
+                myMigration.setDaemon(true);
+                myMigration.start();
+            }
+            myArchive = openArchive();
+            myMaintenance = new Thread(this::maintainPeriodically, "database-maintenance");
+            myMaintenance.setDaemon(true);
+            myMaintenance.start();
         } catch (SQLException e) {
             System.out.println("Error creating database: " + e);
+            if (myConnections != null) {
+                try {
+                    myConnections.close();
+                } catch (SQLException ex) {
+                    System.out.println("Error caught in DataBase: " + ex);
+                }
+                myConnections = null;
+            }
+        }
+
+        // events journaled while the database is unavailable are kept for the next run
+        try {
+            myJournal = new EventJournal(EventJournal.DEFAULT_DIRECTORY);
+            myReplayer = new JournalReplayer(myJournal, this::writeGroup, journalPosition());
+            myReplayer.start();
+            Monitor.getMonitor().setJournal(myJournal);
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e);
         }
     }
 
     /**
-     * Creates the events table if it doesn't exist.
+     * Opens the archive with the segments listed in the database.
      *
-     * @throws SQLException if a SQL error occurs
+     * @return the archive, or null if it cannot be opened.
+     * @throws SQLException if the list of segments cannot be read.
      */
-    private void createTableIfNotExists() throws SQLException {
-        String sql = "CREATE TABLE IF NOT EXISTS events (" +
-                "Id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "Filename TEXT," +
-                "Event TEXT," +
-                "Timestamp TEXT," +
-                "Extension TEXT, " +
-                "Directory TEXT)";
-        try (Statement stmt = myConn.createStatement()) {
-            stmt.execute(sql);
+    private EventArchive openArchive() throws SQLException {
+        List<String> listed = new ArrayList<>();
+        try (Statement statement = myConnections.getWriter().createStatement();
+             ResultSet rs = statement.executeQuery(EventArchive.MANIFEST)) {
+            while (rs.next()) {
+                listed.add(rs.getString(1));
+            }
+        }
+        try {
+            return new EventArchive(EventArchive.DEFAULT_DIRECTORY, listed);
+        } catch (IOException e) {
+            System.out.println("Error opening archive: " + e);
+            return null;
         }
     }
 
     /**
-     * Writes the Events in myEvents to the database.
+     * Copies old rows into the typed tables a batch at a time until none are
+     * left, taking turns with capture for the writer. If stopped or failed, the
+     * migration resumes the next time the database is opened.
+     */
+    private void migrate() {
+        try {
+            int copied;
+            do {
+                synchronized (myWriteLock) {
+                    copied = mySchema.migrateBatch(EventSchema.DEFAULT_MIGRATION_BATCH);
+                }
+                Thread.sleep(MIGRATION_PAUSE_MS);
+            } while (copied > 0);
+        } catch (SQLException e) {
+            System.out.println("Error caught in DataBase migration: " + e);
+        } catch (InterruptedException e) {
+            // stopped by close()
+        }
+    }
+
+    /**
+     * Returns whether old rows are still being migrated to the typed tables.
+     *
+     * @return true while a migration is under way.
+     */
+    public boolean isMigrating() {
+        synchronized (myWriteLock) {
+            return mySchema != null && mySchema.isMigrating();
+        }
+    }
+
+    /**
+     * Writes the Events in myEvents to the database and clears the list once
+     * everything in it is stored. Blocks until then; see {@link #flush()}.
      */
     public void writeEvents() {
-        String insertion = "INSERT INTO events(Filename, Event, " +
-                "Timestamp, Extension, Directory) VALUES(?, ?, ?, ?, ?)";
-        try (PreparedStatement statement = myConn.prepareStatement(insertion)) {
-            createTableIfNotExists();
+        List<Event> events = Monitor.getMonitor().getEvents();
+        if (flush().join()) {
+            events.clear();
+        }
+    }
 
-            List<Event> events = Monitor.getMonitor().getEvents();
-            while (!events.isEmpty()) {
+    /**
+     * Stores everything captured so far, without blocking the caller. Events
+     * delivered by the monitor are already in the journal, so for them this
+     * only commits the writer's pending group now; events in myEvents without
+     * a capture sequence were added some other way, or could not be journaled,
+     * and are written directly.
+     *
+     * @return a future completed with true once everything is stored, or
+     * false if the database failed.
+     */
+    public CompletableFuture<Boolean> flush() {
+        // one pass over the list instead of removing from its front
+        List<Event> pending = new ArrayList<>(Monitor.getMonitor().getEvents());
+        if (myReplayer != null) {
+            pending.removeIf(e -> e.getSequence() != 0);
+        }
+        return CompletableFuture.supplyAsync(
+                () -> (myReplayer == null || myReplayer.flush()) && writeEvents(pending));
+    }
 
-                // Convert String of events into array to get individual elements
-                String[] event = events.removeFirst().toString().split(", ");
+    /**
+     * Returns the writer committing journaled events, e.g. to read its commit
+     * latency and backlog or to change its group size.
+     *
+     * @return the writer, or null if the journal could not be opened.
+     */
+    public JournalReplayer getWriter() {
+        return myReplayer;
+    }
 
-                // Set individual elements to the insertion
-                for (int i = 0; i < event.length; i++) {
-                    statement.setString(i + 1, event[i]);
-                }
+    /**
+     * Writes the given events to the database with batched inserts, committing
+     * every {@link #setBatchSize batch size} rows. If a batch fails it is rolled
+     * back, the batches before it stay written and the rest are not written.
+     *
+     * @param theEvents the events to write.
+     * @return true if every event was written.
+     */
+    public boolean writeEvents(final Collection<Event> theEvents) {
+        if (theEvents.isEmpty()) {
+            return true;
+        }
+        if (myConnections == null) {
+            return false;
+        }
+        synchronized (myWriteLock) {
+            return insert(myConnections.getWriter(), theEvents, myBatchSize, -1);
+        }
+    }
+
+    /**
+     * Writes a group of replayed journal events in one transaction, whatever
+     * the batch size, together with the journal position after them, so a
+     * group is stored once whether it fails or the program stops before the
+     * journal is checkpointed.
+     *
+     * @param theEvents the events of the group.
+     * @param theEnd the journal position after the group.
+     * @return true if every event was written, false if none was.
+     */
+    private boolean writeGroup(final List<Event> theEvents, final long theEnd) {
+        if (theEvents.isEmpty()) {
+            return true;
+        }
+        if (myConnections == null) {
+            return false;
+        }
+        synchronized (myWriteLock) {
+            return insert(myConnections.getWriter(), theEvents, Integer.MAX_VALUE, theEnd);
+        }
+    }
+
+    /**
+     * Returns the journal position stored with the last replayed group.
+     *
+     * @return the position, or -1 if there is none or no database.
+     */
+    private long journalPosition() {
+        if (myConnections == null) {
+            return -1;
+        }
+        synchronized (myWriteLock) {
+            try {
+                return mySchema.getJournalPosition();
+            } catch (SQLException e) {
+                System.out.println("Error caught in DataBase: " + e);
+                return -1;
+            }
+        }
+    }
 
-                // Insert final result
-                statement.execute();
+    /**
+     * Inserts events with the writer connection.
+     *
+     * @param theConn the writer connection.
+     * @param theEvents the events to write.
+     * @param theBatchSize the number of rows per transaction.
+     * @param thePosition the journal position to store with the last batch, or -1 for none.
+     * @return true if every event was written.
+     */
+    private boolean insert(final Connection theConn, final Collection<Event> theEvents, final int theBatchSize,
+                           final long thePosition) {
+        final long start = System.nanoTime();
+        long written = 0;
+        try (PreparedStatement statement = theConn.prepareStatement(EventSchema.INSERT)) {
+            theConn.setAutoCommit(false);
+            int batched = 0;
+            for (Event e : theEvents) {
+
+                // Take the columns from the event itself, resolving dictionary ids
+                mySchema.bind(statement, e);
+                statement.addBatch();
+
+                // Insert and commit a full batch
+                if (++batched == theBatchSize) {
+                    statement.executeBatch();
+                    theConn.commit();
+                    written += batched;
+                    batched = 0;
+                }
             }
+            if (thePosition >= 0) {
+                try (PreparedStatement position = theConn.prepareStatement(EventSchema.SET_JOURNAL_POSITION)) {
+                    position.setLong(1, thePosition);
+                    position.executeUpdate();
+                }
+            }
+            if (batched > 0 || thePosition >= 0) {
+                statement.executeBatch();
+                theConn.commit();
+                written += batched;
+            }
+            return true;
         } catch (SQLException e) {
             System.out.println("Error caught in DataBase: " + e);
+            mySchema.rolledBack();
+            try {
+                theConn.rollback();
+            } catch (SQLException ex) {
+                System.out.println("Error caught in DataBase: " + ex);
+            }
+            return false;
+        } finally {
+            myRowsWritten += written;
+            myWriteNanos += System.nanoTime() - start;
+            try {
+                theConn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.out.println("Error caught in DataBase: " + e);
+            }
+        }
+    }
+
+    /**
+     * Sets how many rows are inserted per transaction. Larger batches mean
+     * fewer syncs of the SQLite journal but longer transactions.
+     *
+     * @param theSize the number of rows.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public void setBatchSize(final int theSize) {
+        if (theSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + theSize);
         }
+        myBatchSize = theSize;
+    }
+
+    /**
+     * Returns the number of rows written since the program started.
+     *
+     * @return the number of rows.
+     */
+    public long getRowsWritten() {
+        synchronized (myWriteLock) {
+            return myRowsWritten;
+        }
+    }
+
+    /**
+     * Returns the average write throughput since the program started.
+     *
+     * @return rows written per second, or 0 if nothing was written.
+     */
+    public double getRowsPerSecond() {
+        synchronized (myWriteLock) {
+            return myWriteNanos == 0 ? 0 : myRowsWritten * 1e9 / myWriteNanos;
+        }
+    }
+
+    /**
+     * Queries every event in the database.
+     */
+    public void search() {
+        search(new EventQuery());
     }
 
     /**
-     * Queries the database through specifics defined by the QueryView.
+     * Queries the database for the events matching a query, as defined by the
+     * QueryView, replacing the results in {@link #getQuery()}. The statement
+     * is prepared once per reader and reused by later searches of the same shape.
      *
-     * @param theSpecifics user defined specifics to query from.
+     * @param theQuery the filters to query with.
      */
-    public void search(final String... theSpecifics) {
+    public synchronized void search(final EventQuery theQuery) {
         // Reset the list
         myQuery.clear();
+        myCursor = null;
+        myLastQuery = theQuery;
+        if (myConnections == null) {
+            return;
+        }
         try {
-            // build statement based on theSpecifics
-            // default statement is to select everything
-            StringBuilder statement = new StringBuilder("SELECT * FROM events WHERE ");
-
-            for (String s : theSpecifics) {
-                if (!s.isEmpty()) {
-                    statement.append(s);
-                    statement.append(" AND ");
+            String sql = theQuery.toSql();
+            long start = System.nanoTime();
+
+            // execute statement on a reader, so it does not wait for writes
+            List<Event> found = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            myConnections.read(conn -> {
+                PreparedStatement statement = myConnections.prepare(conn, sql);
+                theQuery.bind(statement, 1);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(EventSchema.read(rs));
+                        ids.add(rs.getLong("Id"));
+                    }
                 }
+                return null;
+            });
+            List<Event> results = myArchive == null ? found : mergeArchived(theQuery, found, ids);
+
+            long took = (System.nanoTime() - start) / 1_000_000;
+            if (took > SLOW_QUERY_MS) {
+                System.out.println("Slow query (" + took + " ms, " + results.size() + " rows): " + theQuery);
+                explain(theQuery).forEach(step -> System.out.println("  " + step));
             }
 
-            if (statement.length() == 27) {
-                // Remove WHERE clause
-                statement.delete(statement.length() - 6, statement.length());
-            } else {
-                // Remove extra AND
-                statement.delete(statement.length() - 5, statement.length());
+            // add results to myQuery list
+            myQuery.addAll(results);
+
+        } catch (SQLException e) {
+            System.out.println("Error querying database: " + e);
+        }
+    }
+
+    /**
+     * Merges the archived events matching a query into search results.
+     *
+     * @param theQuery the query.
+     * @param theResults the results from the database, in id order.
+     * @param theIds their ids.
+     * @return the results with the archived events, in id order.
+     * @throws SQLException if the archive cannot be read.
+     */
+    private List<Event> mergeArchived(final EventQuery theQuery, final List<Event> theResults,
+                                      final List<Long> theIds) throws SQLException {
+        List<Event> archived = new ArrayList<>();
+        List<Long> archivedIds = new ArrayList<>();
+        try {
+            myArchive.read(theQuery, Long.MIN_VALUE, Long.MIN_VALUE, Integer.MAX_VALUE, archived, archivedIds);
+        } catch (IOException e) {
+            throw new SQLException("Error reading archive: " + e.getMessage(), e);
+        }
+        if (archived.isEmpty()) {
+            return theResults;
+        }
+
+        // the archive is in time order, so put it in id order first
+        Integer[] order = new Integer[archived.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(archivedIds::get));
+        List<Event> merged = new ArrayList<>(theResults.size() + archived.size());
+        int i = 0;
+        for (int index : order) {
+            while (i < theResults.size() && theIds.get(i) < archivedIds.get(index)) {
+                merged.add(theResults.get(i++));
             }
+            merged.add(archived.get(index));
+        }
+        merged.addAll(theResults.subList(i, theResults.size()));
+        return merged;
+    }
 
-            //System.out.println(statement);
+    /**
+     * Opens a cursor reading the events matching a query a page at a time,
+     * ordered by time. See {@link EventCursor}.
+     *
+     * @param theQuery the filters to query with.
+     * @param thePageSize the number of events per page.
+     * @return the cursor, before its first page.
+     * @throws SQLException if the database is unavailable.
+     */
+    public EventCursor cursor(final EventQuery theQuery, final int thePageSize) throws SQLException {
+        if (myConnections == null) {
+            throw new SQLException("Database is unavailable");
+        }
+        // read without the write lock, which a migration or archive batch may hold
+        return new EventCursor(myConnections, myArchive, theQuery, thePageSize, mySchema.isMigrating(), false);
+    }
 
-            // execute statement
-            Statement execution = myConn.createStatement();
-            ResultSet rs = execution.executeQuery(statement.toString());
+    /**
+     * Queries the database for the events matching a query, but only loads
+     * the first page of them into {@link #getQuery()}; {@link #loadMore()}
+     * appends the next. The first page takes about as long however many
+     * events match.
+     *
+     * @param theQuery the filters to query with.
+     */
+    public synchronized void searchPages(final EventQuery theQuery) {
+        myQuery.clear();
+        myCursor = null;
+        myLastQuery = theQuery;
+        try {
+            myCursor = cursor(theQuery, EventCursor.DEFAULT_PAGE_SIZE);
+        } catch (SQLException e) {
+            System.out.println("Error querying database: " + e);
+            return;
+        }
+        loadMore();
+    }
 
-            // add results to myQuery list
-            while (rs.next()) {
-                // Id, Filename, Event, Timestamp, Extension, Directory
-                Event out = new Event(
-                        rs.getString("Filename"),
-                        rs.getString("Event"),
-                        rs.getString("Timestamp"),
-                        rs.getString("Extension"),
-                        rs.getString("Directory"));
+    /**
+     * Appends the next page of the last {@link #searchPages paged search} to
+     * {@link #getQuery()}.
+     *
+     * @return true if events were added, false if there were no more.
+     */
+    public synchronized boolean loadMore() {
+        if (myCursor == null || myCursor.isDone()) {
+            return false;
+        }
+        try {
+            List<Event> page = myCursor.next();
+            myQuery.addAll(page);
+            return !page.isEmpty();
+        } catch (SQLException e) {
+            System.out.println("Error querying database: " + e);
+            return false;
+        }
+    }
 
-                myQuery.add(out);
-            }
+    /**
+     * Returns whether the last paged search has events not loaded yet.
+     *
+     * @return true if {@link #loadMore()} may add events.
+     */
+    public synchronized boolean hasMore() {
+        return myCursor != null && !myCursor.isDone();
+    }
 
+    /**
+     * Returns how SQLite would run a search, one line per step of the plan:
+     * {@code SEARCH} steps use an index, a {@code SCAN e} step reads every event.
+     *
+     * @param theQuery the filters of the search.
+     * @return the steps of the query plan, empty if the database is unavailable.
+     */
+    public List<String> explain(final EventQuery theQuery) {
+        if (myConnections == null) {
+            return List.of();
+        }
+        try {
+            return myConnections.read(conn -> {
+                try (PreparedStatement plan = conn.prepareStatement("EXPLAIN QUERY PLAN " + theQuery.toSql())) {
+                    theQuery.bind(plan, 1);
+                    return EventSchema.explain(plan);
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error querying database: " + e);
+            return List.of();
         }
     }
 
@@ -169,25 +638,12 @@ public class DataBase {
     public void export(final String thePath) {
         Objects.requireNonNull(thePath);
 
-        String info = "FILE SYSTEM WATCHER REPORT PREPARED ON: " + Instant.now();
-
-        File file = new File(thePath);
-        try (FileWriter outputfile = new FileWriter(file);
-             CSVWriter writer = new CSVWriter(outputfile, ',',
-                     CSVWriter.NO_QUOTE_CHARACTER,
-                     CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                     CSVWriter.DEFAULT_LINE_END)) {
-
-            String[] report = {info};
-            writer.writeNext(report);
-
-            // Filename, Event, Timestamp, Extension, Directory
-            String[] columns = {"Filename", "Event", "Timestamp", "Extension", "Directory"};
-            writer.writeNext(columns);
+        try (CSVWriter writer = EventExporter.open(Files.newOutputStream(Path.of(thePath)), false)) {
+            EventExporter.writeHeader(writer);
 
             for (Event e : myQuery) {
                 // Convert event into String[] and write to file
-                writer.writeNext(e.toString().split(", "));
+                writer.writeNext(EventExporter.toRow(e));
             }
         }
         catch (IOException e) {
@@ -195,6 +651,199 @@ public class DataBase {
         }
     }
 
+    /**
+     * Exports every event matching a query into a .csv file on a background
+     * thread, streaming them from the database so the export takes constant
+     * memory however many events match. See {@link EventExporter}.
+     *
+     * @param theQuery the events to export, e.g. {@link #getLastQuery()}.
+     * @param thePath the report file.
+     * @param theGzip whether to gzip the report.
+     * @param theProgress told the number of rows written so far, on the export thread.
+     * @return a future completed with the number of rows written; cancelling
+     * it stops the export and deletes the unfinished report.
+     */
+    public CompletableFuture<Long> export(final EventQuery theQuery, final Path thePath, final boolean theGzip,
+                                          final LongConsumer theProgress) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        if (myConnections == null) {
+            result.completeExceptionally(new SQLException("Database is unavailable"));
+            return result;
+        }
+        // read in chunks with sorts on disk, so neither the reader nor a sort holds every row
+        EventCursor cursor = new EventCursor(myConnections, myArchive, theQuery, EventExporter.PROGRESS_INTERVAL,
+                mySchema.isMigrating(), true);
+        EventExporter exporter = new EventExporter(cursor, thePath, theGzip, theProgress);
+        result.whenComplete((rows, error) -> {
+            if (result.isCancelled()) {
+                exporter.cancel();
+            }
+        });
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(exporter.run());
+            } catch (IOException | SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "csv-export");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Moves the events with a time before a cutoff to the archive, a segment
+     * at a time, taking turns with capture for the writer. Events whose
+     * timestamp is not an ISO instant stay in the database.
+     *
+     * @param theCutoff the time events must be before to be archived.
+     * @return the number of events moved.
+     */
+    public long archive(final Instant theCutoff) {
+        if (myConnections == null || myArchive == null) {
+            return 0;
+        }
+        long cutoff = EventQuery.toNanos(theCutoff);
+        long moved = 0;
+        try {
+            int batch;
+            do {
+                synchronized (myWriteLock) {
+                    // compressing and syncing the segment does not hold up searches
+                    EventArchive.Move move = myArchive.prepareMove(myConnections.getWriter(), cutoff,
+                            EventArchive.SEGMENT_SIZE);
+                    // searches of this class see the events in the database or the archive, never both or neither
+                    synchronized (this) {
+                        batch = move == null ? 0 : myArchive.commitMove(myConnections.getWriter(), move);
+                    }
+                }
+                moved += batch;
+                Thread.sleep(MIGRATION_PAUSE_MS);
+            } while (batch > 0);
+        } catch (SQLException | IOException e) {
+            System.out.println("Error caught in DataBase archive: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return moved;
+    }
+
+    /**
+     * Sets how long events are kept. Events older than the archive age are
+     * moved to the archive; archived days older than the retention are
+     * deleted by dropping their partitions. Applied by every maintenance pass.
+     *
+     * @param theArchiveAge the age at which events are archived, or null to keep them in the database.
+     * @param theRetention the age at which events are deleted, or null to keep them.
+     * @throws IllegalArgumentException if a duration is negative, or events
+     * would be deleted without being archived first.
+     */
+    public void setRetention(final Duration theArchiveAge, final Duration theRetention) {
+        if (theArchiveAge != null && theArchiveAge.isNegative()
+                || theRetention != null && theRetention.isNegative()) {
+            throw new IllegalArgumentException("Retention cannot be negative");
+        }
+        if (theRetention != null && (theArchiveAge == null || theArchiveAge.compareTo(theRetention) > 0)) {
+            // partitions only exist in the archive, so events are archived before they expire
+            throw new IllegalArgumentException("Events must be archived before they are deleted");
+        }
+        myArchiveAge = theArchiveAge;
+        myRetention = theRetention;
+    }
+
+    /**
+     * Runs {@link #maintain()} every {@link #MAINTENANCE_INTERVAL_MS} until
+     * interrupted by close().
+     */
+    private void maintainPeriodically() {
+        try {
+            while (true) {
+                Thread.sleep(MAINTENANCE_INTERVAL_MS);
+                maintain();
+            }
+        } catch (InterruptedException e) {
+            // stopped by close()
+        }
+    }
+
+    /**
+     * Applies the retention policy now, then vacuums if no events were
+     * written since the last time. Each step holds the writer briefly.
+     *
+     * @throws InterruptedException if interrupted between steps.
+     */
+    public void maintain() throws InterruptedException {
+        Duration archiveAge = myArchiveAge;
+        Duration retention = myRetention;
+        Instant now = Instant.now();
+        if (archiveAge != null) {
+            archive(now.minus(archiveAge));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        if (retention != null && myArchive != null) {
+            try {
+                synchronized (myWriteLock) {
+                    synchronized (this) {
+                        myArchive.dropBefore(myConnections.getWriter(), EventQuery.toNanos(now.minus(retention)));
+                    }
+                }
+            } catch (SQLException e) {
+                System.out.println("Error caught in DataBase retention: " + e);
+            }
+        }
+        vacuumWhileIdle();
+    }
+
+    /**
+     * Returns free pages of the database file to the file system a batch at
+     * a time, stopping as soon as events are written, so vacuuming only
+     * happens while capture is idle.
+     *
+     * @throws InterruptedException if interrupted between batches.
+     */
+    private void vacuumWhileIdle() throws InterruptedException {
+        if (myConnections == null || !mySchema.isIncrementalVacuum()) {
+            return;
+        }
+        try {
+            long free;
+            do {
+                synchronized (myWriteLock) {
+                    if (myRowsWritten != myVacuumedRows) {
+                        // written since the last step; wait for a quiet pass
+                        myVacuumedRows = myRowsWritten;
+                        return;
+                    }
+                    free = mySchema.incrementalVacuum(VACUUM_PAGES);
+                }
+                Thread.sleep(MIGRATION_PAUSE_MS);
+            } while (free > 0);
+        } catch (SQLException e) {
+            System.out.println("Error caught in DataBase vacuum: " + e);
+        }
+    }
+
+    /**
+     * Returns the archive of old events, e.g. to read its size.
+     *
+     * @return the archive, or null if it could not be opened.
+     */
+    public EventArchive getArchive() {
+        return myArchive;
+    }
+
+    /**
+     * Returns the query of the last search, to export all of its results
+     * rather than the pages loaded so far.
+     *
+     * @return the query, or one matching every event if there was no search yet.
+     */
+    public synchronized EventQuery getLastQuery() {
+        return myLastQuery;
+    }
+
     /**
      * Returns the observable list to be bound in the QueryView
      *
@@ -205,13 +854,41 @@ public class DataBase {
     }
 
     /**
-     * Closes the database connection.
+     * Stores what is left in the journal, closes it and closes the database connections.
      *
      * @throws SQLException if closing fails.
      */
     public void close() throws SQLException {
-        if (myConn != null && !myConn.isClosed()) {
-            myConn.close();
+        if (myReplayer != null) {
+            try {
+                myReplayer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            myReplayer.flush();
+        }
+        if (myJournal != null) {
+            Monitor.getMonitor().setJournal(null);
+            myJournal.close();
+        }
+        if (myMaintenance != null) {
+            myMaintenance.interrupt();
+            try {
+                myMaintenance.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (myMigration != null) {
+            myMigration.interrupt();
+            try {
+                myMigration.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (myConnections != null) {
+            myConnections.close();
         }
     }
 
@@ -0,0 +1,268 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Remembers the entries of one directory (name, size, modification time and
+ * file key) so that changes missed by the WatchService can be found later by
+ * comparing against a fresh scan.
+ *
+ * <p>Instances are thread safe.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class DirectorySnapshot {
+
+    /**
+     * Entries of the directory, by file name.
+     */
+    private final Map<String, Entry> myEntries;
+
+    /**
+     * Creates an empty snapshot.
+     */
+    public DirectorySnapshot() {
+        myEntries = new HashMap<>();
+    }
+
+    /**
+     * Lists a directory and reads the attributes of every entry.
+     *
+     * @param theDir the directory to scan.
+     * @return a snapshot of the directory.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static DirectorySnapshot scan(final Path theDir) throws IOException {
+        final DirectorySnapshot snapshot = new DirectorySnapshot();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(theDir)) {
+            for (Path entry : entries) {
+                try {
+                    snapshot.put(entry.getFileName().toString(), read(entry));
+                } catch (IOException e) {
+                    // deleted between listing and reading; it simply isn't there
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the attributes of one path without following symbolic links.
+     *
+     * @param thePath the path to read.
+     * @return the entry for the path.
+     * @throws IOException if the path cannot be read.
+     */
+    public static Entry read(final Path thePath) throws IOException {
+        return new Entry(Files.readAttributes(thePath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    /**
+     * Re-reads one entry of the directory, removing it if it no longer exists.
+     *
+     * @param theDir the directory of this snapshot.
+     * @param theName the name of the entry.
+     */
+    public void refresh(final Path theDir, final String theName) {
+        try {
+            put(theName, read(theDir.resolve(theName)));
+        } catch (NoSuchFileException e) {
+            remove(theName);
+        } catch (IOException e) {
+            // unreadable entries keep their last known state
+        }
+    }
+
+    /**
+     * Adds or replaces an entry.
+     *
+     * @param theName the name of the entry.
+     * @param theEntry the attributes of the entry.
+     */
+    public synchronized void put(final String theName, final Entry theEntry) {
+        myEntries.put(Objects.requireNonNull(theName), Objects.requireNonNull(theEntry));
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param theName the name of the entry.
+     * @return the removed entry, or null if there was none.
+     */
+    public synchronized Entry remove(final String theName) {
+        return myEntries.remove(theName);
+    }
+
+    /**
+     * Returns an entry.
+     *
+     * @param theName the name of the entry.
+     * @return the entry, or null if there is none.
+     */
+    public synchronized Entry get(final String theName) {
+        return myEntries.get(theName);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return myEntries.size();
+    }
+
+    /**
+     * Calls the action for every entry.
+     *
+     * @param theAction the action receiving each name and entry.
+     */
+    public synchronized void forEach(final BiConsumer<String, Entry> theAction) {
+        myEntries.forEach(theAction);
+    }
+
+    /**
+     * Reports how this snapshot must change to become the newer one: CREATE for
+     * new names, DELETE for missing names and MODIFY for changed files.
+     *
+     * @param theNewer the newer snapshot of the same directory.
+     * @param theChanges receives the kind and name of every difference.
+     */
+    public void diff(final DirectorySnapshot theNewer,
+                     final BiConsumer<WatchEvent.Kind<Path>, String> theChanges) {
+        final Map<String, Entry> older;
+        synchronized (this) {
+            older = new HashMap<>(myEntries);
+        }
+        theNewer.forEach((name, entry) -> {
+            final Entry old = older.remove(name);
+            if (old == null) {
+                theChanges.accept(ENTRY_CREATE, name);
+            } else if (!old.equals(entry) && !(old.isDirectory() && entry.isDirectory())) {
+                // a directory's own time changes with its contents, which are reported by its own key
+                theChanges.accept(ENTRY_MODIFY, name);
+            }
+        });
+        for (String name : older.keySet()) {
+            theChanges.accept(ENTRY_DELETE, name);
+        }
+    }
+
+    /**
+     * The remembered state of one directory entry.
+     */
+    public static final class Entry {
+
+        /**
+         * Size in bytes.
+         */
+        private final long mySize;
+
+        /**
+         * Last modification time in nanoseconds since the epoch.
+         */
+        private final long myModified;
+
+        /**
+         * File key (device and inode on Unix), or null if the platform has none.
+         */
+        private final Object myFileKey;
+
+        /**
+         * Whether the entry is a directory.
+         */
+        private final boolean myDirectory;
+
+        /**
+         * Creates an entry from file attributes.
+         *
+         * @param theAttributes the attributes of the entry.
+         */
+        public Entry(final BasicFileAttributes theAttributes) {
+            this(theAttributes.size(), theAttributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    theAttributes.fileKey(), theAttributes.isDirectory());
+        }
+
+        /**
+         * Creates an entry.
+         *
+         * @param theSize the size in bytes.
+         * @param theModified the modification time in nanoseconds since the epoch.
+         * @param theFileKey the file key, or null.
+         * @param theDirectory whether the entry is a directory.
+         */
+        public Entry(final long theSize, final long theModified, final Object theFileKey,
+                     final boolean theDirectory) {
+            mySize = theSize;
+            myModified = theModified;
+            myFileKey = theFileKey;
+            myDirectory = theDirectory;
+        }
+
+        /**
+         * Returns the size.
+         *
+         * @return the size in bytes.
+         */
+        public long getSize() { return mySize; }
+
+        /**
+         * Returns the modification time.
+         *
+         * @return nanoseconds since the epoch.
+         */
+        public long getModified() { return myModified; }
+
+        /**
+         * Returns the file key.
+         *
+         * @return the file key, or null if the platform has none.
+         */
+        public Object getFileKey() { return myFileKey; }
+
+        /**
+         * Returns whether the entry is a directory.
+         *
+         * @return true for directories.
+         */
+        public boolean isDirectory() { return myDirectory; }
+
+        @Override
+        public boolean equals(final Object theOther) {
+            if (this == theOther) {
+                return true;
+            }
+            if (!(theOther instanceof Entry other)) {
+                return false;
+            }
+            return mySize == other.mySize
+                    && myModified == other.myModified
+                    && myDirectory == other.myDirectory
+                    && Objects.equals(myFileKey, other.myFileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mySize, myModified, myFileKey, myDirectory);
+        }
+    }
+}
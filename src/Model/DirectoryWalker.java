@@ -0,0 +1,457 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * Walks a directory tree in parallel on a fork-join pool and hands every
+ * directory, and a snapshot of its contents, to a {@link Registrar}. A walker
+ * is used for a single walk; it can be run on the calling thread with
+ * {@link #walk()} or in the background with {@link #start()}, reports progress
+ * while running and can be cancelled.
+ *
+ * <p>Subdirectories rejected by the prune filter are neither registered nor
+ * descended into, like returning SKIP_SUBTREE from a file visitor. The root
+ * itself is never pruned.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public class DirectoryWalker {
+
+    /**
+     * Callback receiving every directory found by the walk.
+     */
+    @FunctionalInterface
+    public interface Registrar {
+
+        /**
+         * Registers a directory.
+         *
+         * @param theDir the directory to register.
+         * @throws IOException if the directory cannot be registered.
+         */
+        void register(Path theDir) throws IOException;
+
+        /**
+         * Receives the contents of a directory once the walk has listed it.
+         *
+         * @param theDir the directory.
+         * @param theSnapshot the entries of the directory.
+         */
+        default void listed(final Path theDir, final DirectorySnapshot theSnapshot) {
+        }
+    }
+
+    /**
+     * Pool shared by all walks. Its worker threads are daemons.
+     */
+    private static final ForkJoinPool POOL =
+            new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Number of directories between two progress notifications.
+     */
+    private static final int PROGRESS_STEP = 1000;
+
+    /**
+     * Root of the tree to walk.
+     */
+    private final Path myRoot;
+
+    /**
+     * Callback receiving every directory.
+     */
+    private final Registrar myRegistrar;
+
+    /**
+     * Number of directories registered so far.
+     */
+    private final AtomicLong myDirectories;
+
+    /**
+     * Number of directories that could not be listed or registered.
+     */
+    private final AtomicLong myFailures;
+
+    /**
+     * Number of subdirectories skipped by the prune filter.
+     */
+    private final AtomicLong myPruned;
+
+    /**
+     * The first failure below the root, kept for the summary.
+     */
+    private final AtomicReference<IOException> myFirstFailure;
+
+    /**
+     * Rejects subdirectories that should not be registered, or null to keep all.
+     */
+    private volatile EventFilter myPruneFilter;
+
+    /**
+     * Set when the walk should stop early.
+     */
+    private volatile boolean myCancelled;
+
+    /**
+     * Optional listener told the number of registered directories as the walk goes.
+     */
+    private volatile LongConsumer myProgressListener;
+
+    /**
+     * Creates a walker for the tree below the given root.
+     *
+     * @param theRoot the root directory.
+     * @param theRegistrar the callback receiving every directory.
+     * @throws NullPointerException if any argument is null.
+     */
+    public DirectoryWalker(final Path theRoot, final Registrar theRegistrar) {
+        myRoot = Objects.requireNonNull(theRoot);
+        myRegistrar = Objects.requireNonNull(theRegistrar);
+        myDirectories = new AtomicLong();
+        myFailures = new AtomicLong();
+        myPruned = new AtomicLong();
+        myFirstFailure = new AtomicReference<>();
+    }
+
+    /**
+     * Sets a listener told the number of registered directories every so often.
+     * It is called from the pool's threads.
+     *
+     * @param theListener the listener, or null for none.
+     */
+    public void setProgressListener(final LongConsumer theListener) {
+        myProgressListener = theListener;
+    }
+
+    /**
+     * Sets the filter deciding which subdirectories are skipped with their whole
+     * subtree. A directory is skipped when the filter does not accept it.
+     *
+     * @param theFilter the filter, or null to register every directory.
+     */
+    public void setPruneFilter(final EventFilter theFilter) {
+        myPruneFilter = theFilter;
+    }
+
+    /**
+     * Walks the tree and waits for it to finish. The work is still spread over the pool.
+     *
+     * @return a summary of the walk.
+     * @throws IOException if the root does not exist or cannot be registered.
+     */
+    public WalkSummary walk() throws IOException {
+        if (!Files.exists(myRoot)) {
+            throw new NoSuchFileException(myRoot.toString());
+        }
+
+        final long start = System.nanoTime();
+        if (Files.isDirectory(myRoot)) {
+            // register the root here so its failure is reported to the caller
+            myRegistrar.register(myRoot);
+            countDirectory();
+            POOL.invoke(new WalkTask(myRoot));
+        }
+        return new WalkSummary(myRoot, myDirectories.get(), myFailures.get(), myPruned.get(),
+                System.nanoTime() - start, myCancelled, myFirstFailure.get());
+    }
+
+    /**
+     * Starts the walk on the pool and returns immediately.
+     *
+     * @return a future completed with the summary, or exceptionally if the root is invalid.
+     */
+    public CompletableFuture<WalkSummary> start() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return walk();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, POOL);
+    }
+
+    /**
+     * Asks the walk to stop. Directories already registered stay registered.
+     */
+    public void cancel() {
+        myCancelled = true;
+    }
+
+    /**
+     * Returns whether the walk was cancelled.
+     *
+     * @return true if cancelled.
+     */
+    public boolean isCancelled() {
+        return myCancelled;
+    }
+
+    /**
+     * Returns the number of directories registered so far.
+     *
+     * @return the number of registered directories.
+     */
+    public long getDirectoryCount() {
+        return myDirectories.get();
+    }
+
+    /**
+     * Returns the root of the walk.
+     *
+     * @return the root directory.
+     */
+    public Path getRoot() {
+        return myRoot;
+    }
+
+    /**
+     * Counts a registered directory and notifies the progress listener when due.
+     */
+    private void countDirectory() {
+        final long count = myDirectories.incrementAndGet();
+        final LongConsumer listener = myProgressListener;
+        if (listener != null && count % PROGRESS_STEP == 0) {
+            listener.accept(count);
+        }
+    }
+
+    /**
+     * Records a directory that could not be handled.
+     *
+     * @param theError the error.
+     */
+    private void fail(final IOException theError) {
+        myFailures.incrementAndGet();
+        myFirstFailure.compareAndSet(null, theError);
+    }
+
+    /**
+     * Lists one directory, registers its subdirectories and forks a task for each.
+     */
+    private final class WalkTask extends RecursiveAction {
+
+        /**
+         * Version of the serialized form, which is never used.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The directory to list. It is already registered.
+         */
+        private final transient Path myDir;
+
+        /**
+         * Creates a task for an already registered directory.
+         *
+         * @param theDir the directory to list.
+         */
+        private WalkTask(final Path theDir) {
+            myDir = theDir;
+        }
+
+        @Override
+        protected void compute() {
+            if (myCancelled) {
+                return;
+            }
+
+            final List<WalkTask> children = new ArrayList<>();
+            final DirectorySnapshot snapshot = new DirectorySnapshot();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(myDir)) {
+                for (Path entry : entries) {
+                    if (myCancelled) {
+                        return;
+                    }
+
+                    // one stat per entry, shared by the snapshot and the directory check;
+                    // symbolic links are not followed, like Files.walkFileTree
+                    final DirectorySnapshot.Entry attributes;
+                    try {
+                        attributes = DirectorySnapshot.read(entry);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    final String name = entry.getFileName().toString();
+                    snapshot.put(name, attributes);
+                    if (!attributes.isDirectory()) {
+                        continue;
+                    }
+                    // the entry stays in the snapshot so its own creation and deletion are seen
+                    final EventFilter prune = myPruneFilter;
+                    if (prune != null && !prune.accepts(myDir, name, -1)) {
+                        myPruned.incrementAndGet();
+                        continue;
+                    }
+
+                    try {
+                        myRegistrar.register(entry);
+                        countDirectory();
+                        children.add(new WalkTask(entry));
+                    } catch (IOException e) {
+                        fail(e);
+                    }
+                }
+                myRegistrar.listed(myDir, snapshot);
+            } catch (IOException e) {
+                fail(e);
+            }
+
+            if (!children.isEmpty()) {
+                invokeAll(children);
+            }
+        }
+    }
+
+    /**
+     * Outcome of a finished walk.
+     */
+    public static final class WalkSummary {
+
+        /**
+         * Root of the walk.
+         */
+        private final Path myRoot;
+
+        /**
+         * Number of registered directories.
+         */
+        private final long myDirectories;
+
+        /**
+         * Number of directories that failed.
+         */
+        private final long myFailures;
+
+        /**
+         * Number of subdirectories skipped with their subtree.
+         */
+        private final long myPruned;
+
+        /**
+         * Wall-clock duration of the walk.
+         */
+        private final long myElapsedNanos;
+
+        /**
+         * Whether the walk was cancelled.
+         */
+        private final boolean myCancelled;
+
+        /**
+         * First failure below the root, or null.
+         */
+        private final IOException myFirstFailure;
+
+        /**
+         * Creates a summary.
+         *
+         * @param theRoot the root of the walk.
+         * @param theDirectories the number of registered directories.
+         * @param theFailures the number of failed directories.
+         * @param thePruned the number of subdirectories skipped with their subtree.
+         * @param theElapsedNanos the duration of the walk.
+         * @param theCancelled whether the walk was cancelled.
+         * @param theFirstFailure the first failure, or null.
+         */
+        WalkSummary(final Path theRoot, final long theDirectories, final long theFailures,
+                    final long thePruned, final long theElapsedNanos, final boolean theCancelled,
+                    final IOException theFirstFailure) {
+            myRoot = theRoot;
+            myDirectories = theDirectories;
+            myFailures = theFailures;
+            myPruned = thePruned;
+            myElapsedNanos = theElapsedNanos;
+            myCancelled = theCancelled;
+            myFirstFailure = theFirstFailure;
+        }
+
+        /**
+         * Returns the root of the walk.
+         *
+         * @return the root directory.
+         */
+        public Path getRoot() { return myRoot; }
+
+        /**
+         * Returns the number of registered directories.
+         *
+         * @return the number of registered directories.
+         */
+        public long getDirectories() { return myDirectories; }
+
+        /**
+         * Returns the number of directories that could not be listed or registered.
+         *
+         * @return the number of failures.
+         */
+        public long getFailures() { return myFailures; }
+
+        /**
+         * Returns the number of subdirectories skipped by the prune filter. Each one
+         * is a watch saved, plus one for every directory below it.
+         *
+         * @return the number of pruned subtrees.
+         */
+        public long getPruned() { return myPruned; }
+
+        /**
+         * Returns how long the walk took.
+         *
+         * @return the duration in nanoseconds.
+         */
+        public long getElapsedNanos() { return myElapsedNanos; }
+
+        /**
+         * Returns whether the walk was cancelled before finishing.
+         *
+         * @return true if cancelled.
+         */
+        public boolean isCancelled() { return myCancelled; }
+
+        /**
+         * Returns the first failure below the root.
+         *
+         * @return the first failure, or null if there was none.
+         */
+        public IOException getFirstFailure() { return myFirstFailure; }
+
+        /**
+         * Returns the registration throughput.
+         *
+         * @return directories registered per second.
+         */
+        public double getDirectoriesPerSecond() {
+            return myElapsedNanos == 0 ? 0 : myDirectories * 1e9 / myElapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d directories in %.2f s (%.0f/s), %d pruned, %d failed",
+                    myCancelled ? "Cancelled after" : "Registered",
+                    myDirectories,
+                    myElapsedNanos / 1e9,
+                    getDirectoriesPerSecond(),
+                    myPruned,
+                    myFailures);
+        }
+    }
+}
@@ -4,40 +4,114 @@
 
 package Model;
 
+import java.io.File;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.Objects;
 
 /**
  * Represents the information regarding an event that happens.
  *
+ * <p>Events are kept compactly since many are buffered at once: the type is an
+ * {@link EventKind}, times are nanoseconds since the epoch, the path is a
+ * shared parent directory plus the file name, and extensions are interned.
+ * The getters still return the strings shown to the user, built on demand.
+ * Values that do not fit this form, such as a timestamp that is not an ISO
+ * instant, are kept as given so they are returned unchanged.</p>
+ *
  * @author Adin Smtih
  * @version 6/13/2025
  */
 public class Event implements Comparable<Event> {
 
+    /**
+     * Time of an event whose timestamp is not an ISO instant.
+     */
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    /**
+     * Orders events by their global capture order.
+     */
+    public static final Comparator<Event> BY_SEQUENCE = Comparator.comparingLong(Event::getSequence);
+
+    /**
+     * Orders events by time, then by capture order. Events of unknown time come first.
+     */
+    public static final Comparator<Event> BY_TIME =
+            Comparator.comparingLong(Event::getTime).thenComparingLong(Event::getSequence);
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final long NANOS = 1_000_000_000L;
+
     /**
      * Represents the name of the file.
      */
     private final String myFilename;
 
+    /**
+     * Represents the directory the file is in, shared by the events of that
+     * directory, or the whole directory string if it does not end with the file name.
+     */
+    private final String myParent;
+
+    /**
+     * Represents the separator between the parent and the file name, or 0 if
+     * the parent is the whole directory string.
+     */
+    private final char mySeparator;
+
     /**
      * Represents the event type.
      */
-    private final String myEventType;
+    private final EventKind myKind;
 
     /**
-     * Represents the time the event took place.
+     * Represents the event type name if it is not a known kind, otherwise null.
      */
-    private final String myTimestamp;
+    private final String myOtherType;
 
     /**
-     * Represents the extension of the file.
+     * Represents the time the event took place, in nanoseconds since the epoch.
+     */
+    private final long myTime;
+
+    /**
+     * Represents the time the last event merged into this one took place, in nanoseconds since the epoch.
+     */
+    private final long myLastSeen;
+
+    /**
+     * Represents the timestamp as given if it is not an ISO instant, otherwise null.
+     */
+    private final String myRawTimestamp;
+
+    /**
+     * Represents the last-seen timestamp as given if it is not an ISO instant, otherwise null.
+     */
+    private final String myRawLastSeen;
+
+    /**
+     * Represents the extension of the file, interned.
      */
     private final String myExtension;
 
     /**
-     * Represents the directory of the file.
+     * Represents how many raw events were merged into this one.
+     */
+    private final int myCount;
+
+    /**
+     * Represents the global order in which the event was captured, zero if unknown.
      */
-    private final String myDirectory;
+    private final long mySequence;
+
+    /**
+     * Represents the path the file was moved from, null if the event is not a move.
+     */
+    private final String myPreviousPath;
 
     /**
      * Creates a new event object.
@@ -52,17 +126,259 @@ public class Event implements Comparable<Event> {
      */
     public Event(final String theFilename, final String theEventType,
                  final String theTimestamp, final String theExtension, final String theDirectory) {
+        this(theFilename, theEventType, theTimestamp, theExtension, theDirectory, theTimestamp, 1);
+    }
+
+    /**
+     * Creates a new event object standing for several merged raw events.
+     *
+     * @param theFilename the name of the file affect.
+     * @param theEventType the type of event.
+     * @param theTimestamp the date the first merged event occurred.
+     * @param theExtension the extension of the file.
+     * @param theDirectory the directory of the file.
+     * @param theLastSeen the date the last merged event occurred.
+     * @param theCount the number of merged events.
+     *
+     * @throws NullPointerException if any given argument is null.
+     * @throws IllegalArgumentException if the count is less than one.
+     */
+    public Event(final String theFilename, final String theEventType,
+                 final String theTimestamp, final String theExtension, final String theDirectory,
+                 final String theLastSeen, final int theCount) {
+        this(theFilename, theEventType, theTimestamp, theExtension, theDirectory, theLastSeen, theCount, 0);
+    }
+
+    /**
+     * Creates a new event object with a capture sequence number.
+     *
+     * @param theFilename the name of the file affect.
+     * @param theEventType the type of event.
+     * @param theTimestamp the date the first merged event occurred.
+     * @param theExtension the extension of the file.
+     * @param theDirectory the directory of the file.
+     * @param theLastSeen the date the last merged event occurred.
+     * @param theCount the number of merged events.
+     * @param theSequence the global capture order of the event.
+     *
+     * @throws NullPointerException if any given argument is null.
+     * @throws IllegalArgumentException if the count is less than one.
+     */
+    public Event(final String theFilename, final String theEventType,
+                 final String theTimestamp, final String theExtension, final String theDirectory,
+                 final String theLastSeen, final int theCount, final long theSequence) {
+        this(theFilename, theEventType, theTimestamp, theExtension, theDirectory,
+                theLastSeen, theCount, theSequence, null);
+    }
+
+    /**
+     * Creates a new event object for a file moved from another path.
+     *
+     * @param theFilename the name of the file affect.
+     * @param theEventType the type of event.
+     * @param theTimestamp the date the first merged event occurred.
+     * @param theExtension the extension of the file.
+     * @param theDirectory the directory of the file.
+     * @param theLastSeen the date the last merged event occurred.
+     * @param theCount the number of merged events.
+     * @param theSequence the global capture order of the event.
+     * @param thePreviousPath the path the file was moved from, or null if it was not moved.
+     *
+     * @throws NullPointerException if any given argument but the previous path is null.
+     * @throws IllegalArgumentException if the count is less than one.
+     */
+    public Event(final String theFilename, final String theEventType,
+                 final String theTimestamp, final String theExtension, final String theDirectory,
+                 final String theLastSeen, final int theCount, final long theSequence,
+                 final String thePreviousPath) {
         Objects.requireNonNull(theFilename);
         Objects.requireNonNull(theEventType);
         Objects.requireNonNull(theTimestamp);
         Objects.requireNonNull(theExtension);
         Objects.requireNonNull(theDirectory);
+        Objects.requireNonNull(theLastSeen);
+        if (theCount < 1) {
+            throw new IllegalArgumentException("Event count must be at least 1: " + theCount);
+        }
 
         myFilename = theFilename;
-        myEventType = theEventType;
-        myTimestamp = theTimestamp;
-        myExtension = theExtension;
-        myDirectory = theDirectory;
+        myKind = EventKind.of(theEventType);
+        myOtherType = myKind == EventKind.OTHER ? theEventType : null;
+
+        myTime = parseTime(theTimestamp);
+        myRawTimestamp = myTime == UNKNOWN_TIME ? theTimestamp : null;
+        if (theLastSeen.equals(theTimestamp)) {
+            myLastSeen = myTime;
+            myRawLastSeen = myRawTimestamp;
+        } else {
+            myLastSeen = parseTime(theLastSeen);
+            myRawLastSeen = myLastSeen == UNKNOWN_TIME ? theLastSeen : null;
+        }
+
+        // split "parent/name" so events of the same directory share the parent
+        final int parentLength = theDirectory.length() - theFilename.length() - 1;
+        final char separator = parentLength < 0 ? 0 : theDirectory.charAt(parentLength);
+        if ((separator == '/' || separator == '\\') && theDirectory.endsWith(theFilename)) {
+            myParent = theDirectory.substring(0, parentLength).intern();
+            mySeparator = separator;
+        } else {
+            myParent = theDirectory.intern();
+            mySeparator = 0;
+        }
+
+        myExtension = theExtension.intern();
+        myCount = theCount;
+        mySequence = theSequence;
+        myPreviousPath = thePreviousPath;
+    }
+
+    /**
+     * Creates a new event object for a change just captured, without parsing or copying anything.
+     *
+     * @param theKind the type of event; not {@link EventKind#OTHER}.
+     * @param theParent the directory the file is in, ideally shared by the events of that directory.
+     * @param theFilename the name of the file affected.
+     * @param theExtension the extension of the file.
+     * @param theTime the time the event occurred, in nanoseconds since the epoch.
+     * @param theSequence the global capture order of the event.
+     * @param thePreviousPath the path the file was moved from, or null if it was not moved.
+     *
+     * @throws NullPointerException if any given argument but the previous path is null.
+     * @throws IllegalArgumentException if the kind is {@link EventKind#OTHER}.
+     */
+    public Event(final EventKind theKind, final String theParent, final String theFilename,
+                 final String theExtension, final long theTime, final long theSequence,
+                 final String thePreviousPath) {
+        if (Objects.requireNonNull(theKind) == EventKind.OTHER) {
+            throw new IllegalArgumentException("Event kind must be known");
+        }
+        myFilename = Objects.requireNonNull(theFilename);
+        // a root such as / or C:\ already ends with its separator; split it like the text form
+        final int last = theParent.length() - 1;
+        if (last >= 0 && (theParent.charAt(last) == '/' || theParent.charAt(last) == '\\')) {
+            myParent = theParent.substring(0, last).intern();
+            mySeparator = theParent.charAt(last);
+        } else {
+            myParent = theParent;
+            mySeparator = File.separatorChar;
+        }
+        myKind = theKind;
+        myOtherType = null;
+        myTime = theTime;
+        myLastSeen = theTime;
+        myRawTimestamp = null;
+        myRawLastSeen = null;
+        myExtension = theExtension.intern();
+        myCount = 1;
+        mySequence = theSequence;
+        myPreviousPath = thePreviousPath;
+    }
+
+    /**
+     * Creates an event from its stored values, as read back by {@link EventCodec}.
+     *
+     * @param theKind the type of event.
+     * @param theOtherType the type name if the kind is {@link EventKind#OTHER}, otherwise null.
+     * @param theParent the parent directory, or the whole directory string.
+     * @param theSeparator the separator between parent and file name, or 0 if there is none.
+     * @param theFilename the name of the file affected.
+     * @param theExtension the extension of the file.
+     * @param theTime the time the event occurred.
+     * @param theRawTimestamp the timestamp as given, or null if it is an ISO instant.
+     * @param theLastSeen the time the last merged event occurred.
+     * @param theRawLastSeen the last-seen timestamp as given, or null if it is an ISO instant.
+     * @param theCount the number of merged events.
+     * @param theSequence the global capture order of the event.
+     * @param thePreviousPath the path the file was moved from, or null.
+     */
+    Event(final EventKind theKind, final String theOtherType, final String theParent, final char theSeparator,
+          final String theFilename, final String theExtension, final long theTime, final String theRawTimestamp,
+          final long theLastSeen, final String theRawLastSeen, final int theCount, final long theSequence,
+          final String thePreviousPath) {
+        if (theCount < 1) {
+            throw new IllegalArgumentException("Event count must be at least 1: " + theCount);
+        }
+        if (theKind == EventKind.OTHER) {
+            Objects.requireNonNull(theOtherType);
+        }
+        myKind = Objects.requireNonNull(theKind);
+        myOtherType = theKind == EventKind.OTHER ? theOtherType : null;
+        myParent = Objects.requireNonNull(theParent);
+        mySeparator = theSeparator;
+        myFilename = Objects.requireNonNull(theFilename);
+        myExtension = Objects.requireNonNull(theExtension);
+        myTime = theTime;
+        myRawTimestamp = theRawTimestamp;
+        myLastSeen = theLastSeen;
+        myRawLastSeen = theRawLastSeen;
+        myCount = theCount;
+        mySequence = theSequence;
+        myPreviousPath = thePreviousPath;
+    }
+
+    /**
+     * Copies an event with a different kind, last-seen time and count.
+     *
+     * @param theEvent the event to copy.
+     * @param theKind the type of the copy.
+     * @param theLast the event whose last-seen time the copy takes.
+     * @param theCount the number of merged events.
+     * @param theSequence the global capture order of the copy.
+     */
+    private Event(final Event theEvent, final EventKind theKind, final Event theLast, final int theCount,
+                  final long theSequence) {
+        if (theCount < 1) {
+            throw new IllegalArgumentException("Event count must be at least 1: " + theCount);
+        }
+        myFilename = theEvent.myFilename;
+        myParent = theEvent.myParent;
+        mySeparator = theEvent.mySeparator;
+        myKind = theKind;
+        myOtherType = theKind == EventKind.OTHER ? theEvent.myOtherType : null;
+        myTime = theEvent.myTime;
+        myRawTimestamp = theEvent.myRawTimestamp;
+        myLastSeen = theLast.myLastSeen;
+        myRawLastSeen = theLast.myRawLastSeen;
+        myExtension = theEvent.myExtension;
+        myCount = theCount;
+        mySequence = theSequence;
+        myPreviousPath = theEvent.myPreviousPath;
+    }
+
+    /**
+     * Returns this event merged with later events on the same path.
+     *
+     * @param theLast the last merged event, whose time becomes the last-seen time.
+     * @param theCount the number of raw events the result stands for.
+     * @return the merged event.
+     * @throws IllegalArgumentException if the count is less than one.
+     */
+    public Event merge(final Event theLast, final int theCount) {
+        return new Event(this, myKind, theLast, theCount, mySequence);
+    }
+
+    /**
+     * Returns this event with another type.
+     *
+     * @param theKind the new type; not {@link EventKind#OTHER}.
+     * @return the event with the new type.
+     * @throws IllegalArgumentException if the kind is {@link EventKind#OTHER}.
+     */
+    public Event withKind(final EventKind theKind) {
+        if (Objects.requireNonNull(theKind) == EventKind.OTHER) {
+            throw new IllegalArgumentException("Event kind must be known");
+        }
+        return new Event(this, theKind, this, myCount, mySequence);
+    }
+
+    /**
+     * Returns this event without its capture sequence, marking it as not in
+     * the journal, so it is written to the database directly.
+     *
+     * @return the event with sequence zero.
+     */
+    public Event withoutSequence() {
+        return mySequence == 0 ? this : new Event(this, myKind, this, myCount, 0);
     }
 
     /**
@@ -77,14 +393,28 @@ public class Event implements Comparable<Event> {
      *
      * @return the event type of the file.
      */
-    public String getEventType() { return myEventType; }
+    public String getEventType() { return myKind == EventKind.OTHER ? myOtherType : myKind.getName(); }
+
+    /**
+     * Returns the kind of the event.
+     *
+     * @return the event kind, {@link EventKind#OTHER} if the type is not a known one.
+     */
+    public EventKind getKind() { return myKind; }
 
     /**
      * Returns the timestamp of the file.
      *
      * @return the timestamp of the file.
      */
-    public String getTimestamp() { return myTimestamp; }
+    public String getTimestamp() { return myRawTimestamp != null ? myRawTimestamp : formatTime(myTime); }
+
+    /**
+     * Returns the time the event took place.
+     *
+     * @return nanoseconds since the epoch, or {@link #UNKNOWN_TIME} if the timestamp is not an ISO instant.
+     */
+    public long getTime() { return myTime; }
 
     /**
      * Returns the extension of the file.
@@ -98,7 +428,72 @@ public class Event implements Comparable<Event> {
      *
      * @return the directory of the file.
      */
-    public String getDirectory() { return myDirectory; }
+    public String getDirectory() {
+        return mySeparator == 0 ? myParent : myParent + mySeparator + myFilename;
+    }
+
+    /**
+     * Returns the directory the file is in, shared by the events of that directory.
+     *
+     * @return the parent directory, or the whole directory string if it does not end with the file name.
+     */
+    public String getParent() { return myParent; }
+
+    /**
+     * Returns the time of the last event merged into this one.
+     *
+     * @return the last-seen timestamp, equal to the timestamp if nothing was merged.
+     */
+    public String getLastSeen() { return myRawLastSeen != null ? myRawLastSeen : formatTime(myLastSeen); }
+
+    /**
+     * Returns the time of the last event merged into this one.
+     *
+     * @return nanoseconds since the epoch, or {@link #UNKNOWN_TIME} if not an ISO instant.
+     */
+    public long getLastSeenTime() { return myLastSeen; }
+
+    /**
+     * Returns how many raw events this event stands for.
+     *
+     * @return the number of merged events.
+     */
+    public int getCount() { return myCount; }
+
+    /**
+     * Returns the global order in which the event was captured.
+     *
+     * @return the capture sequence number, zero if unknown.
+     */
+    public long getSequence() { return mySequence; }
+
+    /**
+     * Returns the path the file was moved from.
+     *
+     * @return the previous path, or null if the event is not a move.
+     */
+    public String getPreviousPath() { return myPreviousPath; }
+
+    /**
+     * Returns the separator between the parent and the file name.
+     *
+     * @return the separator, or 0 if the parent is the whole directory string.
+     */
+    char getSeparator() { return mySeparator; }
+
+    /**
+     * Returns the timestamp as given when it is not an ISO instant.
+     *
+     * @return the raw timestamp, or null if the time is known.
+     */
+    String getRawTimestamp() { return myRawTimestamp; }
+
+    /**
+     * Returns the last-seen timestamp as given when it is not an ISO instant.
+     *
+     * @return the raw last-seen timestamp, or null if the time is known.
+     */
+    String getRawLastSeen() { return myRawLastSeen; }
 
     /**
      * Overrides Java's toString method to produce meaningful output and
@@ -110,25 +505,132 @@ public class Event implements Comparable<Event> {
     public String toString() {
         return String.format("%s, %s, %s, %s, %s",
                 myFilename,
-                myEventType,
-                myTimestamp,
+                getEventType(),
+                getTimestamp(),
                 myExtension,
-                myDirectory);
+                getDirectory());
+    }
+
+    /**
+     * Checks whether another object is an event with the same values.
+     *
+     * @param theOther the object to compare with.
+     * @return true if every value is equal.
+     */
+    @Override
+    public boolean equals(final Object theOther) {
+        if (this == theOther) {
+            return true;
+        }
+        if (!(theOther instanceof Event other)) {
+            return false;
+        }
+        return compareTo(other) == 0;
     }
 
     /**
-     * Overrides Java's compareTo method to make events comparable for unit testing.
+     * Returns a hash code consistent with {@link #equals}.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+        int hash = Long.hashCode(myTime);
+        hash = 31 * hash + Long.hashCode(mySequence);
+        hash = 31 * hash + myKind.hashCode();
+        hash = 31 * hash + myFilename.hashCode();
+        hash = 31 * hash + myParent.hashCode();
+        return hash;
+    }
+
+    /**
+     * Orders events by time, then capture order, then path, type and the
+     * remaining values. Returns zero exactly when the events are equal.
      *
      * @param theOther the object to be compared.
-     * @return whether the two events are the same or not.
+     * @return a negative number, zero or a positive number as this event comes
+     *         before, is equal to or comes after the other.
      */
     @Override
-    public int compareTo(Event theOther) {
-        if (this.toString().equals(theOther.toString())) {
-            return 0;
-        } else {
-            return this.toString().length() - theOther.toString().length();
+    public int compareTo(final Event theOther) {
+        int result = Long.compare(myTime, theOther.myTime);
+        if (result == 0) {
+            result = Long.compare(mySequence, theOther.mySequence);
+        }
+        if (result == 0) {
+            result = myParent.compareTo(theOther.myParent);
+        }
+        if (result == 0) {
+            result = Character.compare(mySeparator, theOther.mySeparator);
+        }
+        if (result == 0) {
+            result = myFilename.compareTo(theOther.myFilename);
         }
+        if (result == 0) {
+            result = myKind.compareTo(theOther.myKind);
+        }
+        if (result == 0) {
+            result = compareNullable(myOtherType, theOther.myOtherType);
+        }
+        if (result == 0) {
+            result = compareNullable(myRawTimestamp, theOther.myRawTimestamp);
+        }
+        if (result == 0) {
+            result = Long.compare(myLastSeen, theOther.myLastSeen);
+        }
+        if (result == 0) {
+            result = compareNullable(myRawLastSeen, theOther.myRawLastSeen);
+        }
+        if (result == 0) {
+            result = myExtension.compareTo(theOther.myExtension);
+        }
+        if (result == 0) {
+            result = Integer.compare(myCount, theOther.myCount);
+        }
+        if (result == 0) {
+            result = compareNullable(myPreviousPath, theOther.myPreviousPath);
+        }
+        return result;
+    }
+
+    /**
+     * Compares two strings that may be null, null first.
+     *
+     * @param theFirst the first string.
+     * @param theSecond the second string.
+     * @return the comparison.
+     */
+    private static int compareNullable(final String theFirst, final String theSecond) {
+        if (theFirst == null || theSecond == null) {
+            return theFirst == null ? (theSecond == null ? 0 : -1) : 1;
+        }
+        return theFirst.compareTo(theSecond);
     }
-}
 
+    /**
+     * Converts an ISO instant to nanoseconds since the epoch.
+     *
+     * @param theTimestamp the timestamp.
+     * @return the time, or {@link #UNKNOWN_TIME} if the timestamp would not be
+     *         printed back the same way.
+     */
+    private static long parseTime(final String theTimestamp) {
+        try {
+            final Instant instant = Instant.parse(theTimestamp);
+            final long time = Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS), instant.getNano());
+            return time != UNKNOWN_TIME && instant.toString().equals(theTimestamp) ? time : UNKNOWN_TIME;
+        } catch (DateTimeParseException | ArithmeticException e) {
+            return UNKNOWN_TIME;
+        }
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to an ISO instant.
+     *
+     * @param theTime the time.
+     * @return the timestamp.
+     */
+    private static String formatTime(final long theTime) {
+        return Instant.ofEpochSecond(Math.floorDiv(theTime, NANOS), Math.floorMod(theTime, NANOS)).toString();
+    }
+}
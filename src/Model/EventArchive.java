@@ -0,0 +1,598 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old events moved out of the database into immutable {@link ArchiveSegment}
+ * files, which take a fraction of the space and keep the database small. The
+ * segments are listed in the archive_segments table of the database, and a
+ * segment is listed in the same transaction that deletes its events from
+ * event_log, so every event is either in the database or in a listed
+ * segment. A segment file not listed, left by a move that did not commit, is
+ * deleted when the archive is opened.
+ *
+ * <p>A segment never spans two UTC days, so each day is a partition of
+ * whole segment files, and old days are expired by {@link #dropBefore}
+ * unlisting and deleting their files rather than deleting events one by one.</p>
+ *
+ * <p>Only events with a time are archived. Searches read the archive
+ * alongside the database, skipping segments whose time range or dictionaries
+ * rule them out, and keep the last few segments read decoded.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventArchive {
+
+    /**
+     * Directory the archive is kept in by default.
+     */
+    public static final Path DEFAULT_DIRECTORY = Path.of("file_watcher_archive");
+
+    /**
+     * Largest number of events per segment.
+     */
+    public static final int SEGMENT_SIZE = 65_536;
+
+    /**
+     * Length of a partition, one UTC day in nanoseconds.
+     */
+    public static final long PARTITION_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * Names of the segments listed in the database.
+     */
+    static final String MANIFEST = "SELECT name FROM archive_segments";
+
+    /**
+     * Time of the oldest event in the database.
+     */
+    private static final String OLDEST = "SELECT MIN(time) FROM event_log";
+
+    /**
+     * The oldest events with a time before a cutoff, in (time, id) order.
+     */
+    private static final String SELECT = "SELECT * FROM events WHERE Kind IS NOT NULL AND Time < ? "
+            + "ORDER BY Time, Id LIMIT ?";
+
+    /**
+     * Lists a segment.
+     */
+    private static final String LIST = "INSERT INTO archive_segments(name, events, min_time, max_time) "
+            + "VALUES(?, ?, ?, ?)";
+
+    /**
+     * Deletes the events selected up to the last one archived.
+     */
+    private static final String DELETE = "DELETE FROM event_log WHERE time < ? AND (time, id) <= (?, ?)";
+
+    /**
+     * Unlists a segment.
+     */
+    private static final String UNLIST = "DELETE FROM archive_segments WHERE name = ?";
+
+    /**
+     * Start of the name of a segment file.
+     */
+    private static final String PREFIX = "segment-";
+
+    /**
+     * End of the name of a segment file.
+     */
+    private static final String SUFFIX = ".fwa";
+
+    /**
+     * Number of segments kept decoded.
+     */
+    private static final int CACHED_SEGMENTS = 4;
+
+    /**
+     * Order of events in the archive.
+     */
+    private static final Comparator<Hit> ORDER = Comparator.<Hit>comparingLong(hit -> hit.myTime)
+            .thenComparingLong(hit -> hit.myId);
+
+    /**
+     * The directory of the segment files.
+     */
+    private final Path myDirectory;
+
+    /**
+     * The segments, by their earliest time.
+     */
+    private final List<ArchiveSegment> mySegments;
+
+    /**
+     * The segments read last, decoded, least recently read first.
+     */
+    private final Map<ArchiveSegment, Rows> myDecoded;
+
+    /**
+     * Number of the next segment file.
+     */
+    private long myNextNumber;
+
+    /**
+     * Opens the archive in a directory, creating the directory if needed.
+     *
+     * @param theDirectory the directory of the segment files.
+     * @param theListed the names of the segments listed in the database; other segment files are deleted.
+     * @throws IOException if the directory cannot be read or created.
+     */
+    public EventArchive(final Path theDirectory, final Collection<String> theListed) throws IOException {
+        myDirectory = theDirectory;
+        mySegments = new ArrayList<>();
+        myDecoded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ArchiveSegment, Rows> theEldest) {
+                return size() > CACHED_SEGMENTS;
+            }
+        };
+        Files.createDirectories(theDirectory);
+        final Set<String> missing = new HashSet<>(theListed);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(theDirectory, PREFIX + "*")) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                myNextNumber = Math.max(myNextNumber, number(name) + 1);
+                if (!name.endsWith(SUFFIX) || !missing.remove(name)) {
+                    // written by a move that did not commit; its events are still in the database
+                    Files.delete(file);
+                    continue;
+                }
+                try {
+                    mySegments.add(ArchiveSegment.open(file));
+                } catch (IOException e) {
+                    System.out.println("Error opening archive segment: " + e);
+                }
+            }
+        }
+        for (String name : missing) {
+            System.out.println("Error opening archive segment: " + name + " is missing");
+        }
+        mySegments.sort(Comparator.comparingLong(ArchiveSegment::getMinTime));
+    }
+
+    /**
+     * Moves up to a segment of the oldest events before a cutoff from the
+     * database into a new segment, stopping at the end of their day. The
+     * segment is written first, then listed and its events deleted in one
+     * transaction.
+     *
+     * @param theWriter the writer connection, not used by anyone else meanwhile.
+     * @param theCutoff the time in nanoseconds since the epoch events must be before.
+     * @param theMax the largest number of events to move.
+     * @return the number of events moved, 0 once none are left before the cutoff.
+     * @throws SQLException if the database cannot be read or changed; the move is rolled back.
+     * @throws IOException if the segment cannot be written.
+     */
+    public int moveBatch(final Connection theWriter, final long theCutoff, final int theMax)
+            throws SQLException, IOException {
+        final Move move = prepareMove(theWriter, theCutoff, theMax);
+        return move == null ? 0 : commitMove(theWriter, move);
+    }
+
+    /**
+     * Writes the segment of a {@link #moveBatch move} without changing the
+     * database, so a caller can commit it while holding a lock that the
+     * writing, which compresses and syncs the file, should not be under.
+     *
+     * @param theWriter the writer connection, not used by anyone else until {@link #commitMove}.
+     * @param theCutoff the time in nanoseconds since the epoch events must be before.
+     * @param theMax the largest number of events to move.
+     * @return the move to commit, or null if no events are left before the cutoff.
+     * @throws SQLException if the database cannot be read.
+     * @throws IOException if the segment cannot be written.
+     */
+    Move prepareMove(final Connection theWriter, final long theCutoff, final int theMax)
+            throws SQLException, IOException {
+        final long cutoff;
+        try (PreparedStatement oldest = theWriter.prepareStatement(OLDEST);
+             ResultSet rs = oldest.executeQuery()) {
+            final long time = rs.next() ? rs.getLong(1) : 0;
+            if (rs.wasNull() || time >= theCutoff) {
+                return null;
+            }
+            final long day = Math.floorDiv(time, PARTITION_NANOS);
+            cutoff = day < Long.MAX_VALUE / PARTITION_NANOS ? Math.min(theCutoff, (day + 1) * PARTITION_NANOS)
+                    : theCutoff;
+        }
+
+        final List<Event> events = new ArrayList<>();
+        long[] ids = new long[Math.min(theMax, SEGMENT_SIZE)];
+        try (PreparedStatement select = theWriter.prepareStatement(SELECT)) {
+            select.setLong(1, cutoff);
+            select.setInt(2, ids.length);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ids[events.size()] = rs.getLong("Id");
+                    events.add(EventSchema.read(rs));
+                }
+            }
+        }
+        if (events.isEmpty()) {
+            return null;
+        }
+        ids = Arrays.copyOf(ids, events.size());
+
+        final Path path;
+        synchronized (this) {
+            path = myDirectory.resolve(String.format("%s%08d%s", PREFIX, myNextNumber++, SUFFIX));
+        }
+        return new Move(ArchiveSegment.write(path, events, ids), cutoff, events.getLast().getTime(),
+                ids[ids.length - 1]);
+    }
+
+    /**
+     * Lists the segment of a move and deletes its events in one transaction,
+     * then adds it to those searched. If the transaction fails, the segment
+     * file is deleted.
+     *
+     * @param theWriter the writer connection, used by no one else since {@link #prepareMove}.
+     * @param theMove the move.
+     * @return the number of events moved.
+     * @throws SQLException if the database cannot be changed; the move is rolled back.
+     * @throws IOException if the segment file cannot be deleted after a rollback.
+     */
+    int commitMove(final Connection theWriter, final Move theMove) throws SQLException, IOException {
+        final ArchiveSegment segment = theMove.mySegment;
+        final boolean autoCommit = theWriter.getAutoCommit();
+        theWriter.setAutoCommit(false);
+        try (PreparedStatement list = theWriter.prepareStatement(LIST);
+             PreparedStatement delete = theWriter.prepareStatement(DELETE)) {
+            list.setString(1, segment.getPath().getFileName().toString());
+            list.setInt(2, segment.getCount());
+            list.setLong(3, segment.getMinTime());
+            list.setLong(4, segment.getMaxTime());
+            list.executeUpdate();
+            delete.setLong(1, theMove.myCutoff);
+            delete.setLong(2, theMove.myLastTime);
+            delete.setLong(3, theMove.myLastId);
+            final int deleted = delete.executeUpdate();
+            if (deleted != segment.getCount()) {
+                throw new SQLException("Archived " + segment.getCount() + " events but would delete " + deleted);
+            }
+            theWriter.commit();
+        } catch (SQLException e) {
+            theWriter.rollback();
+            Files.deleteIfExists(segment.getPath());
+            throw e;
+        } finally {
+            theWriter.setAutoCommit(autoCommit);
+        }
+        add(segment);
+        return segment.getCount();
+    }
+
+    /**
+     * Drops the partitions of the days before a time: unlists their segments
+     * in one transaction, then deletes the files.
+     *
+     * @param theWriter the writer connection, not used by anyone else meanwhile.
+     * @param theBefore the time in nanoseconds since the epoch; the days
+     * ending at or before it are dropped.
+     * @return the number of events dropped.
+     * @throws SQLException if the segments cannot be unlisted; none are dropped.
+     */
+    public int dropBefore(final Connection theWriter, final long theBefore) throws SQLException {
+        final long before = Math.floorDiv(theBefore, PARTITION_NANOS) * PARTITION_NANOS;
+        final List<ArchiveSegment> expired = new ArrayList<>();
+        synchronized (this) {
+            for (ArchiveSegment segment : mySegments) {
+                if (segment.getMaxTime() < before) {
+                    expired.add(segment);
+                }
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        final boolean autoCommit = theWriter.getAutoCommit();
+        theWriter.setAutoCommit(false);
+        try (PreparedStatement unlist = theWriter.prepareStatement(UNLIST)) {
+            for (ArchiveSegment segment : expired) {
+                unlist.setString(1, segment.getPath().getFileName().toString());
+                unlist.addBatch();
+            }
+            unlist.executeBatch();
+            theWriter.commit();
+        } catch (SQLException e) {
+            theWriter.rollback();
+            throw e;
+        } finally {
+            theWriter.setAutoCommit(autoCommit);
+        }
+
+        int dropped = 0;
+        synchronized (this) {
+            mySegments.removeAll(expired);
+            expired.forEach(myDecoded::remove);
+        }
+        for (ArchiveSegment segment : expired) {
+            dropped += segment.getCount();
+            try {
+                Files.deleteIfExists(segment.getPath());
+            } catch (IOException e) {
+                // unlisted, so deleted the next time the archive is opened
+                System.out.println("Error deleting archive segment: " + e);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Reads the events matching a query that come after a (time, id) key,
+     * in (time, id) order.
+     *
+     * @param theQuery the query.
+     * @param theAfterTime the time of the key.
+     * @param theAfterId the id of the key.
+     * @param theMax the largest number of events to read.
+     * @param theEvents receives the events.
+     * @param theIds receives the ids of the events, or null if not needed.
+     * @return the number of events read.
+     * @throws IOException if a segment cannot be read.
+     */
+    public synchronized int read(final EventQuery theQuery, final long theAfterTime, final long theAfterId,
+                                 final int theMax, final List<Event> theEvents,
+                                 final List<Long> theIds) throws IOException {
+        final List<Hit> hits = new ArrayList<>();
+        for (ArchiveSegment segment : mySegments) {
+            if (hits.size() >= theMax && segment.getMinTime() > hits.getLast().myTime) {
+                // this and every later segment sort after the hits kept
+                break;
+            }
+            if (!segment.mayMatch(theQuery, theAfterTime)) {
+                continue;
+            }
+            final Rows rows = decoded(segment);
+            int found = 0;
+            for (int i = rows.after(theAfterTime, theAfterId); i < rows.myIds.length && found < theMax; i++) {
+                if (theQuery.matches(rows.myEvents[i])) {
+                    hits.add(new Hit(rows.myEvents[i].getTime(), rows.myIds[i], rows.myEvents[i]));
+                    found++;
+                }
+            }
+            if (found > 0) {
+                hits.sort(ORDER);
+                if (hits.size() > theMax) {
+                    hits.subList(theMax, hits.size()).clear();
+                }
+            }
+        }
+        for (Hit hit : hits) {
+            theEvents.add(hit.myEvent);
+            if (theIds != null) {
+                theIds.add(hit.myId);
+            }
+        }
+        return hits.size();
+    }
+
+    /**
+     * Returns the segments, by their earliest time.
+     *
+     * @return a copy of the list of segments.
+     */
+    public synchronized List<ArchiveSegment> getSegments() {
+        return List.copyOf(mySegments);
+    }
+
+    /**
+     * Returns the number of events in the archive.
+     *
+     * @return the number of events.
+     */
+    public synchronized long getEventCount() {
+        return mySegments.stream().mapToLong(ArchiveSegment::getCount).sum();
+    }
+
+    /**
+     * Returns the size of the archive on disk.
+     *
+     * @return the size of the segment files in bytes.
+     */
+    public synchronized long getSize() {
+        return mySegments.stream().mapToLong(ArchiveSegment::getSize).sum();
+    }
+
+    /**
+     * Returns the directory of the segment files.
+     *
+     * @return the directory.
+     */
+    public Path getDirectory() {
+        return myDirectory;
+    }
+
+    /**
+     * Adds a segment to those searched.
+     *
+     * @param theSegment the segment.
+     */
+    private synchronized void add(final ArchiveSegment theSegment) {
+        int index = mySegments.size();
+        while (index > 0 && mySegments.get(index - 1).getMinTime() > theSegment.getMinTime()) {
+            index--;
+        }
+        mySegments.add(index, theSegment);
+    }
+
+    /**
+     * Returns the events of a segment, decoding it if it is not cached.
+     *
+     * @param theSegment the segment.
+     * @return its events and ids.
+     * @throws IOException if it cannot be read.
+     */
+    private Rows decoded(final ArchiveSegment theSegment) throws IOException {
+        Rows rows = myDecoded.get(theSegment);
+        if (rows == null) {
+            final long[] ids = new long[theSegment.getCount()];
+            rows = new Rows(theSegment.read(ids), ids);
+            myDecoded.put(theSegment, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the number of a segment file from its name.
+     *
+     * @param theName the file name.
+     * @return the number, or -1 if the name has none.
+     */
+    private static long number(final String theName) {
+        final int end = theName.indexOf('.');
+        try {
+            return Long.parseLong(theName.substring(PREFIX.length(), end < 0 ? theName.length() : end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A segment written by {@link #prepareMove} whose events are still in the database.
+     */
+    static final class Move {
+
+        /**
+         * The segment written.
+         */
+        private final ArchiveSegment mySegment;
+
+        /**
+         * The time its events are all before.
+         */
+        private final long myCutoff;
+
+        /**
+         * Time of its last event.
+         */
+        private final long myLastTime;
+
+        /**
+         * Id of its last event.
+         */
+        private final long myLastId;
+
+        /**
+         * Holds a written segment.
+         *
+         * @param theSegment the segment.
+         * @param theCutoff the time its events are all before.
+         * @param theLastTime the time of its last event.
+         * @param theLastId the id of its last event.
+         */
+        private Move(final ArchiveSegment theSegment, final long theCutoff, final long theLastTime,
+                     final long theLastId) {
+            mySegment = theSegment;
+            myCutoff = theCutoff;
+            myLastTime = theLastTime;
+            myLastId = theLastId;
+        }
+    }
+
+    /**
+     * The events of a decoded segment.
+     */
+    private static final class Rows {
+
+        /**
+         * The events, in (time, id) order.
+         */
+        private final Event[] myEvents;
+
+        /**
+         * Their ids.
+         */
+        private final long[] myIds;
+
+        /**
+         * Holds decoded events.
+         *
+         * @param theEvents the events.
+         * @param theIds their ids.
+         */
+        private Rows(final Event[] theEvents, final long[] theIds) {
+            myEvents = theEvents;
+            myIds = theIds;
+        }
+
+        /**
+         * Returns the index of the first event after a key.
+         *
+         * @param theTime the time of the key.
+         * @param theId the id of the key.
+         * @return the index, or the number of events if none is after it.
+         */
+        private int after(final long theTime, final long theId) {
+            int low = 0;
+            int high = myIds.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final long time = myEvents[middle].getTime();
+                if (time < theTime || time == theTime && myIds[middle] <= theId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * An event found by a read.
+     */
+    private static final class Hit {
+
+        /**
+         * Time of the event.
+         */
+        private final long myTime;
+
+        /**
+         * Id of the event.
+         */
+        private final long myId;
+
+        /**
+         * The event.
+         */
+        private final Event myEvent;
+
+        /**
+         * Holds a found event.
+         *
+         * @param theTime its time.
+         * @param theId its id.
+         * @param theEvent the event.
+         */
+        private Hit(final long theTime, final long theId, final Event theEvent) {
+            myTime = theTime;
+            myId = theId;
+            myEvent = theEvent;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collapses bursts of events for the same path into one event. An event is
+ * held back until its path has been quiet for the configured window; events
+ * arriving meanwhile are merged into it, keeping the first and last time seen
+ * and a count. A CREATE followed by MODIFYs stays a single CREATE. MOVE
+ * events are never merged, since each has its own previous path.
+ *
+ * <p>This class is not thread safe; it is meant to be driven by the watcher thread.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public class EventCoalescer {
+
+    /**
+     * How long a path must be quiet before its event is released, in nanoseconds.
+     */
+    private final long myQuietNanos;
+
+    /**
+     * Events held back, by path, in the order they were first seen.
+     */
+    private final Map<String, Pending> myPending;
+
+    /**
+     * Number of raw events merged into an earlier one.
+     */
+    private long myMerged;
+
+    /**
+     * Creates a new coalescer.
+     *
+     * @param theQuietNanos how long a path must be quiet before its event is released.
+     * @throws IllegalArgumentException if the window is negative.
+     */
+    public EventCoalescer(final long theQuietNanos) {
+        if (theQuietNanos < 0) {
+            throw new IllegalArgumentException("Quiet window cannot be negative: " + theQuietNanos);
+        }
+        myQuietNanos = theQuietNanos;
+        myPending = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a raw event. If it cannot be merged with the event pending for the same
+     * path, the pending one is released first.
+     *
+     * @param theEvent the raw event.
+     * @param theNow the current time from {@link System#nanoTime()}.
+     * @param theReady collection receiving released events.
+     * @throws NullPointerException if the event or collection is null.
+     */
+    public void add(final Event theEvent, final long theNow, final Collection<? super Event> theReady) {
+        Objects.requireNonNull(theEvent);
+        Objects.requireNonNull(theReady);
+
+        final String path = theEvent.getDirectory();
+        final Pending pending = myPending.get(path);
+        if (pending != null) {
+            if (canMerge(pending.myFirst, theEvent)) {
+                pending.myLast = theEvent;
+                pending.myCount += theEvent.getCount();
+                pending.myLastActivity = theNow;
+                myMerged++;
+                return;
+            }
+            theReady.add(myPending.remove(path).toEvent());
+        }
+        myPending.put(path, new Pending(theEvent, theNow));
+    }
+
+    /**
+     * Releases every pending event whose path has been quiet long enough.
+     *
+     * @param theNow the current time from {@link System#nanoTime()}.
+     * @param theReady collection receiving released events.
+     */
+    public void flushExpired(final long theNow, final Collection<? super Event> theReady) {
+        final Iterator<Pending> it = myPending.values().iterator();
+        while (it.hasNext()) {
+            final Pending pending = it.next();
+            if (theNow - pending.myLastActivity >= myQuietNanos) {
+                theReady.add(pending.toEvent());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Releases every pending event regardless of the window.
+     *
+     * @param theReady collection receiving released events.
+     */
+    public void flushAll(final Collection<? super Event> theReady) {
+        for (Pending pending : myPending.values()) {
+            theReady.add(pending.toEvent());
+        }
+        myPending.clear();
+    }
+
+    /**
+     * Returns the number of events currently held back.
+     *
+     * @return the number of pending events.
+     */
+    public int getPendingCount() {
+        return myPending.size();
+    }
+
+    /**
+     * Returns how many raw events were merged into earlier ones.
+     *
+     * @return the number of merged events.
+     */
+    public long getMergedCount() {
+        return myMerged;
+    }
+
+    /**
+     * Returns the quiet window.
+     *
+     * @return the quiet window in nanoseconds.
+     */
+    public long getQuietNanos() {
+        return myQuietNanos;
+    }
+
+    /**
+     * Decides whether an event folds into a pending event of the same path.
+     *
+     * @param thePending the pending event.
+     * @param theNext the new event.
+     * @return true if the events can be merged.
+     */
+    private static boolean canMerge(final Event thePending, final Event theNext) {
+        final EventKind pending = thePending.getKind();
+        final EventKind next = theNext.getKind();
+        if (pending == EventKind.OTHER) {
+            return thePending.getEventType().equals(theNext.getEventType());
+        }
+        if (pending == EventKind.MOVE) {
+            // each move has its own source path, which a merge would lose
+            return false;
+        }
+        return pending == next || (pending == EventKind.CREATE && next == EventKind.MODIFY);
+    }
+
+    /**
+     * An event being held back and what has been merged into it so far.
+     */
+    private static final class Pending {
+
+        /**
+         * The first event seen for the path.
+         */
+        private final Event myFirst;
+
+        /**
+         * The latest event merged in.
+         */
+        private Event myLast;
+
+        /**
+         * Total number of raw events.
+         */
+        private int myCount;
+
+        /**
+         * When the latest event arrived, from {@link System#nanoTime()}.
+         */
+        private long myLastActivity;
+
+        /**
+         * Starts a pending entry.
+         *
+         * @param theFirst the first event.
+         * @param theNow when it arrived.
+         */
+        private Pending(final Event theFirst, final long theNow) {
+            myFirst = theFirst;
+            myLast = theFirst;
+            myCount = theFirst.getCount();
+            myLastActivity = theNow;
+        }
+
+        /**
+         * Builds the merged event.
+         *
+         * @return the merged event, or the original when nothing was merged.
+         */
+        private Event toEvent() {
+            if (myLast == myFirst) {
+                return myFirst;
+            }
+            return myFirst.merge(myLast, myCount);
+        }
+    }
+}
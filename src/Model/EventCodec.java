@@ -0,0 +1,518 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes events in a fixed binary format, shared by everything that
+ * stores or sends events so no one splits {@link Event#toString()} again.
+ * Events are written to and read from {@link ByteBuffer}s directly, with no
+ * intermediate byte arrays on the way out.
+ *
+ * <p>A stream starts with a header of {@link #MAGIC} and {@link #VERSION}.
+ * Each record is a varint body length followed by the body:</p>
+ * <ol>
+ *     <li>kind: one byte, the {@link EventKind} ordinal;</li>
+ *     <li>flags: one byte, see the {@code HAS_} and {@code SEPARATOR_} constants;</li>
+ *     <li>time and last-seen time minus time, as zigzag varints, unless given raw;</li>
+ *     <li>count and sequence, as varints;</li>
+ *     <li>file name, parent and extension, then the type name, raw timestamps and
+ *     previous path if flagged, each as a varint byte length and UTF-8.</li>
+ * </ol>
+ * <p>Readers skip anything after the fields they know up to the body length,
+ * so later versions may append fields. Decoded parents and extensions are
+ * interned like those of captured events.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventCodec {
+
+    /**
+     * First four bytes of an encoded stream, "FWEV".
+     */
+    public static final int MAGIC = 0x46574556;
+
+    /**
+     * Version of the record format written by this class.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Size of the stream header in bytes.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES + 1;
+
+    /**
+     * Largest record body accepted, so a corrupt length cannot claim the whole stream.
+     */
+    public static final int MAX_RECORD_SIZE = 1 << 20;
+
+    /**
+     * Flag set if the kind is OTHER and its type name follows.
+     */
+    private static final int HAS_OTHER_TYPE = 1;
+
+    /**
+     * Flag set if the timestamp is given as a string instead of a time.
+     */
+    private static final int HAS_RAW_TIMESTAMP = 1 << 1;
+
+    /**
+     * Flag set if the last-seen timestamp is given as a string instead of a time.
+     */
+    private static final int HAS_RAW_LAST_SEEN = 1 << 2;
+
+    /**
+     * Flag set if the previous path follows.
+     */
+    private static final int HAS_PREVIOUS_PATH = 1 << 3;
+
+    /**
+     * Position of the separator bits in the flags.
+     */
+    private static final int SEPARATOR_SHIFT = 4;
+
+    /**
+     * Separator bits: the parent is the whole directory.
+     */
+    private static final int SEPARATOR_NONE = 0;
+
+    /**
+     * Separator bits: the parent and name are joined by '/'.
+     */
+    private static final int SEPARATOR_SLASH = 1;
+
+    /**
+     * Separator bits: the parent and name are joined by '\'.
+     */
+    private static final int SEPARATOR_BACKSLASH = 2;
+
+    /**
+     * All kinds by ordinal.
+     */
+    private static final EventKind[] KINDS = EventKind.values();
+
+    /**
+     * Scratch space for decoding strings from buffers without an array.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /**
+     * Not instantiable.
+     */
+    private EventCodec() {
+    }
+
+    /**
+     * Writes the stream header.
+     *
+     * @param theBuffer the buffer to write to.
+     * @throws BufferOverflowException if fewer than {@link #HEADER_SIZE} bytes remain.
+     */
+    public static void writeHeader(final ByteBuffer theBuffer) {
+        theBuffer.putInt(MAGIC).put(VERSION);
+    }
+
+    /**
+     * Reads and checks the stream header.
+     *
+     * @param theBuffer the buffer to read from.
+     * @return the version of the stream.
+     * @throws StreamCorruptedException if the header is missing or of a newer version.
+     */
+    public static int readHeader(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        if (theBuffer.remaining() < HEADER_SIZE || theBuffer.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Not an event stream");
+        }
+        final int version = theBuffer.get();
+        if (version < 1 || version > VERSION) {
+            throw new StreamCorruptedException("Unsupported event stream version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode} writes for an event.
+     *
+     * @param theEvent the event.
+     * @return the size of its record, length included.
+     */
+    public static int sizeOf(final Event theEvent) {
+        final int body = bodySize(theEvent);
+        return varIntSize(body) + body;
+    }
+
+    /**
+     * Writes one event record.
+     *
+     * @param theEvent the event to write.
+     * @param theBuffer the buffer to write to, at its position.
+     * @throws BufferOverflowException if fewer than {@link #sizeOf} bytes remain,
+     * in which case the position is left unchanged.
+     * @throws IllegalArgumentException if the record would be larger than {@link #MAX_RECORD_SIZE}.
+     */
+    public static void encode(final Event theEvent, final ByteBuffer theBuffer) {
+        final int body = bodySize(theEvent);
+        if (body > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Event too large to encode: " + body + " bytes");
+        }
+        if (theBuffer.remaining() < varIntSize(body) + body) {
+            throw new BufferOverflowException();
+        }
+        putVarLong(theBuffer, body);
+        final String raw = theEvent.getRawTimestamp();
+        final String rawLast = theEvent.getRawLastSeen();
+        final String other = theEvent.getKind() == EventKind.OTHER ? theEvent.getEventType() : null;
+        final String previous = theEvent.getPreviousPath();
+        theBuffer.put((byte) theEvent.getKind().ordinal());
+        theBuffer.put((byte) flags(theEvent, other, raw, rawLast, previous));
+        if (raw == null) {
+            putVarLong(theBuffer, zigzag(theEvent.getTime()));
+        }
+        if (rawLast == null) {
+            putVarLong(theBuffer, zigzag(theEvent.getLastSeenTime() - theEvent.getTime()));
+        }
+        putVarLong(theBuffer, theEvent.getCount());
+        putVarLong(theBuffer, zigzag(theEvent.getSequence()));
+        putString(theBuffer, theEvent.getFilename());
+        putString(theBuffer, theEvent.getParent());
+        putString(theBuffer, theEvent.getExtension());
+        putOptional(theBuffer, other);
+        putOptional(theBuffer, raw);
+        putOptional(theBuffer, rawLast);
+        putOptional(theBuffer, previous);
+    }
+
+    /**
+     * Reads one event record.
+     *
+     * @param theBuffer the buffer to read from, at its position.
+     * @return the event, or null if the buffer ends before the record does, in
+     * which case the position is left unchanged.
+     * @throws StreamCorruptedException if the record is malformed; the position
+     * is then undefined.
+     */
+    public static Event decode(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        final int start = theBuffer.position();
+        final long body;
+        try {
+            body = getVarLong(theBuffer);
+        } catch (final BufferUnderflowException e) {
+            theBuffer.position(start);
+            return null;
+        }
+        if (body < 0 || body > MAX_RECORD_SIZE) {
+            throw new StreamCorruptedException("Event record of " + body + " bytes");
+        }
+        if (theBuffer.remaining() < body) {
+            theBuffer.position(start);
+            return null;
+        }
+        final int end = theBuffer.position() + (int) body;
+        final int limit = theBuffer.limit();
+        theBuffer.limit(end);
+        try {
+            final Event event = decodeBody(theBuffer);
+            theBuffer.limit(limit).position(end);
+            return event;
+        } catch (final BufferUnderflowException | IllegalArgumentException | NullPointerException e) {
+            theBuffer.limit(limit);
+            throw new StreamCorruptedException("Malformed event record: " + e);
+        }
+    }
+
+    /**
+     * Reads the body of a record, the buffer limited to its end.
+     *
+     * @param theBuffer the buffer.
+     * @return the event.
+     * @throws StreamCorruptedException if a field is out of range.
+     */
+    private static Event decodeBody(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        final int ordinal = theBuffer.get() & 0xFF;
+        if (ordinal >= KINDS.length) {
+            throw new StreamCorruptedException("Unknown event kind " + ordinal);
+        }
+        final EventKind kind = KINDS[ordinal];
+        final int flags = theBuffer.get() & 0xFF;
+        final long time = (flags & HAS_RAW_TIMESTAMP) == 0 ? unzigzag(getVarLong(theBuffer)) : Event.UNKNOWN_TIME;
+        final long lastSeen = (flags & HAS_RAW_LAST_SEEN) == 0
+                ? time + unzigzag(getVarLong(theBuffer)) : Event.UNKNOWN_TIME;
+        final long count = getVarLong(theBuffer);
+        if (count < 1 || count > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Event count " + count);
+        }
+        final long sequence = unzigzag(getVarLong(theBuffer));
+        final String filename = getString(theBuffer);
+        final String parent = getString(theBuffer).intern();
+        final String extension = getString(theBuffer).intern();
+        final String other = (flags & HAS_OTHER_TYPE) != 0 ? getString(theBuffer) : null;
+        final String raw = (flags & HAS_RAW_TIMESTAMP) != 0 ? getString(theBuffer) : null;
+        final String rawLast = (flags & HAS_RAW_LAST_SEEN) != 0 ? getString(theBuffer) : null;
+        final String previous = (flags & HAS_PREVIOUS_PATH) != 0 ? getString(theBuffer) : null;
+        final char separator = switch ((flags >>> SEPARATOR_SHIFT) & 3) {
+            case SEPARATOR_NONE -> 0;
+            case SEPARATOR_SLASH -> '/';
+            case SEPARATOR_BACKSLASH -> '\\';
+            default -> throw new StreamCorruptedException("Unknown separator in flags " + flags);
+        };
+        return new Event(kind, other, parent, separator, filename, extension,
+                time, raw, lastSeen, rawLast, (int) count, sequence, previous);
+    }
+
+    /**
+     * Returns the flags byte of an event.
+     *
+     * @param theEvent the event.
+     * @param theOther its type name if it is of kind OTHER.
+     * @param theRaw its raw timestamp.
+     * @param theRawLast its raw last-seen timestamp.
+     * @param thePrevious its previous path.
+     * @return the flags.
+     */
+    private static int flags(final Event theEvent, final String theOther, final String theRaw,
+                             final String theRawLast, final String thePrevious) {
+        int flags = switch (theEvent.getSeparator()) {
+            case 0 -> SEPARATOR_NONE;
+            case '/' -> SEPARATOR_SLASH;
+            case '\\' -> SEPARATOR_BACKSLASH;
+            default -> throw new IllegalArgumentException("Unsupported separator " + theEvent.getSeparator());
+        } << SEPARATOR_SHIFT;
+        if (theOther != null) {
+            flags |= HAS_OTHER_TYPE;
+        }
+        if (theRaw != null) {
+            flags |= HAS_RAW_TIMESTAMP;
+        }
+        if (theRawLast != null) {
+            flags |= HAS_RAW_LAST_SEEN;
+        }
+        if (thePrevious != null) {
+            flags |= HAS_PREVIOUS_PATH;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the size of a record body.
+     *
+     * @param theEvent the event.
+     * @return the size in bytes, length excluded.
+     */
+    private static int bodySize(final Event theEvent) {
+        int size = 2;
+        if (theEvent.getRawTimestamp() == null) {
+            size += varLongSize(zigzag(theEvent.getTime()));
+        } else {
+            size += stringSize(theEvent.getRawTimestamp());
+        }
+        if (theEvent.getRawLastSeen() == null) {
+            size += varLongSize(zigzag(theEvent.getLastSeenTime() - theEvent.getTime()));
+        } else {
+            size += stringSize(theEvent.getRawLastSeen());
+        }
+        size += varLongSize(theEvent.getCount()) + varLongSize(zigzag(theEvent.getSequence()));
+        size += stringSize(theEvent.getFilename()) + stringSize(theEvent.getParent())
+                + stringSize(theEvent.getExtension());
+        if (theEvent.getKind() == EventKind.OTHER) {
+            size += stringSize(theEvent.getEventType());
+        }
+        if (theEvent.getPreviousPath() != null) {
+            size += stringSize(theEvent.getPreviousPath());
+        }
+        return size;
+    }
+
+    /**
+     * Returns the encoded size of a string, length included.
+     *
+     * @param theString the string.
+     * @return the size in bytes.
+     */
+    static int stringSize(final String theString) {
+        final int length = utf8Length(theString);
+        return varIntSize(length) + length;
+    }
+
+    /**
+     * Returns the UTF-8 length of a string. Unpaired surrogates count as '?',
+     * as {@link String#getBytes} writes them.
+     *
+     * @param theString the string.
+     * @return the length in bytes.
+     */
+    private static int utf8Length(final String theString) {
+        final int chars = theString.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            final char c = theString.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                length += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars
+                    && Character.isLowSurrogate(theString.charAt(i + 1))) {
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes.
+     *
+     * @param theBuffer the buffer.
+     * @param theString the string.
+     */
+    static void putString(final ByteBuffer theBuffer, final String theString) {
+        putVarLong(theBuffer, utf8Length(theString));
+        final int chars = theString.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = theString.charAt(i);
+            if (c < 0x80) {
+                theBuffer.put((byte) c);
+            } else if (c < 0x800) {
+                theBuffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars
+                    && Character.isLowSurrogate(theString.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, theString.charAt(++i));
+                theBuffer.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                        .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                theBuffer.put((byte) '?');
+            } else {
+                theBuffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Writes a string if it is present.
+     *
+     * @param theBuffer the buffer.
+     * @param theString the string, or null to write nothing.
+     */
+    private static void putOptional(final ByteBuffer theBuffer, final String theString) {
+        if (theString != null) {
+            putString(theBuffer, theString);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #putString}.
+     *
+     * @param theBuffer the buffer.
+     * @return the string.
+     * @throws StreamCorruptedException if the length runs past the record.
+     */
+    static String getString(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        final long length = getVarLong(theBuffer);
+        if (length > theBuffer.remaining()) {
+            throw new StreamCorruptedException("String of " + length + " bytes runs past the record");
+        }
+        final int size = (int) length;
+        final int position = theBuffer.position();
+        final String result;
+        if (theBuffer.hasArray()) {
+            result = new String(theBuffer.array(), theBuffer.arrayOffset() + position, size, StandardCharsets.UTF_8);
+        } else {
+            byte[] scratch = SCRATCH.get();
+            if (scratch.length < size) {
+                scratch = new byte[Math.max(size, scratch.length * 2)];
+                SCRATCH.set(scratch);
+            }
+            theBuffer.get(position, scratch, 0, size);
+            result = new String(scratch, 0, size, StandardCharsets.UTF_8);
+        }
+        theBuffer.position(position + size);
+        return result;
+    }
+
+    /**
+     * Writes an unsigned varint, seven bits per byte, low bits first.
+     *
+     * @param theBuffer the buffer.
+     * @param theValue the value.
+     */
+    static void putVarLong(final ByteBuffer theBuffer, final long theValue) {
+        long value = theValue;
+        while ((value & ~0x7FL) != 0) {
+            theBuffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        theBuffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param theBuffer the buffer.
+     * @return the value.
+     * @throws StreamCorruptedException if it is longer than ten bytes.
+     * @throws BufferUnderflowException if the buffer ends before it does.
+     */
+    static long getVarLong(final ByteBuffer theBuffer) throws StreamCorruptedException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = theBuffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Varint too long");
+    }
+
+    /**
+     * Returns the size of an unsigned varint.
+     *
+     * @param theValue the value.
+     * @return its size in bytes, 1 to 10.
+     */
+    private static int varLongSize(final long theValue) {
+        return Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(theValue) + 6) / 7);
+    }
+
+    /**
+     * Returns the size of a non-negative int as a varint.
+     *
+     * @param theValue the value.
+     * @return its size in bytes.
+     */
+    private static int varIntSize(final int theValue) {
+        return varLongSize(theValue);
+    }
+
+    /**
+     * Maps signed values to unsigned ones so small magnitudes stay short.
+     *
+     * @param theValue the signed value.
+     * @return the zigzag encoding.
+     */
+    static long zigzag(final long theValue) {
+        return theValue << 1 ^ theValue >> 63;
+    }
+
+    /**
+     * Reverses {@link #zigzag}.
+     *
+     * @param theValue the zigzag encoding.
+     * @return the signed value.
+     */
+    static long unzigzag(final long theValue) {
+        return theValue >>> 1 ^ -(theValue & 1);
+    }
+}
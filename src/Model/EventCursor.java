@@ -0,0 +1,255 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads the results of an {@link EventQuery} a page at a time, ordered by
+ * time and then id. Each page continues after the (time, id) key of the
+ * last event of the page before (keyset pagination), so every page costs the
+ * same however far in it is and however many events match, and no connection
+ * is held between pages. Events without a time come first, ordered by id.
+ * Events moved to the {@link EventArchive} are merged in by the same key.
+ * Pages are read in the order of a time index (see {@link EventQuery#toPageSql}),
+ * so no page sorts the events after it.
+ *
+ * <p>Events stored between two pages show up in a later page if they sort
+ * after the events already read.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventCursor {
+
+    /**
+     * Default number of events per page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    /**
+     * The connections the pages are read with.
+     */
+    private final ConnectionPool myConnections;
+
+    /**
+     * The archive read alongside the database, or null if there is none.
+     */
+    private final EventArchive myArchive;
+
+    /**
+     * The query paged through.
+     */
+    private final EventQuery myQuery;
+
+    /**
+     * Number of events per page.
+     */
+    private final int myPageSize;
+
+    /**
+     * Whether pages are read with temporary storage in a file.
+     */
+    private final boolean myLarge;
+
+    /**
+     * Page statement for events without a time.
+     */
+    private final String myUntimedSql;
+
+    /**
+     * Page statement for events with a time.
+     */
+    private final String myTimedSql;
+
+    /**
+     * Whether the events without a time have all been read.
+     */
+    private boolean myUntimedDone;
+
+    /**
+     * Time of the last event read.
+     */
+    private long myLastTime;
+
+    /**
+     * Id of the last event read.
+     */
+    private long myLastId;
+
+    /**
+     * Whether every page has been read.
+     */
+    private boolean myDone;
+
+    /**
+     * Number of events read so far.
+     */
+    private long myCount;
+
+    /**
+     * Creates a cursor before the first page of a query.
+     *
+     * @param theConnections the connections to read with.
+     * @param theArchive the archive to read too, or null.
+     * @param theQuery the query.
+     * @param thePageSize the number of events per page.
+     * @param theMigrating whether rows of version 1 are still being migrated.
+     * @param theLarge whether pages are read with temporary storage in a file, see
+     * {@link ConnectionPool#readLarge}.
+     * @throws IllegalArgumentException if the page size is not positive.
+     */
+    EventCursor(final ConnectionPool theConnections, final EventArchive theArchive, final EventQuery theQuery,
+                final int thePageSize, final boolean theMigrating, final boolean theLarge) {
+        if (thePageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + thePageSize);
+        }
+        myConnections = Objects.requireNonNull(theConnections);
+        myArchive = theArchive;
+        myQuery = Objects.requireNonNull(theQuery);
+        myPageSize = thePageSize;
+        myLarge = theLarge;
+        if (theMigrating) {
+            // the view still holds rows of version 1, which have no index
+            final String where = theQuery.toWhere();
+            final String prefix = "SELECT * FROM events WHERE " + (where.isEmpty() ? "" : where + " AND ");
+            myUntimedSql = prefix + "Time IS NULL AND Id > ? ORDER BY Id LIMIT ?";
+            myTimedSql = prefix + "(Time, Id) > (?, ?) ORDER BY Time, Id LIMIT ?";
+        } else {
+            myUntimedSql = theQuery.toPageSql(false);
+            myTimedSql = theQuery.toPageSql(true);
+        }
+        myLastTime = Long.MIN_VALUE;
+        myLastId = Long.MIN_VALUE;
+    }
+
+    /**
+     * Reads the next page.
+     *
+     * @return up to a page of events, empty once all have been read.
+     * @throws SQLException if the database cannot be read; the cursor stays
+     * where it was, so the page can be read again.
+     */
+    public synchronized List<Event> next() throws SQLException {
+        List<Event> page = new ArrayList<>(myPageSize);
+        while (!myDone && page.isEmpty()) {
+            final boolean timed = myUntimedDone;
+            // time and id of the last event, kept only if the whole page is read
+            final long[] key = {myLastTime, myLastId};
+            final List<Event> rows = new ArrayList<>(myPageSize);
+            final List<Long> ids = new ArrayList<>(myPageSize);
+            final ConnectionPool.ReadTask<Void> task = conn -> {
+                final PreparedStatement statement = myConnections.prepare(conn, timed ? myTimedSql : myUntimedSql);
+                int index = myQuery.bind(statement, 1);
+                if (timed) {
+                    statement.setLong(index++, key[0]);
+                }
+                statement.setLong(index++, key[1]);
+                statement.setInt(index, myPageSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(EventSchema.read(rs));
+                        ids.add(rs.getLong("Id"));
+                    }
+                }
+                return null;
+            };
+            if (myLarge) {
+                myConnections.readLarge(task);
+            } else {
+                myConnections.read(task);
+            }
+            page = timed && myArchive != null ? merge(rows, ids, key) : rows;
+            if (!page.isEmpty()) {
+                key[0] = timed ? page.getLast().getTime() : key[0];
+                key[1] = ids.get(page.size() - 1);
+            }
+            myLastTime = key[0];
+            myLastId = key[1];
+            if (page.size() < myPageSize) {
+                if (timed) {
+                    myDone = true;
+                } else {
+                    // go on with the events that have a time, from the start
+                    myUntimedDone = true;
+                    myLastId = Long.MIN_VALUE;
+                }
+            }
+        }
+        myCount += page.size();
+        return page;
+    }
+
+    /**
+     * Merges the archived events after a key into a page read from the
+     * database, keeping the first page of both in (time, id) order.
+     *
+     * @param thePage the events read from the database.
+     * @param theIds their ids, replaced by the ids of the merged page.
+     * @param theKey the time and id the page starts after.
+     * @return the merged page.
+     * @throws SQLException if the archive cannot be read.
+     */
+    private List<Event> merge(final List<Event> thePage, final List<Long> theIds,
+                              final long[] theKey) throws SQLException {
+        final List<Event> archived = new ArrayList<>(myPageSize);
+        final List<Long> archivedIds = new ArrayList<>(myPageSize);
+        try {
+            myArchive.read(myQuery, theKey[0], theKey[1], myPageSize, archived, archivedIds);
+        } catch (IOException e) {
+            throw new SQLException("Error reading archive: " + e.getMessage(), e);
+        }
+        if (archived.isEmpty()) {
+            return thePage;
+        }
+        final List<Event> page = new ArrayList<>(myPageSize);
+        final List<Long> ids = new ArrayList<>(myPageSize);
+        int i = 0;
+        int j = 0;
+        while (page.size() < myPageSize && (i < thePage.size() || j < archived.size())) {
+            final boolean fromPage = j == archived.size() || i < thePage.size()
+                    && (thePage.get(i).getTime() < archived.get(j).getTime()
+                    || thePage.get(i).getTime() == archived.get(j).getTime() && theIds.get(i) < archivedIds.get(j));
+            page.add(fromPage ? thePage.get(i) : archived.get(j));
+            ids.add(fromPage ? theIds.get(i++) : archivedIds.get(j++));
+        }
+        theIds.clear();
+        theIds.addAll(ids);
+        return page;
+    }
+
+    /**
+     * Returns whether every page has been read.
+     *
+     * @return true once {@link #next()} has nothing more.
+     */
+    public synchronized boolean isDone() {
+        return myDone;
+    }
+
+    /**
+     * Returns the number of events read so far.
+     *
+     * @return the number of events in the pages read.
+     */
+    public synchronized long getCount() {
+        return myCount;
+    }
+
+    /**
+     * Returns the number of events per page.
+     *
+     * @return the page size.
+     */
+    public int getPageSize() {
+        return myPageSize;
+    }
+}
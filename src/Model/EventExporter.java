@@ -0,0 +1,226 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.LongConsumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the events matching an {@link EventQuery} to a CSV report straight
+ * from the database, read through an {@link EventCursor} a chunk at a time, so
+ * the report can hold any number of events in constant memory. Events are
+ * written in the order the query view shows them: those without a time by id,
+ * then the rest by time and id, merged with the events in the
+ * {@link EventArchive}. Each chunk is read in index order from where the last
+ * one ended, so no chunk sorts the events after it.
+ *
+ * <p>The report goes to a {@code .part} file next to the target, which
+ * replaces the target once complete, so a failed or cancelled export leaves no
+ * half report behind. It can be gzipped at the fastest compression level,
+ * which keeps up with the disk.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventExporter {
+
+    /**
+     * Number of rows between progress reports.
+     */
+    public static final int PROGRESS_INTERVAL = 10_000;
+
+    /**
+     * Size of the output buffers in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Column names of a report.
+     */
+    private static final String[] COLUMNS = {"Filename", "Event", "Timestamp", "Extension", "Directory"};
+
+    /**
+     * The events to export, a chunk of {@link #PROGRESS_INTERVAL} at a time.
+     */
+    private final EventCursor myCursor;
+
+    /**
+     * The report file.
+     */
+    private final Path myPath;
+
+    /**
+     * Whether to gzip the report.
+     */
+    private final boolean myGzip;
+
+    /**
+     * Told the number of rows written so far, every {@link #PROGRESS_INTERVAL} rows and at the end.
+     */
+    private final LongConsumer myProgress;
+
+    /**
+     * Whether the export should stop.
+     */
+    private volatile boolean myCancelled;
+
+    /**
+     * Creates an export.
+     *
+     * @param theCursor the events to export, before its first page.
+     * @param thePath the report file.
+     * @param theGzip whether to gzip the report.
+     * @param theProgress told the number of rows written so far.
+     */
+    EventExporter(final EventCursor theCursor, final Path thePath, final boolean theGzip,
+                  final LongConsumer theProgress) {
+        myCursor = Objects.requireNonNull(theCursor);
+        myPath = Objects.requireNonNull(thePath);
+        myGzip = theGzip;
+        myProgress = Objects.requireNonNull(theProgress);
+    }
+
+    /**
+     * Writes the report on the calling thread.
+     *
+     * @return the number of events written.
+     * @throws IOException if the report cannot be written.
+     * @throws SQLException if the database cannot be read.
+     * @throws CancellationException if {@link #cancel()} was called.
+     */
+    public long run() throws IOException, SQLException {
+        final Path part = myPath.resolveSibling(myPath.getFileName() + ".part");
+        boolean complete = false;
+        try {
+            final long rows;
+            try (CSVWriter writer = open(Files.newOutputStream(part), myGzip)) {
+                writeHeader(writer);
+                long written = 0;
+                for (List<Event> chunk = myCursor.next(); !chunk.isEmpty(); chunk = myCursor.next()) {
+                    for (Event event : chunk) {
+                        written = writeRow(writer, event, written);
+                    }
+                }
+                rows = written;
+                if (writer.checkError()) {
+                    throw new IOException("Error writing " + part);
+                }
+            }
+            Files.move(part, myPath, StandardCopyOption.REPLACE_EXISTING);
+            complete = true;
+            myProgress.accept(rows);
+            return rows;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Stops the export at the next row. {@link #run()} then throws
+     * CancellationException and deletes the unfinished report.
+     */
+    public void cancel() {
+        myCancelled = true;
+    }
+
+    /**
+     * Returns the report file.
+     *
+     * @return the path the report is written to.
+     */
+    public Path getPath() {
+        return myPath;
+    }
+
+    /**
+     * Opens a CSV writer for a report, buffered and optionally gzipped.
+     *
+     * @param theOut the file.
+     * @param theGzip whether to gzip.
+     * @return the writer.
+     * @throws IOException if the gzip header cannot be written.
+     */
+    static CSVWriter open(final OutputStream theOut, final boolean theGzip) throws IOException {
+        OutputStream out = theOut;
+        if (theGzip) {
+            try {
+                out = new GZIPOutputStream(theOut, BUFFER_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+            } catch (IOException e) {
+                theOut.close();
+                throw e;
+            }
+        }
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return new CSVWriter(writer, ',',
+                CSVWriter.NO_QUOTE_CHARACTER,
+                CSVWriter.DEFAULT_ESCAPE_CHARACTER,
+                CSVWriter.DEFAULT_LINE_END);
+    }
+
+    /**
+     * Writes the report title and the column names.
+     *
+     * @param theWriter the report.
+     */
+    static void writeHeader(final CSVWriter theWriter) {
+        theWriter.writeNext(new String[] {"FILE SYSTEM WATCHER REPORT PREPARED ON: " + Instant.now()});
+        theWriter.writeNext(COLUMNS);
+    }
+
+    /**
+     * Returns the columns of an event in report order.
+     *
+     * @param theEvent the event.
+     * @return the Filename, Event, Timestamp, Extension and Directory columns.
+     */
+    static String[] toRow(final Event theEvent) {
+        return new String[] {theEvent.getFilename(), theEvent.getEventType(),
+                theEvent.getTimestamp(), theEvent.getExtension(), theEvent.getDirectory()};
+    }
+
+    /**
+     * Writes a row of the report, reporting progress every {@link #PROGRESS_INTERVAL} rows.
+     *
+     * @param theWriter the report.
+     * @param theEvent the event of the row.
+     * @param theWritten the number of rows written before.
+     * @return the number of rows written, including this one.
+     * @throws CancellationException if {@link #cancel()} was called.
+     */
+    private long writeRow(final CSVWriter theWriter, final Event theEvent, final long theWritten) {
+        if (myCancelled) {
+            throw new CancellationException("Export to " + myPath + " cancelled");
+        }
+        theWriter.writeNext(toRow(theEvent));
+        final long rows = theWritten + 1;
+        if (rows % PROGRESS_INTERVAL == 0) {
+            myProgress.accept(rows);
+        }
+        return rows;
+    }
+}
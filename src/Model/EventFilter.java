@@ -0,0 +1,1237 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which file changes become events, from any number of include and
+ * exclude rules compiled once by a {@link Builder}.
+ *
+ * <p>A change is accepted when no exclude rule matches, its size (if known) is
+ * within the limits, and either there are no include rules or one of them
+ * matches. Rules are grouped by kind so that the cost of a check does not grow
+ * with the number of rules:</p>
+ * <ul>
+ *     <li>extensions (case-insensitive), plain file names, {@code *.ext} globs and
+ *     {@code **}{@code /name/**} globs are kept in hash tables probed in place;</li>
+ *     <li>path prefixes, {@code prefix/**} globs and {@code name*} globs are kept
+ *     in character tries;</li>
+ *     <li>any other glob or regular expression is joined into one pattern per
+ *     target (file name or whole path), matched with a reused Matcher.</li>
+ * </ul>
+ * <p>Paths are matched with '/' as the separator on every platform; regular
+ * expressions must match the whole path. Checking a change does not allocate.
+ * Every rule counts the changes it decided.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventFilter {
+
+    /**
+     * Separator of the platform, replaced by '/' when matching.
+     */
+    private static final char SEPARATOR = File.separatorChar;
+
+    /**
+     * Reused view of the path being checked, one per thread.
+     */
+    private static final ThreadLocal<PathChars> PATH = ThreadLocal.withInitial(PathChars::new);
+
+    /**
+     * The rules, in the order they were added.
+     */
+    private final List<Rule> myRules;
+
+    /**
+     * Changes decided by each rule, by rule index.
+     */
+    private final AtomicLongArray myHits;
+
+    /**
+     * Changes rejected because no include rule matched.
+     */
+    private final AtomicLong myUnmatched;
+
+    /**
+     * Compiled exclude rules.
+     */
+    private final RuleSet myExcludes;
+
+    /**
+     * Compiled include rules.
+     */
+    private final RuleSet myIncludes;
+
+    /**
+     * Smallest accepted size.
+     */
+    private final long myMinSize;
+
+    /**
+     * Index of the minimum size rule, or -1.
+     */
+    private final int myMinSizeRule;
+
+    /**
+     * Largest accepted size.
+     */
+    private final long myMaxSize;
+
+    /**
+     * Index of the maximum size rule, or -1.
+     */
+    private final int myMaxSizeRule;
+
+    /**
+     * Compiles the rules of a builder.
+     *
+     * @param theBuilder the builder.
+     */
+    private EventFilter(final Builder theBuilder) {
+        final List<Rule> rules = new ArrayList<>();
+        myExcludes = new RuleSet();
+        myIncludes = new RuleSet();
+        final StringBuilder[] patterns = {new StringBuilder(), new StringBuilder(),
+                new StringBuilder(), new StringBuilder()};
+        final List<List<int[]>> groups = List.of(new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>());
+
+        long minSize = 0;
+        long maxSize = Long.MAX_VALUE;
+        int minRule = -1;
+        int maxRule = -1;
+        for (Spec spec : theBuilder.mySpecs) {
+            final int index = rules.size();
+            rules.add(new Rule(this, index, spec.myInclude, spec.describe()));
+            final RuleSet set = spec.myInclude ? myIncludes : myExcludes;
+            final int patternSlot = spec.myInclude ? 0 : 2;
+            switch (spec.myKind) {
+                case EXTENSION -> set.myExtensions.add(stripDot(spec.myValue), index);
+                case PREFIX -> set.myPrefixes.add(normalize(spec.myValue), index);
+                case REGEX -> addPattern(patterns, groups, patternSlot + 1, spec.myValue, index);
+                case MIN_SIZE -> {
+                    minSize = Long.parseLong(spec.myValue);
+                    minRule = index;
+                }
+                case MAX_SIZE -> {
+                    maxSize = Long.parseLong(spec.myValue);
+                    maxRule = index;
+                }
+                case GLOB -> {
+                    // the common shapes of globs go to the tables; only the rest needs a pattern
+                    String glob = normalize(spec.myValue);
+                    if (glob.startsWith("**/") && isName(glob.substring(3))) {
+                        // "**/x" matches the same paths as x against the file name
+                        glob = glob.substring(3);
+                    }
+                    final String extension = glob.startsWith("*.") ? glob.substring(2) : null;
+                    final String component = glob.startsWith("**/") && glob.endsWith("/**") && glob.length() > 6
+                            ? glob.substring(3, glob.length() - 3) : null;
+                    final String prefix = glob.endsWith("/**") ? glob.substring(0, glob.length() - 3) : null;
+                    final String start = glob.endsWith("*") ? glob.substring(0, glob.length() - 1) : null;
+                    if (extension != null && isLiteral(extension) && isName(extension)
+                            && extension.indexOf('.') < 0) {
+                        set.myExtensions.add(extension, index);
+                    } else if (isLiteral(glob) && isName(glob)) {
+                        set.myNames.add(glob, index);
+                    } else if (component != null && isLiteral(component) && isName(component)) {
+                        set.myComponents.add(component, index);
+                    } else if (prefix != null && isLiteral(prefix)) {
+                        set.myPrefixes.add(prefix, index);
+                    } else if (start != null && !start.isEmpty() && isLiteral(start) && isName(start)) {
+                        set.myNameStarts.add(start, index);
+                    } else if (isName(glob)) {
+                        addPattern(patterns, groups, patternSlot, globToRegex(glob), index);
+                    } else {
+                        addPattern(patterns, groups, patternSlot + 1, globToRegex(glob), index);
+                    }
+                }
+                default -> throw new IllegalStateException(spec.myKind.name());
+            }
+        }
+
+        myIncludes.myNamePatterns = PatternSet.of(patterns[0], groups.get(0));
+        myIncludes.myPathPatterns = PatternSet.of(patterns[1], groups.get(1));
+        myExcludes.myNamePatterns = PatternSet.of(patterns[2], groups.get(2));
+        myExcludes.myPathPatterns = PatternSet.of(patterns[3], groups.get(3));
+        myRules = Collections.unmodifiableList(rules);
+        myHits = new AtomicLongArray(rules.size());
+        myUnmatched = new AtomicLong();
+        myMinSize = minSize;
+        myMinSizeRule = minRule;
+        myMaxSize = maxSize;
+        myMaxSizeRule = maxRule;
+    }
+
+    /**
+     * Returns a builder for a new filter.
+     *
+     * @return an empty builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a filter accepting every change of one extension, or everything for
+     * "none", like the extension choice of the view.
+     *
+     * @param theExtension the extension, with or without the dot, or "none".
+     * @return the filter.
+     */
+    public static EventFilter forExtension(final String theExtension) {
+        final Builder builder = builder();
+        if (!theExtension.equalsIgnoreCase("none")) {
+            builder.includeExtension(theExtension);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks whether a change to a directory entry should become an event.
+     *
+     * @param theDir the directory of the entry.
+     * @param theName the name of the entry.
+     * @param theSize the size of the entry, or a negative value if unknown.
+     * @return true if the change is accepted.
+     */
+    public boolean accepts(final Path theDir, final String theName, final long theSize) {
+        if (myRules.isEmpty()) {
+            return true;
+        }
+
+        final PathChars path = PATH.get().set(theDir.toString(), theName);
+        int rule = myExcludes.match(path, theName);
+        if (rule >= 0) {
+            myHits.incrementAndGet(rule);
+            return false;
+        }
+        if (theSize >= 0 && theSize < myMinSize) {
+            myHits.incrementAndGet(myMinSizeRule);
+            return false;
+        }
+        if (theSize > myMaxSize) {
+            myHits.incrementAndGet(myMaxSizeRule);
+            return false;
+        }
+        if (myIncludes.isEmpty()) {
+            return true;
+        }
+
+        rule = myIncludes.match(path, theName);
+        if (rule < 0) {
+            myUnmatched.incrementAndGet();
+            return false;
+        }
+        myHits.incrementAndGet(rule);
+        return true;
+    }
+
+    /**
+     * Returns the rules of this filter, in the order they were added.
+     *
+     * @return the rules.
+     */
+    public List<Rule> getRules() {
+        return myRules;
+    }
+
+    /**
+     * Returns the number of changes rejected because no include rule matched.
+     *
+     * @return the number of unmatched changes.
+     */
+    public long getUnmatchedCount() {
+        return myUnmatched.get();
+    }
+
+    /**
+     * Resets every hit counter to zero.
+     */
+    public void resetHits() {
+        for (int i = 0; i < myHits.length(); i++) {
+            myHits.set(i, 0);
+        }
+        myUnmatched.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return myRules.isEmpty() ? "accept all" : myRules.toString();
+    }
+
+    /**
+     * Adds an alternative to one of the combined patterns.
+     *
+     * @param thePatterns the combined patterns being built.
+     * @param theGroups for each pattern, the group of every alternative and its rule.
+     * @param theSlot which pattern to add to.
+     * @param theRegex the regular expression of the rule.
+     * @param theRule the index of the rule.
+     */
+    private static void addPattern(final StringBuilder[] thePatterns, final List<List<int[]>> theGroups,
+                                   final int theSlot, final String theRegex, final int theRule) {
+        // validate alone first so a bad rule is reported by itself
+        final int inner = Pattern.compile(theRegex).matcher("").groupCount();
+        final List<int[]> groups = theGroups.get(theSlot);
+        final int group = groups.isEmpty() ? 1 : groups.getLast()[0] + groups.getLast()[2] + 1;
+        if (!thePatterns[theSlot].isEmpty()) {
+            thePatterns[theSlot].append('|');
+        }
+        thePatterns[theSlot].append('(').append(theRegex).append(')');
+        groups.add(new int[] {group, theRule, inner});
+    }
+
+    /**
+     * Translates a glob into a regular expression. '*' and '?' do not cross
+     * directories, "**" does, and "**&#47;" also matches no directory at all.
+     *
+     * @param theGlob the glob, with '/' as the separator.
+     * @return the equivalent regular expression.
+     */
+    static String globToRegex(final String theGlob) {
+        final StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        for (int i = 0; i < theGlob.length(); i++) {
+            final char c = theGlob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < theGlob.length() && theGlob.charAt(i + 1) == '*') {
+                        if (i + 2 < theGlob.length() && theGlob.charAt(i + 2) == '/') {
+                            regex.append("(?:.*/)?");
+                            i += 2;
+                        } else {
+                            regex.append(".*");
+                            i++;
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '{' -> {
+                    regex.append("(?:");
+                    inGroup = true;
+                }
+                case '}' -> {
+                    regex.append(')');
+                    inGroup = false;
+                }
+                case ',' -> regex.append(inGroup ? "|" : ",");
+                case '[' -> {
+                    regex.append('[');
+                    if (i + 1 < theGlob.length() && theGlob.charAt(i + 1) == '!') {
+                        regex.append('^');
+                        i++;
+                    }
+                    while (++i < theGlob.length() && theGlob.charAt(i) != ']') {
+                        final char inClass = theGlob.charAt(i);
+                        if (inClass == '[' || inClass == '&' || inClass == '\\') {
+                            regex.append('\\');
+                        }
+                        regex.append(inClass);
+                    }
+                    regex.append(']');
+                }
+                case '\\' -> {
+                    if (++i < theGlob.length()) {
+                        appendLiteral(regex, theGlob.charAt(i));
+                    }
+                }
+                default -> appendLiteral(regex, c);
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Appends a character that must match itself.
+     *
+     * @param theRegex the regular expression being built.
+     * @param theChar the character.
+     */
+    private static void appendLiteral(final StringBuilder theRegex, final char theChar) {
+        if (!Character.isLetterOrDigit(theChar) && theChar != '/') {
+            theRegex.append('\\');
+        }
+        theRegex.append(theChar);
+    }
+
+    /**
+     * Checks whether a glob has no wildcards.
+     *
+     * @param theGlob the glob.
+     * @return true if it only matches itself.
+     */
+    private static boolean isLiteral(final String theGlob) {
+        for (int i = 0; i < theGlob.length(); i++) {
+            if ("*?[]{}\\".indexOf(theGlob.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a glob has no separator, so it applies to file names.
+     *
+     * @param theGlob the glob.
+     * @return true if it has no '/'.
+     */
+    private static boolean isName(final String theGlob) {
+        return theGlob.indexOf('/') < 0;
+    }
+
+    /**
+     * Uses '/' as the separator and drops a trailing one.
+     *
+     * @param thePath a path or glob.
+     * @return the normalized form.
+     */
+    private static String normalize(final String thePath) {
+        String path = SEPARATOR == '/' ? thePath : thePath.replace(SEPARATOR, '/');
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * Removes the leading dot of an extension.
+     *
+     * @param theExtension the extension, with or without the dot.
+     * @return the extension without the dot.
+     */
+    private static String stripDot(final String theExtension) {
+        return theExtension.startsWith(".") ? theExtension.substring(1) : theExtension;
+    }
+
+    /**
+     * Collects rules and compiles them into a filter.
+     */
+    public static final class Builder {
+
+        /**
+         * The rules added so far.
+         */
+        private final List<Spec> mySpecs;
+
+        /**
+         * Creates an empty builder.
+         */
+        private Builder() {
+            mySpecs = new ArrayList<>();
+        }
+
+        /**
+         * Accepts files with an extension, ignoring case.
+         *
+         * @param theExtension the extension, with or without the dot.
+         * @return this builder.
+         */
+        public Builder includeExtension(final String theExtension) {
+            return add(true, Kind.EXTENSION, theExtension);
+        }
+
+        /**
+         * Rejects files with an extension, ignoring case.
+         *
+         * @param theExtension the extension, with or without the dot.
+         * @return this builder.
+         */
+        public Builder excludeExtension(final String theExtension) {
+            return add(false, Kind.EXTENSION, theExtension);
+        }
+
+        /**
+         * Accepts paths matching a glob. A glob without '/' is matched against the file name.
+         *
+         * @param theGlob the glob.
+         * @return this builder.
+         */
+        public Builder includeGlob(final String theGlob) {
+            return add(true, Kind.GLOB, theGlob);
+        }
+
+        /**
+         * Rejects paths matching a glob. A glob without '/' is matched against the file name.
+         *
+         * @param theGlob the glob.
+         * @return this builder.
+         */
+        public Builder excludeGlob(final String theGlob) {
+            return add(false, Kind.GLOB, theGlob);
+        }
+
+        /**
+         * Accepts paths a regular expression matches entirely.
+         *
+         * @param theRegex the regular expression.
+         * @return this builder.
+         */
+        public Builder includeRegex(final String theRegex) {
+            return add(true, Kind.REGEX, theRegex);
+        }
+
+        /**
+         * Rejects paths a regular expression matches entirely.
+         *
+         * @param theRegex the regular expression.
+         * @return this builder.
+         */
+        public Builder excludeRegex(final String theRegex) {
+            return add(false, Kind.REGEX, theRegex);
+        }
+
+        /**
+         * Accepts everything below a directory.
+         *
+         * @param thePrefix the directory.
+         * @return this builder.
+         */
+        public Builder includePrefix(final String thePrefix) {
+            return add(true, Kind.PREFIX, thePrefix);
+        }
+
+        /**
+         * Rejects everything below a directory.
+         *
+         * @param thePrefix the directory.
+         * @return this builder.
+         */
+        public Builder excludePrefix(final String thePrefix) {
+            return add(false, Kind.PREFIX, thePrefix);
+        }
+
+        /**
+         * Rejects files smaller than a size. Changes of unknown size are not affected.
+         *
+         * @param theBytes the smallest accepted size.
+         * @return this builder.
+         */
+        public Builder minSize(final long theBytes) {
+            return add(false, Kind.MIN_SIZE, Long.toString(theBytes));
+        }
+
+        /**
+         * Rejects files larger than a size. Changes of unknown size are not affected.
+         *
+         * @param theBytes the largest accepted size.
+         * @return this builder.
+         */
+        public Builder maxSize(final long theBytes) {
+            return add(false, Kind.MAX_SIZE, Long.toString(theBytes));
+        }
+
+        /**
+         * Compiles the rules.
+         *
+         * @return the filter.
+         * @throws java.util.regex.PatternSyntaxException if a glob or regular expression is invalid.
+         */
+        public EventFilter build() {
+            return new EventFilter(this);
+        }
+
+        /**
+         * Adds a rule.
+         *
+         * @param theInclude whether the rule includes.
+         * @param theKind the kind of rule.
+         * @param theValue the value of the rule.
+         * @return this builder.
+         */
+        private Builder add(final boolean theInclude, final Kind theKind, final String theValue) {
+            mySpecs.add(new Spec(theInclude, theKind, Objects.requireNonNull(theValue)));
+            return this;
+        }
+    }
+
+    /**
+     * One rule of a filter and the number of changes it decided.
+     */
+    public static final class Rule {
+
+        /**
+         * The filter owning the counters.
+         */
+        private final EventFilter myFilter;
+
+        /**
+         * Index of this rule.
+         */
+        private final int myIndex;
+
+        /**
+         * Whether this rule includes.
+         */
+        private final boolean myInclude;
+
+        /**
+         * Readable form of this rule.
+         */
+        private final String myDescription;
+
+        /**
+         * Creates a rule.
+         *
+         * @param theFilter the filter owning the counters.
+         * @param theIndex the index of the rule.
+         * @param theInclude whether the rule includes.
+         * @param theDescription the readable form of the rule.
+         */
+        private Rule(final EventFilter theFilter, final int theIndex, final boolean theInclude,
+                     final String theDescription) {
+            myFilter = theFilter;
+            myIndex = theIndex;
+            myInclude = theInclude;
+            myDescription = theDescription;
+        }
+
+        /**
+         * Returns whether this rule includes changes.
+         *
+         * @return true for include rules, false for exclude rules and size limits.
+         */
+        public boolean isInclude() { return myInclude; }
+
+        /**
+         * Returns a readable form of this rule.
+         *
+         * @return the description.
+         */
+        public String getDescription() { return myDescription; }
+
+        /**
+         * Returns the number of changes this rule decided.
+         *
+         * @return the number of hits.
+         */
+        public long getHits() { return myFilter.myHits.get(myIndex); }
+
+        @Override
+        public String toString() {
+            return myDescription + " (" + getHits() + " hits)";
+        }
+    }
+
+    /**
+     * Kinds of rules.
+     */
+    private enum Kind {
+        EXTENSION, GLOB, REGEX, PREFIX, MIN_SIZE, MAX_SIZE
+    }
+
+    /**
+     * A rule as given to the builder.
+     */
+    private static final class Spec {
+
+        /**
+         * Whether the rule includes.
+         */
+        private final boolean myInclude;
+
+        /**
+         * The kind of rule.
+         */
+        private final Kind myKind;
+
+        /**
+         * The value of the rule.
+         */
+        private final String myValue;
+
+        /**
+         * Creates a rule specification.
+         *
+         * @param theInclude whether the rule includes.
+         * @param theKind the kind of rule.
+         * @param theValue the value of the rule.
+         */
+        private Spec(final boolean theInclude, final Kind theKind, final String theValue) {
+            myInclude = theInclude;
+            myKind = theKind;
+            myValue = theValue;
+        }
+
+        /**
+         * Returns a readable form of the rule.
+         *
+         * @return the description.
+         */
+        private String describe() {
+            return switch (myKind) {
+                case MIN_SIZE -> "min size " + myValue;
+                case MAX_SIZE -> "max size " + myValue;
+                default -> (myInclude ? "include " : "exclude ")
+                        + myKind.name().toLowerCase(Locale.ROOT) + " " + myValue;
+            };
+        }
+    }
+
+    /**
+     * The compiled include or exclude rules.
+     */
+    private static final class RuleSet {
+
+        /**
+         * Extensions without the dot.
+         */
+        private final RegionTable myExtensions = new RegionTable(true);
+
+        /**
+         * Exact file names.
+         */
+        private final RegionTable myNames = new RegionTable(false);
+
+        /**
+         * Names of directories anywhere in the path.
+         */
+        private final RegionTable myComponents = new RegionTable(false);
+
+        /**
+         * Path prefixes.
+         */
+        private final PrefixTrie myPrefixes = new PrefixTrie(true);
+
+        /**
+         * Beginnings of file names.
+         */
+        private final PrefixTrie myNameStarts = new PrefixTrie(false);
+
+        /**
+         * Patterns matched against the file name.
+         */
+        private PatternSet myNamePatterns;
+
+        /**
+         * Patterns matched against the whole path.
+         */
+        private PatternSet myPathPatterns;
+
+        /**
+         * Returns whether there are no rules.
+         *
+         * @return true if empty.
+         */
+        private boolean isEmpty() {
+            return myExtensions.isEmpty() && myNames.isEmpty() && myComponents.isEmpty()
+                    && myPrefixes.isEmpty() && myNameStarts.isEmpty() && myNamePatterns == null && myPathPatterns == null;
+        }
+
+        /**
+         * Finds a rule matching a path.
+         *
+         * @param thePath the whole path.
+         * @param theName the file name.
+         * @return the index of the matching rule, or -1.
+         */
+        private int match(final PathChars thePath, final String theName) {
+            int rule = -1;
+            final int dot = theName.lastIndexOf('.');
+            if (dot >= 0) {
+                rule = myExtensions.find(theName, dot + 1, theName.length());
+            }
+            if (rule < 0) {
+                rule = myNames.find(theName, 0, theName.length());
+            }
+            if (rule < 0 && !myComponents.isEmpty()) {
+                final String dir = thePath.getDir();
+                int start = 0;
+                for (int i = 0; i <= dir.length() && rule < 0; i++) {
+                    if (i == dir.length() || dir.charAt(i) == '/' || dir.charAt(i) == SEPARATOR) {
+                        if (i > start) {
+                            rule = myComponents.find(dir, start, i);
+                        }
+                        start = i + 1;
+                    }
+                }
+            }
+            if (rule < 0) {
+                rule = myPrefixes.find(thePath);
+            }
+            if (rule < 0) {
+                rule = myNameStarts.find(theName);
+            }
+            if (rule < 0 && myNamePatterns != null) {
+                rule = myNamePatterns.match(theName);
+            }
+            if (rule < 0 && myPathPatterns != null) {
+                rule = myPathPatterns.match(thePath);
+            }
+            return rule;
+        }
+    }
+
+    /**
+     * Open-addressing hash table of strings, probed with a region of another
+     * string so no substring is created.
+     */
+    private static final class RegionTable {
+
+        /**
+         * Whether case is ignored.
+         */
+        private final boolean myIgnoreCase;
+
+        /**
+         * The keys, lower case if case is ignored.
+         */
+        private String[] myKeys;
+
+        /**
+         * Rule index of each key.
+         */
+        private int[] myRules;
+
+        /**
+         * Number of keys.
+         */
+        private int mySize;
+
+        /**
+         * Creates an empty table.
+         *
+         * @param theIgnoreCase whether case is ignored.
+         */
+        private RegionTable(final boolean theIgnoreCase) {
+            myIgnoreCase = theIgnoreCase;
+            myKeys = new String[8];
+            myRules = new int[8];
+        }
+
+        /**
+         * Returns whether the table is empty.
+         *
+         * @return true if empty.
+         */
+        private boolean isEmpty() {
+            return mySize == 0;
+        }
+
+        /**
+         * Adds a key, unless it is already there; the first rule wins.
+         *
+         * @param theKey the key.
+         * @param theRule the rule index.
+         */
+        private void add(final String theKey, final int theRule) {
+            if (find(theKey, 0, theKey.length()) >= 0) {
+                return;
+            }
+            if ((mySize + 1) * 2 > myKeys.length) {
+                final String[] keys = myKeys;
+                final int[] rules = myRules;
+                myKeys = new String[keys.length * 2];
+                myRules = new int[keys.length * 2];
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null) {
+                        insert(keys[i], rules[i]);
+                    }
+                }
+            }
+            final StringBuilder key = new StringBuilder(theKey.length());
+            for (int i = 0; i < theKey.length(); i++) {
+                key.append(fold(theKey.charAt(i)));
+            }
+            insert(key.toString(), theRule);
+            mySize++;
+        }
+
+        /**
+         * Puts a key in its slot.
+         *
+         * @param theKey the folded key.
+         * @param theRule the rule index.
+         */
+        private void insert(final String theKey, final int theRule) {
+            final int mask = myKeys.length - 1;
+            int i = spread(hash(theKey, 0, theKey.length())) & mask;
+            while (myKeys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            myKeys[i] = theKey;
+            myRules[i] = theRule;
+        }
+
+        /**
+         * Looks up a region of a string.
+         *
+         * @param theChars the characters.
+         * @param theFrom the start of the region.
+         * @param theTo the end of the region, exclusive.
+         * @return the rule index of the key, or -1.
+         */
+        private int find(final String theChars, final int theFrom, final int theTo) {
+            if (mySize == 0) {
+                return -1;
+            }
+            final int mask = myKeys.length - 1;
+            for (int i = spread(hash(theChars, theFrom, theTo)) & mask; ; i = (i + 1) & mask) {
+                final String key = myKeys[i];
+                if (key == null) {
+                    return -1;
+                }
+                if (key.length() == theTo - theFrom && equal(key, theChars, theFrom)) {
+                    return myRules[i];
+                }
+            }
+        }
+
+        /**
+         * Compares a key with a region.
+         *
+         * @param theKey the folded key.
+         * @param theChars the characters.
+         * @param theFrom the start of the region.
+         * @return true if equal.
+         */
+        private boolean equal(final String theKey, final String theChars, final int theFrom) {
+            for (int i = 0; i < theKey.length(); i++) {
+                if (theKey.charAt(i) != fold(theChars.charAt(theFrom + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Hashes a region.
+         *
+         * @param theChars the characters.
+         * @param theFrom the start of the region.
+         * @param theTo the end of the region, exclusive.
+         * @return the hash.
+         */
+        private int hash(final String theChars, final int theFrom, final int theTo) {
+            int hash = 0;
+            for (int i = theFrom; i < theTo; i++) {
+                hash = 31 * hash + fold(theChars.charAt(i));
+            }
+            return hash;
+        }
+
+        /**
+         * Folds case if case is ignored.
+         *
+         * @param theChar the character.
+         * @return the character to compare.
+         */
+        private char fold(final char theChar) {
+            return myIgnoreCase ? Character.toLowerCase(theChar) : theChar;
+        }
+
+        /**
+         * Spreads the high bits of a hash into the low ones.
+         *
+         * @param theHash the hash.
+         * @return the spread hash.
+         */
+        private static int spread(final int theHash) {
+            return theHash ^ (theHash >>> 16);
+        }
+    }
+
+    /**
+     * Character trie of prefixes. A path prefix matches the path itself and
+     * everything below it, but not siblings sharing its first characters; a
+     * name prefix matches every name starting with it.
+     */
+    private static final class PrefixTrie {
+
+        /**
+         * The root node, reached by the empty prefix.
+         */
+        private final Node myRoot = new Node();
+
+        /**
+         * Whether a prefix must end at a separator to match.
+         */
+        private final boolean myPathBoundary;
+
+        /**
+         * Whether any prefix was added.
+         */
+        private boolean myEmpty = true;
+
+        /**
+         * Creates an empty trie.
+         *
+         * @param thePathBoundary whether a prefix must end at a separator to match.
+         */
+        private PrefixTrie(final boolean thePathBoundary) {
+            myPathBoundary = thePathBoundary;
+        }
+
+        /**
+         * Returns whether no prefix was added.
+         *
+         * @return true if empty.
+         */
+        private boolean isEmpty() {
+            return myEmpty;
+        }
+
+        /**
+         * Adds a prefix; the first rule for a prefix wins.
+         *
+         * @param thePrefix the prefix, with '/' as the separator and no trailing one.
+         * @param theRule the rule index.
+         */
+        private void add(final String thePrefix, final int theRule) {
+            // a lone "/" is the file system root, which every absolute path is below
+            final String prefix = myPathBoundary && thePrefix.equals("/") ? "" : thePrefix;
+            Node node = myRoot;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrAdd(prefix.charAt(i));
+            }
+            if (node.myRule < 0) {
+                node.myRule = theRule;
+            }
+            myEmpty = false;
+        }
+
+        /**
+         * Finds the shortest prefix of a path or name.
+         *
+         * @param thePath the path or name.
+         * @return the rule index of the prefix, or -1.
+         */
+        private int find(final CharSequence thePath) {
+            if (myEmpty) {
+                return -1;
+            }
+            Node node = myRoot;
+            for (int i = 0; i < thePath.length(); i++) {
+                final char c = thePath.charAt(i);
+                if (node.myRule >= 0 && (c == '/' || !myPathBoundary)) {
+                    return node.myRule;
+                }
+                node = node.child(c);
+                if (node == null) {
+                    return -1;
+                }
+            }
+            return node.myRule;
+        }
+
+        /**
+         * One node of the trie.
+         */
+        private static final class Node {
+
+            /**
+             * Characters leading to the children, sorted.
+             */
+            private char[] myChars = new char[0];
+
+            /**
+             * The children, in the order of their characters.
+             */
+            private Node[] myChildren = new Node[0];
+
+            /**
+             * Rule of the prefix ending here, or -1.
+             */
+            private int myRule = -1;
+
+            /**
+             * Returns a child.
+             *
+             * @param theChar the character leading to it.
+             * @return the child, or null.
+             */
+            private Node child(final char theChar) {
+                final int i = Arrays.binarySearch(myChars, theChar);
+                return i < 0 ? null : myChildren[i];
+            }
+
+            /**
+             * Returns a child, adding it if needed.
+             *
+             * @param theChar the character leading to it.
+             * @return the child.
+             */
+            private Node childOrAdd(final char theChar) {
+                int i = Arrays.binarySearch(myChars, theChar);
+                if (i >= 0) {
+                    return myChildren[i];
+                }
+                i = -i - 1;
+                final char[] chars = new char[myChars.length + 1];
+                final Node[] children = new Node[myChildren.length + 1];
+                System.arraycopy(myChars, 0, chars, 0, i);
+                System.arraycopy(myChildren, 0, children, 0, i);
+                System.arraycopy(myChars, i, chars, i + 1, myChars.length - i);
+                System.arraycopy(myChildren, i, children, i + 1, myChildren.length - i);
+                chars[i] = theChar;
+                children[i] = new Node();
+                myChars = chars;
+                myChildren = children;
+                return children[i];
+            }
+        }
+    }
+
+    /**
+     * Several regular expressions joined into one pattern, each in its own group.
+     */
+    private static final class PatternSet {
+
+        /**
+         * Reused matcher of the combined pattern, one per thread.
+         */
+        private final ThreadLocal<Matcher> myMatcher;
+
+        /**
+         * Group of each alternative.
+         */
+        private final int[] myGroups;
+
+        /**
+         * Rule index of each alternative.
+         */
+        private final int[] myRules;
+
+        /**
+         * Creates a pattern set.
+         *
+         * @param thePattern the combined pattern.
+         * @param theGroups group and rule of each alternative.
+         */
+        private PatternSet(final Pattern thePattern, final List<int[]> theGroups) {
+            myMatcher = ThreadLocal.withInitial(() -> thePattern.matcher(""));
+            myGroups = new int[theGroups.size()];
+            myRules = new int[theGroups.size()];
+            for (int i = 0; i < theGroups.size(); i++) {
+                myGroups[i] = theGroups.get(i)[0];
+                myRules[i] = theGroups.get(i)[1];
+            }
+        }
+
+        /**
+         * Compiles a combined pattern.
+         *
+         * @param thePattern the alternatives joined with '|'.
+         * @param theGroups group and rule of each alternative.
+         * @return the pattern set, or null if there are no alternatives.
+         */
+        private static PatternSet of(final StringBuilder thePattern, final List<int[]> theGroups) {
+            return theGroups.isEmpty() ? null : new PatternSet(Pattern.compile(thePattern.toString()), theGroups);
+        }
+
+        /**
+         * Matches characters against every alternative at once.
+         *
+         * @param theChars the characters.
+         * @return the rule index of the first matching alternative, or -1.
+         */
+        private int match(final CharSequence theChars) {
+            final Matcher matcher = myMatcher.get().reset(theChars);
+            if (!matcher.matches()) {
+                return -1;
+            }
+            for (int i = 0; i < myGroups.length; i++) {
+                if (matcher.start(myGroups[i]) >= 0) {
+                    return myRules[i];
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A directory and a file name seen as one path with '/' separators, without
+     * building the string.
+     */
+    private static final class PathChars implements CharSequence {
+
+        /**
+         * The directory.
+         */
+        private String myDir;
+
+        /**
+         * The file name.
+         */
+        private String myName;
+
+        /**
+         * Index of the file name in the path.
+         */
+        private int myNameStart;
+
+        /**
+         * Points this view at a path.
+         *
+         * @param theDir the directory.
+         * @param theName the file name.
+         * @return this view.
+         */
+        private PathChars set(final String theDir, final String theName) {
+            myDir = theDir;
+            myName = theName;
+            final boolean separated = theDir.isEmpty()
+                    || theDir.charAt(theDir.length() - 1) == '/'
+                    || theDir.charAt(theDir.length() - 1) == SEPARATOR;
+            myNameStart = theDir.length() + (separated ? 0 : 1);
+            return this;
+        }
+
+        /**
+         * Returns the directory, with the platform's separators.
+         *
+         * @return the directory.
+         */
+        private String getDir() {
+            return myDir;
+        }
+
+        @Override
+        public int length() {
+            return myNameStart + myName.length();
+        }
+
+        @Override
+        public char charAt(final int theIndex) {
+            if (theIndex >= myNameStart) {
+                return myName.charAt(theIndex - myNameStart);
+            }
+            if (theIndex == myDir.length()) {
+                return '/';
+            }
+            final char c = myDir.charAt(theIndex);
+            return c == SEPARATOR ? '/' : c;
+        }
+
+        @Override
+        public CharSequence subSequence(final int theStart, final int theEnd) {
+            return toString().substring(theStart, theEnd);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder path = new StringBuilder(length());
+            for (int i = 0; i < length(); i++) {
+                path.append(charAt(i));
+            }
+            return path.toString();
+        }
+    }
+}
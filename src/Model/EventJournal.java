@@ -0,0 +1,757 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal every delivered event is written to, so events survive a
+ * crash before they reach the database. A {@link JournalReplayer} reads the
+ * journal back and records how far it got as the checkpoint.
+ *
+ * <p>The journal is a directory of fixed-size segment files, each mapped into
+ * memory while it is written, so appending is a copy into the page cache.
+ * A segment starts with the {@link EventCodec} header and holds codec records
+ * up to the first zero byte. Mapped pages reach the disk when the process
+ * exits, even by a crash, but are forced only every {@link #setSyncPolicy so many}
+ * events or so often, which bounds what a power loss can take.</p>
+ *
+ * <p>Positions in the journal are longs: the segment number in the high 32 bits
+ * and the offset in the segment in the low 32 bits. Segments are never
+ * appended to after the journal is reopened, and are deleted once the
+ * checkpoint has passed them. Appending and reading may happen on different
+ * threads.</p>
+ *
+ * <p>If replaying falls behind by more than the {@link #setBacklogLimit backlog
+ * limit}, appending waits for the checkpoint to catch up, up to a longest
+ * stall. This slows the delivery thread, whose queues then push back on capture
+ * through their overflow policy.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventJournal implements AutoCloseable {
+
+    /**
+     * Directory the journal is kept in, next to file_watcher.db.
+     */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("file_watcher_journal");
+
+    /**
+     * Default size of each segment file.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    /**
+     * Smallest segment size allowed.
+     */
+    public static final int MIN_SEGMENT_SIZE = 4096;
+
+    /**
+     * Default number of events appended between forces to disk.
+     */
+    public static final int DEFAULT_SYNC_EVENTS = 1024;
+
+    /**
+     * Default longest time appended events wait to be forced to disk.
+     */
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Default number of bytes appended but not replayed before appending waits.
+     */
+    public static final long DEFAULT_BACKLOG_LIMIT = 256L << 20;
+
+    /**
+     * Default longest time an append waits for the backlog to shrink.
+     */
+    public static final Duration DEFAULT_MAX_STALL = Duration.ofSeconds(2);
+
+    /**
+     * Prefix of segment file names, followed by the segment number.
+     */
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    /**
+     * Suffix of segment file names.
+     */
+    private static final String SEGMENT_SUFFIX = ".fwj";
+
+    /**
+     * Name of the file holding the checkpoint.
+     */
+    private static final String CHECKPOINT = "checkpoint";
+
+    /**
+     * Directory holding the segments.
+     */
+    private final Path myDirectory;
+
+    /**
+     * Size of each segment file.
+     */
+    private final int mySegmentSize;
+
+    /**
+     * Numbers of the segments on disk, the active one included.
+     */
+    private final ConcurrentSkipListSet<Long> mySegments;
+
+    /**
+     * Number of the segment being appended to.
+     */
+    private long myActiveNumber;
+
+    /**
+     * Channel to the segment being appended to.
+     */
+    private FileChannel myActiveChannel;
+
+    /**
+     * The segment being appended to, positioned at the end of its records.
+     */
+    private MappedByteBuffer myActive;
+
+    /**
+     * End of the records already forced to disk in the active segment.
+     */
+    private int mySyncedOffset;
+
+    /**
+     * Events appended since the last force.
+     */
+    private int myUnsynced;
+
+    /**
+     * Time of the last force, from {@link System#nanoTime()}.
+     */
+    private long myLastSync;
+
+    /**
+     * Number of appended events that forces the journal to disk.
+     */
+    private volatile int mySyncEvents;
+
+    /**
+     * Longest time appended events wait to be forced to disk, in nanoseconds.
+     */
+    private volatile long mySyncIntervalNanos;
+
+    /**
+     * Position up to which the journal has been replayed.
+     */
+    private volatile long myCheckpoint;
+
+    /**
+     * Sealed segment last mapped for reading.
+     */
+    private ByteBuffer myReadSegment;
+
+    /**
+     * Number of the segment mapped for reading, or -1.
+     */
+    private long myReadNumber;
+
+    /**
+     * Number of events appended.
+     */
+    private long myAppended;
+
+    /**
+     * Number of events that did not fit in a segment and were dropped.
+     */
+    private long myRejected;
+
+    /**
+     * Number of forces to disk.
+     */
+    private long mySyncs;
+
+    /**
+     * Whether the journal has been closed.
+     */
+    private boolean myClosed;
+
+    /**
+     * Number of bytes appended but not replayed before appending waits, or 0 for no limit.
+     */
+    private volatile long myBacklogLimit;
+
+    /**
+     * Longest time an append waits for the backlog to shrink, in nanoseconds.
+     */
+    private volatile long myMaxStallNanos;
+
+    /**
+     * Number of appends that waited for the backlog.
+     */
+    private long myStalls;
+
+    /**
+     * Total time appends waited for the backlog, in nanoseconds.
+     */
+    private long myStallNanos;
+
+    /**
+     * Told after every append, e.g. to wake the replayer, or null.
+     */
+    private volatile Runnable myAppendListener;
+
+    /**
+     * Opens the journal in the given directory with the default segment size.
+     *
+     * @param theDirectory the directory, created if missing.
+     * @throws IOException if the directory or a new segment cannot be created.
+     */
+    public EventJournal(final Path theDirectory) throws IOException {
+        this(theDirectory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in the given directory. Segments left by a previous run
+     * are kept for replay and a new segment is started for appending.
+     *
+     * @param theDirectory the directory, created if missing.
+     * @param theSegmentSize the size of each segment file.
+     * @throws IllegalArgumentException if the segment size is below {@link #MIN_SEGMENT_SIZE}.
+     * @throws IOException if the directory or a new segment cannot be created.
+     */
+    public EventJournal(final Path theDirectory, final int theSegmentSize) throws IOException {
+        if (theSegmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE);
+        }
+        myDirectory = Files.createDirectories(theDirectory);
+        mySegmentSize = theSegmentSize;
+        mySegments = new ConcurrentSkipListSet<>();
+        mySyncEvents = DEFAULT_SYNC_EVENTS;
+        mySyncIntervalNanos = DEFAULT_SYNC_INTERVAL.toNanos();
+        myBacklogLimit = DEFAULT_BACKLOG_LIMIT;
+        myMaxStallNanos = DEFAULT_MAX_STALL.toNanos();
+        myReadNumber = -1;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(myDirectory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    mySegments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.out.println("Error caught in EventJournal: ignoring " + file);
+                }
+            }
+        }
+
+        final long next = mySegments.isEmpty() ? 0 : mySegments.last() + 1;
+        long checkpoint = readCheckpoint();
+        if (checkpoint < 0 || segmentOf(checkpoint) > next) {
+            checkpoint = position(mySegments.isEmpty() ? next : mySegments.first(), EventCodec.HEADER_SIZE);
+        }
+        myCheckpoint = checkpoint;
+        deleteBefore(segmentOf(checkpoint));
+        openSegment(next);
+    }
+
+    /**
+     * Packs a segment number and offset into a journal position.
+     *
+     * @param theSegment the segment number.
+     * @param theOffset the offset in the segment.
+     * @return the position.
+     */
+    public static long position(final long theSegment, final int theOffset) {
+        return theSegment << 32 | theOffset & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the segment number of a journal position.
+     *
+     * @param thePosition the position.
+     * @return the segment number.
+     */
+    public static long segmentOf(final long thePosition) {
+        return thePosition >>> 32;
+    }
+
+    /**
+     * Returns the offset in its segment of a journal position.
+     *
+     * @param thePosition the position.
+     * @return the offset.
+     */
+    public static int offsetOf(final long thePosition) {
+        return (int) thePosition;
+    }
+
+    /**
+     * Sets how often appended events are forced to disk: after the given number
+     * of events, or once the interval has passed since the last force, whichever
+     * comes first. The interval is only checked by {@link #syncIfDue()}.
+     *
+     * @param theEvents the number of events, or 1 to force every append.
+     * @param theInterval the longest time events wait to be forced.
+     * @throws IllegalArgumentException if the number is not positive or the interval is negative.
+     */
+    public void setSyncPolicy(final int theEvents, final Duration theInterval) {
+        if (theEvents < 1 || theInterval.isNegative()) {
+            throw new IllegalArgumentException("Invalid sync policy: " + theEvents + ", " + theInterval);
+        }
+        mySyncEvents = theEvents;
+        mySyncIntervalNanos = theInterval.toNanos();
+    }
+
+    /**
+     * Sets how far replaying may fall behind before appending waits for it.
+     *
+     * @param theBytes the number of bytes appended but not replayed, or 0 for no limit.
+     * @param theMaxStall the longest time one append waits; after it the journal grows on.
+     * @throws IllegalArgumentException if the limit or stall is negative.
+     */
+    public void setBacklogLimit(final long theBytes, final Duration theMaxStall) {
+        if (theBytes < 0 || theMaxStall.isNegative()) {
+            throw new IllegalArgumentException("Invalid backlog limit: " + theBytes + ", " + theMaxStall);
+        }
+        myBacklogLimit = theBytes;
+        myMaxStallNanos = theMaxStall.toNanos();
+    }
+
+    /**
+     * Sets what is told after every append.
+     *
+     * @param theListener the listener, or null.
+     */
+    public void setAppendListener(final Runnable theListener) {
+        myAppendListener = theListener;
+    }
+
+    /**
+     * Appends events to the journal, starting a new segment when the active one
+     * is full. An event too large for an empty segment is dropped. Waits first
+     * if the backlog is over its limit.
+     *
+     * @param theEvents the events, in delivery order.
+     * @throws IOException if a new segment cannot be created; events before it are kept.
+     * @throws IllegalStateException if the journal is closed.
+     */
+    public synchronized void append(final Collection<Event> theEvents) throws IOException {
+        if (myClosed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        awaitBacklog();
+        for (Event event : theEvents) {
+            final int size = EventCodec.sizeOf(event);
+            if (size > myActive.remaining()) {
+                if (size > mySegmentSize - EventCodec.HEADER_SIZE) {
+                    System.out.println("Error caught in EventJournal: event too large for a segment: " + event);
+                    myRejected++;
+                    continue;
+                }
+                roll();
+            }
+            EventCodec.encode(event, myActive);
+            myAppended++;
+            myUnsynced++;
+        }
+        if (myUnsynced >= mySyncEvents) {
+            sync();
+        }
+        final Runnable listener = myAppendListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Waits while the backlog is over its limit, up to the longest stall.
+     * Called with the lock held; waiting releases it so the checkpoint can move.
+     */
+    private void awaitBacklog() {
+        final long limit = myBacklogLimit;
+        if (limit == 0 || backlog() <= limit) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final long deadline = start + myMaxStallNanos;
+        final Runnable listener = myAppendListener;
+        if (listener != null) {
+            listener.run();
+        }
+        try {
+            long left;
+            while (backlog() > limit && !myClosed && (left = deadline - System.nanoTime()) > 0) {
+                wait(TimeUnit.NANOSECONDS.toMillis(left) + 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        myStalls++;
+        myStallNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Returns about how many bytes have been appended but not replayed.
+     *
+     * @return the distance from the checkpoint to the end, in bytes.
+     */
+    public synchronized long getBacklog() {
+        return backlog();
+    }
+
+    /**
+     * Returns the distance from the checkpoint to the end, counting every
+     * segment in between as full.
+     *
+     * @return the backlog in bytes.
+     */
+    private long backlog() {
+        final long checkpoint = myCheckpoint;
+        final long segments = myActiveNumber - segmentOf(checkpoint);
+        if (segments <= 0) {
+            return Math.max(0, myActive.position() - offsetOf(checkpoint));
+        }
+        return (mySegmentSize - offsetOf(checkpoint)) + (segments - 1) * mySegmentSize + myActive.position();
+    }
+
+    /**
+     * Forces the appended events to disk.
+     */
+    public synchronized void sync() {
+        if (myUnsynced > 0 && !myClosed) {
+            myActive.force(mySyncedOffset, myActive.position() - mySyncedOffset);
+            mySyncedOffset = myActive.position();
+            myUnsynced = 0;
+            mySyncs++;
+        }
+        myLastSync = System.nanoTime();
+    }
+
+    /**
+     * Forces the appended events to disk if they have waited for the sync interval.
+     */
+    public synchronized void syncIfDue() {
+        if (myUnsynced > 0 && System.nanoTime() - myLastSync >= mySyncIntervalNanos) {
+            sync();
+        }
+    }
+
+    /**
+     * Returns the position after the last appended event.
+     *
+     * @return the end of the journal.
+     */
+    public synchronized long getEnd() {
+        return position(myActiveNumber, myActive.position());
+    }
+
+    /**
+     * Reads events from the journal.
+     *
+     * @param thePosition the position to read from, e.g. the checkpoint.
+     * @param theMax the largest number of events to read.
+     * @param theOut receives the events.
+     * @return the position after the last event read.
+     * @throws IOException if a segment cannot be mapped.
+     */
+    public long read(final long thePosition, final int theMax, final List<Event> theOut) throws IOException {
+        long segment = segmentOf(thePosition);
+        int offset = offsetOf(thePosition);
+        int read = 0;
+        while (read < theMax) {
+            final ByteBuffer buffer = view(segment);
+            if (buffer == null) {
+                // skipped or deleted: carry on with the next segment there is
+                final Long next = mySegments.higher(segment);
+                if (next == null) {
+                    return position(segment, offset);
+                }
+                segment = next;
+                offset = EventCodec.HEADER_SIZE;
+                continue;
+            }
+            buffer.position(Math.min(offset, buffer.limit()));
+            boolean corrupt = false;
+            while (read < theMax && buffer.hasRemaining() && buffer.get(buffer.position()) != 0) {
+                try {
+                    final Event event = EventCodec.decode(buffer);
+                    if (event == null) {
+                        break;
+                    }
+                    theOut.add(event);
+                    read++;
+                } catch (StreamCorruptedException e) {
+                    System.out.println("Error caught in EventJournal: segment " + segment + ": " + e);
+                    corrupt = true;
+                    break;
+                }
+            }
+            offset = buffer.position();
+            if (read >= theMax && !corrupt) {
+                break;
+            }
+            final boolean active;
+            synchronized (this) {
+                active = segment == myActiveNumber;
+            }
+            if (active) {
+                break;
+            }
+            // everything in a sealed segment has been read
+            final Long next = mySegments.higher(segment);
+            if (next == null) {
+                break;
+            }
+            segment = next;
+            offset = EventCodec.HEADER_SIZE;
+        }
+        return position(segment, offset);
+    }
+
+    /**
+     * Records that the journal has been replayed up to a position, and deletes
+     * the segments before it.
+     *
+     * @param thePosition the position, as returned by {@link #read}.
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    public void checkpoint(final long thePosition) throws IOException {
+        final Path file = myDirectory.resolve(CHECKPOINT);
+        final Path temp = myDirectory.resolve(CHECKPOINT + ".tmp");
+        final ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES).putLong(0, thePosition);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            myCheckpoint = thePosition;
+            // appends waiting for the backlog may go on
+            notifyAll();
+        }
+        deleteBefore(segmentOf(thePosition));
+    }
+
+    /**
+     * Returns the position up to which the journal has been replayed.
+     *
+     * @return the checkpoint.
+     */
+    public long getCheckpoint() {
+        return myCheckpoint;
+    }
+
+    /**
+     * Returns the number of segment files on disk.
+     *
+     * @return the number of segments, the active one included.
+     */
+    public int getSegmentCount() {
+        return mySegments.size();
+    }
+
+    /**
+     * Returns the number of events appended since the journal was opened.
+     *
+     * @return the append counter.
+     */
+    public synchronized long getAppendedCount() {
+        return myAppended;
+    }
+
+    /**
+     * Returns the number of events too large for a segment.
+     *
+     * @return the rejection counter.
+     */
+    public synchronized long getRejectedCount() {
+        return myRejected;
+    }
+
+    /**
+     * Returns the number of times the journal was forced to disk.
+     *
+     * @return the sync counter.
+     */
+    public synchronized long getSyncCount() {
+        return mySyncs;
+    }
+
+    /**
+     * Returns the number of appends that waited for the backlog to shrink.
+     *
+     * @return the stall counter.
+     */
+    public synchronized long getStallCount() {
+        return myStalls;
+    }
+
+    /**
+     * Returns the total time appends waited for the backlog to shrink.
+     *
+     * @return the time stalled.
+     */
+    public synchronized Duration getStallTime() {
+        return Duration.ofNanos(myStallNanos);
+    }
+
+    /**
+     * Forces the appended events to disk and closes the active segment. Events
+     * not replayed yet are replayed when the journal is opened again.
+     */
+    @Override
+    public synchronized void close() {
+        if (myClosed) {
+            return;
+        }
+        sync();
+        myClosed = true;
+        notifyAll();
+        try {
+            myActiveChannel.close();
+        } catch (IOException e) {
+            System.out.println("Error caught in EventJournal: " + e);
+        }
+    }
+
+    /**
+     * Seals the active segment and starts the next one.
+     *
+     * @throws IOException if the next segment cannot be created.
+     */
+    private void roll() throws IOException {
+        sync();
+        myActiveChannel.close();
+        openSegment(myActiveNumber + 1);
+    }
+
+    /**
+     * Creates and maps a new segment for appending.
+     *
+     * @param theNumber the segment number.
+     * @throws IOException if the segment cannot be created.
+     */
+    private void openSegment(final long theNumber) throws IOException {
+        final FileChannel channel = FileChannel.open(fileOf(theNumber), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mySegmentSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        EventCodec.writeHeader(buffer);
+        buffer.force(0, EventCodec.HEADER_SIZE);
+        // keep a zero byte after the records so readers always find the end
+        buffer.limit(mySegmentSize - 1);
+        myActiveChannel = channel;
+        myActive = buffer;
+        myActiveNumber = theNumber;
+        mySyncedOffset = EventCodec.HEADER_SIZE;
+        myUnsynced = 0;
+        myLastSync = System.nanoTime();
+        mySegments.add(theNumber);
+    }
+
+    /**
+     * Returns a buffer over a segment's records for reading.
+     *
+     * @param theNumber the segment number.
+     * @return the buffer, limited to the appended records, or null if the segment
+     * is missing or not a journal segment.
+     * @throws IOException if the segment cannot be mapped.
+     */
+    private synchronized ByteBuffer view(final long theNumber) throws IOException {
+        if (theNumber == myActiveNumber) {
+            return myActive.duplicate().flip();
+        }
+        if (theNumber != myReadNumber) {
+            myReadSegment = null;
+            myReadNumber = -1;
+            if (!mySegments.contains(theNumber)) {
+                return null;
+            }
+            final MappedByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(fileOf(theNumber), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            try {
+                EventCodec.readHeader(mapped);
+            } catch (StreamCorruptedException e) {
+                System.out.println("Error caught in EventJournal: segment " + theNumber + ": " + e);
+                return null;
+            }
+            myReadSegment = mapped;
+            myReadNumber = theNumber;
+        }
+        return myReadSegment.duplicate();
+    }
+
+    /**
+     * Deletes the sealed segments before a segment.
+     *
+     * @param theNumber the first segment to keep.
+     */
+    private void deleteBefore(final long theNumber) {
+        for (Long number : mySegments.headSet(theNumber)) {
+            synchronized (this) {
+                if (number == myActiveNumber && myActive != null) {
+                    continue;
+                }
+                if (number == myReadNumber) {
+                    myReadSegment = null;
+                    myReadNumber = -1;
+                }
+            }
+            try {
+                Files.deleteIfExists(fileOf(number));
+                mySegments.remove(number);
+            } catch (IOException e) {
+                System.out.println("Error caught in EventJournal: " + e);
+            }
+        }
+    }
+
+    /**
+     * Reads the checkpoint file.
+     *
+     * @return the checkpoint, or -1 if there is none.
+     */
+    private long readCheckpoint() {
+        try {
+            final byte[] bytes = Files.readAllBytes(myDirectory.resolve(CHECKPOINT));
+            return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the file of a segment.
+     *
+     * @param theNumber the segment number.
+     * @return its path.
+     */
+    private Path fileOf(final long theNumber) {
+        return myDirectory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, theNumber, SEGMENT_SUFFIX));
+    }
+}
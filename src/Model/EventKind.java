@@ -0,0 +1,103 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.nio.file.WatchEvent;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * The kinds of change an {@link Event} can stand for. {@link EventCodec} and
+ * the database ({@link EventSchema}) store the ordinal, so new kinds must be
+ * added just before {@link #OTHER}, never in between, and OTHER's code must be
+ * kept readable.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public enum EventKind {
+
+    /** A file or directory was created. */
+    CREATE("ENTRY_CREATE"),
+
+    /** A file or directory was modified. */
+    MODIFY("ENTRY_MODIFY"),
+
+    /** A file or directory was deleted. */
+    DELETE("ENTRY_DELETE"),
+
+    /** A file or directory was renamed or moved. */
+    MOVE("ENTRY_MOVE"),
+
+    /** A file was modified without changing its content. */
+    TOUCH("ENTRY_TOUCH"),
+
+    /** Any other event type, kept by name in the event. */
+    OTHER(null);
+
+    /**
+     * All kinds, without copying the array on every lookup.
+     */
+    private static final EventKind[] KINDS = values();
+
+    /**
+     * The event type shown to the user and stored in the database.
+     */
+    private final String myName;
+
+    /**
+     * Creates a kind.
+     *
+     * @param theName the event type name, or null for {@link #OTHER}.
+     */
+    EventKind(final String theName) {
+        myName = theName;
+    }
+
+    /**
+     * Returns the event type name, such as ENTRY_CREATE.
+     *
+     * @return the name, or null for {@link #OTHER}.
+     */
+    public String getName() {
+        return myName;
+    }
+
+    /**
+     * Looks up the kind of an event type name.
+     *
+     * @param theName the event type name.
+     * @return the kind, or {@link #OTHER} if the name is not one of the known types.
+     */
+    public static EventKind of(final String theName) {
+        for (EventKind kind : KINDS) {
+            if (theName.equals(kind.myName)) {
+                return kind;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Returns the kind of a raw watch event.
+     *
+     * @param theKind the watch event kind.
+     * @return the kind, or {@link #OTHER} for kinds such as OVERFLOW.
+     */
+    public static EventKind of(final WatchEvent.Kind<?> theKind) {
+        if (theKind == ENTRY_CREATE) {
+            return CREATE;
+        } else if (theKind == ENTRY_MODIFY) {
+            return MODIFY;
+        } else if (theKind == ENTRY_DELETE) {
+            return DELETE;
+        } else if (theKind == MoveCorrelator.ENTRY_MOVE) {
+            return MOVE;
+        }
+        return of(theKind.name());
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A search of the stored events, built from typed filters instead of SQL
+ * text. Every filter set is ANDed. The query compiles to SQL on the events
+ * view of {@link EventSchema} with a {@code ?} for each value, so user input
+ * never becomes part of the SQL, and queries with the same filters set share
+ * the same SQL and so the same cached prepared statement.
+ *
+ * <pre>{@code
+ * DataBase.getDatabase().search(new EventQuery()
+ *         .eventType("ENTRY_MODIFY")
+ *         .extension(".txt")
+ *         .from(start));
+ * }</pre>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventQuery {
+
+    /**
+     * Escape character of the LIKE patterns built for directories.
+     */
+    private static final char ESCAPE = '\\';
+
+    /**
+     * Event type name to match, or null for any.
+     */
+    private String myEventType;
+
+    /**
+     * Extension to match, or null for any.
+     */
+    private String myExtension;
+
+    /**
+     * LIKE pattern the parent directory must match, or null for any.
+     */
+    private String myDirectory;
+
+    /**
+     * Earliest time in nanoseconds since the epoch, or null for no bound.
+     */
+    private Long myFrom;
+
+    /**
+     * Time in nanoseconds since the epoch events must be before, or null for no bound.
+     */
+    private Long myUntil;
+
+    /**
+     * The directory pattern as a regular expression, made when first needed.
+     */
+    private Pattern myDirectoryRegex;
+
+    /**
+     * Creates a query matching every event.
+     */
+    public EventQuery() {
+        // filters are added by the methods below
+    }
+
+    /**
+     * Matches events of a kind.
+     *
+     * @param theKind the kind, not {@link EventKind#OTHER}.
+     * @return this query.
+     * @throws IllegalArgumentException if the kind is OTHER, which has no single name.
+     */
+    public EventQuery kind(final EventKind theKind) {
+        if (theKind == EventKind.OTHER) {
+            throw new IllegalArgumentException("Match other event types by name");
+        }
+        myEventType = theKind.getName();
+        return this;
+    }
+
+    /**
+     * Matches events of a type name, such as ENTRY_CREATE.
+     *
+     * @param theType the type name, or null for any.
+     * @return this query.
+     */
+    public EventQuery eventType(final String theType) {
+        myEventType = theType;
+        return this;
+    }
+
+    /**
+     * Matches events of files with an extension.
+     *
+     * @param theExtension the extension, such as .txt, or null for any.
+     * @return this query.
+     */
+    public EventQuery extension(final String theExtension) {
+        myExtension = theExtension;
+        return this;
+    }
+
+    /**
+     * Matches events in a directory or below it, i.e. whose parent directory
+     * path starts with the given path. Like SQL LIKE, this ignores ASCII case.
+     *
+     * @param thePrefix the start of the path, or null for any.
+     * @return this query.
+     */
+    public EventQuery directory(final String thePrefix) {
+        myDirectory = thePrefix == null ? null : escape(thePrefix) + "%";
+        myDirectoryRegex = null;
+        return this;
+    }
+
+    /**
+     * Matches events whose parent directory path contains a text, ignoring ASCII case.
+     *
+     * @param theText the text, or null for any.
+     * @return this query.
+     */
+    public EventQuery directoryContaining(final String theText) {
+        myDirectory = theText == null ? null : "%" + escape(theText) + "%";
+        myDirectoryRegex = null;
+        return this;
+    }
+
+    /**
+     * Matches events at or after a time.
+     *
+     * @param theTime the earliest time, or null for no bound.
+     * @return this query.
+     */
+    public EventQuery from(final Instant theTime) {
+        myFrom = theTime == null ? null : toNanos(theTime);
+        return this;
+    }
+
+    /**
+     * Matches events before a time.
+     *
+     * @param theTime the time events must be before, or null for no bound.
+     * @return this query.
+     */
+    public EventQuery until(final Instant theTime) {
+        myUntil = theTime == null ? null : toNanos(theTime);
+        return this;
+    }
+
+    /**
+     * Returns the conditions of the query, one {@code ?} per value, in the
+     * order {@link #bind} sets them. Queries with the same filters set return
+     * the same SQL.
+     *
+     * @return the conditions ANDed, or an empty string if there are none.
+     */
+    public String toWhere() {
+        final List<String> conditions = new ArrayList<>();
+        if (myEventType != null) {
+            // resolved through the unique index of event_kinds
+            conditions.add("Event = ?");
+        }
+        if (myExtension != null) {
+            conditions.add("Extension = ?");
+        }
+        if (myDirectory != null) {
+            // look the few directories up first, then their events by index
+            conditions.add("Parent IN (SELECT path FROM directories WHERE path LIKE ? ESCAPE '" + ESCAPE + "')");
+        }
+        if (myFrom != null) {
+            conditions.add("Time >= ?");
+        }
+        if (myUntil != null) {
+            conditions.add("Time < ?");
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * Returns the full search statement of the query.
+     *
+     * @return the SQL selecting every column of the matching events in insertion order.
+     */
+    public String toSql() {
+        final String where = toWhere();
+        // the view joins several tables, so ask for insertion order
+        return "SELECT * FROM events" + (where.isEmpty() ? "" : " WHERE " + where) + " ORDER BY Id";
+    }
+
+    /**
+     * Returns the statement reading a page of the query from the version 2
+     * table after a key, in the order of a time index so that no page sorts
+     * the events it skips. The kind or else the extension picks the index;
+     * other filters are checked on the rows it reads. After the values of
+     * {@link #bind}, it takes the time of the key if timed, its id, and the
+     * page size.
+     *
+     * @param theTimed true for events with a time ordered by (time, id),
+     * false for those without one ordered by id.
+     * @return the SQL selecting every column of the events view.
+     */
+    public String toPageSql(final boolean theTimed) {
+        final List<String> conditions = new ArrayList<>();
+        String index = EventSchema.TIME_INDEX;
+        if (myEventType != null) {
+            conditions.add("e.kind = (SELECT id FROM event_kinds WHERE name = ?)");
+            index = EventSchema.KIND_TIME_INDEX;
+        }
+        if (myExtension != null) {
+            conditions.add("e.extension_id = (SELECT id FROM extensions WHERE name = ?)");
+            index = myEventType == null ? EventSchema.EXTENSION_TIME_INDEX : index;
+        }
+        if (myDirectory != null) {
+            conditions.add("e.directory_id IN (SELECT id FROM directories WHERE path LIKE ? ESCAPE '"
+                    + ESCAPE + "')");
+        }
+        if (myFrom != null) {
+            conditions.add("e.time >= ?");
+        }
+        if (myUntil != null) {
+            conditions.add("e.time < ?");
+        }
+        conditions.add(theTimed ? "(e.time, e.id) > (?, ?)" : "e.time IS NULL AND e.id > ?");
+        return EventSchema.selectBy(index) + " WHERE " + String.join(" AND ", conditions)
+                + (theTimed ? " ORDER BY e.time, e.id" : " ORDER BY e.id") + " LIMIT ?";
+    }
+
+    /**
+     * Sets the values of the query on a statement prepared from its SQL.
+     *
+     * @param theStatement the statement.
+     * @param theFirst the index of the first parameter of the query.
+     * @return the index after the last parameter set.
+     * @throws SQLException if a parameter cannot be set.
+     */
+    public int bind(final PreparedStatement theStatement, final int theFirst) throws SQLException {
+        int index = theFirst;
+        if (myEventType != null) {
+            theStatement.setString(index++, myEventType);
+        }
+        if (myExtension != null) {
+            theStatement.setString(index++, myExtension);
+        }
+        if (myDirectory != null) {
+            theStatement.setString(index++, myDirectory);
+        }
+        if (myFrom != null) {
+            theStatement.setLong(index++, myFrom);
+        }
+        if (myUntil != null) {
+            theStatement.setLong(index++, myUntil);
+        }
+        return index;
+    }
+
+    /**
+     * Returns whether an event matches the query, as the SQL would decide.
+     * Used for events outside the database, such as those in the archive.
+     *
+     * @param theEvent the event.
+     * @return true if it passes every filter.
+     */
+    boolean matches(final Event theEvent) {
+        if (myEventType != null && !myEventType.equals(theEvent.getEventType())
+                || myExtension != null && !myExtension.equals(theEvent.getExtension())
+                || myDirectory != null && !directoryRegex().matcher(theEvent.getParent()).matches()) {
+            return false;
+        }
+        if (myFrom == null && myUntil == null) {
+            return true;
+        }
+        // the SQL compares Time, which is NULL for events without one
+        final long time = theEvent.getRawTimestamp() == null ? theEvent.getTime() : Event.UNKNOWN_TIME;
+        return time != Event.UNKNOWN_TIME
+                && (myFrom == null || time >= myFrom)
+                && (myUntil == null || time < myUntil);
+    }
+
+    /**
+     * Returns whether any event of a group may match the query, judging by
+     * the group's time range and the values it holds.
+     *
+     * @param theMinTime the earliest time in the group.
+     * @param theMaxTime the latest time in the group.
+     * @param theTypes the event type names in the group.
+     * @param theExtensions the extensions in the group.
+     * @param theDirectories the parent directories in the group.
+     * @return false if no event of the group can match.
+     */
+    boolean mayMatch(final long theMinTime, final long theMaxTime, final String[] theTypes,
+                     final String[] theExtensions, final String[] theDirectories) {
+        if (myFrom != null && theMaxTime < myFrom || myUntil != null && theMinTime >= myUntil) {
+            return false;
+        }
+        if (myEventType != null && !List.of(theTypes).contains(myEventType)
+                || myExtension != null && !List.of(theExtensions).contains(myExtension)) {
+            return false;
+        }
+        if (myDirectory != null) {
+            for (String directory : theDirectories) {
+                if (directoryRegex().matcher(directory).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventQuery[type=%s, extension=%s, directory=%s, from=%s, until=%s]",
+                myEventType, myExtension, myDirectory, myFrom, myUntil);
+    }
+
+    /**
+     * Returns the directory pattern as a regular expression. Like SQLite's
+     * LIKE, it ignores the case of ASCII letters only.
+     *
+     * @return the expression.
+     */
+    private Pattern directoryRegex() {
+        if (myDirectoryRegex == null) {
+            final StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < myDirectory.length(); i++) {
+                final char c = myDirectory.charAt(i);
+                if (c == ESCAPE && i + 1 < myDirectory.length()) {
+                    regex.append(Pattern.quote(String.valueOf(myDirectory.charAt(++i))));
+                } else if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            myDirectoryRegex = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        }
+        return myDirectoryRegex;
+    }
+
+    /**
+     * Escapes the LIKE wildcards in a text.
+     *
+     * @param theText the text.
+     * @return the text matching only itself in a LIKE pattern.
+     */
+    private static String escape(final String theText) {
+        final StringBuilder sb = new StringBuilder(theText.length() + 8);
+        for (int i = 0; i < theText.length(); i++) {
+            final char c = theText.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts an instant to nanoseconds since the epoch, as in the Time column,
+     * saturating times too far off to represent.
+     *
+     * @param theTime the instant.
+     * @return nanoseconds since the epoch.
+     */
+    static long toNanos(final Instant theTime) {
+        Objects.requireNonNull(theTime);
+        try {
+            return Math.addExact(Math.multiplyExact(theTime.getEpochSecond(), TimeUnit.SECONDS.toNanos(1)),
+                    theTime.getNano());
+        } catch (ArithmeticException e) {
+            return theTime.getEpochSecond() < 0 ? Long.MIN_VALUE + 1 : Long.MAX_VALUE;
+        }
+    }
+}
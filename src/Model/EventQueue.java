@@ -0,0 +1,504 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free ring buffer used to hand events from the watcher thread
+ * to the threads consuming them. There must be exactly one producer, but any
+ * number of consumers may call take/poll concurrently.
+ *
+ * <p>Slots are allocated once up front, so steady-state traffic does not create
+ * garbage beyond the events themselves. When the ring is full the configured
+ * {@link OverflowPolicy} decides what happens to the new event.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public class EventQueue {
+
+    /**
+     * What the producer does when the ring is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait for a consumer to free a slot. */
+        BLOCK,
+        /** Discard the oldest queued event to make room. */
+        DROP_OLDEST,
+        /** Discard the event being offered. */
+        DROP_NEWEST,
+        /** Append the event to a temporary file until the ring drains. */
+        SPILL_TO_DISK
+    }
+
+    /**
+     * Number of busy-spins before a waiting thread starts yielding.
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * Number of yields before a waiting thread starts parking.
+     */
+    private static final int YIELD_TRIES = 200;
+
+    /**
+     * How long a waiting thread parks between checks.
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Pre-allocated ring of slots.
+     */
+    private final AtomicReferenceArray<Event> mySlots;
+
+    /**
+     * Mask used to turn a sequence into a slot index (capacity is a power of two).
+     */
+    private final int myMask;
+
+    /**
+     * Sequence of the next event to be consumed. Claimed by consumers with CAS.
+     */
+    private final AtomicLong myHead;
+
+    /**
+     * Sequence of the next slot to be published. Only the producer writes it.
+     */
+    private final AtomicLong myTail;
+
+    /**
+     * The policy applied when the ring is full.
+     */
+    private final OverflowPolicy myPolicy;
+
+    /**
+     * Number of events discarded because of overflow.
+     */
+    private final AtomicLong myDropped;
+
+    /**
+     * Number of events written to the spill file.
+     */
+    private final AtomicLong mySpilled;
+
+    /**
+     * Overflow file, only present for SPILL_TO_DISK.
+     */
+    private final SpillFile mySpill;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param theCapacity the minimum number of events the ring holds (rounded up to a power of two).
+     * @param thePolicy what to do with new events when the ring is full.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     * @throws NullPointerException if the policy is null.
+     */
+    public EventQueue(final int theCapacity, final OverflowPolicy thePolicy) {
+        Objects.requireNonNull(thePolicy);
+        if (theCapacity < 1 || theCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + theCapacity);
+        }
+
+        int capacity = Integer.highestOneBit(theCapacity);
+        if (capacity < theCapacity) {
+            capacity <<= 1;
+        }
+
+        mySlots = new AtomicReferenceArray<>(capacity);
+        myMask = capacity - 1;
+        myHead = new AtomicLong();
+        myTail = new AtomicLong();
+        myPolicy = thePolicy;
+        myDropped = new AtomicLong();
+        mySpilled = new AtomicLong();
+        mySpill = thePolicy == OverflowPolicy.SPILL_TO_DISK ? new SpillFile() : null;
+    }
+
+    /**
+     * Offers an event to the queue. Must only be called from the producer thread.
+     *
+     * @param theEvent the event to add.
+     * @return true if the event was queued (or spilled), false if it was dropped.
+     * @throws InterruptedException if interrupted while waiting under BLOCK.
+     * @throws NullPointerException if the event is null.
+     */
+    public boolean offer(final Event theEvent) throws InterruptedException {
+        Objects.requireNonNull(theEvent);
+
+        // once spilling has started every event goes to disk until it is drained,
+        // otherwise newer events could overtake the spilled ones
+        if (mySpill != null && mySpill.appendIfNotEmpty(theEvent)) {
+            mySpilled.incrementAndGet();
+            return true;
+        }
+
+        int idle = 0;
+        while (true) {
+            final long tail = myTail.get();
+            final long head = myHead.get();
+            if (tail - head < mySlots.length()) {
+                mySlots.set((int) tail & myMask, theEvent);
+                myTail.set(tail + 1);
+                return true;
+            }
+
+            switch (myPolicy) {
+                case DROP_NEWEST:
+                    myDropped.incrementAndGet();
+                    return false;
+                case DROP_OLDEST:
+                    // compete with the consumers for the oldest slot
+                    if (myHead.compareAndSet(head, head + 1)) {
+                        myDropped.incrementAndGet();
+                    }
+                    break;
+                case SPILL_TO_DISK:
+                    mySpill.append(theEvent);
+                    mySpilled.incrementAndGet();
+                    return true;
+                default:
+                    idle = backOff(idle);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest event without waiting.
+     *
+     * @return the oldest event, or null if the queue is empty.
+     */
+    public Event poll() {
+        while (true) {
+            final long head = myHead.get();
+            if (head >= myTail.get()) {
+                return mySpill == null ? null : mySpill.poll();
+            }
+
+            // read before claiming; a failed claim means someone else (a consumer
+            // or DROP_OLDEST) took this slot and the value must be ignored
+            final int index = (int) head & myMask;
+            final Event event = mySlots.get(index);
+            if (myHead.compareAndSet(head, head + 1)) {
+                // let the event be collected; the producer may already have
+                // refilled the slot, so only clear it if it still holds ours
+                mySlots.compareAndSet(index, event, null);
+                return event;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest event, waiting until one is available.
+     *
+     * @return the oldest event.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Event take() throws InterruptedException {
+        int idle = 0;
+        Event event;
+        while ((event = poll()) == null) {
+            idle = backOff(idle);
+        }
+        return event;
+    }
+
+    /**
+     * Removes the oldest event, waiting up to the given time for one to arrive.
+     *
+     * @param theTimeout how long to wait.
+     * @param theUnit the unit of the timeout.
+     * @return the oldest event, or null if none arrived in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Event poll(final long theTimeout, final TimeUnit theUnit) throws InterruptedException {
+        final long deadline = System.nanoTime() + theUnit.toNanos(theTimeout);
+        int idle = 0;
+        Event event;
+        while ((event = poll()) == null) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            idle = backOff(idle);
+        }
+        return event;
+    }
+
+    /**
+     * Moves up to the given number of queued events into a collection without waiting.
+     *
+     * @param theTarget the collection to add to.
+     * @param theMax the maximum number of events to move.
+     * @return the number of events moved.
+     */
+    public int drainTo(final Collection<? super Event> theTarget, final int theMax) {
+        int count = 0;
+        Event event;
+        while (count < theMax && (event = poll()) != null) {
+            theTarget.add(event);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the current number of queued events, including spilled ones.
+     *
+     * @return the queue depth.
+     */
+    public long size() {
+        final long depth = Math.max(0, myTail.get() - myHead.get());
+        return mySpill == null ? depth : depth + mySpill.size();
+    }
+
+    /**
+     * Returns whether there is nothing left to consume.
+     *
+     * @return true if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots in the ring.
+     *
+     * @return the ring capacity.
+     */
+    public int getCapacity() {
+        return mySlots.length();
+    }
+
+    /**
+     * Returns the overflow policy of this queue.
+     *
+     * @return the overflow policy.
+     */
+    public OverflowPolicy getPolicy() {
+        return myPolicy;
+    }
+
+    /**
+     * Returns how many events were discarded because the queue was full.
+     *
+     * @return the drop counter.
+     */
+    public long getDropCount() {
+        return myDropped.get();
+    }
+
+    /**
+     * Returns how many events were written to the spill file.
+     *
+     * @return the spill counter.
+     */
+    public long getSpillCount() {
+        return mySpilled.get();
+    }
+
+    /**
+     * Releases the spill file, if any. Spilled events that were not consumed are lost.
+     */
+    public void close() {
+        if (mySpill != null) {
+            mySpill.close();
+        }
+    }
+
+    /**
+     * Waits a little longer each time it is called: spin, then yield, then park.
+     *
+     * @param theIdle how many times the caller has already waited.
+     * @return the new idle count.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    private static int backOff(final int theIdle) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (theIdle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (theIdle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return theIdle + 1;
+    }
+
+    /**
+     * Append-only temporary file holding events that did not fit in the ring,
+     * as {@link EventCodec} records so merged and moved events keep every field.
+     * This is the slow path, so it is simply guarded by its own monitor.
+     */
+    private static final class SpillFile {
+
+        /**
+         * Channel to the temporary file, opened lazily.
+         */
+        private FileChannel myChannel;
+
+        /**
+         * Position the next record is written to.
+         */
+        private long myWritePosition;
+
+        /**
+         * Position of the next byte to read into the read buffer.
+         */
+        private long myReadPosition;
+
+        /**
+         * Number of records written but not read yet.
+         */
+        private long myCount;
+
+        /**
+         * Buffer records are encoded into before being written, grown as needed.
+         */
+        private ByteBuffer myWriteBuffer = ByteBuffer.allocate(256);
+
+        /**
+         * Bytes read from the file but not decoded yet, between position and limit.
+         */
+        private ByteBuffer myReadBuffer = ByteBuffer.allocate(8192).flip();
+
+        /**
+         * Appends the event only if there are already spilled events.
+         *
+         * @param theEvent the event to append.
+         * @return true if the event was appended.
+         */
+        synchronized boolean appendIfNotEmpty(final Event theEvent) {
+            if (myCount == 0) {
+                return false;
+            }
+            append(theEvent);
+            return true;
+        }
+
+        /**
+         * Appends the event to the end of the file.
+         *
+         * @param theEvent the event to append.
+         */
+        synchronized void append(final Event theEvent) {
+            try {
+                if (myChannel == null) {
+                    final Path file = Files.createTempFile("file_watcher_spill", ".bin");
+                    file.toFile().deleteOnExit();
+                    myChannel = FileChannel.open(file, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                }
+
+                final int size = EventCodec.sizeOf(theEvent);
+                if (myWriteBuffer.capacity() < size) {
+                    myWriteBuffer = ByteBuffer.allocate(Math.max(size, myWriteBuffer.capacity() * 2));
+                }
+                final ByteBuffer record = myWriteBuffer.clear();
+                EventCodec.encode(theEvent, record);
+                record.flip();
+                while (record.hasRemaining()) {
+                    myWritePosition += myChannel.write(record, myWritePosition);
+                }
+                myCount++;
+            } catch (IOException e) {
+                System.out.println("Error caught in EventQueue spill: " + e);
+            }
+        }
+
+        /**
+         * Reads the oldest spilled event.
+         *
+         * @return the oldest spilled event, or null if there is none.
+         */
+        synchronized Event poll() {
+            if (myCount == 0) {
+                return null;
+            }
+            try {
+                Event event = EventCodec.decode(myReadBuffer);
+                while (event == null) {
+                    fill();
+                    event = EventCodec.decode(myReadBuffer);
+                }
+
+                // start over once everything has been read back so the file stays small
+                if (--myCount == 0) {
+                    myChannel.truncate(0);
+                    myReadPosition = 0;
+                    myWritePosition = 0;
+                    myReadBuffer.clear().flip();
+                }
+                return event;
+            } catch (IOException e) {
+                System.out.println("Error caught in EventQueue spill: " + e);
+                myCount = 0;
+                myReadBuffer.clear().flip();
+                return null;
+            }
+        }
+
+        /**
+         * Returns the number of spilled events not read yet.
+         *
+         * @return the number of spilled events.
+         */
+        synchronized long size() {
+            return myCount;
+        }
+
+        /**
+         * Closes and deletes the file.
+         */
+        synchronized void close() {
+            try {
+                if (myChannel != null) {
+                    myChannel.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Error caught in EventQueue spill: " + e);
+            }
+            myChannel = null;
+            myCount = 0;
+            myReadPosition = 0;
+            myWritePosition = 0;
+            myReadBuffer.clear().flip();
+        }
+
+        /**
+         * Reads more of the file after the bytes not decoded yet, growing the
+         * read buffer if a single record does not fit.
+         *
+         * @throws IOException if the file ends early or cannot be read.
+         */
+        private void fill() throws IOException {
+            myReadBuffer.compact();
+            if (!myReadBuffer.hasRemaining()) {
+                final ByteBuffer larger = ByteBuffer.allocate(myReadBuffer.capacity() * 2);
+                myReadBuffer = larger.put(myReadBuffer.flip());
+            }
+            final int read = myChannel.read(myReadBuffer, myReadPosition);
+            myReadBuffer.flip();
+            if (read <= 0) {
+                throw new IOException("Spill file truncated");
+            }
+            myReadPosition += read;
+        }
+    }
+}
@@ -0,0 +1,771 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The typed layout of the event tables, version 2, and the migration to it
+ * from the single all-TEXT table of version 1.
+ *
+ * <p>Events are stored in {@code event_log} with epoch-nanosecond times, the
+ * kind as a small integer, and the extension and parent directory as ids into
+ * the {@code extensions} and {@code directories} dictionaries, so each path is
+ * stored once. Known kinds have the {@link EventKind} ordinal as id; other type
+ * names are added to {@code event_kinds} from {@link #FIRST_OTHER_KIND} on.
+ * Times that are not ISO instants are kept as text in {@code raw_time}.</p>
+ *
+ * <p>The {@code events} view shows the version 1 columns (Id, Filename, Event,
+ * Timestamp, Extension, Directory) over the new tables, so existing queries
+ * keep working, followed by the typed columns {@link #read} uses. Filters on
+ * the typed columns can use the {@link #INDEXES index set}, filters on the
+ * text columns cannot, so searches are built as an {@link EventQuery}, which
+ * compares dates with {@code Time} and looks directories up in
+ * {@code directories}.</p>
+ *
+ * <p>A version 1 table is renamed to {@code events_v1} when the database is
+ * opened and copied into {@code event_log} by {@link #migrateBatch}, a batch per
+ * transaction, keeping its ids. Progress is stored with the version, so an
+ * interrupted migration resumes where it stopped, and until it is done the view
+ * also shows the rows not copied yet. New events get ids after every old row.</p>
+ *
+ * <p>A database created by this class uses incremental auto-vacuum, so pages
+ * freed by archiving and expiring events can be returned to the file system a
+ * few at a time by {@link #incrementalVacuum}, instead of by a VACUUM that
+ * rewrites the whole file. A database created before is left as it is, since
+ * converting it would take that VACUUM; its free pages are reused by new
+ * events instead.</p>
+ *
+ * <p>An instance caches dictionary ids for one writer connection and is only
+ * used by one thread at a time.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class EventSchema {
+
+    /**
+     * Version of the layout created by this class.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Default number of old rows copied per migration transaction.
+     */
+    public static final int DEFAULT_MIGRATION_BATCH = 10_000;
+
+    /**
+     * First id of a type name that is not an {@link EventKind}.
+     */
+    public static final int FIRST_OTHER_KIND = 64;
+
+    /**
+     * Statement inserting one event; parameters are bound by {@link #bind}.
+     */
+    public static final String INSERT = "INSERT INTO event_log(time, raw_time, last_seen, raw_last_seen, kind, "
+            + "extension_id, directory_id, separator, filename, previous_path, count, sequence) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Statement storing the journal position replayed up to; its parameter is the position.
+     */
+    public static final String SET_JOURNAL_POSITION =
+            "INSERT OR REPLACE INTO journal_position(id, position) VALUES(0, ?)";
+
+    /**
+     * Statement inserting a migrated event with its old id.
+     */
+    private static final String INSERT_WITH_ID = "INSERT INTO event_log(time, raw_time, last_seen, "
+            + "raw_last_seen, kind, extension_id, directory_id, separator, filename, previous_path, count, "
+            + "sequence, id) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Tables of version 2.
+     */
+    private static final String[] TABLES = {
+        "CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL, migrated_id INTEGER)",
+        "CREATE TABLE IF NOT EXISTS event_kinds (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)",
+        "CREATE TABLE IF NOT EXISTS extensions (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)",
+        "CREATE TABLE IF NOT EXISTS directories (id INTEGER PRIMARY KEY, path TEXT NOT NULL UNIQUE)",
+        "CREATE TABLE IF NOT EXISTS event_log ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "time INTEGER,"
+                + "raw_time TEXT,"
+                + "last_seen INTEGER,"
+                + "raw_last_seen TEXT,"
+                + "kind INTEGER NOT NULL REFERENCES event_kinds(id),"
+                + "extension_id INTEGER NOT NULL REFERENCES extensions(id),"
+                + "directory_id INTEGER NOT NULL REFERENCES directories(id),"
+                + "separator INTEGER NOT NULL,"
+                + "filename TEXT NOT NULL,"
+                + "previous_path TEXT,"
+                + "count INTEGER NOT NULL DEFAULT 1,"
+                + "sequence INTEGER NOT NULL DEFAULT 0)",
+        "CREATE TABLE IF NOT EXISTS archive_segments ("
+                + "name TEXT PRIMARY KEY,"
+                + "events INTEGER NOT NULL,"
+                + "min_time INTEGER NOT NULL,"
+                + "max_time INTEGER NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS journal_position ("
+                + "id INTEGER PRIMARY KEY CHECK (id = 0),"
+                + "position INTEGER NOT NULL)"
+    };
+
+    /**
+     * Name of the index of event_log by time.
+     */
+    static final String TIME_INDEX = "idx_event_log_time";
+
+    /**
+     * Name of the index of event_log by kind and time.
+     */
+    static final String KIND_TIME_INDEX = "idx_event_log_kind_time";
+
+    /**
+     * Name of the index of event_log by extension and time.
+     */
+    static final String EXTENSION_TIME_INDEX = "idx_event_log_extension_time";
+
+    /**
+     * The indexes of event_log by name, one per filter of the query view, each
+     * followed by the time so a date range narrows it further. The dictionaries
+     * need none: their unique constraints index (and cover) name and path.
+     */
+    public static final Map<String, String> INDEXES = indexes(
+        TIME_INDEX, "event_log(time)",
+        KIND_TIME_INDEX, "event_log(kind, time)",
+        EXTENSION_TIME_INDEX, "event_log(extension_id, time)",
+        "idx_event_log_directory_time", "event_log(directory_id, time)");
+
+    /**
+     * Value of the auto_vacuum pragma for incremental vacuum.
+     */
+    private static final int INCREMENTAL_VACUUM = 2;
+
+    /**
+     * Prefix of the names of indexes managed by this class.
+     */
+    private static final String INDEX_PREFIX = "idx_event_log_";
+
+    /**
+     * Nanoseconds of the second of an event's time, also before 1970, where
+     * SQLite's remainder is negative.
+     */
+    private static final String NANOS = "((e.time % 1000000000 + 1000000000) % 1000000000)";
+
+    /**
+     * An event's time as {@link java.time.Instant#toString()} prints it, with
+     * 0, 3, 6 or 9 digits of fraction.
+     */
+    private static final String INSTANT = "strftime('%Y-%m-%dT%H:%M:%S', (e.time - " + NANOS + ") / 1000000000, "
+            + "'unixepoch') || CASE WHEN " + NANOS + " = 0 THEN '' "
+            + "WHEN " + NANOS + " % 1000000 = 0 THEN printf('.%03d', " + NANOS + " / 1000000) "
+            + "WHEN " + NANOS + " % 1000 = 0 THEN printf('.%06d', " + NANOS + " / 1000) "
+            + "ELSE printf('.%09d', " + NANOS + ") END || 'Z'";
+
+    /**
+     * Columns of the events view, selected from event_log e joined to the
+     * dictionaries k, x and d.
+     */
+    private static final String COLUMNS = "SELECT e.id AS Id, e.filename AS Filename, k.name AS Event, "
+            + "COALESCE(e.raw_time, " + INSTANT + ") AS Timestamp, "
+            + "x.name AS Extension, "
+            + "d.path || CASE e.separator WHEN 0 THEN '' ELSE char(e.separator) || e.filename END AS Directory, "
+            + "e.kind AS Kind, e.time AS Time, e.raw_time AS RawTime, e.last_seen AS LastSeen, "
+            + "e.raw_last_seen AS RawLastSeen, d.path AS Parent, e.separator AS Separator, "
+            + "e.previous_path AS PreviousPath, e.count AS Count, e.sequence AS Sequence ";
+
+    /**
+     * Columns of the events view over version 2 rows.
+     */
+    private static final String VIEW_COLUMNS = COLUMNS + "FROM event_log e JOIN event_kinds k ON k.id = e.kind "
+            + "JOIN extensions x ON x.id = e.extension_id JOIN directories d ON d.id = e.directory_id";
+
+    /**
+     * Rows of the version 1 table not migrated yet, shaped like the view.
+     */
+    private static final String VIEW_OLD_ROWS = " UNION ALL SELECT Id, Filename, Event, Timestamp, Extension, "
+            + "Directory, NULL, CAST(round((julianday(Timestamp) - 2440587.5) * 86400000) AS INTEGER) * 1000000, "
+            + "NULL, NULL, NULL, Directory, NULL, NULL, NULL, NULL FROM events_v1 "
+            + "WHERE Id > (SELECT migrated_id FROM schema_version)";
+
+    /**
+     * The writer connection.
+     */
+    private final Connection myConn;
+
+    /**
+     * Ids of extensions by name.
+     */
+    private final Map<String, Long> myExtensions;
+
+    /**
+     * Ids of parent directories by path.
+     */
+    private final Map<String, Long> myDirectories;
+
+    /**
+     * Ids of type names that are not an {@link EventKind}.
+     */
+    private final Map<String, Long> myOtherKinds;
+
+    /**
+     * Whether the database uses incremental auto-vacuum.
+     */
+    private boolean myIncrementalVacuum;
+
+    /**
+     * Whether rows of version 1 are still being copied, read by searches
+     * without the writer.
+     */
+    private volatile boolean myMigrating;
+
+    /**
+     * Creates the schema for a writer connection. Nothing is read or written
+     * until {@link #open()}.
+     *
+     * @param theConn the writer connection.
+     */
+    public EventSchema(final Connection theConn) {
+        myConn = Objects.requireNonNull(theConn);
+        myExtensions = new HashMap<>();
+        myDirectories = new HashMap<>();
+        myOtherKinds = new HashMap<>();
+    }
+
+    /**
+     * Creates the tables, or upgrades a version 1 database by renaming its
+     * table and starting a migration.
+     *
+     * @return the version the database was at before, 0 if it was empty.
+     * @throws SQLException if the database cannot be read or changed, or is
+     * of a newer version.
+     */
+    public int open() throws SQLException {
+        myIncrementalVacuum = enableIncrementalVacuum();
+        final boolean autoCommit = myConn.getAutoCommit();
+        myConn.setAutoCommit(false);
+        try (Statement statement = myConn.createStatement()) {
+            final int version = version(statement);
+            if (version > VERSION) {
+                throw new SQLException("Database schema version " + version + " is newer than " + VERSION);
+            }
+            // tables added since the database was created are made too
+            for (String table : TABLES) {
+                statement.execute(table);
+            }
+            // kinds added since the database was created get their rows too
+            for (EventKind kind : EventKind.values()) {
+                if (kind != EventKind.OTHER) {
+                    statement.execute("INSERT OR IGNORE INTO event_kinds(id, name) VALUES("
+                            + kind.ordinal() + ", '" + kind.getName() + "')");
+                }
+            }
+            if (version == 1) {
+                long last;
+                try (ResultSet max = statement.executeQuery("SELECT COALESCE(MAX(Id), 0) FROM events")) {
+                    last = max.next() ? max.getLong(1) : 0;
+                }
+                statement.execute("ALTER TABLE events RENAME TO events_v1");
+                // new rows are numbered after the old ones, which keep their ids
+                statement.execute("INSERT INTO sqlite_sequence(name, seq) VALUES('event_log', " + last + ")");
+                statement.execute("INSERT INTO schema_version(version, migrated_id) VALUES(" + VERSION + ", 0)");
+            } else if (version == 0) {
+                statement.execute("INSERT INTO schema_version(version, migrated_id) VALUES(" + VERSION + ", NULL)");
+            }
+            createIndexes(statement);
+            myMigrating = migrating(statement);
+            statement.execute("DROP VIEW IF EXISTS events");
+            statement.execute("CREATE VIEW events AS " + VIEW_COLUMNS + (myMigrating ? VIEW_OLD_ROWS : ""));
+            myConn.commit();
+            // refresh the statistics the planner chooses indexes by, sampling big tables
+            statement.execute("PRAGMA analysis_limit=1000");
+            statement.execute("PRAGMA optimize");
+            return version;
+        } catch (SQLException e) {
+            myConn.rollback();
+            throw e;
+        } finally {
+            myConn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Returns free pages to the file system, a batch in one transaction. A
+     * database without incremental auto-vacuum keeps them.
+     *
+     * @param thePages the largest number of pages to free.
+     * @return the number of free pages left.
+     * @throws SQLException if the database cannot be changed; the batch is rolled back.
+     */
+    public long incrementalVacuum(final int thePages) throws SQLException {
+        if (!myIncrementalVacuum) {
+            return getFreePages();
+        }
+        final boolean autoCommit = myConn.getAutoCommit();
+        myConn.setAutoCommit(false);
+        try (Statement statement = myConn.createStatement()) {
+            long free = freePages(statement);
+            final long target = Math.max(0, free - thePages);
+            // some drivers step the pragma once, which frees a single page
+            for (int i = 0; i < thePages && free > target; i++) {
+                statement.execute("PRAGMA incremental_vacuum(" + (free - target) + ")");
+                free = freePages(statement);
+            }
+            myConn.commit();
+            return free;
+        } catch (SQLException e) {
+            myConn.rollback();
+            throw e;
+        } finally {
+            myConn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Returns whether the database uses incremental auto-vacuum, i.e. was
+     * created by this class.
+     *
+     * @return false if {@link #incrementalVacuum} frees nothing.
+     */
+    public boolean isIncrementalVacuum() {
+        return myIncrementalVacuum;
+    }
+
+    /**
+     * Returns the number of pages of the file that hold nothing.
+     *
+     * @return the number of free pages.
+     * @throws SQLException if the database cannot be read.
+     */
+    public long getFreePages() throws SQLException {
+        try (Statement statement = myConn.createStatement()) {
+            return freePages(statement);
+        }
+    }
+
+    /**
+     * Returns the journal position stored with the last replayed group.
+     *
+     * @return the position, or -1 if none was stored.
+     * @throws SQLException if the database cannot be read.
+     */
+    public long getJournalPosition() throws SQLException {
+        try (Statement statement = myConn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT position FROM journal_position WHERE id = 0")) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    /**
+     * Returns whether rows of version 1 are still being copied.
+     *
+     * @return true until {@link #migrateBatch} has copied every old row.
+     */
+    public boolean isMigrating() {
+        return myMigrating;
+    }
+
+    /**
+     * Copies the next batch of version 1 rows in one transaction. Once none
+     * are left, drops the old table.
+     *
+     * @param theMax the largest number of rows to copy.
+     * @return the number of rows copied, 0 once the migration is done.
+     * @throws SQLException if the rows cannot be copied; the batch is rolled back.
+     */
+    public int migrateBatch(final int theMax) throws SQLException {
+        if (!myMigrating) {
+            return 0;
+        }
+        final boolean autoCommit = myConn.getAutoCommit();
+        myConn.setAutoCommit(false);
+        try (Statement statement = myConn.createStatement();
+             PreparedStatement select = myConn.prepareStatement("SELECT Id, COALESCE(Filename, ''), "
+                     + "COALESCE(Event, ''), COALESCE(Timestamp, ''), COALESCE(Extension, ''), "
+                     + "COALESCE(Directory, '') FROM events_v1 "
+                     + "WHERE Id > (SELECT migrated_id FROM schema_version) ORDER BY Id LIMIT ?");
+             PreparedStatement insert = myConn.prepareStatement(INSERT_WITH_ID)) {
+            select.setInt(1, theMax);
+            int copied = 0;
+            long last = -1;
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    last = rows.getLong(1);
+                    bind(insert, new Event(rows.getString(2), rows.getString(3), rows.getString(4),
+                            rows.getString(5), rows.getString(6)));
+                    insert.setLong(13, last);
+                    insert.addBatch();
+                    copied++;
+                }
+            }
+            if (copied > 0) {
+                insert.executeBatch();
+                statement.execute("UPDATE schema_version SET migrated_id = " + last);
+            } else {
+                statement.execute("DROP VIEW IF EXISTS events");
+                statement.execute("CREATE VIEW events AS " + VIEW_COLUMNS);
+                statement.execute("DROP TABLE events_v1");
+                statement.execute("UPDATE schema_version SET migrated_id = NULL");
+            }
+            myConn.commit();
+            myMigrating = copied > 0;
+            return copied;
+        } catch (SQLException e) {
+            myConn.rollback();
+            rolledBack();
+            throw e;
+        } finally {
+            myConn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Binds an event to the parameters of {@link #INSERT}, adding its extension,
+     * directory and type name to the dictionaries if they are new.
+     *
+     * @param theStatement the insert statement.
+     * @param theEvent the event.
+     * @throws SQLException if a dictionary cannot be updated.
+     */
+    public void bind(final PreparedStatement theStatement, final Event theEvent) throws SQLException {
+        setNullableLong(theStatement, 1, theEvent.getRawTimestamp() == null ? theEvent.getTime() : null);
+        theStatement.setString(2, theEvent.getRawTimestamp());
+        setNullableLong(theStatement, 3, theEvent.getRawLastSeen() == null
+                && theEvent.getLastSeenTime() != theEvent.getTime() ? theEvent.getLastSeenTime() : null);
+        theStatement.setString(4, theEvent.getRawLastSeen());
+        theStatement.setLong(5, kindId(theEvent));
+        theStatement.setLong(6, id(myExtensions, "extensions", "name", theEvent.getExtension()));
+        theStatement.setLong(7, id(myDirectories, "directories", "path", theEvent.getParent()));
+        theStatement.setInt(8, theEvent.getSeparator());
+        theStatement.setString(9, theEvent.getFilename());
+        theStatement.setString(10, theEvent.getPreviousPath());
+        theStatement.setInt(11, theEvent.getCount());
+        theStatement.setLong(12, theEvent.getSequence());
+    }
+
+    /**
+     * Forgets the cached dictionary ids after a rollback, since ids added in
+     * the rolled back transaction no longer exist.
+     */
+    public void rolledBack() {
+        myExtensions.clear();
+        myDirectories.clear();
+        myOtherKinds.clear();
+    }
+
+    /**
+     * Builds the event of the current row of a query on the events view.
+     *
+     * @param theRow the result set, on a row selected with every view column.
+     * @return the event.
+     * @throws SQLException if a column cannot be read.
+     */
+    public static Event read(final ResultSet theRow) throws SQLException {
+        final long kindId = theRow.getLong("Kind");
+        if (theRow.wasNull()) {
+            // a version 1 row not migrated yet
+            return new Event(theRow.getString("Filename"), theRow.getString("Event"),
+                    theRow.getString("Timestamp"), theRow.getString("Extension"), theRow.getString("Directory"));
+        }
+        final EventKind kind = kindId < EventKind.OTHER.ordinal() ? EventKind.values()[(int) kindId] : EventKind.OTHER;
+        final String raw = theRow.getString("RawTime");
+        final long time = raw == null ? theRow.getLong("Time") : Event.UNKNOWN_TIME;
+        final String rawLast = theRow.getString("RawLastSeen");
+        long lastSeen = theRow.getLong("LastSeen");
+        if (theRow.wasNull()) {
+            lastSeen = rawLast == null ? time : Event.UNKNOWN_TIME;
+        }
+        return new Event(kind, kind == EventKind.OTHER ? theRow.getString("Event") : null,
+                theRow.getString("Parent").intern(), (char) theRow.getInt("Separator"),
+                theRow.getString("Filename"), theRow.getString("Extension").intern(), time, raw,
+                lastSeen, rawLast, theRow.getInt("Count"), theRow.getLong("Sequence"),
+                theRow.getString("PreviousPath"));
+    }
+
+    /**
+     * Returns the start of a query with the columns of the events view that
+     * reads event_log in the order of one of its indexes, looking the
+     * dictionaries up for each row after. Unlike the view, the planner can
+     * neither start from a dictionary nor pick another index, so rows come in
+     * the index order and a query ordered by it needs no sort.
+     *
+     * @param theIndex the name of an index of {@link #INDEXES}.
+     * @return the SQL, to be followed by conditions on e.
+     */
+    static String selectBy(final String theIndex) {
+        return COLUMNS + "FROM event_log e INDEXED BY " + theIndex
+                + " CROSS JOIN event_kinds k ON k.id = e.kind"
+                + " CROSS JOIN extensions x ON x.id = e.extension_id"
+                + " CROSS JOIN directories d ON d.id = e.directory_id";
+    }
+
+    /**
+     * Returns how SQLite will run a query, one line per step of its plan,
+     * indented by depth. A {@code SCAN e} step reads every event; a
+     * {@code SEARCH} step uses an index.
+     *
+     * @param thePlan the query prepared with EXPLAIN QUERY PLAN in front, its parameters set.
+     * @return the steps of the plan.
+     * @throws SQLException if the query cannot be planned.
+     */
+    public static List<String> explain(final PreparedStatement thePlan) throws SQLException {
+        final List<String> plan = new ArrayList<>();
+        final Map<Integer, Integer> depths = new HashMap<>();
+        try (ResultSet rs = thePlan.executeQuery()) {
+            while (rs.next()) {
+                final int depth = depths.getOrDefault(rs.getInt("parent"), -1) + 1;
+                depths.put(rs.getInt("id"), depth);
+                plan.add("  ".repeat(depth) + rs.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Turns on incremental auto-vacuum if the database is new. The setting
+     * only takes effect through a VACUUM, which is instant while the database
+     * holds no tables but would rewrite the file of one created before, so
+     * such a database is left as it is.
+     *
+     * @return whether the database uses incremental auto-vacuum.
+     * @throws SQLException if the database cannot be read or changed.
+     */
+    private boolean enableIncrementalVacuum() throws SQLException {
+        try (Statement statement = myConn.createStatement()) {
+            if (pragma(statement, "auto_vacuum") != INCREMENTAL_VACUUM
+                    && pragma(statement, "schema_version") == 0) {
+                statement.execute("PRAGMA auto_vacuum=INCREMENTAL");
+                statement.execute("VACUUM");
+            }
+            return pragma(statement, "auto_vacuum") == INCREMENTAL_VACUUM;
+        }
+    }
+
+    /**
+     * Returns the number of free pages.
+     *
+     * @param theStatement a statement of the connection.
+     * @return the freelist count.
+     * @throws SQLException if it cannot be read.
+     */
+    private static long freePages(final Statement theStatement) throws SQLException {
+        return pragma(theStatement, "freelist_count");
+    }
+
+    /**
+     * Reads a numeric pragma.
+     *
+     * @param theStatement a statement of the connection.
+     * @param theName the pragma.
+     * @return its value.
+     * @throws SQLException if it cannot be read.
+     */
+    private static long pragma(final Statement theStatement, final String theName) throws SQLException {
+        try (ResultSet rs = theStatement.executeQuery("PRAGMA " + theName)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Creates the indexes of {@link #INDEXES} that are missing and drops the
+     * managed ones no longer in it.
+     *
+     * @param theStatement a statement of the writer.
+     * @throws SQLException if an index cannot be changed.
+     */
+    private static void createIndexes(final Statement theStatement) throws SQLException {
+        final List<String> obsolete = new ArrayList<>();
+        try (ResultSet rs = theStatement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index' "
+                + "AND tbl_name = 'event_log' AND name LIKE '" + INDEX_PREFIX + "%'")) {
+            while (rs.next()) {
+                if (!INDEXES.containsKey(rs.getString(1))) {
+                    obsolete.add(rs.getString(1));
+                }
+            }
+        }
+        for (String name : obsolete) {
+            theStatement.execute("DROP INDEX " + name);
+        }
+        for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+            theStatement.execute("CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON " + index.getValue());
+        }
+    }
+
+    /**
+     * Builds the index map from names and definitions.
+     *
+     * @param theIndexes pairs of index name and table with columns.
+     * @return the map, in the given order.
+     */
+    private static Map<String, String> indexes(final String... theIndexes) {
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < theIndexes.length; i += 2) {
+            map.put(theIndexes[i], theIndexes[i + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the version of the database.
+     *
+     * @param theStatement a statement of the writer.
+     * @return 0 if empty, 1 if it only has the all-TEXT events table, else the stored version.
+     * @throws SQLException if it cannot be read.
+     */
+    private static int version(final Statement theStatement) throws SQLException {
+        if (exists(theStatement, "table", "schema_version")) {
+            try (ResultSet rs = theStatement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+        return exists(theStatement, "table", "events") ? 1 : 0;
+    }
+
+    /**
+     * Returns whether a migration is under way.
+     *
+     * @param theStatement a statement of the writer.
+     * @return true if old rows are left to copy.
+     * @throws SQLException if the version cannot be read.
+     */
+    private static boolean migrating(final Statement theStatement) throws SQLException {
+        if (!exists(theStatement, "table", "events_v1")) {
+            return false;
+        }
+        try (ResultSet rs = theStatement.executeQuery("SELECT migrated_id FROM schema_version")) {
+            return rs.next() && rs.getObject(1) != null;
+        }
+    }
+
+    /**
+     * Returns whether a schema object exists.
+     *
+     * @param theStatement a statement of the connection.
+     * @param theType the object type, such as table or view.
+     * @param theName the object name.
+     * @return true if it exists.
+     * @throws SQLException if the schema cannot be read.
+     */
+    private static boolean exists(final Statement theStatement, final String theType,
+                                  final String theName) throws SQLException {
+        try (ResultSet rs = theStatement.executeQuery("SELECT 1 FROM sqlite_master WHERE type = '"
+                + theType + "' AND name = '" + theName + "'")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Returns the kind id of an event, adding its type name if it is not an {@link EventKind}.
+     *
+     * @param theEvent the event.
+     * @return the id.
+     * @throws SQLException if the name cannot be added.
+     */
+    private long kindId(final Event theEvent) throws SQLException {
+        if (theEvent.getKind() != EventKind.OTHER) {
+            return theEvent.getKind().ordinal();
+        }
+        final String name = theEvent.getEventType();
+        final Long cached = myOtherKinds.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        long id = lookup("event_kinds", "name", name);
+        if (id < 0) {
+            try (PreparedStatement insert = myConn.prepareStatement("INSERT INTO event_kinds(id, name) "
+                    + "SELECT MAX(" + FIRST_OTHER_KIND + ", COALESCE(MAX(id), 0) + 1), ? FROM event_kinds "
+                    + "RETURNING id")) {
+                insert.setString(1, name);
+                try (ResultSet rs = insert.executeQuery()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+            }
+        }
+        myOtherKinds.put(name, id);
+        return id;
+    }
+
+    /**
+     * Returns the id of a dictionary value, adding it if it is new.
+     *
+     * @param theCache the cached ids of the dictionary.
+     * @param theTable the dictionary table.
+     * @param theColumn the value column.
+     * @param theValue the value.
+     * @return the id.
+     * @throws SQLException if the value cannot be added.
+     */
+    private long id(final Map<String, Long> theCache, final String theTable, final String theColumn,
+                    final String theValue) throws SQLException {
+        final Long cached = theCache.get(theValue);
+        if (cached != null) {
+            return cached;
+        }
+        long id = lookup(theTable, theColumn, theValue);
+        if (id < 0) {
+            try (PreparedStatement insert = myConn.prepareStatement("INSERT INTO " + theTable
+                    + "(" + theColumn + ") VALUES(?) RETURNING id")) {
+                insert.setString(1, theValue);
+                try (ResultSet rs = insert.executeQuery()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+            }
+        }
+        theCache.put(theValue, id);
+        return id;
+    }
+
+    /**
+     * Looks up the id of a dictionary value.
+     *
+     * @param theTable the dictionary table.
+     * @param theColumn the value column.
+     * @param theValue the value.
+     * @return the id, or -1 if the value is not in the dictionary.
+     * @throws SQLException if the dictionary cannot be read.
+     */
+    private long lookup(final String theTable, final String theColumn, final String theValue)
+            throws SQLException {
+        try (PreparedStatement select = myConn.prepareStatement("SELECT id FROM " + theTable
+                + " WHERE " + theColumn + " = ?")) {
+            select.setString(1, theValue);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Sets a parameter to a long or to NULL.
+     *
+     * @param theStatement the statement.
+     * @param theIndex the parameter index.
+     * @param theValue the value, or null.
+     * @throws SQLException if the parameter cannot be set.
+     */
+    private static void setNullableLong(final PreparedStatement theStatement, final int theIndex,
+                                        final Long theValue) throws SQLException {
+        if (theValue == null) {
+            theStatement.setNull(theIndex, Types.INTEGER);
+        } else {
+            theStatement.setLong(theIndex, theValue);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loads an {@link EventJournal} into the database on a background thread, so
+ * the thread delivering events never waits for SQLite. Events are committed in
+ * groups: a group is handed to the sink once it holds {@link #setGroupSize
+ * so many} events or its first event has waited {@link #setMaxLatency so long},
+ * whichever comes first. A group is checkpointed only after the sink has
+ * stored it, so after a crash the journal is replayed from the last stored
+ * group, which recovers everything not yet in the database. A sink that stores
+ * the position of each group with it lets a replayer resume after a crash
+ * between the two without storing that group twice.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class JournalReplayer {
+
+    /**
+     * Stores a batch of replayed events, e.g. in the events table.
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * Stores the events, all or none.
+         *
+         * @param theEvents the events, in journal order.
+         * @param theEnd the journal position after the last event, to resume from.
+         * @return true if the events were stored and need not be replayed again.
+         */
+        boolean write(List<Event> theEvents, long theEnd);
+    }
+
+    /**
+     * Default largest number of events committed at once.
+     */
+    public static final int DEFAULT_GROUP_SIZE = 5000;
+
+    /**
+     * Default longest time an event waits for its group to be committed.
+     */
+    public static final Duration DEFAULT_MAX_LATENCY = Duration.ofMillis(200);
+
+    /**
+     * Time to wait before retrying after the sink failed.
+     */
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * The journal replayed.
+     */
+    private final EventJournal myJournal;
+
+    /**
+     * Where replayed events are stored.
+     */
+    private final Sink mySink;
+
+    /**
+     * Events read from the journal but not committed yet.
+     */
+    private final List<Event> myGroup;
+
+    /**
+     * Position after the last event in the group.
+     */
+    private long myPosition;
+
+    /**
+     * Time the first event of the group was read, from {@link System#nanoTime()}.
+     */
+    private long myGroupStart;
+
+    /**
+     * Largest number of events committed at once.
+     */
+    private volatile int myGroupSize;
+
+    /**
+     * Longest time an event waits for its group to be committed, in nanoseconds.
+     */
+    private volatile long myMaxLatencyNanos;
+
+    /**
+     * Background thread replaying the journal, or null if not started.
+     */
+    private volatile Thread myThread;
+
+    /**
+     * Whether the background thread should keep running.
+     */
+    private volatile boolean myRunning;
+
+    /**
+     * Number of events stored by the sink.
+     */
+    private long myReplayed;
+
+    /**
+     * Number of groups stored by the sink.
+     */
+    private long myCommits;
+
+    /**
+     * Number of groups the sink failed to store.
+     */
+    private long myFailures;
+
+    /**
+     * Time the last group took to store, in nanoseconds.
+     */
+    private long myLastCommitNanos;
+
+    /**
+     * Longest time a group took to store, in nanoseconds.
+     */
+    private long myMaxCommitNanos;
+
+    /**
+     * Total time groups took to store, in nanoseconds.
+     */
+    private long myCommitNanos;
+
+    /**
+     * Creates a replayer starting at the journal's checkpoint.
+     *
+     * @param theJournal the journal to replay.
+     * @param theSink where replayed events are stored.
+     */
+    public JournalReplayer(final EventJournal theJournal, final Sink theSink) {
+        this(theJournal, theSink, -1);
+    }
+
+    /**
+     * Creates a replayer starting at the later of the journal's checkpoint and
+     * the end of the last group the sink stored, which is ahead if the
+     * replayer stopped after storing a group but before checkpointing it.
+     *
+     * @param theJournal the journal to replay.
+     * @param theSink where replayed events are stored.
+     * @param theStored the end of the last group stored by the sink, or -1 if unknown.
+     */
+    public JournalReplayer(final EventJournal theJournal, final Sink theSink, final long theStored) {
+        myJournal = Objects.requireNonNull(theJournal);
+        mySink = Objects.requireNonNull(theSink);
+        myGroup = new ArrayList<>();
+        myPosition = theJournal.getCheckpoint();
+        myGroupSize = DEFAULT_GROUP_SIZE;
+        myMaxLatencyNanos = DEFAULT_MAX_LATENCY.toNanos();
+        // a position past the end belongs to a journal that has since been deleted
+        if (theStored > myPosition && theStored <= theJournal.getEnd()) {
+            myPosition = theStored;
+            try {
+                theJournal.checkpoint(theStored);
+            } catch (IOException e) {
+                // the position is kept here; the next commit checkpoints past it
+                System.out.println("Error caught in JournalReplayer: " + e);
+            }
+        }
+    }
+
+    /**
+     * Sets the largest number of events committed at once.
+     *
+     * @param theSize the group size.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public void setGroupSize(final int theSize) {
+        if (theSize < 1) {
+            throw new IllegalArgumentException("Group size must be positive: " + theSize);
+        }
+        myGroupSize = theSize;
+    }
+
+    /**
+     * Sets the longest time an event waits for its group to be committed.
+     * This is also how often the idle journal is checked.
+     *
+     * @param theLatency the latency.
+     * @throws IllegalArgumentException if the latency is not positive.
+     */
+    public void setMaxLatency(final Duration theLatency) {
+        if (theLatency.isNegative() || theLatency.isZero()) {
+            throw new IllegalArgumentException("Commit latency must be positive");
+        }
+        myMaxLatencyNanos = theLatency.toNanos();
+    }
+
+    /**
+     * Starts replaying on a background thread, woken by every append. Events
+     * left in the journal by a previous run are replayed first.
+     */
+    public synchronized void start() {
+        if (myThread != null && myThread.isAlive()) {
+            return;
+        }
+        myRunning = true;
+        myThread = new Thread(this::replaying, "journal-replay");
+        myThread.setDaemon(true);
+        myJournal.setAppendListener(this::appended);
+        myThread.start();
+    }
+
+    /**
+     * Stops the background thread after its current group. Events it has not
+     * committed stay in the journal.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread.
+     */
+    public void stop() throws InterruptedException {
+        final Thread thread;
+        synchronized (this) {
+            myRunning = false;
+            thread = myThread;
+            myThread = null;
+        }
+        myJournal.setAppendListener(null);
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    /**
+     * Forces the journal to disk and commits everything appended so far, on
+     * the calling thread.
+     *
+     * @return true if the journal was replayed up to its end, false if the sink failed.
+     */
+    public synchronized boolean flush() {
+        myJournal.sync();
+        final long end = myJournal.getEnd();
+        while (true) {
+            if (!fill()) {
+                return false;
+            }
+            if (myGroup.isEmpty()) {
+                return true;
+            }
+            if (!commit()) {
+                return false;
+            }
+            if (myPosition >= end) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the position after the last event read from the journal.
+     *
+     * @return the position in the journal.
+     */
+    public synchronized long getPosition() {
+        return myPosition;
+    }
+
+    /**
+     * Returns the number of events stored by the sink.
+     *
+     * @return the replay counter.
+     */
+    public synchronized long getReplayedCount() {
+        return myReplayed;
+    }
+
+    /**
+     * Returns the number of groups stored by the sink.
+     *
+     * @return the commit counter.
+     */
+    public synchronized long getCommitCount() {
+        return myCommits;
+    }
+
+    /**
+     * Returns the number of groups the sink failed to store.
+     *
+     * @return the failure counter.
+     */
+    public synchronized long getFailureCount() {
+        return myFailures;
+    }
+
+    /**
+     * Returns how long the last group took to store.
+     *
+     * @return the latency of the last commit.
+     */
+    public synchronized Duration getLastCommitLatency() {
+        return Duration.ofNanos(myLastCommitNanos);
+    }
+
+    /**
+     * Returns the longest time a group took to store.
+     *
+     * @return the highest commit latency.
+     */
+    public synchronized Duration getMaxCommitLatency() {
+        return Duration.ofNanos(myMaxCommitNanos);
+    }
+
+    /**
+     * Returns the average time a group took to store.
+     *
+     * @return the mean commit latency, or zero if nothing was committed.
+     */
+    public synchronized Duration getAverageCommitLatency() {
+        return Duration.ofNanos(myCommits == 0 ? 0 : myCommitNanos / myCommits);
+    }
+
+    /**
+     * Returns the number of events read but not committed yet.
+     *
+     * @return the size of the current group.
+     */
+    public synchronized int getPendingCount() {
+        return myGroup.size();
+    }
+
+    /**
+     * Returns about how many bytes of the journal are not committed yet.
+     *
+     * @return the journal's backlog.
+     */
+    public long getBacklog() {
+        return myJournal.getBacklog();
+    }
+
+    /**
+     * Wakes the background thread after an append.
+     */
+    private void appended() {
+        final Thread thread = myThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Commits groups until stopped, sleeping while they fill.
+     */
+    private void replaying() {
+        while (myRunning) {
+            myJournal.syncIfDue();
+            final long wait;
+            synchronized (this) {
+                wait = step();
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Reads what the journal has and commits the group if it is full or due.
+     *
+     * @return how long to sleep before the next step, or 0 to go on at once.
+     */
+    private long step() {
+        if (!fill()) {
+            return RETRY_NANOS;
+        }
+        final long latency = myMaxLatencyNanos;
+        if (myGroup.isEmpty()) {
+            return latency;
+        }
+        final long waited = System.nanoTime() - myGroupStart;
+        if (myGroup.size() >= myGroupSize || waited >= latency) {
+            return commit() ? 0 : RETRY_NANOS;
+        }
+        return latency - waited;
+    }
+
+    /**
+     * Reads events from the journal into the group, up to the group size.
+     *
+     * @return false if the journal could not be read.
+     */
+    private boolean fill() {
+        final int room = myGroupSize - myGroup.size();
+        if (room <= 0) {
+            return true;
+        }
+        final boolean empty = myGroup.isEmpty();
+        try {
+            final long next = myJournal.read(myPosition, room, myGroup);
+            if (empty && myGroup.isEmpty() && next != myPosition) {
+                // moved past empty or damaged segments
+                myJournal.checkpoint(next);
+            }
+            myPosition = next;
+        } catch (IOException e) {
+            System.out.println("Error caught in JournalReplayer: " + e);
+            return false;
+        }
+        if (empty && !myGroup.isEmpty()) {
+            myGroupStart = System.nanoTime();
+        }
+        return true;
+    }
+
+    /**
+     * Hands the group to the sink and checkpoints it once stored. A group the
+     * sink fails to store is kept and tried again.
+     *
+     * @return true if the group was stored.
+     */
+    private boolean commit() {
+        final long start = System.nanoTime();
+        if (!mySink.write(myGroup, myPosition)) {
+            myFailures++;
+            return false;
+        }
+        final long took = System.nanoTime() - start;
+        myCommits++;
+        myLastCommitNanos = took;
+        myMaxCommitNanos = Math.max(myMaxCommitNanos, took);
+        myCommitNanos += took;
+        myReplayed += myGroup.size();
+        myGroup.clear();
+        try {
+            myJournal.checkpoint(myPosition);
+        } catch (IOException e) {
+            // the group is stored, and so is its end if the sink keeps it
+            System.out.println("Error caught in JournalReplayer: " + e);
+        }
+        return true;
+    }
+}
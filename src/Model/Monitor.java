@@ -4,16 +4,28 @@
 
 package Model;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
 
 import static java.nio.file.StandardWatchEventKinds.*;
 
@@ -21,21 +33,158 @@ import static java.nio.file.StandardWatchEventKinds.*;
  * Monitor class uses WatchService library for monitoring files and directories.
  * There should only be one instance of this class for the whole program.
  *
+ * <p>Directories are partitioned over one or more {@link WatchShard}s, each with
+ * its own WatchService, thread and queue. Every event gets a global sequence
+ * number when it is captured, which the delivery thread uses to merge the shards.</p>
+ *
+ * <p>A snapshot of every registered directory is kept up to date with the events
+ * seen. When the WatchService reports an overflow or a key becomes invalid, only
+ * the affected directories are rescanned and the differences are reported as
+ * ordinary events, so no change is silently lost.</p>
+ *
+ * <p>The snapshots of every added root are saved to a {@link SnapshotIndex} when
+ * monitoring stops. When the root is added again, the index is compared with
+ * the fresh snapshots taken during registration, and changes made while the
+ * program was not running are reported as catch-up events.</p>
+ *
+ * <p>Directories on file systems that never report events (network shares and
+ * FUSE mounts) are handed to a {@link PollingEngine} instead of a shard; see
+ * {@link #setWatchMode(WatchMode)}.</p>
+ *
+ * <p>If an {@link EventJournal} is set, every delivered event is appended to it
+ * before it reaches the view, so it survives a crash; see {@link #setJournal}.</p>
+ *
  * @author Adin Smith
  * @version 4/28/2025
  */
 public class Monitor {
 
     /**
-     * Global access point to class (singleton)
+     * How added directories are watched.
+     */
+    public enum WatchMode {
+        /** Poll directories on network and FUSE file systems, watch the rest. */
+        AUTO,
+        /** Always use the WatchService. */
+        NATIVE,
+        /** Always poll. */
+        POLLING
+    }
+
+    /**
+     * Default number of events buffered between each shard and the view.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+
+    /**
+     * Maximum number of events handed to the view in one batch.
+     */
+    private static final int DELIVERY_BATCH = 1024;
+
+    /**
+     * How long the delivery thread parks when every queue is empty.
+     */
+    private static final long DELIVERY_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Shortest interval between two polls of a busy directory.
+     */
+    private static final Duration POLL_MIN_INTERVAL = Duration.ofMillis(250);
+
+    /**
+     * Longest interval between two polls of an idle directory.
+     */
+    private static final Duration POLL_MAX_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * Number of threads listing polled directories.
+     */
+    private static final int POLL_WORKERS =
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Number of threads hashing modified files.
+     */
+    private static final int HASH_WORKERS =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * How long a deletion waits for the creation that would make it a move, by default.
+     */
+    private static final Duration DEFAULT_MOVE_WINDOW = Duration.ofMillis(100);
+
+    /**
+     * Whether watches follow their directory when it is moved, as inotify's do.
+     */
+    private static final boolean REKEY_MOVES = System.getProperty("os.name", "").startsWith("Linux");
+
+    /**
+     * File store types whose changes the WatchService does not see.
+     */
+    private static final Set<String> POLLED_FILE_STORES = Set.of(
+            "nfs", "nfs4", "cifs", "smbfs", "smb2", "smb3", "9p", "sshfs", "davfs", "webdav", "afpfs");
+
+    /**
+     * Names of directories whose events are seldom wanted: version control,
+     * dependency and build output directories, and caches. Every directory is
+     * registered by default; see {@link #commonPruneFilter()}.
+     */
+    public static final List<String> COMMON_PRUNED = List.of(
+            ".git", ".hg", ".svn", "node_modules", "target", ".gradle", "__pycache__", ".cache");
+
+    /**
+     * Global access point to class (singleton). Declared after the constants
+     * the constructor uses so they are initialized first.
      */
     private static final Monitor MONITOR = new Monitor();
 
+    /**
+     * Every registered directory, watched or polled.
+     */
+    private final WatchManager myWatches;
+
+    /**
+     * Last known contents of every registered directory, used to recover from
+     * overflows and invalid keys.
+     */
+    private final Map<Path, DirectorySnapshot> mySnapshots;
+
+    /**
+     * Registers directories found by a walk and remembers their contents.
+     */
+    private final DirectoryWalker.Registrar myRegistrar;
+
+    /**
+     * Hands directories found by a walk to the polling engine and remembers their contents.
+     */
+    private final DirectoryWalker.Registrar myPollingRegistrar;
+
+    /**
+     * Finds changes in directories the WatchService cannot watch.
+     */
+    private final PollingEngine myPoller;
+
+    /**
+     * Queue the polling engine produces into. Its only producer is the polling thread.
+     */
+    private volatile EventQueue myPollQueue;
+
+    /**
+     * How added directories are watched.
+     */
+    private volatile WatchMode myWatchMode;
 
     /**
-     * Map containing keys of each path to file to be monitored.
+     * Roots added through {@link #addFile} and {@link #addFileAsync}, whose
+     * snapshots are saved to an index.
      */
-    private final Map<WatchKey, Path> myKeys;
+    private final Set<Path> myRoots;
+
+    /**
+     * Queue for events not produced by a shard, such as catch-up events. Producers
+     * synchronize on it so it keeps a single producer at a time.
+     */
+    private final EventQueue myCatchUpQueue;
 
     /**
      * ObservableList for updating the view with events
@@ -43,14 +192,24 @@ public class Monitor {
     private final ObservableList<Event> myEvents;
 
     /**
-     * Watch service field
+     * The shards directories are partitioned over.
      */
-    private WatchService myWatcher;
+    private volatile List<WatchShard> myShards;
 
     /**
-     * A thread representing the separate monitoring task to be run.
+     * Source of the global capture sequence.
      */
-    private Thread myMonitorThread;
+    private final AtomicLong mySequence;
+
+    /**
+     * A thread moving queued events to the view.
+     */
+    private Thread myDeliveryThread;
+
+    /**
+     * Background registrations that are still running.
+     */
+    private final Set<DirectoryWalker> myActiveWalks;
 
     /**
      * A volatile boolean used to stop running the monitoring.
@@ -58,24 +217,106 @@ public class Monitor {
     private volatile boolean myRunning;
 
     /**
-     * Represents the current file extension to monitor
+     * Decides which changes become events.
+     */
+    private volatile EventFilter myFilter;
+
+    /**
+     * Decides which subdirectories are skipped with their subtree when registering.
+     */
+    private volatile EventFilter myPruneFilter;
+
+    /**
+     * Number of subdirectories skipped by the prune filter so far.
+     */
+    private final AtomicLong myPruned;
+
+    /**
+     * Pairs the deletions and creations moves are reported as.
      */
-    private String myExtension;
+    private final MoveCorrelator myMoves;
+
+    /**
+     * Drops modifications that left the content unchanged, or null if content hashing is off.
+     * Only used by the delivery thread.
+     */
+    private volatile ContentHasher myHasher;
+
+    /**
+     * Journal every delivered event is appended to before it reaches the view,
+     * or null if events are only kept in memory.
+     */
+    private volatile EventJournal myJournal;
+
+    /**
+     * Quiet window for merging bursts of events on the same path, in nanoseconds.
+     * Zero turns coalescing off.
+     */
+    private volatile long myCoalesceNanos;
+
+    /**
+     * Capacity of each shard's queue.
+     */
+    private int myQueueCapacity;
+
+    /**
+     * Overflow policy of each shard's queue.
+     */
+    private EventQueue.OverflowPolicy myQueuePolicy;
 
     /**
      * Constructor for Monitor object
      */
     private Monitor() {
-        myKeys = new Hashtable<>();
+        mySnapshots = new ConcurrentHashMap<>();
+        myRegistrar = new DirectoryWalker.Registrar() {
+            @Override
+            public void register(final Path theDir) throws IOException {
+                registerDirectory(theDir);
+            }
+
+            @Override
+            public void listed(final Path theDir, final DirectorySnapshot theSnapshot) {
+                mySnapshots.put(theDir, theSnapshot);
+            }
+        };
+        myPollingRegistrar = new DirectoryWalker.Registrar() {
+            @Override
+            public void register(final Path theDir) {
+                myWatches.registerPolled(theDir);
+            }
+
+            @Override
+            public void listed(final Path theDir, final DirectorySnapshot theSnapshot) {
+                mySnapshots.put(theDir, theSnapshot);
+            }
+        };
+        myPoller = new PollingEngine(mySnapshots, this::polledChange, POLL_WORKERS,
+                POLL_MIN_INTERVAL, POLL_MAX_INTERVAL);
+        myWatches = new WatchManager(this::watchDirectory, myPoller);
+        myPollQueue = new EventQueue(DEFAULT_QUEUE_CAPACITY, EventQueue.OverflowPolicy.BLOCK);
+        myWatchMode = WatchMode.AUTO;
         myEvents = FXCollections.observableArrayList();
-        myWatcher = null;
+        mySequence = new AtomicLong();
+        myActiveWalks = ConcurrentHashMap.newKeySet();
+        myRoots = ConcurrentHashMap.newKeySet();
+        // spills rather than blocks, since catch-up may run before delivery has started
+        myCatchUpQueue = new EventQueue(DEFAULT_QUEUE_CAPACITY, EventQueue.OverflowPolicy.SPILL_TO_DISK);
+        myQueueCapacity = DEFAULT_QUEUE_CAPACITY;
+        myQueuePolicy = EventQueue.OverflowPolicy.BLOCK;
+        myShards = List.of();
         try {
-            myWatcher = FileSystems.getDefault().newWatchService();
+            myShards = createShards(1);
         } catch (IOException e) {
             System.out.println("Error caught in Monitor constructor: " + e);
         }
         myRunning = false;
-        myExtension = "none";
+        myFilter = EventFilter.forExtension("none");
+        // prune nothing unless asked to, so every event is still reported
+        myPruneFilter = EventFilter.builder().build();
+        myPruned = new AtomicLong();
+        myMoves = new MoveCorrelator(DEFAULT_MOVE_WINDOW);
+        myCoalesceNanos = 0;
     }
 
     /**
@@ -86,37 +327,285 @@ public class Monitor {
      */
     public void addFile(final String thePath) throws IOException {
 
-        Path path = Paths.get(thePath);
-        walkThroughDir(path);
+        // absolute so the same directory added twice is registered once
+        Path path = Paths.get(thePath).toAbsolutePath().normalize();
+        if (!walkThroughDir(path).isCancelled()) {
+            catchUp(path);
+        }
     }
 
     /**
-     * registers the given path to the myKeys map.
+     * registers the given path with the watch manager, which watches or polls it.
      *
      * @param theDir the given path to register.
      * @throws IOException if exception occurs
      */
     private void registerDirectory(final Path theDir) throws IOException {
-        WatchKey watchkey = theDir.register(myWatcher,
-                ENTRY_MODIFY, ENTRY_CREATE, ENTRY_DELETE);
-        myKeys.put(watchkey, theDir);
+        myWatches.register(theDir);
     }
 
     /**
-     * Recursively adds and registers all files and subdirectories to the myKeys map.
+     * Watches a directory with the shard it belongs to.
+     *
+     * @param theDir the directory.
+     * @return the key of the watch.
+     * @throws IOException if the directory cannot be watched.
+     */
+    private WatchKey watchDirectory(final Path theDir) throws IOException {
+        final List<WatchShard> shards = myShards;
+        return shards.get(Math.floorMod(theDir.hashCode(), shards.size())).register(theDir);
+    }
+
+    /**
+     * Adds the given path to the map in the background. Registration is spread over
+     * several threads and can be cancelled with {@link #cancelRegistration()}.
+     *
+     * @param thePath the given path to be added.
+     * @param theProgress listener told the number of registered directories, or null.
+     * @return a future completed with a summary of the registration, or exceptionally
+     *         with an IOException if the path is invalid.
+     * @throws NullPointerException if the given path is null.
+     */
+    public CompletableFuture<DirectoryWalker.WalkSummary> addFileAsync(final String thePath,
+                                                                       final LongConsumer theProgress) {
+        final Path path = Paths.get(thePath).toAbsolutePath().normalize();
+        final DirectoryWalker walker = new DirectoryWalker(path, registrarFor(path));
+        walker.setProgressListener(theProgress);
+        walker.setPruneFilter(myPruneFilter);
+        myActiveWalks.add(walker);
+        return walker.start().whenComplete((summary, error) -> {
+            myActiveWalks.remove(walker);
+            if (error == null) {
+                myPruned.addAndGet(summary.getPruned());
+                if (!summary.isCancelled()) {
+                    catchUp(summary.getRoot());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reports the changes made to a root since its index was saved, then saves
+     * it again so adding the root once more reports nothing twice, and remembers
+     * the root so its index is saved again when monitoring stops.
+     *
+     * @param theRoot the root whose registration just finished.
+     */
+    private void catchUp(final Path theRoot) {
+        if (!Files.isDirectory(theRoot)) {
+            return;
+        }
+        myRoots.add(theRoot);
+
+        final List<Event> events = new ArrayList<>();
+        final Path index = SnapshotIndex.fileFor(theRoot);
+        synchronized (myRoots) {
+            try {
+                SnapshotIndex.diff(theRoot, index, mySnapshots, (dir, kind, name) -> {
+                    final Event out = toEvent(dir, name, kind);
+                    if (out != null) {
+                        events.add(out);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                // a damaged index only costs the catch-up; it is rewritten below
+                System.out.println("Error caught in Monitor catchUp: " + e);
+            }
+            try {
+                SnapshotIndex.save(theRoot, mySnapshots, index);
+            } catch (IOException e) {
+                System.out.println("Error caught in Monitor catchUp: " + e);
+            }
+        }
+
+        synchronized (myCatchUpQueue) {
+            for (Event event : events) {
+                try {
+                    myCatchUpQueue.offer(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the snapshots of every added root to its index file.
+     */
+    public void saveSnapshots() {
+        for (Path root : myRoots) {
+            try {
+                SnapshotIndex.save(root, mySnapshots, SnapshotIndex.fileFor(root));
+            } catch (IOException e) {
+                System.out.println("Error caught in Monitor saveSnapshots: " + e);
+            }
+        }
+    }
+
+    /**
+     * Cancels every registration started with {@link #addFileAsync} that is still running.
+     */
+    public void cancelRegistration() {
+        for (DirectoryWalker walker : myActiveWalks) {
+            walker.cancel();
+        }
+    }
+
+    /**
+     * Recursively adds and registers all files and subdirectories with the watch manager.
      *
      * @param theStart the starting path to walk through.
+     * @return a summary of the registration.
      * @throws IOException if exception occurs
      */
-    private void walkThroughDir(final Path theStart) throws IOException {
+    private DirectoryWalker.WalkSummary walkThroughDir(final Path theStart) throws IOException {
         // register directory and sub-directories
-        Files.walkFileTree(theStart, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                registerDirectory(dir);
-                return FileVisitResult.CONTINUE;
+        final DirectoryWalker walker = new DirectoryWalker(theStart, registrarFor(theStart));
+        walker.setPruneFilter(myPruneFilter);
+        final DirectoryWalker.WalkSummary summary = walker.walk();
+        myPruned.addAndGet(summary.getPruned());
+        return summary;
+    }
+
+    /**
+     * Sets the rules deciding which subdirectories are skipped with their whole
+     * subtree when registering, to save watches on directories whose events are
+     * not wanted. A directory is skipped when the filter does not accept it.
+     * Takes effect for directories registered from now on.
+     *
+     * @param theFilter the filter; an empty one, the default, registers every directory.
+     * @throws NullPointerException if the given filter is null.
+     */
+    public void setPruneFilter(final EventFilter theFilter) {
+        myPruneFilter = Objects.requireNonNull(theFilter);
+    }
+
+    /**
+     * Returns a prune filter skipping the directories of {@link #COMMON_PRUNED},
+     * to opt in with {@link #setPruneFilter}.
+     *
+     * @return a new filter.
+     */
+    public static EventFilter commonPruneFilter() {
+        final EventFilter.Builder prune = EventFilter.builder();
+        COMMON_PRUNED.forEach(prune::excludeGlob);
+        return prune.build();
+    }
+
+    /**
+     * Returns the rules deciding which subdirectories are skipped, e.g. to read
+     * how often each rule applied.
+     *
+     * @return the prune filter.
+     */
+    public EventFilter getPruneFilter() {
+        return myPruneFilter;
+    }
+
+    /**
+     * Returns how many subdirectories have been skipped by the prune filter. Each
+     * one saved at least one watch.
+     *
+     * @return the number of pruned subtrees.
+     */
+    public long getPrunedCount() {
+        return myPruned.get();
+    }
+
+    /**
+     * Chooses between watching and polling the tree below a directory. A directory
+     * created inside a polled one is polled too; otherwise the watch mode decides.
+     *
+     * @param theStart the root of the tree.
+     * @return the registrar to walk the tree with.
+     */
+    private DirectoryWalker.Registrar registrarFor(final Path theStart) {
+        final boolean polled = switch (myWatchMode) {
+            case NATIVE -> false;
+            case POLLING -> true;
+            case AUTO -> myPoller.isPolled(theStart.getParent()) || isUnwatchable(theStart);
+        };
+        return polled ? myPollingRegistrar : myRegistrar;
+    }
+
+    /**
+     * Checks whether a directory is on a file system the WatchService cannot see
+     * changes on. Mounts nested below the directory are not looked at.
+     *
+     * @param theDir the directory.
+     * @return true for network and FUSE file systems.
+     */
+    private static boolean isUnwatchable(final Path theDir) {
+        try {
+            final String type = Files.getFileStore(theDir).type().toLowerCase(Locale.ROOT);
+            return POLLED_FILE_STORES.contains(type) || type.startsWith("fuse");
+        } catch (IOException e) {
+            // the walk reports a missing or unreadable directory itself
+            return false;
+        }
+    }
+
+    /**
+     * Turns a change found by the polling engine into an event. Called on the polling thread.
+     *
+     * @param theDir the directory of the change.
+     * @param theKind the kind of change.
+     * @param theName the name of the entry.
+     */
+    private void polledChange(final Path theDir, final WatchEvent.Kind<Path> theKind, final String theName) {
+        final Event out = toEvent(theDir, theName, theKind);
+        if (out != null) {
+            try {
+                myPollQueue.offer(out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        });
+        }
+        if (theKind == ENTRY_CREATE) {
+            directoryCreated(theDir.resolve(theName));
+        } else if (theKind == ENTRY_DELETE) {
+            entryDeleted(theDir.resolve(theName));
+        }
+    }
+
+    /**
+     * Sets how directories added from now on are watched.
+     *
+     * @param theMode the watch mode.
+     * @throws NullPointerException if the mode is null.
+     */
+    public void setWatchMode(final WatchMode theMode) {
+        myWatchMode = Objects.requireNonNull(theMode);
+    }
+
+    /**
+     * Returns how added directories are watched.
+     *
+     * @return the watch mode.
+     */
+    public WatchMode getWatchMode() {
+        return myWatchMode;
+    }
+
+    /**
+     * Returns the engine polling directories the WatchService cannot watch,
+     * e.g. to read the cost of its cycles.
+     *
+     * @return the polling engine.
+     */
+    public PollingEngine getPollingEngine() {
+        return myPoller;
+    }
+
+    /**
+     * Returns the manager of registered directories, e.g. to read how many
+     * watches are in use or to lower the watch limit.
+     *
+     * @return the watch manager.
+     */
+    public WatchManager getWatchManager() {
+        return myWatches;
     }
 
     /**
@@ -124,9 +613,17 @@ public class Monitor {
      */
     public void startMonitoring() {
         myRunning = true;
-        myMonitorThread = new Thread(this::monitoring);
-        myMonitorThread.setDaemon(true);
-        myMonitorThread.start();
+        for (WatchShard shard : myShards) {
+            shard.start(myCoalesceNanos);
+        }
+        myPoller.start();
+
+        // a delivery thread from a previous run may still be draining the queues
+        if (myDeliveryThread == null || !myDeliveryThread.isAlive()) {
+            myDeliveryThread = new Thread(this::delivering, "event-delivery");
+            myDeliveryThread.setDaemon(true);
+            myDeliveryThread.start();
+        }
     }
 
     /**
@@ -134,9 +631,170 @@ public class Monitor {
      */
     public void stopMonitoring() {
         myRunning = false;
-        if (myMonitorThread != null) {
-            myMonitorThread.interrupt();
+        cancelRegistration();
+        for (WatchShard shard : myShards) {
+            shard.stop();
         }
+        myPoller.stop();
+        saveSnapshots();
+    }
+
+    /**
+     * Sets how many watch services and threads directories are partitioned over.
+     * Only allowed while monitoring is stopped and before any directory is added.
+     *
+     * @param theCount the number of shards.
+     * @throws IllegalArgumentException if the count is not positive.
+     * @throws IllegalStateException if monitoring is running or directories are registered.
+     * @throws IOException if a watch service cannot be created.
+     */
+    public void setShardCount(final int theCount) throws IOException {
+        if (theCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + theCount);
+        }
+        if (myRunning || !myWatches.isEmpty()) {
+            throw new IllegalStateException("Cannot change shards after directories are added");
+        }
+        if (theCount == myShards.size()) {
+            return;
+        }
+
+        final List<WatchShard> shards = createShards(theCount);
+        for (WatchShard shard : myShards) {
+            shard.close();
+            shard.getQueue().close();
+        }
+        myShards = shards;
+    }
+
+    /**
+     * Returns the number of shards directories are partitioned over.
+     *
+     * @return the number of shards.
+     */
+    public int getShardCount() {
+        return myShards.size();
+    }
+
+    /**
+     * Replaces the queue between each shard and the view, and the polling engine's.
+     * Only allowed while monitoring is stopped; events still in the old queues are discarded.
+     *
+     * @param theCapacity the number of events each queue can hold.
+     * @param thePolicy what to do with new events when a queue is full.
+     * @throws IllegalStateException if monitoring is running.
+     */
+    public void configureQueue(final int theCapacity, final EventQueue.OverflowPolicy thePolicy) {
+        if (myRunning) {
+            throw new IllegalStateException("Cannot change the queue while monitoring");
+        }
+        myQueueCapacity = theCapacity;
+        myQueuePolicy = thePolicy;
+        for (WatchShard shard : myShards) {
+            final EventQueue old = shard.getQueue();
+            shard.setQueue(new EventQueue(theCapacity, thePolicy));
+            old.close();
+        }
+        final EventQueue old = myPollQueue;
+        myPollQueue = new EventQueue(theCapacity, thePolicy);
+        old.close();
+    }
+
+    /**
+     * Sets the quiet window used to merge bursts of events on the same path
+     * into one event. Takes effect the next time monitoring starts.
+     *
+     * @param theWindow the quiet window; zero turns coalescing off.
+     * @throws NullPointerException if the window is null.
+     * @throws IllegalArgumentException if the window is negative.
+     */
+    public void setCoalescingWindow(final Duration theWindow) {
+        Objects.requireNonNull(theWindow);
+        if (theWindow.isNegative()) {
+            throw new IllegalArgumentException("Coalescing window cannot be negative");
+        }
+        myCoalesceNanos = theWindow.toNanos();
+    }
+
+    /**
+     * Sets how long a deletion waits for a creation of the same file, which
+     * together are reported as one move. Deletions are delayed by up to this long.
+     *
+     * @param theWindow the window; zero turns move detection off.
+     * @throws NullPointerException if the window is null.
+     * @throws IllegalArgumentException if the window is negative.
+     */
+    public void setMoveWindow(final Duration theWindow) {
+        myMoves.setWindow(Objects.requireNonNull(theWindow));
+    }
+
+    /**
+     * Returns what pairs deletions and creations into moves, e.g. to read how many were found.
+     *
+     * @return the move correlator.
+     */
+    public MoveCorrelator getMoveCorrelator() {
+        return myMoves;
+    }
+
+    /**
+     * Turns content hashing on or off. While on, modifications that left a
+     * file's content unchanged, such as a touch or a rewrite of the same bytes,
+     * are dropped before they reach the view. Takes effect with the next batch.
+     *
+     * @param theEnabled whether to hash modified files.
+     */
+    public synchronized void setContentHashing(final boolean theEnabled) {
+        final ContentHasher old = myHasher;
+        if (theEnabled == (old != null)) {
+            return;
+        }
+        myHasher = theEnabled ? new ContentHasher(HASH_WORKERS) : null;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Returns the content hasher, e.g. to tag unchanged modifications instead
+     * of dropping them, to change its limits or to read its counters.
+     *
+     * @return the content hasher, or null if content hashing is off.
+     */
+    public ContentHasher getContentHasher() {
+        return myHasher;
+    }
+
+    /**
+     * Sets the journal every delivered event is appended to, on the delivery
+     * thread, before it is added to the view. Takes effect with the next batch.
+     *
+     * @param theJournal the journal, or null to stop journaling.
+     */
+    public void setJournal(final EventJournal theJournal) {
+        myJournal = theJournal;
+    }
+
+    /**
+     * Returns the journal delivered events are appended to.
+     *
+     * @return the journal, or null if events are not journaled.
+     */
+    public EventJournal getJournal() {
+        return myJournal;
+    }
+
+    /**
+     * Returns the queues between the shards and the view, e.g. to read their counters.
+     *
+     * @return the event queues, one per shard.
+     */
+    public List<EventQueue> getQueues() {
+        final List<EventQueue> queues = new ArrayList<>();
+        for (WatchShard shard : myShards) {
+            queues.add(shard.getQueue());
+        }
+        return Collections.unmodifiableList(queues);
     }
 
     /**
@@ -149,69 +807,405 @@ public class Monitor {
     }
 
     /**
-     * Monitors for events and fires a property change when an event occurs.
+     * Returns the directory a signalled key was registered for, noting that it
+     * is active so it keeps its watch.
+     *
+     * @param theKey the watch key.
+     * @return the registered directory, or null if the key is unknown.
      */
-    private void monitoring() {
-        WatchKey key;
+    Path directoryOf(final WatchKey theKey) {
+        return myWatches.signalled(theKey);
+    }
+
+    /**
+     * Keeps the snapshot of a directory up to date with a raw watch event and
+     * turns the event into an Event. A deletion that may be half of a move is
+     * held back, and the creation completing a move becomes a move event.
+     *
+     * @param theDir the directory the event happened in.
+     * @param theEvent the raw watch event.
+     * @return the event, or null if the filter rejects it or it is held back.
+     */
+    Event capture(final Path theDir, final WatchEvent<?> theEvent) {
+        if (theEvent.kind() == OVERFLOW) {
+            return null;
+        }
+        // Context for directory entry event is the file name of
+        final String name = theEvent.context().toString();
+        final DirectorySnapshot snapshot = mySnapshots.get(theDir);
+        if (theEvent.kind() == ENTRY_DELETE) {
+            final DirectorySnapshot.Entry gone = snapshot == null ? null : snapshot.remove(name);
+            final Event out = toEvent(theDir, name, ENTRY_DELETE);
+            final Path child = theDir.resolve(name);
+            if (gone != null && gone.getFileKey() != null && myMoves.isEnabled()) {
+                // a deleted directory keeps its registrations until the deletion is released
+                myMoves.deleted(gone.getFileKey(), child, gone.isDirectory(), out, System.nanoTime());
+                return null;
+            }
+            entryDeleted(child);
+            return out;
+        }
+
+        if (snapshot == null) {
+            return toEvent(theDir, name, theEvent.kind());
+        }
+        snapshot.refresh(theDir, name);
+        if (theEvent.kind() == ENTRY_CREATE) {
+            final DirectorySnapshot.Entry entry = snapshot.get(name);
+            final MoveCorrelator.Deletion from = entry == null || entry.getFileKey() == null
+                    ? null : myMoves.created(entry.getFileKey());
+            if (from != null) {
+                return moved(from, theDir, name);
+            }
+        }
+        return toEvent(theDir, name, theEvent.kind());
+    }
+
+    /**
+     * Completes a move: carries the registrations of a moved directory over to
+     * its new path and creates the move event.
+     *
+     * @param theFrom the deletion of the old path.
+     * @param theDir the directory the entry was moved into.
+     * @param theName the new name of the entry.
+     * @return the move event, the deletion if the new path is filtered out, or null.
+     */
+    private Event moved(final MoveCorrelator.Deletion theFrom, final Path theDir, final String theName) {
+        if (theFrom.isDirectory()) {
+            directoryMoved(theFrom.getPath(), theDir, theName);
+        }
+        final Event out = toEvent(theDir, theName, MoveCorrelator.ENTRY_MOVE, theFrom.getPath().toString());
+        // moved out of the filter's view: all that is left to report is that the old path is gone
+        return out == null ? theFrom.getEvent() : out;
+    }
+
+    /**
+     * Moves the registrations and snapshots of a moved directory to its new
+     * path. inotify watches follow their directory, so on Linux they are kept;
+     * elsewhere they are cancelled and the new path is walked again.
+     *
+     * @param theFrom the old path of the directory.
+     * @param theDir the directory it was moved into.
+     * @param theName its new name.
+     */
+    private void directoryMoved(final Path theFrom, final Path theDir, final String theName) {
+        final Path to = theDir.resolve(theName);
+        if (!REKEY_MOVES || !myPruneFilter.accepts(theDir, theName, -1)) {
+            entryDeleted(theFrom);
+            return;
+        }
+        // whatever was at the new path was replaced
+        entryDeleted(to);
+        myWatches.move(theFrom, to, (from, now) -> {
+            final DirectorySnapshot snapshot = mySnapshots.remove(from);
+            if (snapshot != null) {
+                mySnapshots.put(now, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Releases a deletion no creation claimed within the move window.
+     *
+     * @param theDeletion the deletion.
+     * @param theOut receives its event.
+     */
+    private void deletionExpired(final MoveCorrelator.Deletion theDeletion, final Collection<? super Event> theOut) {
+        entryDeleted(theDeletion.getPath());
+        if (theDeletion.getEvent() != null) {
+            theOut.add(theDeletion.getEvent());
+        }
+    }
+
+    /**
+     * Creates an Event for a change to a directory entry, or filters it out.
+     *
+     * @param theDir the directory the change happened in.
+     * @param theName the name of the entry.
+     * @param theKind the kind of change.
+     * @return the event, or null if the filter rejects it.
+     */
+    private Event toEvent(final Path theDir, final String theName, final WatchEvent.Kind<?> theKind) {
+        return toEvent(theDir, theName, theKind, null);
+    }
+
+    /**
+     * Creates an Event for a change to a directory entry, or filters it out.
+     *
+     * @param theDir the directory the change happened in.
+     * @param theName the name of the entry.
+     * @param theKind the kind of change.
+     * @param thePreviousPath the path the entry was moved from, or null.
+     * @return the event, or null if the filter rejects it.
+     */
+    private Event toEvent(final Path theDir, final String theName, final WatchEvent.Kind<?> theKind,
+                          final String thePreviousPath) {
+        // Check if the file matches the filter and skip if necessary,
+        // before anything is allocated for it
+        if (!myFilter.accepts(theDir, theName, sizeOf(theDir, theName))) {
+            return null;
+        }
+        String extension = getFileExtension(theName);
+
+        // fire property change and add to database
+        // the directory's path caches its string, so events of one directory share it
+        Instant now = Instant.now();
+        return new Event(
+                EventKind.of(theKind),
+                theDir.toString(),
+                theName,
+                extension,
+                now.getEpochSecond() * 1_000_000_000L + now.getNano(),
+                mySequence.incrementAndGet(),
+                thePreviousPath);
+    }
+
+    /**
+     * Returns the last known size of a directory entry, from its snapshot.
+     *
+     * @param theDir the directory of the entry.
+     * @param theName the name of the entry.
+     * @return the size in bytes, or -1 if unknown.
+     */
+    private long sizeOf(final Path theDir, final String theName) {
+        final DirectorySnapshot snapshot = mySnapshots.get(theDir);
+        final DirectorySnapshot.Entry entry = snapshot == null ? null : snapshot.get(theName);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    /**
+     * Rescans directories whose events may have been lost, in parallel, and
+     * creates events for every difference from their snapshots.
+     *
+     * @param theDirs the directories to rescan.
+     * @param theOut receives the synthetic events.
+     */
+    void recover(final Collection<Path> theDirs, final Collection<? super Event> theOut) {
+        final Map<Path, DirectorySnapshot> fresh = new ConcurrentHashMap<>();
+        theDirs.parallelStream().forEach(dir -> {
+            try {
+                fresh.put(dir, DirectorySnapshot.scan(dir));
+            } catch (IOException e) {
+                // the directory is gone; everything remembered in it was deleted
+            }
+        });
+
+        for (Path dir : theDirs) {
+            final DirectorySnapshot older = mySnapshots.getOrDefault(dir, new DirectorySnapshot());
+            final DirectorySnapshot newer = fresh.getOrDefault(dir, new DirectorySnapshot());
+            older.diff(newer, (kind, name) -> {
+                final Event out = toEvent(dir, name, kind);
+                if (out != null) {
+                    theOut.add(out);
+                }
+                if (kind == ENTRY_CREATE) {
+                    directoryCreated(dir.resolve(name));
+                } else if (kind == ENTRY_DELETE) {
+                    entryDeleted(dir.resolve(name));
+                }
+            });
+
+            if (fresh.containsKey(dir)) {
+                mySnapshots.put(dir, newer);
+            } else {
+                mySnapshots.remove(dir);
+            }
+        }
+    }
+
+    /**
+     * Registers a newly created directory and its sub-directories.
+     *
+     * @param theChild the created path; ignored if it is not a directory or is pruned.
+     */
+    void directoryCreated(final Path theChild) {
+        try {
+            // a moved directory keeps its registrations
+            if (!Files.isDirectory(theChild, LinkOption.NOFOLLOW_LINKS) || myWatches.isRegistered(theChild)) {
+                return;
+            }
+            final Path parent = theChild.getParent();
+            if (parent != null && !myPruneFilter.accepts(parent, theChild.getFileName().toString(), -1)) {
+                myPruned.incrementAndGet();
+                return;
+            }
+            walkThroughDir(theChild);
+        } catch (IOException x) {
+            System.out.println("Error processing events: " + x);
+        }
+    }
+
+    /**
+     * Cancels the registrations of a deleted directory and its subdirectories
+     * right away, instead of when their keys turn invalid, so their watches are
+     * freed and a directory moved elsewhere stops reporting under its old path.
+     *
+     * @param theChild the deleted path; ignored if it was not a registered directory.
+     */
+    private void entryDeleted(final Path theChild) {
+        for (Path dir : myWatches.cancelSubtree(theChild)) {
+            mySnapshots.remove(dir);
+        }
+    }
+
+    /**
+     * Forgets a key whose directory is no longer accessible.
+     *
+     * @param theKey the invalid key.
+     */
+    void keyInvalidated(final WatchKey theKey) {
+        myWatches.invalidated(theKey);
+    }
+
+    /**
+     * Creates the given number of shards with fresh queues.
+     *
+     * @param theCount the number of shards.
+     * @return the new shards.
+     * @throws IOException if a watch service cannot be created.
+     */
+    private List<WatchShard> createShards(final int theCount) throws IOException {
+        final List<WatchShard> shards = new ArrayList<>(theCount);
         try {
-            while (myRunning && (key = myWatcher.take()) != null) {
-                Path dir = myKeys.get(key);
-                if (dir == null) {
-                    System.err.println("WatchKey not recognized!");
-                    continue;
+            for (int i = 0; i < theCount; i++) {
+                shards.add(new WatchShard(i, this, new EventQueue(myQueueCapacity, myQueuePolicy)));
+            }
+        } catch (IOException e) {
+            for (WatchShard shard : shards) {
+                shard.close();
+            }
+            throw e;
+        }
+        return List.copyOf(shards);
+    }
+
+    /**
+     * Moves events from the shard queues to the view in batches, in sequence
+     * order within each batch, until monitoring stops and the queues are empty.
+     */
+    private void delivering() {
+        final List<Event> batch = new ArrayList<>(DELIVERY_BATCH);
+        int first = 0;
+        ContentHasher previous = null;
+        while (true) {
+            final List<WatchShard> shards = myShards;
+            final ContentHasher hasher = myHasher;
+            if (previous != null && previous != hasher) {
+                // turned off or replaced: what the old hasher still holds goes out now
+                deliver(previous.flush());
+            }
+            previous = hasher;
+            int sources = 0;
+            myMoves.expire(System.nanoTime(), !myRunning, deletion -> deletionExpired(deletion, batch));
+            if (!batch.isEmpty()) {
+                sources++;
+            }
+            if (myCatchUpQueue.drainTo(batch, DELIVERY_BATCH) > 0) {
+                sources++;
+            }
+            if (myPollQueue.drainTo(batch, DELIVERY_BATCH - batch.size()) > 0) {
+                sources++;
+            }
+            // start from a different shard each round so a busy one can't starve the rest
+            first = (first + 1) % shards.size();
+            for (int i = 0; i < shards.size(); i++) {
+                final EventQueue queue = shards.get((first + i) % shards.size()).getQueue();
+                if (queue.drainTo(batch, DELIVERY_BATCH - batch.size()) > 0) {
+                    sources++;
                 }
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    WatchEvent.Kind<?> kind = event.kind();
-                    // Context for directory entry event is the file name of
-                    @SuppressWarnings("unchecked")
-                    Path name = ((WatchEvent<Path>) event).context();
-                    Path child = dir.resolve(name);
-
-                    // Check if the file matches the monitoring extension
-                    // and skip if necessary
-                    String extension = getFileExtension(child.toString());
-                    if (!extension.equalsIgnoreCase(myExtension) &&
-                            !myExtension.equalsIgnoreCase("none")) {
-                        continue;
-                    }
+            }
 
-                    // fire property change and add to database
-                    // Filename, Event, Timestamp, Extension, Directory
-                    Event out = new Event(
-                            event.context().toString(),
-                            event.kind().name(),
-                            Instant.now().toString(),
-                            extension,
-                            child.toString());
-
-                    myEvents.add(out);
-
-                    // if directory is created, and watching recursively,
-                    // then register it and its sub-directories
-                    if (kind == ENTRY_CREATE) {
-                        try {
-                            if (Files.isDirectory(child)) {
-                                walkThroughDir(child);
-                            }
-                        } catch (IOException x) {
-                            // do something useful
-                            System.out.println("Error processing events: " + x);
-                        }
+            if (batch.isEmpty()) {
+                if (!myRunning && myCatchUpQueue.isEmpty() && myPollQueue.isEmpty()
+                        && allQueuesEmpty(shards)) {
+                    if (hasher != null) {
+                        deliver(hasher.flush());
                     }
+                    return;
                 }
-                // reset key and remove from set if directory no longer accessible
-                boolean valid = key.reset();
-                if (!valid) {
-                    myKeys.remove(key);
-
-                    // all directories are inaccessible
-                    if (myKeys.isEmpty()) {
-                        break;
-                    }
+                // modifications held for their digests go out as the digests come in
+                if (hasher != null && hasher.getHeldCount() > 0) {
+                    deliver(hasher.poll());
                 }
+                LockSupport.parkNanos(DELIVERY_IDLE_NANOS);
+                continue;
+            }
+
+            // each shard's queue is already in capture order; only a mix needs sorting
+            if (sources > 1) {
+                batch.sort(Event.BY_SEQUENCE);
+            }
+            deliver(hasher == null ? new ArrayList<>(batch) : hasher.process(batch));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Journals and publishes events, if there are any.
+     *
+     * @param theEvents the events, which may be replaced by {@link #journal}.
+     */
+    private void deliver(final List<Event> theEvents) {
+        if (!theEvents.isEmpty()) {
+            journal(theEvents);
+            publish(theEvents);
+        }
+    }
+
+    /**
+     * Checks whether every shard's queue is empty.
+     *
+     * @param theShards the shards to check.
+     * @return true if there is nothing left to deliver.
+     */
+    private static boolean allQueuesEmpty(final List<WatchShard> theShards) {
+        for (WatchShard shard : theShards) {
+            if (!shard.getQueue().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a batch of events to the journal, if there is one. Events the
+     * journal could not take, e.g. on a full disk, lose their capture
+     * sequence, so the database writes them directly instead of waiting for
+     * the journal to replay them.
+     *
+     * @param theBatch the events to append; those not journaled are replaced.
+     */
+    private void journal(final List<Event> theBatch) {
+        final EventJournal journal = myJournal;
+        if (journal == null) {
+            return;
+        }
+        // only this thread appends, so the counters tell how far the batch got
+        final long before = journal.getAppendedCount() + journal.getRejectedCount();
+        try {
+            journal.append(theBatch);
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Error caught in Monitor journal: " + e);
+            final long handled = journal.getAppendedCount() + journal.getRejectedCount() - before;
+            for (int i = (int) handled; i < theBatch.size(); i++) {
+                theBatch.set(i, theBatch.get(i).withoutSequence());
+            }
+        }
+    }
+
+    /**
+     * Adds a batch of events to the ObservableList on the JavaFX thread, or
+     * directly when the JavaFX toolkit is not running (e.g. in unit tests).
+     *
+     * @param theBatch the events to add.
+     */
+    private void publish(final List<Event> theBatch) {
+        try {
+            Platform.runLater(() -> myEvents.addAll(theBatch));
+        } catch (IllegalStateException e) {
+            synchronized (myEvents) {
+                myEvents.addAll(theBatch);
             }
-        } catch (InterruptedException e) {
-            System.out.println("Error caught in Monitor monitoring: " + e);
         }
     }
 
@@ -227,15 +1221,35 @@ public class Monitor {
     }
 
     /**
-     * Changes the file extension to monitor.
+     * Changes the file extension to monitor. Replaces any filter set with
+     * {@link #setFilter(EventFilter)}.
      *
-     * @param theExtension the new file extension to monitor.
+     * @param theExtension the new file extension to monitor, or "none" for all files.
      * @throws NullPointerException if the given extension is null.
      */
     public void changeExtension(final String theExtension) {
         Objects.requireNonNull(theExtension);
 
-        myExtension = theExtension;
+        myFilter = EventFilter.forExtension(theExtension);
+    }
+
+    /**
+     * Sets the rules deciding which changes become events.
+     *
+     * @param theFilter the compiled filter.
+     * @throws NullPointerException if the given filter is null.
+     */
+    public void setFilter(final EventFilter theFilter) {
+        myFilter = Objects.requireNonNull(theFilter);
+    }
+
+    /**
+     * Returns the rules deciding which changes become events, e.g. to read their hit counters.
+     *
+     * @return the current filter.
+     */
+    public EventFilter getFilter() {
+        return myFilter;
     }
 
     /**
@@ -0,0 +1,281 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Pairs the deletion and creation a rename or move is reported as. The
+ * WatchService has no move event: moving a file gives an ENTRY_DELETE for the
+ * old path and an ENTRY_CREATE for the new one, possibly on different threads.
+ *
+ * <p>A deletion whose file key ({@link java.nio.file.attribute.BasicFileAttributes#fileKey()})
+ * is known is held back for a short window. A creation with the same file key
+ * within the window is a move; a deletion nobody claims is released when the
+ * window ends. File systems without file keys never produce moves. All methods
+ * are thread safe.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class MoveCorrelator {
+
+    /**
+     * Kind of the events standing for a move. Not produced by any WatchService.
+     */
+    public static final WatchEvent.Kind<Path> ENTRY_MOVE = new WatchEvent.Kind<>() {
+        @Override
+        public String name() {
+            return "ENTRY_MOVE";
+        }
+
+        @Override
+        public Class<Path> type() {
+            return Path.class;
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    };
+
+    /**
+     * Held deletions by file key.
+     */
+    private final Map<Object, Deletion> myByKey;
+
+    /**
+     * Held deletions in the order they were made, which is also the order their windows end.
+     */
+    private final ArrayDeque<Deletion> myByAge;
+
+    /**
+     * How long a deletion waits for its creation, in nanoseconds.
+     */
+    private volatile long myWindowNanos;
+
+    /**
+     * Number of moves found.
+     */
+    private long myMoves;
+
+    /**
+     * Number of deletions released without a creation.
+     */
+    private long myExpired;
+
+    /**
+     * Creates a correlator.
+     *
+     * @param theWindow how long a deletion waits for its creation.
+     * @throws IllegalArgumentException if the window is negative.
+     */
+    public MoveCorrelator(final Duration theWindow) {
+        myByKey = new HashMap<>();
+        myByAge = new ArrayDeque<>();
+        setWindow(theWindow);
+    }
+
+    /**
+     * Sets how long a deletion waits for its creation. Zero turns correlation off.
+     *
+     * @param theWindow the window.
+     * @throws IllegalArgumentException if the window is negative.
+     */
+    public void setWindow(final Duration theWindow) {
+        if (theWindow.isNegative()) {
+            throw new IllegalArgumentException("Move window cannot be negative");
+        }
+        myWindowNanos = theWindow.toNanos();
+    }
+
+    /**
+     * Returns whether deletions are held back at all.
+     *
+     * @return false if the window is zero.
+     */
+    public boolean isEnabled() {
+        return myWindowNanos > 0;
+    }
+
+    /**
+     * Holds back a deletion until its creation is seen or its window ends. A
+     * deletion held for the same file key before can no longer be claimed
+     * and is released when its window ends.
+     *
+     * @param theFileKey the file key of the deleted entry.
+     * @param thePath the deleted path.
+     * @param theDirectory whether the deleted entry was a directory.
+     * @param theEvent the event to release if no creation follows, or null if it was filtered out.
+     * @param theNow the current time from {@link System#nanoTime()}.
+     */
+    public synchronized void deleted(final Object theFileKey, final Path thePath,
+                                     final boolean theDirectory, final Event theEvent, final long theNow) {
+        final Deletion deletion = new Deletion(Objects.requireNonNull(theFileKey),
+                Objects.requireNonNull(thePath), theDirectory, theEvent, theNow + myWindowNanos);
+        myByKey.put(theFileKey, deletion);
+        myByAge.addLast(deletion);
+    }
+
+    /**
+     * Claims the held deletion of a created entry, which makes the creation a move.
+     *
+     * @param theFileKey the file key of the created entry.
+     * @return the deletion, or null if the entry was not moved.
+     */
+    public synchronized Deletion created(final Object theFileKey) {
+        final Deletion deletion = myByKey.remove(Objects.requireNonNull(theFileKey));
+        if (deletion == null) {
+            return null;
+        }
+        deletion.myClaimed = true;
+        myMoves++;
+        return deletion;
+    }
+
+    /**
+     * Releases every deletion whose window has ended, in the order they were made.
+     *
+     * @param theNow the current time from {@link System#nanoTime()}.
+     * @param theAll whether to release every held deletion, e.g. when monitoring stops.
+     * @param theExpired receives the released deletions.
+     */
+    public void expire(final long theNow, final boolean theAll, final Consumer<Deletion> theExpired) {
+        while (true) {
+            final Deletion deletion;
+            synchronized (this) {
+                final Deletion oldest = myByAge.peekFirst();
+                if (oldest == null || !theAll && theNow - oldest.myDeadline < 0) {
+                    return;
+                }
+                myByAge.removeFirst();
+                if (oldest.myClaimed) {
+                    continue;
+                }
+                myByKey.remove(oldest.myFileKey, oldest);
+                myExpired++;
+                deletion = oldest;
+            }
+            // outside the lock: the consumer may cancel watches and touch snapshots
+            theExpired.accept(deletion);
+        }
+    }
+
+    /**
+     * Returns the number of deletions held back.
+     *
+     * @return the number of unclaimed deletions.
+     */
+    public synchronized int getPendingCount() {
+        return myByKey.size();
+    }
+
+    /**
+     * Returns the number of moves found.
+     *
+     * @return the number of claimed deletions.
+     */
+    public synchronized long getMoveCount() {
+        return myMoves;
+    }
+
+    /**
+     * Returns the number of deletions released without a creation.
+     *
+     * @return the number of expired deletions.
+     */
+    public synchronized long getExpiredCount() {
+        return myExpired;
+    }
+
+    /**
+     * A deletion held back while waiting for its creation.
+     */
+    public static final class Deletion {
+
+        /**
+         * File key of the deleted entry.
+         */
+        private final Object myFileKey;
+
+        /**
+         * The deleted path.
+         */
+        private final Path myPath;
+
+        /**
+         * Whether the deleted entry was a directory.
+         */
+        private final boolean myDirectory;
+
+        /**
+         * The event to release, or null.
+         */
+        private final Event myEvent;
+
+        /**
+         * Time the window ends.
+         */
+        private final long myDeadline;
+
+        /**
+         * Whether a creation claimed this deletion.
+         */
+        private boolean myClaimed;
+
+        /**
+         * Creates a held deletion.
+         *
+         * @param theFileKey the file key.
+         * @param thePath the deleted path.
+         * @param theDirectory whether it was a directory.
+         * @param theEvent the event, or null.
+         * @param theDeadline the time the window ends.
+         */
+        private Deletion(final Object theFileKey, final Path thePath, final boolean theDirectory,
+                         final Event theEvent, final long theDeadline) {
+            myFileKey = theFileKey;
+            myPath = thePath;
+            myDirectory = theDirectory;
+            myEvent = theEvent;
+            myDeadline = theDeadline;
+        }
+
+        /**
+         * Returns the deleted path.
+         *
+         * @return the path the entry was deleted or moved from.
+         */
+        public Path getPath() {
+            return myPath;
+        }
+
+        /**
+         * Returns whether the deleted entry was a directory.
+         *
+         * @return true for a directory.
+         */
+        public boolean isDirectory() {
+            return myDirectory;
+        }
+
+        /**
+         * Returns the deletion event.
+         *
+         * @return the event, or null if the filter rejected it.
+         */
+        public Event getEvent() {
+            return myEvent;
+        }
+    }
+}
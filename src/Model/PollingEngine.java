@@ -0,0 +1,575 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Finds changes by rescanning directories instead of relying on a WatchService,
+ * for file systems that never report events (NFS, SMB, FUSE).
+ *
+ * <p>Every directory has its own interval. It is halved after a poll that found
+ * changes and grows by half after a quiet one, between a minimum and a maximum,
+ * so busy directories are polled often and idle ones rarely. Each cycle lists
+ * the due directories on a bounded pool of workers, compares them with their
+ * snapshots and reports the differences to a listener on the polling thread.
+ * The first poll of a directory without a snapshot only records one.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class PollingEngine {
+
+    /**
+     * Longest the polling thread sleeps before looking for due directories again.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Measures the CPU time spent by the workers.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Snapshots of the polled directories, shared with the owner of the engine.
+     */
+    private final Map<Path, DirectorySnapshot> mySnapshots;
+
+    /**
+     * Receives every change found.
+     */
+    private final SnapshotIndex.ChangeListener myListener;
+
+    /**
+     * Workers listing directories and reading attributes.
+     */
+    private final ExecutorService myWorkers;
+
+    /**
+     * Polling schedule of every registered directory.
+     */
+    private final Map<Path, Schedule> myDirs;
+
+    /**
+     * Shortest interval between two polls of a directory.
+     */
+    private final long myMinNanos;
+
+    /**
+     * Longest interval between two polls of a directory.
+     */
+    private final long myMaxNanos;
+
+    /**
+     * Number of cycles run so far.
+     */
+    private final AtomicLong myCycles;
+
+    /**
+     * Thread running the cycles.
+     */
+    private Thread myThread;
+
+    /**
+     * A volatile boolean used to stop the polling thread.
+     */
+    private volatile boolean myRunning;
+
+    /**
+     * Cost of the last cycle, or null before the first.
+     */
+    private volatile Cycle myLastCycle;
+
+    /**
+     * Optional listener told the cost of every cycle.
+     */
+    private volatile Consumer<Cycle> myCycleListener;
+
+    /**
+     * Creates a stopped engine.
+     *
+     * @param theSnapshots snapshots of the polled directories, updated by the engine.
+     * @param theListener receives every change found, on the polling thread.
+     * @param theWorkers the number of threads listing directories.
+     * @param theMinInterval the shortest interval between two polls of a directory.
+     * @param theMaxInterval the longest interval between two polls of a directory.
+     * @throws IllegalArgumentException if there are no workers or the intervals are invalid.
+     */
+    public PollingEngine(final Map<Path, DirectorySnapshot> theSnapshots,
+                         final SnapshotIndex.ChangeListener theListener, final int theWorkers,
+                         final Duration theMinInterval, final Duration theMaxInterval) {
+        if (theWorkers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + theWorkers);
+        }
+        if (theMinInterval.isNegative() || theMinInterval.isZero()
+                || theMaxInterval.compareTo(theMinInterval) < 0) {
+            throw new IllegalArgumentException("Invalid polling intervals");
+        }
+        mySnapshots = Objects.requireNonNull(theSnapshots);
+        myListener = Objects.requireNonNull(theListener);
+        myMinNanos = theMinInterval.toNanos();
+        myMaxNanos = theMaxInterval.toNanos();
+        myDirs = new ConcurrentHashMap<>();
+        myCycles = new AtomicLong();
+
+        final AtomicInteger count = new AtomicInteger();
+        myWorkers = Executors.newFixedThreadPool(theWorkers, task -> {
+            final Thread thread = new Thread(task, "polling-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    /**
+     * Starts polling a directory. It is first polled in the next cycle.
+     *
+     * @param theDir the directory to poll.
+     */
+    public void register(final Path theDir) {
+        myDirs.putIfAbsent(Objects.requireNonNull(theDir), new Schedule(myMinNanos, System.nanoTime()));
+        LockSupport.unpark(myThread);
+    }
+
+    /**
+     * Stops polling a directory.
+     *
+     * @param theDir the directory.
+     */
+    public void unregister(final Path theDir) {
+        myDirs.remove(theDir);
+    }
+
+    /**
+     * Returns whether a directory is polled.
+     *
+     * @param theDir the directory.
+     * @return true if it is registered with this engine.
+     */
+    public boolean isPolled(final Path theDir) {
+        return theDir != null && myDirs.containsKey(theDir);
+    }
+
+    /**
+     * Returns the number of polled directories.
+     *
+     * @return the number of registered directories.
+     */
+    public int getDirectoryCount() {
+        return myDirs.size();
+    }
+
+    /**
+     * Returns the current interval of a directory.
+     *
+     * @param theDir the directory.
+     * @return its interval, or null if it is not polled.
+     */
+    public Duration getInterval(final Path theDir) {
+        final Schedule schedule = myDirs.get(theDir);
+        return schedule == null ? null : Duration.ofNanos(schedule.myInterval);
+    }
+
+    /**
+     * Returns the cost of the last cycle.
+     *
+     * @return the last cycle, or null if none has run.
+     */
+    public Cycle getLastCycle() {
+        return myLastCycle;
+    }
+
+    /**
+     * Returns the number of cycles run so far.
+     *
+     * @return the number of cycles.
+     */
+    public long getCycleCount() {
+        return myCycles.get();
+    }
+
+    /**
+     * Sets a listener told the cost of every cycle. It is called on the polling thread.
+     *
+     * @param theListener the listener, or null for none.
+     */
+    public void setCycleListener(final Consumer<Cycle> theListener) {
+        myCycleListener = theListener;
+    }
+
+    /**
+     * Starts the polling thread if it is not running.
+     */
+    public synchronized void start() {
+        myRunning = true;
+        if (myThread == null || !myThread.isAlive()) {
+            myThread = new Thread(this::polling, "polling-engine");
+            myThread.setDaemon(true);
+            myThread.start();
+        }
+    }
+
+    /**
+     * Stops the polling thread after its current cycle.
+     */
+    public synchronized void stop() {
+        myRunning = false;
+        LockSupport.unpark(myThread);
+    }
+
+    /**
+     * Runs a cycle whenever a directory is due, until stopped.
+     */
+    private void polling() {
+        while (myRunning) {
+            final long now = System.nanoTime();
+            final List<Path> due = new ArrayList<>();
+            long sleep = IDLE_NANOS;
+            for (Map.Entry<Path, Schedule> entry : myDirs.entrySet()) {
+                final long wait = entry.getValue().myNext - now;
+                if (wait <= 0) {
+                    due.add(entry.getKey());
+                } else {
+                    sleep = Math.min(sleep, wait);
+                }
+            }
+
+            if (due.isEmpty()) {
+                LockSupport.parkNanos(sleep);
+                continue;
+            }
+            try {
+                cycle(due);
+            } catch (InterruptedException e) {
+                System.out.println("Error caught in PollingEngine polling: " + e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Polls the given directories, reports their changes and reschedules them.
+     *
+     * @param theDue the directories to poll.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    private void cycle(final List<Path> theDue) throws InterruptedException {
+        final long start = System.nanoTime();
+        final List<Callable<Scan>> tasks = new ArrayList<>(theDue.size());
+        for (Path dir : theDue) {
+            tasks.add(() -> scan(dir));
+        }
+
+        long cpu = 0;
+        long entries = 0;
+        long changes = 0;
+        int failures = 0;
+        for (Future<Scan> future : myWorkers.invokeAll(tasks)) {
+            final Scan scan;
+            try {
+                scan = future.get();
+            } catch (ExecutionException e) {
+                failures++;
+                continue;
+            }
+            cpu += scan.myCpuNanos;
+            entries += scan.mySnapshot == null ? 0 : scan.mySnapshot.size();
+            if (scan.myFailed) {
+                failures++;
+            }
+            final long found = apply(scan);
+            changes += found;
+            reschedule(scan.myDir, found > 0);
+        }
+
+        final Cycle cycle = new Cycle(theDue.size(), entries, changes, failures,
+                System.nanoTime() - start, cpu);
+        myLastCycle = cycle;
+        myCycles.incrementAndGet();
+        final Consumer<Cycle> listener = myCycleListener;
+        if (listener != null) {
+            listener.accept(cycle);
+        }
+    }
+
+    /**
+     * Lists one directory. Runs on a worker.
+     *
+     * @param theDir the directory to list.
+     * @return the outcome of the scan.
+     */
+    private static Scan scan(final Path theDir) {
+        final long cpu = THREADS.getCurrentThreadCpuTime();
+        DirectorySnapshot snapshot = null;
+        boolean gone = false;
+        boolean failed = false;
+        try {
+            snapshot = DirectorySnapshot.scan(theDir);
+        } catch (NoSuchFileException e) {
+            gone = true;
+        } catch (IOException e) {
+            failed = true;
+        }
+        final long used = cpu < 0 ? 0 : THREADS.getCurrentThreadCpuTime() - cpu;
+        return new Scan(theDir, snapshot, gone, failed, used);
+    }
+
+    /**
+     * Compares a scan with the directory's snapshot and reports the differences.
+     *
+     * @param theScan the scan.
+     * @return the number of changes reported.
+     */
+    private long apply(final Scan theScan) {
+        final Path dir = theScan.myDir;
+        if (theScan.myFailed) {
+            // unreadable for now; keep the last known state and try again later
+            return 0;
+        }
+
+        final DirectorySnapshot older;
+        if (theScan.myGone) {
+            myDirs.remove(dir);
+            older = mySnapshots.remove(dir);
+        } else {
+            older = mySnapshots.put(dir, theScan.mySnapshot);
+        }
+        if (older == null) {
+            return 0;
+        }
+
+        final long[] count = new long[1];
+        older.diff(theScan.myGone ? new DirectorySnapshot() : theScan.mySnapshot, (kind, name) -> {
+            count[0]++;
+            myListener.changed(dir, kind, name);
+        });
+        return count[0];
+    }
+
+    /**
+     * Adapts the interval of a directory to whether it changed and schedules its next poll.
+     *
+     * @param theDir the directory.
+     * @param theChanged whether the last poll found changes.
+     */
+    private void reschedule(final Path theDir, final boolean theChanged) {
+        final Schedule schedule = myDirs.get(theDir);
+        if (schedule == null) {
+            return;
+        }
+        final long interval = schedule.myInterval;
+        schedule.myInterval = theChanged
+                ? Math.max(myMinNanos, interval / 2)
+                : Math.min(myMaxNanos, interval + interval / 2);
+        schedule.myNext = System.nanoTime() + schedule.myInterval;
+    }
+
+    /**
+     * When a directory is polled next.
+     */
+    private static final class Schedule {
+
+        /**
+         * Current interval in nanoseconds.
+         */
+        private volatile long myInterval;
+
+        /**
+         * Time of the next poll, in System.nanoTime() terms.
+         */
+        private volatile long myNext;
+
+        /**
+         * Creates a schedule.
+         *
+         * @param theInterval the initial interval.
+         * @param theNext the time of the first poll.
+         */
+        private Schedule(final long theInterval, final long theNext) {
+            myInterval = theInterval;
+            myNext = theNext;
+        }
+    }
+
+    /**
+     * Outcome of listing one directory.
+     */
+    private static final class Scan {
+
+        /**
+         * The directory listed.
+         */
+        private final Path myDir;
+
+        /**
+         * Its contents, or null if it could not be listed.
+         */
+        private final DirectorySnapshot mySnapshot;
+
+        /**
+         * Whether the directory no longer exists.
+         */
+        private final boolean myGone;
+
+        /**
+         * Whether the directory could not be listed for another reason.
+         */
+        private final boolean myFailed;
+
+        /**
+         * CPU time spent listing it.
+         */
+        private final long myCpuNanos;
+
+        /**
+         * Creates a scan result.
+         *
+         * @param theDir the directory listed.
+         * @param theSnapshot its contents, or null.
+         * @param theGone whether it no longer exists.
+         * @param theFailed whether it could not be listed.
+         * @param theCpuNanos CPU time spent listing it.
+         */
+        private Scan(final Path theDir, final DirectorySnapshot theSnapshot, final boolean theGone,
+                     final boolean theFailed, final long theCpuNanos) {
+            myDir = theDir;
+            mySnapshot = theSnapshot;
+            myGone = theGone;
+            myFailed = theFailed;
+            myCpuNanos = theCpuNanos;
+        }
+    }
+
+    /**
+     * Cost and outcome of one polling cycle.
+     */
+    public static final class Cycle {
+
+        /**
+         * Number of directories listed.
+         */
+        private final int myDirectories;
+
+        /**
+         * Number of entries whose attributes were read.
+         */
+        private final long myEntries;
+
+        /**
+         * Number of changes found.
+         */
+        private final long myChanges;
+
+        /**
+         * Number of directories that could not be listed.
+         */
+        private final int myFailures;
+
+        /**
+         * Wall-clock duration of the cycle.
+         */
+        private final long myElapsedNanos;
+
+        /**
+         * CPU time used by the workers.
+         */
+        private final long myCpuNanos;
+
+        /**
+         * Creates a cycle summary.
+         *
+         * @param theDirectories the number of directories listed.
+         * @param theEntries the number of entries read.
+         * @param theChanges the number of changes found.
+         * @param theFailures the number of directories that failed.
+         * @param theElapsedNanos the duration of the cycle.
+         * @param theCpuNanos the CPU time used by the workers.
+         */
+        Cycle(final int theDirectories, final long theEntries, final long theChanges,
+              final int theFailures, final long theElapsedNanos, final long theCpuNanos) {
+            myDirectories = theDirectories;
+            myEntries = theEntries;
+            myChanges = theChanges;
+            myFailures = theFailures;
+            myElapsedNanos = theElapsedNanos;
+            myCpuNanos = theCpuNanos;
+        }
+
+        /**
+         * Returns the number of directories listed, which is also the number of listing calls.
+         *
+         * @return the number of directories.
+         */
+        public int getDirectories() { return myDirectories; }
+
+        /**
+         * Returns the number of entries whose attributes were read, one stat call each.
+         *
+         * @return the number of entries.
+         */
+        public long getEntries() { return myEntries; }
+
+        /**
+         * Returns the number of changes found.
+         *
+         * @return the number of changes.
+         */
+        public long getChanges() { return myChanges; }
+
+        /**
+         * Returns the number of directories that could not be listed.
+         *
+         * @return the number of failures.
+         */
+        public int getFailures() { return myFailures; }
+
+        /**
+         * Returns how long the cycle took.
+         *
+         * @return the duration in nanoseconds.
+         */
+        public long getElapsedNanos() { return myElapsedNanos; }
+
+        /**
+         * Returns the CPU time the workers used, or 0 if the platform cannot measure it.
+         *
+         * @return the CPU time in nanoseconds.
+         */
+        public long getCpuNanos() { return myCpuNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("Polled %d directories (%d stats) in %.1f ms, %.1f ms CPU, %d changes, %d failed",
+                    myDirectories,
+                    myEntries,
+                    myElapsedNanos / 1e6,
+                    myCpuNanos / 1e6,
+                    myChanges,
+                    myFailures);
+        }
+    }
+}
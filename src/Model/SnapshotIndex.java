@@ -0,0 +1,378 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Persists the snapshots of one watched root so that changes made while the
+ * program was not running can be reported when it starts again.
+ *
+ * <p>The file is a header (magic, version, root) followed by one block per
+ * directory, sorted by relative path. Directory paths are prefix-compressed
+ * against the previous block, and numbers are stored as varints, with each
+ * modification time stored as a delta from the previous entry.
+ * The file is read through a memory mapping.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class SnapshotIndex {
+
+    /**
+     * Receives the differences found between the index and the live tree.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * Reports a change to a directory entry.
+         *
+         * @param theDir the directory of the entry.
+         * @param theKind the kind of change.
+         * @param theName the name of the entry.
+         */
+        void changed(Path theDir, WatchEvent.Kind<Path> theKind, String theName);
+    }
+
+    /**
+     * Magic number at the start of every index file ("FWSI").
+     */
+    private static final int MAGIC = 0x46575349;
+
+    /**
+     * Version of the file format.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Flag set on entries that are directories.
+     */
+    private static final byte FLAG_DIRECTORY = 1;
+
+    /**
+     * Directory index files are stored in, next to file_watcher.db.
+     */
+    private static final Path DIRECTORY = Paths.get("");
+
+    /**
+     * Utility class.
+     */
+    private SnapshotIndex() {
+    }
+
+    /**
+     * Returns the index file used for a root.
+     *
+     * @param theRoot the watched root.
+     * @return the path of its index file.
+     */
+    public static Path fileFor(final Path theRoot) {
+        return DIRECTORY.resolve("file_watcher-" + Integer.toHexString(canonical(theRoot).hashCode()) + ".idx");
+    }
+
+    /**
+     * Returns the absolute, normalized form of a root, which identifies its index.
+     *
+     * @param theRoot the watched root.
+     * @return the root as a string.
+     */
+    private static String canonical(final Path theRoot) {
+        return theRoot.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Writes the snapshots of every directory below a root to a file. The file
+     * is replaced atomically so a crash never leaves a half-written index.
+     *
+     * @param theRoot the watched root, as used in the keys of the snapshots.
+     * @param theSnapshots snapshots by directory; those outside the root are ignored.
+     * @param theFile the file to write.
+     * @return the number of entries written.
+     * @throws IOException if the file cannot be written.
+     */
+    public static long save(final Path theRoot, final Map<Path, DirectorySnapshot> theSnapshots,
+                            final Path theFile) throws IOException {
+        final List<String> dirs = new ArrayList<>();
+        for (Path dir : theSnapshots.keySet()) {
+            if (dir.startsWith(theRoot)) {
+                dirs.add(theRoot.relativize(dir).toString());
+            }
+        }
+        dirs.sort(null);
+
+        final Path temp = theFile.resolveSibling(theFile.getFileName() + ".tmp");
+        long count = 0;
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            final byte[] rootBytes = canonical(theRoot).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, rootBytes.length);
+            out.write(rootBytes);
+            writeVarLong(out, dirs.size());
+
+            byte[] previous = new byte[0];
+            for (String dir : dirs) {
+                final DirectorySnapshot snapshot = theSnapshots.get(theRoot.resolve(dir));
+                final byte[] path = dir.getBytes(StandardCharsets.UTF_8);
+                final int shared = sharedPrefix(previous, path);
+                writeVarLong(out, shared);
+                writeVarLong(out, path.length - shared);
+                out.write(path, shared, path.length - shared);
+                previous = path;
+
+                // copy the entries first so the snapshot is not locked during I/O
+                final List<String> names = new ArrayList<>();
+                final List<DirectorySnapshot.Entry> entries = new ArrayList<>();
+                if (snapshot != null) {
+                    snapshot.forEach((name, entry) -> {
+                        names.add(name);
+                        entries.add(entry);
+                    });
+                }
+
+                writeVarLong(out, names.size());
+                long modified = 0;
+                for (int i = 0; i < names.size(); i++) {
+                    final DirectorySnapshot.Entry entry = entries.get(i);
+                    final byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, name.length);
+                    out.write(name);
+                    out.writeByte(entry.isDirectory() ? FLAG_DIRECTORY : 0);
+                    writeVarLong(out, entry.getSize());
+                    writeVarLong(out, zigZag(entry.getModified() - modified));
+                    out.writeInt(keyHash(entry));
+                    modified = entry.getModified();
+                }
+                count += names.size();
+            }
+        }
+        Files.move(temp, theFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Compares an index file with the live snapshots of the same root and reports
+     * every entry created, modified or deleted since the index was written.
+     *
+     * @param theRoot the watched root, as used in the keys of the live snapshots.
+     * @param theFile the index file.
+     * @param theLive live snapshots by directory.
+     * @param theListener receives the differences.
+     * @return the number of differences, or -1 if there is no usable index for the root.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long diff(final Path theRoot, final Path theFile,
+                            final Map<Path, DirectorySnapshot> theLive,
+                            final ChangeListener theListener) throws IOException {
+        Objects.requireNonNull(theListener);
+        if (!Files.isRegularFile(theFile)) {
+            return -1;
+        }
+
+        final MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < Integer.BYTES + 1 || in.getInt() != MAGIC || in.get() != VERSION) {
+            return -1;
+        }
+        if (!readString(in).equals(canonical(theRoot))) {
+            return -1;
+        }
+
+        long changes = 0;
+        final Set<Path> seen = new HashSet<>();
+        final long dirCount = readVarLong(in);
+        byte[] path = new byte[256];
+        int pathLength;
+        byte[] name = new byte[256];
+        for (long d = 0; d < dirCount; d++) {
+            final int shared = (int) readVarLong(in);
+            final int suffix = (int) readVarLong(in);
+            if (shared + suffix > path.length) {
+                final byte[] bigger = new byte[Math.max(shared + suffix, path.length * 2)];
+                System.arraycopy(path, 0, bigger, 0, shared);
+                path = bigger;
+            }
+            in.get(path, shared, suffix);
+            pathLength = shared + suffix;
+
+            final Path dir = theRoot.resolve(new String(path, 0, pathLength, StandardCharsets.UTF_8));
+            final DirectorySnapshot live = theLive.get(dir);
+            final Set<String> names = new HashSet<>();
+            seen.add(dir);
+
+            final long entryCount = readVarLong(in);
+            long modified = 0;
+            for (long e = 0; e < entryCount; e++) {
+                final int nameLength = (int) readVarLong(in);
+                if (nameLength > name.length) {
+                    name = new byte[Math.max(nameLength, name.length * 2)];
+                }
+                in.get(name, 0, nameLength);
+                final String entryName = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+                final boolean directory = (in.get() & FLAG_DIRECTORY) != 0;
+                final long size = readVarLong(in);
+                modified += unZigZag(readVarLong(in));
+                final int key = in.getInt();
+
+                final DirectorySnapshot.Entry now = live == null ? null : live.get(entryName);
+                names.add(entryName);
+                if (now == null) {
+                    theListener.changed(dir, ENTRY_DELETE, entryName);
+                    changes++;
+                } else if (!directory && !now.isDirectory()
+                        && (now.getSize() != size || now.getModified() != modified || keyHash(now) != key)) {
+                    theListener.changed(dir, ENTRY_MODIFY, entryName);
+                    changes++;
+                }
+            }
+
+            // anything live that the index does not know about is new
+            if (live != null) {
+                final List<String> created = new ArrayList<>();
+                live.forEach((entryName, entry) -> {
+                    if (!names.contains(entryName)) {
+                        created.add(entryName);
+                    }
+                });
+                for (String entryName : created) {
+                    theListener.changed(dir, ENTRY_CREATE, entryName);
+                }
+                changes += created.size();
+            }
+        }
+
+        // directories created while the program was not running
+        for (Map.Entry<Path, DirectorySnapshot> entry : theLive.entrySet()) {
+            final Path dir = entry.getKey();
+            if (dir.startsWith(theRoot) && !seen.contains(dir)) {
+                final List<String> created = new ArrayList<>();
+                entry.getValue().forEach((entryName, e) -> created.add(entryName));
+                for (String entryName : created) {
+                    theListener.changed(dir, ENTRY_CREATE, entryName);
+                }
+                changes += created.size();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns a compact stand-in for an entry's file key (inode and device on Unix).
+     *
+     * @param theEntry the entry.
+     * @return the hash of the file key, or 0 if there is none.
+     */
+    private static int keyHash(final DirectorySnapshot.Entry theEntry) {
+        return theEntry.getFileKey() == null ? 0 : theEntry.getFileKey().hashCode();
+    }
+
+    /**
+     * Returns the length of the common prefix of two byte arrays.
+     *
+     * @param theFirst the first array.
+     * @param theSecond the second array.
+     * @return the number of equal leading bytes.
+     */
+    private static int sharedPrefix(final byte[] theFirst, final byte[] theSecond) {
+        final int max = Math.min(theFirst.length, theSecond.length);
+        int i = 0;
+        while (i < max && theFirst[i] == theSecond[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Maps signed values to unsigned ones so small negative deltas stay small.
+     *
+     * @param theValue the signed value.
+     * @return the zig-zag encoded value.
+     */
+    private static long zigZag(final long theValue) {
+        return (theValue << 1) ^ (theValue >> 63);
+    }
+
+    /**
+     * Reverses {@link #zigZag(long)}.
+     *
+     * @param theValue the zig-zag encoded value.
+     * @return the signed value.
+     */
+    private static long unZigZag(final long theValue) {
+        return (theValue >>> 1) ^ -(theValue & 1);
+    }
+
+    /**
+     * Writes an unsigned varint, seven bits per byte.
+     *
+     * @param theOut the stream to write to.
+     * @param theValue the value.
+     * @throws IOException if the stream fails.
+     */
+    private static void writeVarLong(final DataOutputStream theOut, final long theValue) throws IOException {
+        long value = theValue;
+        while ((value & ~0x7FL) != 0) {
+            theOut.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        theOut.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param theIn the buffer to read from.
+     * @return the value.
+     */
+    private static long readVarLong(final ByteBuffer theIn) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = theIn.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a UTF-8 string preceded by its length in bytes.
+     *
+     * @param theIn the buffer to read from.
+     * @return the string.
+     */
+    private static String readString(final ByteBuffer theIn) {
+        final int length = (int) readVarLong(theIn);
+        final byte[] bytes = new byte[length];
+        theIn.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,591 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps track of every registered directory and whether it is watched or polled.
+ *
+ * <p>A directory is registered at most once. When a directory is deleted, the
+ * keys of its whole subtree are cancelled at once rather than when the
+ * WatchService notices. The number of live watches is compared with the
+ * kernel's inotify limit (read from /proc on Linux; unlimited elsewhere). Above
+ * 90% of the limit, watched directories that have had no events for a while are
+ * moved to the {@link PollingEngine}, coldest first, until usage is back to 80%.
+ * If that is not enough, or the kernel refuses a watch, new directories are
+ * polled instead of watched.</p>
+ *
+ * <p>The limit applies to all processes of the user, so other programs using
+ * inotify leave less room than reported here.</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class WatchManager {
+
+    /**
+     * Places a watch on a directory.
+     */
+    @FunctionalInterface
+    public interface Watcher {
+
+        /**
+         * Watches a directory.
+         *
+         * @param theDir the directory.
+         * @return the key of the watch.
+         * @throws IOException if the directory cannot be watched.
+         */
+        WatchKey watch(Path theDir) throws IOException;
+    }
+
+    /**
+     * File the kernel's watch limit is read from.
+     */
+    private static final Path LIMIT_FILE = Paths.get("/proc/sys/fs/inotify/max_user_watches");
+
+    /**
+     * Separator between the names of a path.
+     */
+    private static final char SEPARATOR = File.separatorChar;
+
+    /**
+     * Default time without events after which a watched directory may be polled instead.
+     */
+    private static final Duration DEFAULT_COLD_AGE = Duration.ofMinutes(5);
+
+    /**
+     * Every registered directory, by path, sorted so a subtree is one range.
+     */
+    private final NavigableMap<String, Registration> myRegistry;
+
+    /**
+     * Watched directories, by key.
+     */
+    private final Map<WatchKey, Registration> myKeys;
+
+    /**
+     * Places the watches.
+     */
+    private volatile Watcher myWatcher;
+
+    /**
+     * Polls the directories that are not watched.
+     */
+    private final PollingEngine myPoller;
+
+    /**
+     * Number of live watches.
+     */
+    private final AtomicInteger myWatchCount;
+
+    /**
+     * Number of registrations ignored because the directory was already registered.
+     */
+    private final AtomicLong myDuplicates;
+
+    /**
+     * Number of watched directories moved to polling.
+     */
+    private final AtomicLong myDemoted;
+
+    /**
+     * Number of directories polled because there was no room for a watch.
+     */
+    private final AtomicLong myOverflowed;
+
+    /**
+     * Maximum number of watches.
+     */
+    private volatile long myLimit;
+
+    /**
+     * Time without events after which a watched directory may be demoted, in nanoseconds.
+     */
+    private volatile long myColdNanos;
+
+    /**
+     * Earliest time the next demotion pass may run.
+     */
+    private volatile long myNextDemotion;
+
+    /**
+     * Creates a manager with the kernel's watch limit.
+     *
+     * @param theWatcher places the watches.
+     * @param thePoller polls the directories that are not watched.
+     */
+    public WatchManager(final Watcher theWatcher, final PollingEngine thePoller) {
+        myWatcher = Objects.requireNonNull(theWatcher);
+        myPoller = Objects.requireNonNull(thePoller);
+        myRegistry = new ConcurrentSkipListMap<>();
+        myKeys = new ConcurrentHashMap<>();
+        myWatchCount = new AtomicInteger();
+        myDuplicates = new AtomicLong();
+        myDemoted = new AtomicLong();
+        myOverflowed = new AtomicLong();
+        myLimit = readKernelLimit();
+        myColdNanos = DEFAULT_COLD_AGE.toNanos();
+        myNextDemotion = System.nanoTime();
+    }
+
+    /**
+     * Reads the kernel's inotify watch limit.
+     *
+     * @return the limit, or Long.MAX_VALUE if there is none to read.
+     */
+    public static long readKernelLimit() {
+        // read line by line; procfs reports a size of zero, which whole-file reads trust
+        try (BufferedReader reader = Files.newBufferedReader(LIMIT_FILE)) {
+            final String line = reader.readLine();
+            return line == null ? Long.MAX_VALUE : Long.parseLong(line.trim());
+        } catch (IOException | NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Registers a directory, watching it if there is room and polling it otherwise.
+     *
+     * @param theDir the directory.
+     * @return false if it was already registered.
+     * @throws IOException if the directory cannot be watched for a reason other than the limit.
+     */
+    public boolean register(final Path theDir) throws IOException {
+        final Registration registration = new Registration(theDir);
+        if (myRegistry.putIfAbsent(keyOf(theDir), registration) != null) {
+            myDuplicates.incrementAndGet();
+            return false;
+        }
+
+        if (myWatchCount.get() >= highWater()) {
+            demoteColdest();
+        }
+        if (myWatchCount.get() >= highWater()) {
+            myOverflowed.incrementAndGet();
+            myPoller.register(theDir);
+            return true;
+        }
+
+        try {
+            final WatchKey key = myWatcher.watch(theDir);
+            registration.myKey = key;
+            final Registration previous = myKeys.put(key, registration);
+            if (previous == null) {
+                myWatchCount.incrementAndGet();
+            } else {
+                // the same directory under an old path, moved before its deletion was seen
+                previous.myKey = null;
+                myRegistry.remove(keyOf(previous.myDir), previous);
+            }
+        } catch (IOException e) {
+            if (isLimitReached(e)) {
+                // the kernel ran out first (other processes share the limit); poll instead
+                myOverflowed.incrementAndGet();
+                myPoller.register(theDir);
+                return true;
+            }
+            myRegistry.remove(keyOf(theDir), registration);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Registers a directory to be polled.
+     *
+     * @param theDir the directory.
+     * @return false if it was already registered.
+     */
+    public boolean registerPolled(final Path theDir) {
+        if (myRegistry.putIfAbsent(keyOf(theDir), new Registration(theDir)) != null) {
+            myDuplicates.incrementAndGet();
+            return false;
+        }
+        myPoller.register(theDir);
+        return true;
+    }
+
+    /**
+     * Returns the directory a key was registered for.
+     *
+     * @param theKey the watch key.
+     * @return the directory, or null if the key is unknown.
+     */
+    public Path directoryOf(final WatchKey theKey) {
+        final Registration registration = myKeys.get(theKey);
+        return registration == null ? null : registration.myDir;
+    }
+
+    /**
+     * Returns the directory of a signalled key and notes that it had events,
+     * which keeps it from being demoted.
+     *
+     * @param theKey the signalled key.
+     * @return the directory, or null if the key is unknown.
+     */
+    public Path signalled(final WatchKey theKey) {
+        final Registration registration = myKeys.get(theKey);
+        if (registration == null) {
+            return null;
+        }
+        registration.myLastEvent = System.nanoTime();
+        return registration.myDir;
+    }
+
+    /**
+     * Forgets a directory whose key is no longer valid.
+     *
+     * @param theKey the invalid key.
+     */
+    public void invalidated(final WatchKey theKey) {
+        final Registration registration = myKeys.remove(theKey);
+        if (registration != null) {
+            myWatchCount.decrementAndGet();
+            myRegistry.remove(keyOf(registration.myDir), registration);
+        }
+    }
+
+    /**
+     * Cancels the registration of a directory and everything below it, e.g.
+     * because it was deleted or moved. Does nothing for paths that are not registered.
+     *
+     * @param theDir the directory.
+     * @return the directories that were registered.
+     */
+    public List<Path> cancelSubtree(final Path theDir) {
+        final String key = keyOf(theDir);
+        final List<Path> removed = new ArrayList<>();
+        final Registration self = myRegistry.remove(key);
+        if (self != null) {
+            cancel(self);
+            removed.add(self.myDir);
+        }
+        // children sort between "dir/" and "dir0", the next character after the separator
+        final Iterator<Registration> below = myRegistry
+                .subMap(key + SEPARATOR, key + (char) (SEPARATOR + 1)).values().iterator();
+        while (below.hasNext()) {
+            final Registration registration = below.next();
+            below.remove();
+            cancel(registration);
+            removed.add(registration.myDir);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the registrations of a directory and everything below it to the
+     * directory's new path, keeping their watches. Only valid where a watch
+     * follows its directory when it is moved, as inotify's do.
+     *
+     * @param theFrom the old path of the directory.
+     * @param theTo the new path of the directory, which must not be registered.
+     * @param theMoved told the old and new path of every moved directory, before it is polled again.
+     * @return the number of moved registrations.
+     */
+    public int move(final Path theFrom, final Path theTo, final BiConsumer<Path, Path> theMoved) {
+        final String key = keyOf(theFrom);
+        final List<Registration> moved = new ArrayList<>();
+        final Registration self = myRegistry.remove(key);
+        if (self != null) {
+            moved.add(self);
+        }
+        final Iterator<Registration> below = myRegistry
+                .subMap(key + SEPARATOR, key + (char) (SEPARATOR + 1)).values().iterator();
+        while (below.hasNext()) {
+            moved.add(below.next());
+            below.remove();
+        }
+
+        for (Registration registration : moved) {
+            final Path from = registration.myDir;
+            final Path to = theTo.resolve(theFrom.relativize(from));
+            registration.myDir = to;
+            myRegistry.put(keyOf(to), registration);
+            theMoved.accept(from, to);
+            if (registration.myKey == null) {
+                myPoller.unregister(from);
+                myPoller.register(to);
+            }
+        }
+        return moved.size();
+    }
+
+    /**
+     * Returns whether a directory is registered.
+     *
+     * @param theDir the directory.
+     * @return true if it is watched or polled.
+     */
+    public boolean isRegistered(final Path theDir) {
+        return myRegistry.containsKey(keyOf(theDir));
+    }
+
+    /**
+     * Returns whether a directory is watched rather than polled.
+     *
+     * @param theDir the directory.
+     * @return true if it has a live watch.
+     */
+    public boolean isWatched(final Path theDir) {
+        final Registration registration = myRegistry.get(keyOf(theDir));
+        return registration != null && registration.myKey != null;
+    }
+
+    /**
+     * Returns whether nothing is registered.
+     *
+     * @return true if empty.
+     */
+    public boolean isEmpty() {
+        return myRegistry.isEmpty();
+    }
+
+    /**
+     * Replaces what places the watches, e.g. after the shards changed. Only call
+     * while nothing is registered.
+     *
+     * @param theWatcher places the watches.
+     */
+    public void setWatcher(final Watcher theWatcher) {
+        myWatcher = Objects.requireNonNull(theWatcher);
+    }
+
+    /**
+     * Sets the maximum number of watches, e.g. to leave room for other programs.
+     *
+     * @param theLimit the maximum number of watches.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    public void setWatchLimit(final long theLimit) {
+        if (theLimit < 1) {
+            throw new IllegalArgumentException("Watch limit must be positive: " + theLimit);
+        }
+        myLimit = theLimit;
+    }
+
+    /**
+     * Sets how long a watched directory must have had no events before it may be polled instead.
+     *
+     * @param theAge the time without events.
+     * @throws IllegalArgumentException if the age is negative.
+     */
+    public void setColdAge(final Duration theAge) {
+        if (theAge.isNegative()) {
+            throw new IllegalArgumentException("Cold age cannot be negative");
+        }
+        myColdNanos = theAge.toNanos();
+    }
+
+    /**
+     * Returns the maximum number of watches.
+     *
+     * @return the limit, or Long.MAX_VALUE if there is none.
+     */
+    public long getWatchLimit() {
+        return myLimit;
+    }
+
+    /**
+     * Returns the number of live watches.
+     *
+     * @return the number of watched directories.
+     */
+    public int getWatchCount() {
+        return myWatchCount.get();
+    }
+
+    /**
+     * Returns the number of registered directories that are polled.
+     *
+     * @return the number of polled directories.
+     */
+    public int getPolledCount() {
+        return myRegistry.size() - myWatchCount.get();
+    }
+
+    /**
+     * Returns the number of registrations ignored as duplicates.
+     *
+     * @return the number of duplicates.
+     */
+    public long getDuplicateCount() {
+        return myDuplicates.get();
+    }
+
+    /**
+     * Returns the number of watched directories moved to polling because they were cold.
+     *
+     * @return the number of demotions.
+     */
+    public long getDemotedCount() {
+        return myDemoted.get();
+    }
+
+    /**
+     * Returns the number of directories polled because there was no room for a watch.
+     *
+     * @return the number of overflowed registrations.
+     */
+    public long getOverflowCount() {
+        return myOverflowed.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d watches of %s, %d polled, %d demoted, %d duplicates ignored",
+                getWatchCount(),
+                myLimit == Long.MAX_VALUE ? "unlimited" : Long.toString(myLimit),
+                getPolledCount(),
+                getDemotedCount(),
+                getDuplicateCount());
+    }
+
+    /**
+     * Moves the coldest watched directories to polling until usage is back to
+     * the low-water mark. Runs at most once per cold age, since directories only
+     * become cold that fast.
+     */
+    private synchronized void demoteColdest() {
+        final long now = System.nanoTime();
+        if (now - myNextDemotion < 0 || myWatchCount.get() < highWater()) {
+            return;
+        }
+        myNextDemotion = now + Math.min(myColdNanos, Duration.ofSeconds(1).toNanos());
+
+        final List<Registration> cold = new ArrayList<>();
+        for (Registration registration : myKeys.values()) {
+            if (now - registration.myLastEvent >= myColdNanos) {
+                cold.add(registration);
+            }
+        }
+        cold.sort((a, b) -> Long.compare(a.myLastEvent - now, b.myLastEvent - now));
+
+        final long lowWater = lowWater();
+        for (Registration registration : cold) {
+            if (myWatchCount.get() <= lowWater) {
+                break;
+            }
+            final WatchKey key = registration.myKey;
+            if (key == null || myKeys.remove(key) == null) {
+                continue;
+            }
+            key.cancel();
+            registration.myKey = null;
+            myWatchCount.decrementAndGet();
+            myDemoted.incrementAndGet();
+            // the directory's snapshot carries over, so the poller misses nothing
+            myPoller.register(registration.myDir);
+        }
+    }
+
+    /**
+     * Cancels one registration.
+     *
+     * @param theRegistration the registration, already removed from the registry.
+     */
+    private void cancel(final Registration theRegistration) {
+        final WatchKey key = theRegistration.myKey;
+        if (key != null) {
+            key.cancel();
+            if (myKeys.remove(key) != null) {
+                myWatchCount.decrementAndGet();
+            }
+        } else {
+            myPoller.unregister(theRegistration.myDir);
+        }
+    }
+
+    /**
+     * Returns the watch count above which directories are polled.
+     *
+     * @return the high-water mark.
+     */
+    private long highWater() {
+        final long limit = myLimit;
+        return limit == Long.MAX_VALUE ? limit : limit - limit / 10;
+    }
+
+    /**
+     * Returns the watch count demotion brings usage back to.
+     *
+     * @return the low-water mark.
+     */
+    private long lowWater() {
+        final long limit = myLimit;
+        return limit == Long.MAX_VALUE ? limit : limit - limit / 5;
+    }
+
+    /**
+     * Checks whether an error means the kernel has no watches left.
+     *
+     * @param theError the error thrown when registering.
+     * @return true if the watch limit was reached.
+     */
+    private static boolean isLimitReached(final IOException theError) {
+        final String message = theError.getMessage();
+        return message != null && message.contains("inotify watches");
+    }
+
+    /**
+     * Returns the registry key of a directory.
+     *
+     * @param theDir the directory.
+     * @return its path as a string.
+     */
+    private static String keyOf(final Path theDir) {
+        return theDir.toString();
+    }
+
+    /**
+     * One registered directory.
+     */
+    private static final class Registration {
+
+        /**
+         * The directory, changed when it is moved.
+         */
+        private volatile Path myDir;
+
+        /**
+         * Its watch key, or null if it is polled.
+         */
+        private volatile WatchKey myKey;
+
+        /**
+         * Time of its last event, or of its registration.
+         */
+        private volatile long myLastEvent;
+
+        /**
+         * Creates a registration.
+         *
+         * @param theDir the directory.
+         */
+        private Registration(final Path theDir) {
+            myDir = theDir;
+            myLastEvent = System.nanoTime();
+        }
+    }
+}
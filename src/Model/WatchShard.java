@@ -0,0 +1,273 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Model;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * One partition of the monitored directories: a WatchService, the thread
+ * taking keys from it and the queue that thread produces into. The
+ * {@link Monitor} decides which shard each directory is registered with and
+ * turns raw watch events into {@link Event}s.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+final class WatchShard {
+
+    /**
+     * Index of this shard.
+     */
+    private final int myId;
+
+    /**
+     * The monitor owning this shard.
+     */
+    private final Monitor myMonitor;
+
+    /**
+     * Watch service of this shard.
+     */
+    private final WatchService myWatcher;
+
+    /**
+     * Queue this shard's thread produces into. Its only producer is that thread.
+     */
+    private volatile EventQueue myQueue;
+
+    /**
+     * Thread taking keys from the watch service.
+     */
+    private Thread myThread;
+
+    /**
+     * A volatile boolean used to stop the thread.
+     */
+    private volatile boolean myRunning;
+
+    /**
+     * Creates a shard with its own watch service.
+     *
+     * @param theId the index of this shard.
+     * @param theMonitor the monitor owning this shard.
+     * @param theQueue the queue events are produced into.
+     * @throws IOException if the watch service cannot be created.
+     */
+    WatchShard(final int theId, final Monitor theMonitor, final EventQueue theQueue) throws IOException {
+        myId = theId;
+        myMonitor = theMonitor;
+        myQueue = theQueue;
+        myWatcher = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Registers a directory with this shard's watch service.
+     *
+     * @param theDir the directory to register.
+     * @return the key of the registration.
+     * @throws IOException if the directory cannot be registered.
+     */
+    WatchKey register(final Path theDir) throws IOException {
+        return theDir.register(myWatcher, ENTRY_MODIFY, ENTRY_CREATE, ENTRY_DELETE);
+    }
+
+    /**
+     * Starts the thread of this shard.
+     *
+     * @param theCoalesceNanos quiet window for coalescing, zero for none.
+     */
+    void start(final long theCoalesceNanos) {
+        myRunning = true;
+        myThread = new Thread(() -> monitoring(theCoalesceNanos), "watch-shard-" + myId);
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    /**
+     * Stops the thread of this shard.
+     */
+    void stop() {
+        myRunning = false;
+        if (myThread != null) {
+            myThread.interrupt();
+        }
+    }
+
+    /**
+     * Stops the thread and closes the watch service, cancelling all its keys.
+     */
+    void close() {
+        stop();
+        try {
+            myWatcher.close();
+        } catch (IOException e) {
+            System.out.println("Error caught in WatchShard close: " + e);
+        }
+    }
+
+    /**
+     * Returns the queue of this shard.
+     *
+     * @return the queue of this shard.
+     */
+    EventQueue getQueue() {
+        return myQueue;
+    }
+
+    /**
+     * Replaces the queue of this shard. Only call while the shard is stopped.
+     *
+     * @param theQueue the new queue.
+     */
+    void setQueue(final EventQueue theQueue) {
+        myQueue = theQueue;
+    }
+
+    /**
+     * Takes keys from the watch service and produces events until stopped.
+     *
+     * @param theCoalesceNanos quiet window for coalescing, zero for none.
+     */
+    private void monitoring(final long theCoalesceNanos) {
+        final EventCoalescer coalescer = theCoalesceNanos > 0 ? new EventCoalescer(theCoalesceNanos) : null;
+        final long pollMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(theCoalesceNanos) / 2);
+        final List<Event> ready = new ArrayList<>();
+        final List<Event> recovered = new ArrayList<>();
+        final Set<Path> affected = new HashSet<>();
+        WatchKey key;
+        try {
+            while (myRunning) {
+                if (coalescer == null) {
+                    key = myWatcher.take();
+                } else {
+                    // wake up regularly so held-back events are released once quiet
+                    key = myWatcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    coalescer.flushExpired(System.nanoTime(), ready);
+                    offerAll(ready);
+                    if (key == null) {
+                        continue;
+                    }
+                }
+
+                processKey(key, coalescer, ready, affected);
+                if (!affected.isEmpty()) {
+                    // an overflow is usually reported on many keys at once; take the ones
+                    // already signalled too so all their directories are rescanned together
+                    WatchKey more;
+                    while ((more = myWatcher.poll()) != null) {
+                        processKey(more, coalescer, ready, affected);
+                    }
+                    myMonitor.recover(affected, recovered);
+                    for (Event out : recovered) {
+                        emit(out, coalescer, ready);
+                    }
+                    recovered.clear();
+                    affected.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Error caught in Monitor monitoring: " + e);
+        }
+
+        // hand over whatever is still held back
+        if (coalescer != null) {
+            coalescer.flushAll(ready);
+            try {
+                offerAll(ready);
+            } catch (InterruptedException e) {
+                System.out.println("Error caught in Monitor monitoring: " + e);
+            }
+        }
+    }
+
+    /**
+     * Produces events for everything signalled on a key and resets it.
+     *
+     * @param theKey the signalled key.
+     * @param theCoalescer the coalescer, or null if coalescing is off.
+     * @param theReady scratch list for events released by the coalescer.
+     * @param theAffected receives directories that need a rescan.
+     * @throws InterruptedException if interrupted while the queue is full.
+     */
+    private void processKey(final WatchKey theKey, final EventCoalescer theCoalescer,
+                            final List<Event> theReady, final Set<Path> theAffected)
+            throws InterruptedException {
+        Path dir = myMonitor.directoryOf(theKey);
+        if (dir == null) {
+            // a key cancelled with its deleted directory may still have been signalled
+            if (theKey.isValid()) {
+                System.err.println("WatchKey not recognized!");
+            }
+            return;
+        }
+        for (WatchEvent<?> event : theKey.pollEvents()) {
+            // events were lost; the directory is rescanned instead
+            if (event.kind() == OVERFLOW) {
+                theAffected.add(dir);
+                continue;
+            }
+
+            Event out = myMonitor.capture(dir, event);
+            if (out != null) {
+                emit(out, theCoalescer, theReady);
+            }
+
+            // if directory is created, and watching recursively,
+            // then register it and its sub-directories
+            if (event.kind() == ENTRY_CREATE) {
+                myMonitor.directoryCreated(dir.resolve((Path) event.context()));
+            }
+        }
+        // reset key and remove from set if directory no longer accessible;
+        // whatever it still held according to its snapshot is reported by the rescan
+        if (!theKey.reset()) {
+            myMonitor.keyInvalidated(theKey);
+            theAffected.add(dir);
+        }
+    }
+
+    /**
+     * Passes an event to the coalescer, or straight to the queue if coalescing is off.
+     *
+     * @param theEvent the event.
+     * @param theCoalescer the coalescer, or null.
+     * @param theReady scratch list for events released by the coalescer.
+     * @throws InterruptedException if interrupted while the queue is full.
+     */
+    private void emit(final Event theEvent, final EventCoalescer theCoalescer,
+                      final List<Event> theReady) throws InterruptedException {
+        if (theCoalescer == null) {
+            myQueue.offer(theEvent);
+        } else {
+            theCoalescer.add(theEvent, System.nanoTime(), theReady);
+            offerAll(theReady);
+        }
+    }
+
+    /**
+     * Offers every event in the list to the queue and clears the list.
+     *
+     * @param theEvents the events to offer.
+     * @throws InterruptedException if interrupted while the queue is full.
+     */
+    private void offerAll(final List<Event> theEvents) throws InterruptedException {
+        for (Event event : theEvents) {
+            myQueue.offer(event);
+        }
+        theEvents.clear();
+    }
+}
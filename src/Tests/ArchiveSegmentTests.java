@@ -0,0 +1,166 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.ArchiveSegment;
+import Model.Event;
+import Model.EventCodec;
+import Model.EventKind;
+import Model.EventQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ArchiveSegment class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class ArchiveSegmentTests {
+
+    /**
+     * Time of the first event, 2026-10-17T12:00:00Z in nanoseconds.
+     */
+    private static final long START = 1_792_238_400_000_000_000L;
+
+    /**
+     * Temporary directory holding the segments.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Creates events a millisecond apart in two directories.
+     *
+     * @param theCount the number of events.
+     * @return the events, in time order.
+     */
+    private static List<Event> events(final int theCount) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < theCount; i++) {
+            events.add(new Event(i % 2 == 0 ? EventKind.CREATE : EventKind.MODIFY, "/watched/dir" + i % 2,
+                    "file" + i + ".txt", ".txt", START + i * 1_000_000L, i, null));
+        }
+        return events;
+    }
+
+    /**
+     * Returns ids 1 to a count.
+     *
+     * @param theCount the count.
+     * @return the ids.
+     */
+    private static long[] ids(final int theCount) {
+        long[] ids = new long[theCount];
+        for (int i = 0; i < theCount; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+
+    /**
+     * Tests that events of every form read back equal to what was written.
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        List<Event> events = List.of(
+                new Event("a.txt", "ENTRY_CREATE", "2026-10-17T12:00:00.123456789Z", ".txt",
+                        "/watched/a.txt", "2026-10-17T12:00:01Z", 3, 42),
+                new Event(EventKind.MOVE, "/watched", "b.log", ".log", START + 200_000_000L, 7,
+                        "/watched/old.log"),
+                new Event("x", "OVERFLOW", "2026-10-17T12:00:01Z", "", "D:\\x", "yesterday", 1, -1));
+        long[] ids = {5, 3, 9};
+        ArchiveSegment segment = ArchiveSegment.write(myDir.resolve("a.fwa"), events, ids);
+
+        assertEquals(3, segment.getCount(), "Should hold every event");
+        assertEquals(events.getFirst().getTime(), segment.getMinTime(), "Should know the earliest time");
+        assertEquals(events.getLast().getTime(), segment.getMaxTime(), "Should know the latest time");
+        assertEquals(3, segment.getMinId(), "Should know the smallest id");
+        assertEquals(9, segment.getMaxId(), "Should know the largest id");
+
+        long[] read = new long[3];
+        Event[] back = ArchiveSegment.open(segment.getPath()).read(read);
+        assertArrayEquals(ids, read, "Should read back the ids");
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.get(i), back[i], "Should read back " + events.get(i));
+            assertEquals(events.get(i).getDirectory(), back[i].getDirectory());
+            assertEquals(events.get(i).getLastSeen(), back[i].getLastSeen());
+            assertEquals(events.get(i).getCount(), back[i].getCount());
+            assertEquals(events.get(i).getPreviousPath(), back[i].getPreviousPath());
+        }
+    }
+
+    /**
+     * Tests that similar events take much less space than in the journal.
+     */
+    @Test
+    void testCompression() throws IOException {
+        List<Event> events = events(10_000);
+        ArchiveSegment segment = ArchiveSegment.write(myDir.resolve("a.fwa"), events, ids(10_000));
+        long encoded = events.stream().mapToLong(EventCodec::sizeOf).sum();
+        assertTrue(Files.size(segment.getPath()) * 4 < encoded,
+                "Should be under a quarter of the encoded size, was " + Files.size(segment.getPath()));
+        assertEquals(Files.size(segment.getPath()), segment.getSize(), "Should know its size");
+    }
+
+    /**
+     * Tests that segments are skipped by their statistics.
+     */
+    @Test
+    void testMayMatch() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.write(myDir.resolve("a.fwa"), events(10), ids(10));
+        Instant start = Instant.ofEpochSecond(0, START);
+
+        assertTrue(segment.mayMatch(new EventQuery(), Long.MIN_VALUE), "Should match anything");
+        assertTrue(segment.mayMatch(new EventQuery().kind(EventKind.MODIFY).directory("/WATCHED/dir1"),
+                Long.MIN_VALUE), "Should match a kind and directory it holds, ignoring case");
+        assertFalse(segment.mayMatch(new EventQuery().extension(".log"), Long.MIN_VALUE),
+                "Should skip an extension it does not hold");
+        assertFalse(segment.mayMatch(new EventQuery().kind(EventKind.DELETE), Long.MIN_VALUE),
+                "Should skip a kind it does not hold");
+        assertFalse(segment.mayMatch(new EventQuery().directoryContaining("dir2"), Long.MIN_VALUE),
+                "Should skip a directory it does not hold");
+        assertFalse(segment.mayMatch(new EventQuery().until(start), Long.MIN_VALUE),
+                "Should skip a range before it");
+        assertFalse(segment.mayMatch(new EventQuery().from(start.plusSeconds(1)), Long.MIN_VALUE),
+                "Should skip a range after it");
+        assertFalse(segment.mayMatch(new EventQuery(), START + 10_000_000L),
+                "Should skip it after a key past its end");
+    }
+
+    /**
+     * Tests that a truncated segment is rejected.
+     */
+    @Test
+    void testTruncated() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.write(myDir.resolve("a.fwa"), events(100), ids(100));
+        try (FileChannel channel = FileChannel.open(segment.getPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(segment.getSize() - 1);
+        }
+        assertThrows(IOException.class, () -> ArchiveSegment.open(segment.getPath()));
+    }
+
+    /**
+     * Tests that only events with a time can be archived.
+     */
+    @Test
+    void testUntimed() {
+        List<Event> events = List.of(new Event("test.txt", "Created", "2025-13-6", ".txt", "C:"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ArchiveSegment.write(myDir.resolve("a.fwa"), events, new long[] {1}));
+        assertFalse(Files.exists(myDir.resolve("a.fwa")), "Should not write anything");
+    }
+}
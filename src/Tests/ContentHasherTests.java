@@ -0,0 +1,208 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.ContentHasher;
+import Model.Event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ContentHasher class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class ContentHasherTests {
+
+    /**
+     * Temporary directory holding the hashed files.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * The hasher under test.
+     */
+    private ContentHasher myHasher;
+
+    /**
+     * Creates a hasher.
+     */
+    @BeforeEach
+    void setUp() {
+        myHasher = new ContentHasher(2);
+    }
+
+    /**
+     * Stops the hasher's workers.
+     */
+    @AfterEach
+    void tearDown() {
+        myHasher.close();
+    }
+
+    /**
+     * Creates an event for a file.
+     *
+     * @param theFile the file.
+     * @param theType the event type.
+     * @return the event.
+     */
+    private static Event event(final Path theFile, final String theType) {
+        return new Event(theFile.getFileName().toString(), theType, "2026-10-17T00:00:00Z",
+                ".txt", theFile.toString());
+    }
+
+    /**
+     * Processes a batch and waits for every digest it needs.
+     *
+     * @param theBatch the events.
+     * @return every event delivered for the batch.
+     */
+    private List<Event> process(final List<Event> theBatch) {
+        List<Event> out = new ArrayList<>(myHasher.process(theBatch));
+        out.addAll(myHasher.flush());
+        return out;
+    }
+
+    /**
+     * Tests that a modification leaving the content unchanged is dropped.
+     */
+    @Test
+    void testUnchangedDropped() throws IOException {
+        Path file = Files.writeString(myDir.resolve("a.txt"), "hello");
+        assertEquals(1, process(List.of(event(file, "ENTRY_MODIFY"))).size(),
+                "The first modification has nothing to compare with.");
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        assertTrue(process(List.of(event(file, "ENTRY_MODIFY"))).isEmpty(),
+                "A touch should be dropped.");
+
+        Files.writeString(file, "hello");
+        assertTrue(process(List.of(event(file, "ENTRY_MODIFY"))).isEmpty(),
+                "A rewrite of the same bytes should be dropped.");
+
+        Files.writeString(file, "hellO");
+        assertEquals(1, process(List.of(event(file, "ENTRY_MODIFY"))).size());
+        assertEquals(2, myHasher.getUnchangedCount());
+        assertEquals(4, myHasher.getHashedCount());
+    }
+
+    /**
+     * Tests tagging instead of dropping, and that each file's events keep their order.
+     */
+    @Test
+    void testTagKeepsOrder() throws IOException {
+        myHasher.setMode(ContentHasher.Mode.TAG);
+        Path a = Files.writeString(myDir.resolve("a.txt"), "a");
+        Path b = Files.writeString(myDir.resolve("b.txt"), "b");
+        process(List.of(event(a, "ENTRY_MODIFY")));
+
+        List<Event> out = process(List.of(
+                event(b, "ENTRY_CREATE"),
+                event(a, "ENTRY_MODIFY"),
+                event(b, "ENTRY_MODIFY"),
+                event(a, "ENTRY_MODIFY")));
+        assertEquals(4, out.size(), "Size should be four.");
+        List<Event> ofA = out.stream().filter(e -> e.getFilename().equals("a.txt")).toList();
+        List<Event> ofB = out.stream().filter(e -> e.getFilename().equals("b.txt")).toList();
+        assertEquals(2, ofA.size());
+        assertEquals(ContentHasher.UNCHANGED, ofA.get(0).getEventType());
+        assertEquals(ContentHasher.UNCHANGED, ofA.get(1).getEventType());
+        assertEquals(2, ofB.size());
+        assertEquals("ENTRY_CREATE", ofB.get(0).getEventType());
+        assertEquals("ENTRY_MODIFY", ofB.get(1).getEventType());
+    }
+
+    /**
+     * Tests that a deleted and recreated file is compared with nothing.
+     */
+    @Test
+    void testDeleteForgets() throws IOException {
+        Path file = Files.writeString(myDir.resolve("a.txt"), "a");
+        process(List.of(event(file, "ENTRY_MODIFY")));
+        process(List.of(event(file, "ENTRY_DELETE"), event(file, "ENTRY_CREATE")));
+        assertEquals(1, process(List.of(event(file, "ENTRY_MODIFY"))).size());
+    }
+
+    /**
+     * Tests a file large enough to be mapped.
+     */
+    @Test
+    void testLargeFile() throws IOException {
+        byte[] content = new byte[3 << 20];
+        content[content.length - 1] = 1;
+        Path file = Files.write(myDir.resolve("large.bin"), content);
+        process(List.of(event(file, "ENTRY_MODIFY")));
+
+        Files.write(file, content);
+        assertTrue(process(List.of(event(file, "ENTRY_MODIFY"))).isEmpty());
+
+        content[content.length - 1] = 2;
+        Files.write(file, content);
+        assertEquals(1, process(List.of(event(file, "ENTRY_MODIFY"))).size(),
+                "A change in the last byte should be found.");
+        assertEquals(3L * content.length, myHasher.getHashedBytes());
+    }
+
+    /**
+     * Tests that files beyond the size and rate limits are kept without hashing.
+     */
+    @Test
+    void testLimits() throws IOException {
+        Path file = Files.writeString(myDir.resolve("a.txt"), "0123456789");
+        myHasher.setMaxFileSize(5);
+        process(List.of(event(file, "ENTRY_MODIFY")));
+        assertEquals(1, process(List.of(event(file, "ENTRY_MODIFY"))).size());
+        assertEquals(2, myHasher.getSkippedCount());
+
+        myHasher.setMaxFileSize(100);
+        myHasher.setRateLimit(15);
+        process(List.of(event(file, "ENTRY_MODIFY")));
+        process(List.of(event(file, "ENTRY_MODIFY")));
+        assertEquals(1, myHasher.getHashedCount(), "The budget should only allow one file.");
+        assertEquals(3, myHasher.getSkippedCount());
+    }
+
+    /**
+     * Tests that a batch is returned without waiting for its digests, and that
+     * only the events of a modified file wait behind its modification.
+     */
+    @Test
+    void testDoesNotWait() throws IOException {
+        myHasher.setTimeout(Duration.ofHours(1));
+        Path a = Files.writeString(myDir.resolve("a.txt"), "a");
+        Path b = myDir.resolve("b.txt");
+        Event modified = event(a, "ENTRY_MODIFY");
+        Event created = event(b, "ENTRY_CREATE");
+        Event deleted = event(a, "ENTRY_DELETE");
+
+        List<Event> ready = myHasher.process(List.of(modified, created, deleted));
+        assertTrue(ready.contains(created), "Another file's event should not wait.");
+        assertTrue(!ready.contains(deleted) || ready.indexOf(modified) < ready.indexOf(deleted),
+                "A file's events should stay behind its modification.");
+        assertEquals(3 - ready.size(), myHasher.getHeldCount());
+
+        List<Event> out = new ArrayList<>(ready);
+        out.addAll(myHasher.flush());
+        assertEquals(0, myHasher.getHeldCount());
+        assertEquals(3, out.size(), "Size should be three.");
+        assertTrue(out.indexOf(modified) < out.indexOf(deleted), "A file's events should keep their order.");
+    }
+}
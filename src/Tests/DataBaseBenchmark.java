@@ -0,0 +1,173 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.ConnectionPool;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how fast events can be written while searches run at the same
+ * time, once with the rollback journal and once in WAL mode. Not a unit test;
+ * run its main method.
+ *
+ * <p>Usage: {@code DataBaseBenchmark [seconds] [readers]}</p>
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+public final class DataBaseBenchmark {
+
+    /**
+     * Rows inserted per transaction, as the database writer does.
+     */
+    private static final int BATCH = 5000;
+
+    /**
+     * Not instantiable.
+     */
+    private DataBaseBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark in both journal modes and prints the throughput.
+     *
+     * @param theArgs the run time in seconds and number of reader threads, both optional.
+     * @throws Exception if the database cannot be used.
+     */
+    public static void main(final String[] theArgs) throws Exception {
+        final int seconds = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 10;
+        final int readers = theArgs.length > 1 ? Integer.parseInt(theArgs[1]) : ConnectionPool.DEFAULT_READERS;
+        for (boolean wal : new boolean[] {false, true}) {
+            final Path dir = Files.createTempDirectory("file_watcher_bench");
+            final Path file = dir.resolve("bench.db");
+            try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + file, readers, wal)) {
+                run(pool, seconds, readers);
+            } finally {
+                for (String suffix : new String[] {"", "-wal", "-shm", "-journal"}) {
+                    Files.deleteIfExists(dir.resolve("bench.db" + suffix));
+                }
+                Files.deleteIfExists(dir);
+            }
+        }
+    }
+
+    /**
+     * Writes on one thread and searches on the others for the given time.
+     *
+     * @param thePool the connections.
+     * @param theSeconds how long to run.
+     * @param theReaders the number of searching threads.
+     * @throws Exception if the database cannot be used.
+     */
+    private static void run(final ConnectionPool thePool, final int theSeconds,
+                            final int theReaders) throws Exception {
+        try (Statement statement = thePool.getWriter().createStatement()) {
+            statement.execute("CREATE TABLE events (Id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + " Filename TEXT, Event TEXT, Timestamp TEXT, Extension TEXT, Directory TEXT)");
+        }
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong queries = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            try {
+                write(thePool.getWriter(), running, rows);
+            } catch (SQLException e) {
+                System.out.println("Error caught in DataBaseBenchmark writer: " + e);
+            }
+        }, "bench-writer"));
+        for (int i = 0; i < theReaders; i++) {
+            threads.add(new Thread(() -> search(thePool, running, queries, failures), "bench-reader-" + i));
+        }
+
+        final long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(theSeconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-8s %,12.0f rows/s %,10.0f queries/s %,8d failed queries%n",
+                thePool.isWal() ? "WAL" : "rollback", rows.get() / elapsed, queries.get() / elapsed,
+                failures.get());
+    }
+
+    /**
+     * Inserts rows in batched transactions until stopped.
+     *
+     * @param theWriter the writer connection.
+     * @param theRunning cleared to stop.
+     * @param theRows counts the rows committed.
+     * @throws SQLException if an insert fails.
+     */
+    private static void write(final Connection theWriter, final AtomicBoolean theRunning,
+                              final AtomicLong theRows) throws SQLException {
+        theWriter.setAutoCommit(false);
+        try (PreparedStatement insert = theWriter.prepareStatement("INSERT INTO events(Filename, Event, "
+                + "Timestamp, Extension, Directory) VALUES(?, ?, ?, ?, ?)")) {
+            long n = 0;
+            while (theRunning.get()) {
+                for (int i = 0; i < BATCH; i++, n++) {
+                    insert.setString(1, "file" + n + ".txt");
+                    insert.setString(2, "ENTRY_MODIFY");
+                    insert.setString(3, "2026-10-17T12:00:00Z");
+                    insert.setString(4, n % 3 == 0 ? ".log" : ".txt");
+                    insert.setString(5, "/watched/dir" + n % 100 + "/file" + n + ".txt");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                theWriter.commit();
+                theRows.addAndGet(BATCH);
+            }
+        } finally {
+            theWriter.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Runs the kind of queries the query view does until stopped.
+     *
+     * @param thePool the connections.
+     * @param theRunning cleared to stop.
+     * @param theQueries counts the queries answered.
+     * @param theFailures counts the queries that failed, e.g. on a busy database.
+     */
+    private static void search(final ConnectionPool thePool, final AtomicBoolean theRunning,
+                               final AtomicLong theQueries, final AtomicLong theFailures) {
+        while (theRunning.get()) {
+            try {
+                thePool.read(conn -> {
+                    try (Statement statement = conn.createStatement();
+                         ResultSet latest = statement.executeQuery(
+                                 "SELECT * FROM events WHERE Extension = '.log' ORDER BY Id DESC LIMIT 100")) {
+                        while (latest.next()) {
+                            latest.getString("Filename");
+                        }
+                    }
+                    return null;
+                });
+                theQueries.incrementAndGet();
+            } catch (SQLException e) {
+                theFailures.incrementAndGet();
+            }
+        }
+    }
+}
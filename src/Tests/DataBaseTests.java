@@ -6,14 +6,30 @@ package Tests;
 
 import Model.DataBase;
 import Model.Event;
+import Model.EventCursor;
+import Model.EventKind;
+import Model.EventQuery;
 import Model.Monitor;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,6 +99,26 @@ class DataBaseTests {
         assertFalse(DATABASE.getQuery().isEmpty(), "Query results should be greater than 0.");
     }
 
+    /**
+     * Tests loading search results a page at a time.
+     */
+    @Test
+    void testSearchPages() {
+        EventQuery query = new EventQuery().extension(".txt");
+        DATABASE.searchPages(query);
+        int first = DATABASE.getQuery().size();
+        assertTrue(first > 0 && first <= EventCursor.DEFAULT_PAGE_SIZE, "Should load one page at most");
+
+        while (DATABASE.loadMore()) {
+            assertTrue(DATABASE.getQuery().size() > first, "Should append the next page");
+            first = DATABASE.getQuery().size();
+        }
+        int paged = DATABASE.getQuery().size();
+
+        DATABASE.search(query);
+        assertEquals(DATABASE.getQuery().size(), paged, "Should page through every result");
+    }
+
     /**
      * Tests exporting events.
      */
@@ -101,4 +137,108 @@ class DataBaseTests {
         }
     }
 
+    /**
+     * Tests streaming a gzipped export of a query.
+     *
+     * @throws IOException if the report cannot be read.
+     */
+    @Test
+    void testExportQuery() throws IOException {
+        Path report = Files.createTempFile("export_test", ".csv.gz");
+        try {
+            AtomicLong progress = new AtomicLong();
+            long rows = DATABASE.export(new EventQuery(), report, true, progress::set).join();
+
+            assertTrue(rows > 0, "Should export the stored events");
+            assertEquals(rows, progress.get(), "Should report the final row count");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(report)), StandardCharsets.UTF_8))) {
+                assertEquals(rows + 2, reader.lines().count(), "Should write a title, columns and every row");
+            }
+            assertFalse(Files.exists(report.resolveSibling(report.getFileName() + ".part")),
+                    "Should not leave the partial file");
+        } finally {
+            Files.deleteIfExists(report);
+        }
+    }
+
+    /**
+     * Tests that events cannot be set to expire before they are archived.
+     */
+    @Test
+    void testRetention() {
+        assertThrows(IllegalArgumentException.class, () -> DATABASE.setRetention(null, Duration.ofDays(30)));
+        assertThrows(IllegalArgumentException.class,
+                () -> DATABASE.setRetention(Duration.ofDays(31), Duration.ofDays(30)));
+        assertThrows(IllegalArgumentException.class, () -> DATABASE.setRetention(Duration.ofDays(-1), null));
+        DATABASE.setRetention(null, null);
+    }
+
+    /**
+     * Creates events in a directory of their own.
+     *
+     * @param theDirectory the directory.
+     * @param theCount the number of events.
+     * @param theFailing the index of an event named fail.txt, or -1 for none.
+     * @return the events.
+     */
+    private static List<Event> batch(final String theDirectory, final int theCount, final int theFailing) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < theCount; i++) {
+            events.add(new Event(EventKind.CREATE, theDirectory, i == theFailing ? "fail.txt" : "file" + i + ".txt",
+                    ".txt", 1_792_238_400_000_000_000L + i, 0, null));
+        }
+        return events;
+    }
+
+    /**
+     * Returns the number of stored events in a directory.
+     *
+     * @param theDirectory the directory.
+     * @return the number of events found.
+     */
+    private static int stored(final String theDirectory) {
+        DATABASE.search(new EventQuery().directory(theDirectory));
+        return DATABASE.getQuery().size();
+    }
+
+    /**
+     * Tests that events are committed a batch at a time, that a failing batch
+     * is rolled back while the batches before it stay stored, and that the
+     * write counters count only committed rows.
+     *
+     * @throws SQLException if the test trigger cannot be changed.
+     */
+    @Test
+    void testBatchedWrites() throws SQLException {
+        String directory = "/batched-" + System.nanoTime();
+        DATABASE.setBatchSize(3);
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:file_watcher.db");
+             Statement statement = conn.createStatement()) {
+            long before = DATABASE.getRowsWritten();
+            assertTrue(DATABASE.writeEvents(batch(directory + "/all", 7, -1)), "Should write every batch");
+            assertEquals(7, stored(directory + "/all"), "Should store the full batches and the rest");
+            assertEquals(before + 7, DATABASE.getRowsWritten(), "Should count every row");
+            assertTrue(DATABASE.getRowsPerSecond() > 0, "Should measure the throughput");
+
+            statement.execute("CREATE TRIGGER fail_batch BEFORE INSERT ON event_log "
+                    + "WHEN NEW.filename = 'fail.txt' BEGIN SELECT RAISE(ABORT, 'failed'); END");
+            try {
+                before = DATABASE.getRowsWritten();
+                assertFalse(DATABASE.writeEvents(batch(directory + "/failing", 8, 4)),
+                        "Should report the failed batch");
+                assertEquals(3, stored(directory + "/failing"),
+                        "Should keep the first batch and roll back the second");
+                assertEquals(before + 3, DATABASE.getRowsWritten(), "Should count only committed rows");
+            } finally {
+                statement.execute("DROP TRIGGER fail_batch");
+                // later tests read the newest event, which must not be one of these
+                statement.execute("DELETE FROM event_log WHERE directory_id IN "
+                        + "(SELECT id FROM directories WHERE path LIKE '" + directory + "/%')");
+            }
+        } finally {
+            DATABASE.setBatchSize(DataBase.DEFAULT_BATCH_SIZE);
+        }
+    }
+
 }
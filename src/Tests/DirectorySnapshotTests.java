@@ -0,0 +1,113 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.DirectorySnapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DirectorySnapshot class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class DirectorySnapshotTests {
+
+    /**
+     * Temporary directory to take snapshots of.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Collects the differences between two snapshots by file name.
+     *
+     * @param theOlder the older snapshot.
+     * @param theNewer the newer snapshot.
+     * @return the kind name of every difference, by file name.
+     */
+    private static Map<String, String> diff(final DirectorySnapshot theOlder,
+                                            final DirectorySnapshot theNewer) {
+        Map<String, String> changes = new HashMap<>();
+        theOlder.diff(theNewer, (kind, name) -> changes.put(name, kind.name()));
+        return changes;
+    }
+
+    /**
+     * Tests scanning a directory.
+     */
+    @Test
+    void testScan() throws IOException {
+        Files.writeString(myDir.resolve("a.txt"), "hello");
+        Files.createDirectory(myDir.resolve("sub"));
+
+        DirectorySnapshot snapshot = DirectorySnapshot.scan(myDir);
+        assertEquals(2, snapshot.size());
+        assertEquals(5, snapshot.get("a.txt").getSize());
+        assertTrue(snapshot.get("sub").isDirectory());
+    }
+
+    /**
+     * Tests finding created, modified and deleted files.
+     */
+    @Test
+    void testDiff() throws IOException {
+        Path kept = Files.writeString(myDir.resolve("kept.txt"), "same");
+        Path changed = Files.writeString(myDir.resolve("changed.txt"), "before");
+        Path deleted = Files.writeString(myDir.resolve("deleted.txt"), "gone");
+        DirectorySnapshot older = DirectorySnapshot.scan(myDir);
+
+        Files.writeString(changed, "after, and longer");
+        Files.delete(deleted);
+        Files.writeString(myDir.resolve("created.txt"), "new");
+        Map<String, String> changes = diff(older, DirectorySnapshot.scan(myDir));
+
+        assertEquals(3, changes.size(), "Should find three changes.");
+        assertEquals("ENTRY_CREATE", changes.get("created.txt"));
+        assertEquals("ENTRY_MODIFY", changes.get("changed.txt"));
+        assertEquals("ENTRY_DELETE", changes.get("deleted.txt"));
+        assertNull(changes.get(kept.getFileName().toString()));
+    }
+
+    /**
+     * Tests that a directory whose contents changed is not reported as modified.
+     */
+    @Test
+    void testDirectoryTimeIgnored() throws IOException {
+        Path sub = Files.createDirectory(myDir.resolve("sub"));
+        DirectorySnapshot older = DirectorySnapshot.scan(myDir);
+
+        Files.setLastModifiedTime(sub, FileTime.fromMillis(0));
+        assertTrue(diff(older, DirectorySnapshot.scan(myDir)).isEmpty());
+    }
+
+    /**
+     * Tests refreshing a single entry.
+     */
+    @Test
+    void testRefresh() throws IOException {
+        Path file = Files.writeString(myDir.resolve("a.txt"), "a");
+        DirectorySnapshot snapshot = DirectorySnapshot.scan(myDir);
+
+        Files.writeString(file, "abc");
+        snapshot.refresh(myDir, "a.txt");
+        assertEquals(3, snapshot.get("a.txt").getSize());
+
+        Files.delete(file);
+        snapshot.refresh(myDir, "a.txt");
+        assertNull(snapshot.get("a.txt"), "Deleted entry should be removed.");
+    }
+}
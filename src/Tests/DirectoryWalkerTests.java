@@ -0,0 +1,121 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.DirectoryWalker;
+import Model.EventFilter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DirectoryWalker class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class DirectoryWalkerTests {
+
+    /**
+     * Temporary directory holding the tree to walk.
+     */
+    @TempDir
+    Path myRoot;
+
+    /**
+     * Creates a tree of 1 + 4 + 16 directories with one file in each.
+     *
+     * @throws IOException if the tree cannot be created.
+     */
+    private void createTree() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                Path dir = Files.createDirectories(myRoot.resolve("a" + i).resolve("b" + j));
+                Files.createFile(dir.resolve("file.txt"));
+            }
+        }
+    }
+
+    /**
+     * Tests that every directory is registered exactly once.
+     */
+    @Test
+    void testWalkRegistersAllDirectories() throws IOException {
+        createTree();
+        Set<Path> registered = ConcurrentHashMap.newKeySet();
+
+        DirectoryWalker.WalkSummary summary =
+                new DirectoryWalker(myRoot, dir -> assertTrue(registered.add(dir))).walk();
+
+        assertEquals(21, summary.getDirectories(), "Should register 21 directories.");
+        assertEquals(21, registered.size());
+        assertEquals(0, summary.getFailures());
+        assertFalse(summary.isCancelled());
+    }
+
+    /**
+     * Tests that pruned directories are skipped with their whole subtree.
+     */
+    @Test
+    void testPrune() throws IOException {
+        createTree();
+        Files.createDirectories(myRoot.resolve("node_modules").resolve("lib").resolve("dist"));
+        Files.createDirectories(myRoot.resolve("a1").resolve(".git").resolve("objects"));
+        Set<Path> registered = ConcurrentHashMap.newKeySet();
+
+        DirectoryWalker walker = new DirectoryWalker(myRoot, registered::add);
+        EventFilter prune = EventFilter.builder().excludeGlob("node_modules").excludeGlob(".git").build();
+        walker.setPruneFilter(prune);
+        DirectoryWalker.WalkSummary summary = walker.walk();
+
+        assertEquals(21, summary.getDirectories(), "Pruned directories should not be registered.");
+        assertEquals(2, summary.getPruned(), "Should prune two subtrees.");
+        assertFalse(registered.contains(myRoot.resolve("node_modules")));
+        assertEquals(1, prune.getRules().get(0).getHits());
+        assertEquals(1, prune.getRules().get(1).getHits());
+    }
+
+    /**
+     * Tests walking in the background.
+     */
+    @Test
+    void testStart() throws IOException, InterruptedException, ExecutionException {
+        createTree();
+        DirectoryWalker walker = new DirectoryWalker(myRoot, dir -> {});
+        assertEquals(21, walker.start().get().getDirectories());
+    }
+
+    /**
+     * Tests that a cancelled walk stops early.
+     */
+    @Test
+    void testCancel() throws IOException {
+        createTree();
+        DirectoryWalker walker = new DirectoryWalker(myRoot, dir -> {});
+        walker.cancel();
+
+        DirectoryWalker.WalkSummary summary = walker.walk();
+        assertTrue(summary.isCancelled());
+        assertEquals(1, summary.getDirectories(), "Only the root should be registered.");
+    }
+
+    /**
+     * Tests walking a path that does not exist.
+     */
+    @Test
+    void testInvalidRoot() {
+        assertThrows(IOException.class,
+                () -> new DirectoryWalker(myRoot.resolve("missing"), dir -> {}).walk());
+    }
+}
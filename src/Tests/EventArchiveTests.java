@@ -0,0 +1,240 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.ArchiveSegment;
+import Model.Event;
+import Model.EventArchive;
+import Model.EventKind;
+import Model.EventQuery;
+import Model.EventSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventArchive class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventArchiveTests {
+
+    /**
+     * Time of the first event, 2026-10-17T12:00:00Z in nanoseconds.
+     */
+    private static final long START = 1_792_238_400_000_000_000L;
+
+    /**
+     * Temporary directory holding the archive.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Writes a segment of events a second apart, the id of each its second.
+     *
+     * @param theName the file name.
+     * @param theFirst the second of the first event.
+     * @param theCount the number of events.
+     * @param theExtension the extension of the files.
+     */
+    private void segment(final String theName, final long theFirst, final int theCount,
+                         final String theExtension) throws IOException {
+        List<Event> events = new ArrayList<>();
+        long[] ids = new long[theCount];
+        for (int i = 0; i < theCount; i++) {
+            long second = theFirst + i * 2;
+            events.add(new Event(EventKind.CREATE, "/watched", "file" + second + theExtension, theExtension,
+                    START + second * 1_000_000_000L, second, null));
+            ids[i] = second;
+        }
+        ArchiveSegment.write(myDir.resolve(theName), events, ids);
+    }
+
+    /**
+     * Tests that pages continue after their key across overlapping segments.
+     */
+    @Test
+    void testRead() throws IOException {
+        // even seconds in one segment, odd in the other
+        segment("segment-00000000.fwa", 0, 50, ".txt");
+        segment("segment-00000001.fwa", 1, 50, ".txt");
+        EventArchive archive = new EventArchive(myDir, List.of("segment-00000000.fwa", "segment-00000001.fwa"));
+        assertEquals(100, archive.getEventCount(), "Should hold both segments");
+
+        List<Long> all = new ArrayList<>();
+        long[] key = {Long.MIN_VALUE, Long.MIN_VALUE};
+        List<Event> page = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        while (archive.read(new EventQuery(), key[0], key[1], 30, page, ids) > 0) {
+            assertTrue(page.size() <= 30, "Should read at most a page");
+            key[0] = page.getLast().getTime();
+            key[1] = ids.getLast();
+            all.addAll(ids);
+            page.clear();
+            ids.clear();
+        }
+        assertEquals(100, all.size(), "Should read every event once");
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, all.get(i).longValue(), "Should read in time order");
+        }
+    }
+
+    /**
+     * Tests that only matching events are read.
+     */
+    @Test
+    void testQuery() throws IOException {
+        segment("segment-00000000.fwa", 0, 10, ".txt");
+        segment("segment-00000001.fwa", 1, 10, ".log");
+        EventArchive archive = new EventArchive(myDir, List.of("segment-00000000.fwa", "segment-00000001.fwa"));
+        List<Event> found = new ArrayList<>();
+        archive.read(new EventQuery().extension(".log"), Long.MIN_VALUE, Long.MIN_VALUE, 100, found, null);
+        assertEquals(10, found.size(), "Should find the .log events");
+        assertTrue(found.stream().allMatch(e -> e.getExtension().equals(".log")), "Should find only those");
+    }
+
+    /**
+     * Tests that segments not listed are deleted on opening.
+     */
+    @Test
+    void testUnlisted() throws IOException {
+        segment("segment-00000000.fwa", 0, 10, ".txt");
+        segment("segment-00000001.fwa", 1, 10, ".txt");
+        Files.writeString(myDir.resolve("segment-00000002.fwa.part"), "half");
+        EventArchive archive = new EventArchive(myDir, List.of("segment-00000000.fwa"));
+        assertEquals(1, archive.getSegments().size(), "Should open only the listed segment");
+        assertFalse(Files.exists(myDir.resolve("segment-00000001.fwa")), "Should delete the unlisted segment");
+        assertFalse(Files.exists(myDir.resolve("segment-00000002.fwa.part")), "Should delete the partial one");
+    }
+
+    /**
+     * Opens a database in the temporary directory with events a second apart,
+     * the first half on the day of {@link #START}, the rest on the next day.
+     *
+     * @param theCount the number of events.
+     * @return the writer connection.
+     * @throws SQLException if the database fails.
+     */
+    private Connection database(final int theCount) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + myDir.resolve("test.db"));
+        EventSchema schema = new EventSchema(conn);
+        schema.open();
+        try (PreparedStatement insert = conn.prepareStatement(EventSchema.INSERT)) {
+            for (int i = 0; i < theCount; i++) {
+                long time = i < theCount / 2 ? START + i * 1_000_000_000L
+                        : START + EventArchive.PARTITION_NANOS + i * 1_000_000_000L;
+                schema.bind(insert, new Event(EventKind.CREATE, "/watched", "file" + i + ".txt", ".txt",
+                        time, 1, null));
+                insert.executeUpdate();
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * Returns the single number a query selects.
+     *
+     * @param theConn the connection.
+     * @param theSql the query.
+     * @return the number.
+     * @throws SQLException if the query fails.
+     */
+    private static long number(final Connection theConn, final String theSql) throws SQLException {
+        try (Statement statement = theConn.createStatement(); ResultSet rs = statement.executeQuery(theSql)) {
+            assertTrue(rs.next(), "Should select a row: " + theSql);
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Tests that a move lists its segment and deletes its events, a day at a time.
+     */
+    @Test
+    void testMoveBatch() throws IOException, SQLException {
+        Path archived = Files.createDirectory(myDir.resolve("archive"));
+        try (Connection conn = database(20)) {
+            EventArchive archive = new EventArchive(archived, List.of());
+            long cutoff = START + 3 * EventArchive.PARTITION_NANOS;
+            assertEquals(10, archive.moveBatch(conn, cutoff, 100), "Should move the first day only");
+            assertEquals(10, number(conn, "SELECT COUNT(*) FROM event_log"), "Should delete the moved events");
+            assertEquals(11, number(conn, "SELECT MIN(id) FROM event_log"), "Should keep the second day");
+            assertEquals(1, number(conn, "SELECT COUNT(*) FROM archive_segments"), "Should list the segment");
+            assertEquals(10, number(conn, "SELECT events FROM archive_segments"), "Should list its size");
+
+            List<Event> events = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            archive.read(new EventQuery(), Long.MIN_VALUE, Long.MIN_VALUE, 100, events, ids);
+            assertEquals(10, events.size(), "Should read the moved events back");
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i + 1, ids.get(i).longValue(), "Should keep the ids");
+                assertEquals("file" + i + ".txt", events.get(i).getFilename(), "Should keep the events");
+            }
+
+            assertEquals(10, archive.moveBatch(conn, cutoff, 100), "Should move the second day");
+            assertEquals(0, archive.moveBatch(conn, cutoff, 100), "Should have nothing left to move");
+            assertEquals(2, new EventArchive(archived, List.of("segment-00000000.fwa", "segment-00000001.fwa"))
+                    .getSegments().size(), "Should reopen both segments");
+        }
+    }
+
+    /**
+     * Tests that a move whose events cannot be deleted lists nothing and leaves no segment.
+     */
+    @Test
+    void testMoveBatchRollback() throws IOException, SQLException {
+        Path archived = Files.createDirectory(myDir.resolve("archive"));
+        try (Connection conn = database(20)) {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("CREATE TRIGGER keep BEFORE DELETE ON event_log BEGIN "
+                        + "SELECT RAISE(ABORT, 'kept'); END");
+            }
+            EventArchive archive = new EventArchive(archived, List.of());
+            assertThrows(SQLException.class, () -> archive.moveBatch(conn, Long.MAX_VALUE, 100));
+            assertEquals(0, number(conn, "SELECT COUNT(*) FROM archive_segments"), "Should roll the listing back");
+            assertEquals(20, number(conn, "SELECT COUNT(*) FROM event_log"), "Should keep every event");
+            assertEquals(0, archive.getSegments().size(), "Should not search the segment");
+            try (Stream<Path> files = Files.list(archived)) {
+                assertEquals(0, files.count(), "Should delete the segment file");
+            }
+        }
+    }
+
+    /**
+     * Tests that whole days are dropped and unlisted.
+     */
+    @Test
+    void testDropBefore() throws IOException, SQLException {
+        Path archived = Files.createDirectory(myDir.resolve("archive"));
+        try (Connection conn = database(20)) {
+            EventArchive archive = new EventArchive(archived, List.of());
+            while (archive.moveBatch(conn, Long.MAX_VALUE, 100) > 0) {
+                // one segment per day
+            }
+            assertEquals(0, archive.dropBefore(conn, START + 3_600_000_000_000L),
+                    "Should keep a day not over yet");
+            assertEquals(10, archive.dropBefore(conn, START + EventArchive.PARTITION_NANOS),
+                    "Should drop the first day");
+            assertEquals(1, number(conn, "SELECT COUNT(*) FROM archive_segments"), "Should unlist its segment");
+            assertFalse(Files.exists(archived.resolve("segment-00000000.fwa")), "Should delete its file");
+            assertEquals(10, archive.getEventCount(), "Should keep the second day");
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventCoalescer;
+import Model.EventKind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventCoalescer class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventCoalescerTests {
+
+    /**
+     * Quiet window used by the tests, in nanoseconds.
+     */
+    private static final long WINDOW = 100;
+
+    /**
+     * Creates a test event.
+     *
+     * @param theKind the event kind.
+     * @param theTime the timestamp.
+     * @return a new event on the same test path.
+     */
+    private static Event event(final String theKind, final String theTime) {
+        return new Event("log.txt", theKind, theTime, ".txt", "C:\\logs\\log.txt");
+    }
+
+    /**
+     * Tests that a run of modifications collapses into one event.
+     */
+    @Test
+    void testModifyStorm() {
+        EventCoalescer coalescer = new EventCoalescer(WINDOW);
+        List<Event> out = new ArrayList<>();
+
+        coalescer.add(event("ENTRY_MODIFY", "t1"), 0, out);
+        coalescer.add(event("ENTRY_MODIFY", "t2"), 50, out);
+        coalescer.add(event("ENTRY_MODIFY", "t3"), 120, out);
+        coalescer.flushExpired(200, out);
+        assertTrue(out.isEmpty(), "Path is not quiet yet.");
+
+        coalescer.flushExpired(220, out);
+        assertEquals(1, out.size());
+        Event merged = out.getFirst();
+        assertEquals("t1", merged.getTimestamp());
+        assertEquals("t3", merged.getLastSeen());
+        assertEquals(3, merged.getCount());
+        assertEquals(2, coalescer.getMergedCount());
+    }
+
+    /**
+     * Tests that CREATE followed by MODIFY stays a single CREATE.
+     */
+    @Test
+    void testCreateThenModify() {
+        EventCoalescer coalescer = new EventCoalescer(WINDOW);
+        List<Event> out = new ArrayList<>();
+
+        coalescer.add(event("ENTRY_CREATE", "t1"), 0, out);
+        coalescer.add(event("ENTRY_MODIFY", "t2"), 10, out);
+        coalescer.flushAll(out);
+
+        assertEquals(1, out.size());
+        assertEquals("ENTRY_CREATE", out.getFirst().getEventType());
+        assertEquals(2, out.getFirst().getCount());
+    }
+
+    /**
+     * Tests that a different kind releases the pending event first.
+     */
+    @Test
+    void testDeleteReleasesPending() {
+        EventCoalescer coalescer = new EventCoalescer(WINDOW);
+        List<Event> out = new ArrayList<>();
+
+        coalescer.add(event("ENTRY_MODIFY", "t1"), 0, out);
+        coalescer.add(event("ENTRY_DELETE", "t2"), 10, out);
+        assertEquals(1, out.size());
+        assertEquals("ENTRY_MODIFY", out.getFirst().getEventType());
+
+        coalescer.flushAll(out);
+        assertEquals("ENTRY_DELETE", out.get(1).getEventType());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    /**
+     * Tests that two moves to the same path both keep their source.
+     */
+    @Test
+    void testMovesNotMerged() {
+        EventCoalescer coalescer = new EventCoalescer(WINDOW);
+        List<Event> out = new ArrayList<>();
+
+        coalescer.add(new Event(EventKind.MOVE, "C:\\logs", "log.txt", ".txt", 0, 1, "C:\\a\\log.txt"), 0, out);
+        coalescer.add(new Event(EventKind.MOVE, "C:\\logs", "log.txt", ".txt", 10, 2, "C:\\b\\log.txt"), 10, out);
+        coalescer.flushAll(out);
+
+        assertEquals(2, out.size(), "Should release both moves");
+        assertEquals("C:\\a\\log.txt", out.get(0).getPreviousPath());
+        assertEquals("C:\\b\\log.txt", out.get(1).getPreviousPath());
+        assertEquals(0, coalescer.getMergedCount());
+    }
+
+    /**
+     * Tests that a single event is passed through unchanged.
+     */
+    @Test
+    void testSingleEventUnchanged() {
+        EventCoalescer coalescer = new EventCoalescer(WINDOW);
+        List<Event> out = new ArrayList<>();
+        Event single = event("ENTRY_MODIFY", "t1");
+
+        coalescer.add(single, 0, out);
+        coalescer.flushExpired(WINDOW, out);
+        assertSame(single, out.getFirst());
+        assertEquals(1, single.getCount());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventCodec;
+import Model.EventKind;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventCodec class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventCodecTests {
+
+    /**
+     * Encodes the events into a fresh stream and rewinds it for reading.
+     *
+     * @param theBuffer the buffer to use.
+     * @param theEvents the events.
+     * @return the buffer, flipped.
+     */
+    private static ByteBuffer encode(final ByteBuffer theBuffer, final Event... theEvents) {
+        EventCodec.writeHeader(theBuffer);
+        for (Event event : theEvents) {
+            EventCodec.encode(event, theBuffer);
+        }
+        return theBuffer.flip();
+    }
+
+    /**
+     * Tests that events of every form read back equal to what was written.
+     */
+    @Test
+    void testRoundTrip() throws StreamCorruptedException {
+        String dir = File.separator + "tmp" + File.separator + "watched";
+        Event[] events = {
+                new Event("a.txt", "ENTRY_CREATE", "2026-10-17T12:00:00.123456789Z", ".txt",
+                        dir + File.separator + "a.txt", "2026-10-17T12:00:01Z", 3, 42),
+                new Event(EventKind.MOVE, dir, "b.log", ".log", 1_792_271_544_975_650_863L, 7,
+                        dir + File.separator + "old.log"),
+                new Event("test.txt", "Created", "2025-13-6", ".txt", "C:"),
+                new Event("x", "OVERFLOW", "2026-10-17T12:00:00Z", "", "D:\\x", "yesterday", 1, -1)
+        };
+        ByteBuffer buffer = encode(ByteBuffer.allocate(1024), events);
+
+        assertEquals(EventCodec.VERSION, EventCodec.readHeader(buffer));
+        for (Event event : events) {
+            Event read = EventCodec.decode(buffer);
+            assertEquals(event, read, "Should read back " + event);
+            assertEquals(event.getDirectory(), read.getDirectory());
+            assertEquals(event.getLastSeen(), read.getLastSeen());
+            assertEquals(event.getPreviousPath(), read.getPreviousPath());
+        }
+        assertNull(EventCodec.decode(buffer), "Should be at the end.");
+    }
+
+    /**
+     * Tests names the old string format could not hold, in a direct buffer.
+     */
+    @Test
+    void testAwkwardNames() throws StreamCorruptedException {
+        Event event = new Event("a, b \u00e9\u4e2d\ud83d\ude00.txt", "ENTRY_MODIFY",
+                "2026-10-17T12:00:00Z", ".txt", "/r\u00e9sum\u00e9s/a, b \u00e9\u4e2d\ud83d\ude00.txt");
+        ByteBuffer buffer = encode(ByteBuffer.allocateDirect(256), event);
+        assertEquals(EventCodec.HEADER_SIZE + EventCodec.sizeOf(event), buffer.remaining());
+
+        EventCodec.readHeader(buffer);
+        Event read = EventCodec.decode(buffer);
+        assertEquals("a, b \u00e9\u4e2d\ud83d\ude00.txt", read.getFilename());
+        assertEquals(event.getDirectory(), read.getDirectory());
+    }
+
+    /**
+     * Tests that a partial record is left for later and a full buffer is not written to.
+     */
+    @Test
+    void testPartial() throws StreamCorruptedException {
+        Event event = new Event("a.txt", "ENTRY_DELETE", "2026-10-17T12:00:00Z", ".txt", "/a.txt");
+        ByteBuffer full = encode(ByteBuffer.allocate(64), event);
+        full.position(EventCodec.HEADER_SIZE);
+
+        ByteBuffer partial = full.duplicate().limit(full.limit() - 1);
+        assertNull(EventCodec.decode(partial), "Should wait for the rest of the record.");
+        assertEquals(EventCodec.HEADER_SIZE, partial.position(), "Should not consume anything.");
+        assertEquals(event, EventCodec.decode(full));
+
+        ByteBuffer small = ByteBuffer.allocate(EventCodec.sizeOf(event) - 1);
+        assertThrows(BufferOverflowException.class, () -> EventCodec.encode(event, small));
+        assertEquals(0, small.position());
+    }
+
+    /**
+     * Tests that foreign and damaged data is rejected.
+     */
+    @Test
+    void testCorrupt() {
+        assertThrows(StreamCorruptedException.class,
+                () -> EventCodec.readHeader(ByteBuffer.wrap("a.txt, ENTRY".getBytes())));
+        ByteBuffer newer = ByteBuffer.allocate(8).putInt(EventCodec.MAGIC).put((byte) 9).flip();
+        assertThrows(StreamCorruptedException.class, () -> EventCodec.readHeader(newer));
+
+        ByteBuffer kind = ByteBuffer.wrap(new byte[] {3, 99, 0, 0});
+        assertThrows(StreamCorruptedException.class, () -> EventCodec.decode(kind));
+        ByteBuffer overrun = ByteBuffer.wrap(new byte[] {6, 0, 0, 0, 0, 2, 0, 50, 'a', 'b'});
+        assertThrows(StreamCorruptedException.class, () -> EventCodec.decode(overrun));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.EventFilter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventFilter class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventFilterTests {
+
+    /**
+     * Directory the tested changes happen in.
+     */
+    private static final Path DIR = Paths.get("/home/user/project/src");
+
+    /**
+     * Tests that an empty filter accepts everything.
+     */
+    @Test
+    void testAcceptAll() {
+        EventFilter filter = EventFilter.forExtension("None");
+        assertTrue(filter.accepts(DIR, "a.txt", 1));
+        assertTrue(filter.accepts(DIR, "noextension", -1));
+        assertTrue(filter.getRules().isEmpty());
+    }
+
+    /**
+     * Tests the extension filter used by the view.
+     */
+    @Test
+    void testExtension() {
+        EventFilter filter = EventFilter.forExtension(".txt");
+        assertTrue(filter.accepts(DIR, "a.txt", -1));
+        assertTrue(filter.accepts(DIR, "A.TXT", -1), "Extensions should ignore case.");
+        assertFalse(filter.accepts(DIR, "a.png", -1));
+        assertFalse(filter.accepts(DIR, "txt", -1));
+        assertFalse(filter.accepts(DIR, "a.txt.bak", -1));
+        assertEquals(2, filter.getRules().getFirst().getHits());
+        assertEquals(3, filter.getUnmatchedCount());
+    }
+
+    /**
+     * Tests that exclude rules win over include rules.
+     */
+    @Test
+    void testExcludeWins() {
+        EventFilter filter = EventFilter.builder()
+                .includeExtension("java")
+                .excludeGlob("**/build/**")
+                .excludeGlob("Generated*.java")
+                .build();
+        assertTrue(filter.accepts(DIR, "Main.java", -1));
+        assertFalse(filter.accepts(DIR.resolve("build").resolve("classes"), "Main.java", -1));
+        assertFalse(filter.accepts(DIR, "GeneratedParser.java", -1));
+        assertTrue(filter.accepts(DIR, "build.java", -1), "Only directories named build are excluded.");
+
+        assertEquals(2, filter.getRules().get(0).getHits());
+        assertEquals(1, filter.getRules().get(1).getHits());
+        assertEquals(1, filter.getRules().get(2).getHits());
+    }
+
+    /**
+     * Tests globs and regular expressions matched against the whole path.
+     */
+    @Test
+    void testPathPatterns() {
+        EventFilter filter = EventFilter.builder()
+                .includeGlob("/home/*/project/src/**/*.{md,txt}")
+                .includeRegex(".*/logs/[0-9]+\\.log")
+                .build();
+        assertTrue(filter.accepts(DIR, "readme.md", -1));
+        assertTrue(filter.accepts(DIR.resolve("a").resolve("b"), "notes.txt", -1));
+        assertFalse(filter.accepts(DIR, "readme.rst", -1));
+        assertTrue(filter.accepts(Paths.get("/var/logs"), "20251017.log", -1));
+        assertFalse(filter.accepts(Paths.get("/var/logs"), "today.log", -1));
+        assertEquals(2, filter.getRules().get(0).getHits());
+        assertEquals(1, filter.getRules().get(1).getHits());
+    }
+
+    /**
+     * Tests path prefixes.
+     */
+    @Test
+    void testPrefix() {
+        EventFilter filter = EventFilter.builder()
+                .excludePrefix("/home/user/project/src/cache/")
+                .build();
+        assertFalse(filter.accepts(DIR.resolve("cache"), "a.txt", -1));
+        assertFalse(filter.accepts(DIR, "cache", -1), "The prefix itself should match.");
+        assertTrue(filter.accepts(DIR.resolve("cached"), "a.txt", -1), "Siblings should not match.");
+        assertTrue(filter.accepts(DIR, "a.txt", -1));
+    }
+
+    /**
+     * Tests size limits, which do not apply when the size is unknown.
+     */
+    @Test
+    void testSize() {
+        EventFilter filter = EventFilter.builder().minSize(10).maxSize(100).build();
+        assertFalse(filter.accepts(DIR, "small", 5));
+        assertTrue(filter.accepts(DIR, "medium", 50));
+        assertFalse(filter.accepts(DIR, "large", 500));
+        assertTrue(filter.accepts(DIR, "deleted", -1));
+        assertEquals(1, filter.getRules().get(0).getHits());
+        assertEquals(1, filter.getRules().get(1).getHits());
+    }
+
+    /**
+     * Tests hundreds of rules of every kind together.
+     */
+    @Test
+    void testManyRules() {
+        EventFilter.Builder builder = EventFilter.builder();
+        for (int i = 0; i < 200; i++) {
+            builder.includeExtension("ext" + i);
+            builder.excludeGlob("**/skip" + i + "/**");
+            builder.includeRegex(".*/r" + i + "/.*");
+        }
+        EventFilter filter = builder.build();
+        assertEquals(600, filter.getRules().size());
+        assertTrue(filter.accepts(DIR, "a.ext199", -1));
+        assertFalse(filter.accepts(DIR.resolve("skip150"), "a.ext1", -1));
+        assertTrue(filter.accepts(DIR.resolve("r150"), "a.none", -1));
+        assertFalse(filter.accepts(DIR, "a.none", -1));
+        assertEquals(1, filter.getRules().get(3 * 150 + 2).getHits());
+
+        filter.resetHits();
+        assertEquals(0, filter.getRules().get(3 * 150 + 2).getHits());
+    }
+
+    /**
+     * Tests that an invalid rule is reported when the filter is built.
+     */
+    @Test
+    void testInvalidRegex() {
+        assertThrows(PatternSyntaxException.class,
+                () -> EventFilter.builder().includeRegex("[unclosed").build());
+    }
+}
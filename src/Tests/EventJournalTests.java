@@ -0,0 +1,140 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventJournal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventJournal class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventJournalTests {
+
+    /**
+     * Temporary directory holding the journal.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Creates events with numbered file names.
+     *
+     * @param theFirst the first number.
+     * @param theCount the number of events.
+     * @return the events.
+     */
+    private static List<Event> events(final int theFirst, final int theCount) {
+        List<Event> events = new ArrayList<>();
+        for (int i = theFirst; i < theFirst + theCount; i++) {
+            events.add(new Event("file" + i + ".txt", "ENTRY_CREATE", "2026-10-17T12:00:00Z",
+                    ".txt", "/watched/file" + i + ".txt", "2026-10-17T12:00:00Z", 1, i));
+        }
+        return events;
+    }
+
+    /**
+     * Tests that events are read back in order across several segments.
+     */
+    @Test
+    void testAppendAndRead() throws IOException {
+        try (EventJournal journal = new EventJournal(myDir, EventJournal.MIN_SEGMENT_SIZE)) {
+            List<Event> written = events(0, 500);
+            journal.append(written);
+            assertTrue(journal.getSegmentCount() > 1, "Should have rolled over to new segments.");
+
+            List<Event> read = new ArrayList<>();
+            long position = journal.read(journal.getCheckpoint(), 200, read);
+            assertEquals(200, read.size());
+            position = journal.read(position, 1000, read);
+            assertEquals(written, read, "Should read every event in order.");
+            assertEquals(journal.getEnd(), position);
+            assertEquals(position, journal.read(position, 10, read), "Nothing should be left.");
+        }
+    }
+
+    /**
+     * Tests that events not checkpointed are recovered after reopening, and
+     * that checkpointed segments are deleted.
+     */
+    @Test
+    void testRecovery() throws IOException {
+        long checkpoint;
+        try (EventJournal journal = new EventJournal(myDir, EventJournal.MIN_SEGMENT_SIZE)) {
+            journal.append(events(0, 300));
+            List<Event> read = new ArrayList<>();
+            checkpoint = journal.read(journal.getCheckpoint(), 250, read);
+            journal.checkpoint(checkpoint);
+            journal.append(events(300, 20));
+        }
+
+        try (EventJournal journal = new EventJournal(myDir, EventJournal.MIN_SEGMENT_SIZE)) {
+            assertEquals(checkpoint, journal.getCheckpoint());
+            List<Event> read = new ArrayList<>();
+            journal.read(journal.getCheckpoint(), 1000, read);
+            assertEquals(70, read.size(), "Should recover what was not checkpointed.");
+            assertEquals("file250.txt", read.getFirst().getFilename());
+            assertEquals("file319.txt", read.getLast().getFilename());
+
+            journal.checkpoint(journal.getEnd());
+            assertEquals(1, journal.getSegmentCount(), "Replayed segments should be deleted.");
+        }
+    }
+
+    /**
+     * Tests that appends are forced to disk in batches.
+     */
+    @Test
+    void testSyncPolicy() throws IOException {
+        try (EventJournal journal = new EventJournal(myDir)) {
+            journal.setSyncPolicy(10, Duration.ofHours(1));
+            journal.append(events(0, 9));
+            assertEquals(0, journal.getSyncCount(), "Should wait for ten events.");
+            journal.append(events(9, 1));
+            assertEquals(1, journal.getSyncCount());
+            journal.append(events(10, 1));
+            journal.syncIfDue();
+            assertEquals(1, journal.getSyncCount(), "The interval should not have passed.");
+            assertThrows(IllegalArgumentException.class,
+                    () -> journal.setSyncPolicy(0, Duration.ZERO));
+        }
+    }
+
+    /**
+     * Tests that appending waits while replaying is too far behind.
+     */
+    @Test
+    void testBacklogLimit() throws IOException {
+        try (EventJournal journal = new EventJournal(myDir)) {
+            journal.setBacklogLimit(100, Duration.ofMillis(50));
+            journal.append(events(0, 10));
+            assertTrue(journal.getBacklog() > 100);
+            assertEquals(0, journal.getStallCount());
+
+            long start = System.nanoTime();
+            journal.append(events(10, 1));
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos(), "Should stall.");
+            assertEquals(1, journal.getStallCount());
+
+            journal.checkpoint(journal.getEnd());
+            assertEquals(0, journal.getBacklog());
+            journal.append(events(11, 1));
+            assertEquals(1, journal.getStallCount(), "Should not stall once caught up.");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.EventKind;
+import Model.EventQuery;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventQuery class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventQueryTests {
+
+    /**
+     * Tests that a query without filters selects every event.
+     */
+    @Test
+    void testAll() {
+        assertEquals("SELECT * FROM events ORDER BY Id", new EventQuery().toSql(),
+                "Should select everything in insertion order");
+    }
+
+    /**
+     * Tests that queries with the same filters share their SQL, whatever the values.
+     */
+    @Test
+    void testSameShape() {
+        EventQuery first = new EventQuery().extension(".txt").eventType("ENTRY_CREATE");
+        EventQuery second = new EventQuery().kind(EventKind.DELETE).extension(".log");
+        assertEquals(first.toSql(), second.toSql(), "Should have the same SQL");
+        assertNotEquals(first.toSql(), new EventQuery().extension(".txt").toSql(),
+                "Should differ with different filters");
+        assertFalse(first.toSql().contains(".txt"), "Should not put values in the SQL");
+    }
+
+    /**
+     * Tests that values are bound in the order of their parameters.
+     *
+     * @throws SQLException never, the statement is recorded.
+     */
+    @Test
+    void testBind() throws SQLException {
+        EventQuery query = new EventQuery()
+                .eventType("ENTRY_MODIFY")
+                .extension("'.txt")
+                .directory("C:\\dir_1")
+                .from(Instant.ofEpochSecond(2))
+                .until(Instant.ofEpochSecond(3, 5));
+        List<Object> values = new ArrayList<>();
+        assertEquals(6, query.bind(record(values), 1), "Should set five parameters");
+        assertEquals(List.of("ENTRY_MODIFY", "'.txt", "C:\\\\dir\\_1%", 2_000_000_000L, 3_000_000_005L),
+                values, "Should bind the values, escaping LIKE wildcards");
+        assertEquals(5, query.toSql().chars().filter(c -> c == '?').count(), "Should have five parameters");
+    }
+
+    /**
+     * Tests matching a directory by text contained in its path.
+     *
+     * @throws SQLException never, the statement is recorded.
+     */
+    @Test
+    void testDirectoryContaining() throws SQLException {
+        List<Object> values = new ArrayList<>();
+        new EventQuery().directoryContaining("50%").bind(record(values), 1);
+        assertEquals(List.of("%50\\%%"), values, "Should match the text anywhere");
+    }
+
+    /**
+     * Tests that OTHER is rejected as a kind.
+     */
+    @Test
+    void testOtherKind() {
+        assertThrows(IllegalArgumentException.class, () -> new EventQuery().kind(EventKind.OTHER));
+    }
+
+    /**
+     * Returns a statement recording the values set on it.
+     *
+     * @param theValues receives the values in parameter order.
+     * @return the statement.
+     */
+    private static PreparedStatement record(final List<Object> theValues) {
+        return (PreparedStatement) Proxy.newProxyInstance(EventQueryTests.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set")) {
+                        assertEquals(theValues.size() + 1, args[0], "Should set parameters in order");
+                        theValues.add(args[1]);
+                    }
+                    return null;
+                });
+    }
+}
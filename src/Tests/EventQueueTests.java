@@ -0,0 +1,201 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventQueue;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventQueue class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventQueueTests {
+
+    /**
+     * Creates a test event with the given file name.
+     *
+     * @param theName the file name.
+     * @return a new event.
+     */
+    private static Event event(final String theName) {
+        return new Event(theName, "ENTRY_CREATE", "2025-06-13T00:00:00Z", ".txt", "C:\\" + theName);
+    }
+
+    /**
+     * Tests that events come out in the order they were offered.
+     */
+    @Test
+    void testFifoOrder() throws InterruptedException {
+        EventQueue queue = new EventQueue(4, EventQueue.OverflowPolicy.BLOCK);
+        queue.offer(event("a"));
+        queue.offer(event("b"));
+
+        assertEquals(2, queue.size(), "Size should be two.");
+        assertEquals("a", queue.take().getFilename());
+        assertEquals("b", queue.poll().getFilename());
+        assertNull(queue.poll(), "Queue should be empty.");
+    }
+
+    /**
+     * Tests that the queue does not keep a polled event from being collected.
+     */
+    @Test
+    void testPollReleasesEvent() throws InterruptedException {
+        EventQueue queue = new EventQueue(4, EventQueue.OverflowPolicy.BLOCK);
+        queue.offer(event("a"));
+        WeakReference<Event> polled = new WeakReference<>(queue.poll());
+        for (int i = 0; i < 50 && polled.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(polled.get(), "A polled event should not stay in its slot.");
+    }
+
+    /**
+     * Tests that the capacity is rounded up to a power of two.
+     */
+    @Test
+    void testCapacity() {
+        assertEquals(8, new EventQueue(5, EventQueue.OverflowPolicy.BLOCK).getCapacity());
+        assertThrows(IllegalArgumentException.class,
+                () -> new EventQueue(0, EventQueue.OverflowPolicy.BLOCK));
+    }
+
+    /**
+     * Tests the DROP_NEWEST overflow policy.
+     */
+    @Test
+    void testDropNewest() throws InterruptedException {
+        EventQueue queue = new EventQueue(2, EventQueue.OverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer(event("a")));
+        assertTrue(queue.offer(event("b")));
+        assertFalse(queue.offer(event("c")), "Full queue should reject the new event.");
+
+        assertEquals(1, queue.getDropCount());
+        assertEquals("a", queue.poll().getFilename());
+    }
+
+    /**
+     * Tests the DROP_OLDEST overflow policy.
+     */
+    @Test
+    void testDropOldest() throws InterruptedException {
+        EventQueue queue = new EventQueue(2, EventQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer(event("a"));
+        queue.offer(event("b"));
+        queue.offer(event("c"));
+
+        assertEquals(1, queue.getDropCount());
+        assertEquals("b", queue.poll().getFilename());
+        assertEquals("c", queue.poll().getFilename());
+    }
+
+    /**
+     * Tests that spilled events are read back after the ring, in order.
+     */
+    @Test
+    void testSpillToDisk() throws InterruptedException {
+        EventQueue queue = new EventQueue(2, EventQueue.OverflowPolicy.SPILL_TO_DISK);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(event("file" + i));
+        }
+        assertEquals(4, queue.getSpillCount(), "Four events should be spilled.");
+        assertEquals(6, queue.size());
+
+        List<Event> out = new ArrayList<>();
+        queue.drainTo(out, 10);
+        assertEquals(6, out.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals("file" + i, out.get(i).getFilename());
+        }
+        assertEquals(0, queue.getDropCount());
+        queue.close();
+    }
+
+    /**
+     * Tests that spilled events keep every field, even names with ", ".
+     */
+    @Test
+    void testSpillKeepsFields() throws InterruptedException {
+        EventQueue queue = new EventQueue(1, EventQueue.OverflowPolicy.SPILL_TO_DISK);
+        Event merged = new Event("a, b.txt", "ENTRY_MODIFY", "2026-10-17T12:00:00Z", ".txt",
+                "/tmp/a, b.txt", "2026-10-17T12:00:02Z", 5, 12, "/tmp/old.txt");
+        queue.offer(event("first"));
+        queue.offer(merged);
+        assertEquals(1, queue.getSpillCount());
+
+        List<Event> out = new ArrayList<>();
+        queue.drainTo(out, 10);
+        assertEquals(merged, out.get(1), "Should read back the whole event.");
+        assertEquals("/tmp/old.txt", out.get(1).getPreviousPath());
+        queue.close();
+    }
+
+    /**
+     * Tests that polling an empty queue times out.
+     */
+    @Test
+    void testPollTimeout() throws InterruptedException {
+        EventQueue queue = new EventQueue(2, EventQueue.OverflowPolicy.BLOCK);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tests one producer against several consumers under BLOCK: nothing lost, nothing duplicated.
+     */
+    @Test
+    void testConcurrentConsumers() throws InterruptedException {
+        final int total = 100_000;
+        EventQueue queue = new EventQueue(64, EventQueue.OverflowPolicy.BLOCK);
+        Event[] events = new Event[total];
+        for (int i = 0; i < total; i++) {
+            events[i] = event(Integer.toString(i));
+        }
+
+        boolean[] seen = new boolean[total];
+        int[] duplicates = new int[1];
+        Thread[] consumers = new Thread[3];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = new Thread(() -> {
+                try {
+                    Event e;
+                    while ((e = queue.poll(1, TimeUnit.SECONDS)) != null) {
+                        int index = Integer.parseInt(e.getFilename());
+                        synchronized (seen) {
+                            if (seen[index]) {
+                                duplicates[0]++;
+                            }
+                            seen[index] = true;
+                        }
+                    }
+                } catch (InterruptedException _) {}
+            });
+            consumers[c].start();
+        }
+
+        for (Event e : events) {
+            queue.offer(e);
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        assertEquals(0, duplicates[0], "No event should be consumed twice.");
+        for (boolean s : seen) {
+            assertTrue(s, "Every event should be consumed.");
+        }
+    }
+}
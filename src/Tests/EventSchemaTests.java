@@ -0,0 +1,328 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventKind;
+import Model.EventQuery;
+import Model.EventSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventSchema class, against a SQLite database in a temporary directory.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class EventSchemaTests {
+
+    /**
+     * Largest id of the version 1 rows.
+     */
+    private static final int LAST_OLD_ID = 30;
+
+    /**
+     * Temporary directory holding the database.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Opens a connection to the test database.
+     *
+     * @return the connection.
+     * @throws SQLException if it cannot be opened.
+     */
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + myDir.resolve("test.db"));
+    }
+
+    /**
+     * Returns the single number a query selects.
+     *
+     * @param theConn the connection.
+     * @param theSql the query.
+     * @return the number.
+     * @throws SQLException if the query fails.
+     */
+    private static long number(final Connection theConn, final String theSql) throws SQLException {
+        try (Statement statement = theConn.createStatement(); ResultSet rs = statement.executeQuery(theSql)) {
+            assertTrue(rs.next(), "Should select a row: " + theSql);
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Creates a version 1 table holding the even ids from 2 to {@link #LAST_OLD_ID},
+     * one of them with a timestamp that is not an ISO instant.
+     *
+     * @return the ids created, in order.
+     * @throws SQLException if the table cannot be made.
+     */
+    private List<Long> createVersion1() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection conn = open(); Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TABLE events (Id INTEGER PRIMARY KEY AUTOINCREMENT, Filename TEXT, "
+                    + "Event TEXT, Timestamp TEXT, Extension TEXT, Directory TEXT)");
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO events(Id, Filename, Event, Timestamp, Extension, Directory) "
+                            + "VALUES(?, ?, 'ENTRY_CREATE', ?, '.txt', ?)")) {
+                for (long id = 2; id <= LAST_OLD_ID; id += 2) {
+                    insert.setLong(1, id);
+                    insert.setString(2, "file" + id + ".txt");
+                    insert.setString(3, id == 4 ? "yesterday" : String.format("2026-10-17T12:00:%02dZ", id));
+                    insert.setString(4, "/watched/file" + id + ".txt");
+                    insert.executeUpdate();
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Tests that a version 1 table is migrated a batch at a time, across a
+     * reopen, keeping its ids, and that new events are numbered after it.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testMigration() throws SQLException {
+        List<Long> ids = createVersion1();
+
+        try (Connection conn = open()) {
+            EventSchema schema = new EventSchema(conn);
+            assertEquals(1, schema.open(), "Should find a version 1 database");
+            assertFalse(schema.isIncrementalVacuum(), "Should not rewrite an old database to vacuum it");
+            assertTrue(schema.isMigrating(), "Should start migrating");
+            assertEquals(1, number(conn, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'events_v1'"),
+                    "Should rename the old table");
+            assertEquals(LAST_OLD_ID, number(conn, "SELECT seq FROM sqlite_sequence WHERE name = 'event_log'"),
+                    "Should number new rows after the old ones");
+
+            assertEquals(5, schema.migrateBatch(5), "Should copy one batch");
+            assertEquals(5, number(conn, "SELECT COUNT(*) FROM event_log"), "Should store the batch");
+            assertEquals(ids.size(), number(conn, "SELECT COUNT(*) FROM events"),
+                    "Should show copied and old rows while migrating");
+        }
+
+        try (Connection conn = open()) {
+            EventSchema schema = new EventSchema(conn);
+            assertEquals(EventSchema.VERSION, schema.open(), "Should be at the new version");
+            assertTrue(schema.isMigrating(), "Should resume the migration");
+            assertEquals(ids.size(), number(conn, "SELECT COUNT(*) FROM events"), "Should still show every row");
+            while (schema.migrateBatch(5) > 0) {
+                assertEquals(ids.size(), number(conn, "SELECT COUNT(*) FROM events"),
+                        "Should show every row once between batches");
+            }
+            assertFalse(schema.isMigrating(), "Should finish");
+            assertEquals(0, number(conn, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'events_v1'"),
+                    "Should drop the old table");
+
+            List<Long> migrated = new ArrayList<>();
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT * FROM events ORDER BY Id")) {
+                while (rs.next()) {
+                    migrated.add(rs.getLong("Id"));
+                    Event event = EventSchema.read(rs);
+                    assertEquals("file" + rs.getLong("Id") + ".txt", event.getFilename(), "Should keep the row");
+                    assertEquals(EventKind.CREATE, event.getKind(), "Should type the kind");
+                }
+            }
+            assertEquals(ids, migrated, "Should keep the ids");
+            assertEquals(4, number(conn, "SELECT id FROM event_log WHERE raw_time = 'yesterday'"),
+                    "Should keep a timestamp that is not an instant as text");
+
+            try (PreparedStatement insert = conn.prepareStatement(EventSchema.INSERT)) {
+                schema.bind(insert, new Event(EventKind.MODIFY, "/watched", "new.txt", ".txt",
+                        1_792_238_400_000_000_000L, 1, null));
+                insert.executeUpdate();
+            }
+            assertTrue(number(conn, "SELECT MAX(Id) FROM events") > LAST_OLD_ID,
+                    "Should number new events after the old ones");
+        }
+    }
+
+    /**
+     * Tests that the view prints a time the way the event itself does, with
+     * as many fraction digits as needed, also before 1970.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testTimestamp() throws SQLException {
+        long[] times = {1_792_238_400_000_000_000L, 1_792_238_400_120_000_000L, 1_792_238_400_000_120_000L,
+            1_792_238_400_000_000_012L, -1_500_000_000L, -1_000_000_000L, -1L};
+        try (Connection conn = open()) {
+            EventSchema schema = new EventSchema(conn);
+            schema.open();
+            for (long time : times) {
+                Event event = new Event(EventKind.CREATE, "/watched", time + ".txt", ".txt", time, 1, null);
+                try (PreparedStatement insert = conn.prepareStatement(EventSchema.INSERT)) {
+                    schema.bind(insert, event);
+                    insert.executeUpdate();
+                }
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT Timestamp FROM events WHERE Filename = ?")) {
+                    select.setString(1, time + ".txt");
+                    try (ResultSet rs = select.executeQuery()) {
+                        assertTrue(rs.next(), "Should store the event");
+                        assertEquals(event.getTimestamp(), rs.getString(1), "Should print " + time + " the same");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a new database returns the pages it frees.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testIncrementalVacuum() throws SQLException {
+        try (Connection conn = open()) {
+            EventSchema schema = new EventSchema(conn);
+            assertEquals(0, schema.open(), "Should create the tables");
+            assertTrue(schema.isIncrementalVacuum(), "Should use incremental vacuum");
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("CREATE TABLE filler (data BLOB)");
+                statement.execute("INSERT INTO filler VALUES (zeroblob(1 << 20))");
+                statement.execute("DROP TABLE filler");
+            }
+            assertTrue(schema.getFreePages() > 0, "Should free the pages of the dropped table");
+            assertEquals(0, schema.incrementalVacuum(Integer.MAX_VALUE), "Should return every free page");
+        }
+    }
+
+    /**
+     * Returns the plan of a page statement of a query on a new database.
+     *
+     * @param theConn the connection, its schema open.
+     * @param theQuery the query.
+     * @param theTimed whether to plan the page of events with a time.
+     * @return the steps of the plan.
+     * @throws SQLException if the query cannot be planned.
+     */
+    private static List<String> plan(final Connection theConn, final EventQuery theQuery,
+                                     final boolean theTimed) throws SQLException {
+        try (PreparedStatement plan = theConn.prepareStatement("EXPLAIN QUERY PLAN "
+                + theQuery.toPageSql(theTimed))) {
+            int index = theQuery.bind(plan, 1);
+            if (theTimed) {
+                plan.setLong(index++, Long.MIN_VALUE);
+            }
+            plan.setLong(index++, Long.MIN_VALUE);
+            plan.setInt(index, 500);
+            return EventSchema.explain(plan);
+        }
+    }
+
+    /**
+     * Tests that a page without filters or with only dates is read in index
+     * order instead of sorting every event after it.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testPagePlan() throws SQLException {
+        try (Connection conn = open()) {
+            new EventSchema(conn).open();
+            Instant start = Instant.parse("2026-10-17T00:00:00Z");
+            for (EventQuery query : List.of(new EventQuery(),
+                    new EventQuery().from(start).until(start.plusSeconds(86_400)))) {
+                for (boolean timed : new boolean[] {true, false}) {
+                    List<String> plan = plan(conn, query, timed);
+                    assertTrue(plan.getFirst().startsWith("SEARCH e USING INDEX idx_event_log_time"),
+                            "Should read by the time index: " + plan);
+                    assertTrue(plan.stream().noneMatch(step -> step.contains("TEMP B-TREE")),
+                            "Should not sort: " + plan);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the managed indexes are created and those no longer managed dropped.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testIndexes() throws SQLException {
+        try (Connection conn = open()) {
+            new EventSchema(conn).open();
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("CREATE INDEX idx_event_log_filename ON event_log(filename)");
+            }
+            new EventSchema(conn).open();
+            List<String> indexes = new ArrayList<>();
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index' "
+                         + "AND name LIKE 'idx_event_log_%' ORDER BY name")) {
+                while (rs.next()) {
+                    indexes.add(rs.getString(1));
+                }
+            }
+            assertEquals(EventSchema.INDEXES.keySet().stream().sorted().toList(), indexes,
+                    "Should have exactly the managed indexes");
+        }
+    }
+
+    /**
+     * Tests that every combination of the query view's filters reads events
+     * through an index, without reading every event or sorting them.
+     *
+     * @throws SQLException if the database fails.
+     */
+    @Test
+    void testFilterPlans() throws SQLException {
+        Instant start = Instant.parse("2026-10-17T00:00:00Z");
+        try (Connection conn = open()) {
+            new EventSchema(conn).open();
+            // one bit per filter of the query view
+            for (int filters = 0; filters < 32; filters++) {
+                EventQuery query = new EventQuery();
+                if ((filters & 1) != 0) {
+                    query.eventType("ENTRY_MODIFY");
+                }
+                if ((filters & 2) != 0) {
+                    query.extension(".txt");
+                }
+                if ((filters & 4) != 0) {
+                    query.directoryContaining("watched");
+                }
+                if ((filters & 8) != 0) {
+                    query.from(start);
+                }
+                if ((filters & 16) != 0) {
+                    query.until(start.plusSeconds(86_400));
+                }
+                for (boolean timed : new boolean[] {true, false}) {
+                    List<String> plan = plan(conn, query, timed);
+                    assertTrue(plan.stream().anyMatch(step -> step.startsWith("SEARCH e USING INDEX")),
+                            "Should search event_log by index for " + query + ": " + plan);
+                    assertTrue(plan.stream().noneMatch(step -> step.trim().matches("SCAN e( .*)?")),
+                            "Should not read every event for " + query + ": " + plan);
+                    assertTrue(plan.stream().noneMatch(step -> step.contains("TEMP B-TREE")),
+                            "Should not sort for " + query + ": " + plan);
+                }
+            }
+        }
+    }
+}
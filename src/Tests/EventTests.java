@@ -5,9 +5,12 @@
 package Tests;
 
 import Model.Event;
+import Model.EventKind;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -82,4 +85,103 @@ class EventTests {
         Event test = new Event("test.txt", "Created", "2025-13-6", ".txt", "C:");
         assertEquals("2025-13-6", test.getTimestamp(), "Should be : 2025-13-6");
     }
+
+    /**
+     * Tests the defaults of a plain event.
+     */
+    @Test
+    void testDefaults() {
+        Event test = new Event("test.txt", "Created", "2025-13-6", ".txt", "C:");
+        assertEquals(1, test.getCount(), "Should be : 1");
+        assertEquals("2025-13-6", test.getLastSeen(), "Should be : 2025-13-6");
+        assertEquals(0, test.getSequence(), "Should be : 0");
+    }
+
+    /**
+     * Tests the constructor of a merged event.
+     */
+    @Test
+    void testMergedConstructor() {
+        Event test = new Event("test.txt", "Created", "t1", ".txt", "C:", "t2", 3, 42);
+        assertEquals("t2", test.getLastSeen(), "Should be : t2");
+        assertEquals(3, test.getCount(), "Should be : 3");
+        assertEquals(42, test.getSequence(), "Should be : 42");
+        assertThrows(IllegalArgumentException.class,
+                () -> new Event("test.txt", "Created", "t1", ".txt", "C:", "t2", 0, 1),
+                "Should throw an exception");
+    }
+    /**
+     * Tests that ISO timestamps and split paths come back exactly as given.
+     */
+    @Test
+    void testRoundTrip() {
+        Event test = new Event("a.txt", "ENTRY_CREATE", "2026-10-17T21:12:24.975650863Z", ".txt",
+                "/home/user/a.txt", "2026-10-17T21:12:25Z", 2, 7);
+        assertEquals("2026-10-17T21:12:24.975650863Z", test.getTimestamp());
+        assertEquals("2026-10-17T21:12:25Z", test.getLastSeen());
+        assertEquals("/home/user/a.txt", test.getDirectory());
+        assertEquals("/home/user", test.getParent());
+        assertEquals(EventKind.CREATE, test.getKind());
+        assertEquals(1_792_271_544_975_650_863L, test.getTime());
+    }
+
+    /**
+     * Tests an event created from the captured values.
+     */
+    @Test
+    void testCapturedConstructor() {
+        Event test = new Event(EventKind.MOVE, "C:", "test.txt", ".txt", 0, 5, "C:\\old.txt");
+        assertEquals("ENTRY_MOVE", test.getEventType());
+        assertEquals("1970-01-01T00:00:00Z", test.getTimestamp());
+        assertEquals("C:" + File.separator + "test.txt", test.getDirectory());
+        assertEquals("C:\\old.txt", test.getPreviousPath());
+        assertThrows(IllegalArgumentException.class,
+                () -> new Event(EventKind.OTHER, "C:", "test.txt", ".txt", 0, 5, null));
+    }
+
+    /**
+     * Tests that a file directly under a root gets no second separator.
+     */
+    @Test
+    void testCapturedUnderRoot() {
+        Event unix = new Event(EventKind.CREATE, "/", "test.txt", ".txt", 0, 1, null);
+        Event windows = new Event(EventKind.CREATE, "C:\\", "test.txt", ".txt", 0, 1, null);
+        assertEquals("/test.txt", unix.getDirectory());
+        assertEquals("C:\\test.txt", windows.getDirectory());
+        assertEquals(new Event("test.txt", "ENTRY_CREATE", "1970-01-01T00:00:00Z", ".txt", "C:\\test.txt",
+                "1970-01-01T00:00:00Z", 1, 1), windows, "Should equal the same event read back as text");
+    }
+
+    /**
+     * Tests equals, hashCode and the comparators.
+     */
+    @Test
+    void testEquality() {
+        Event first = new Event("test.txt", "Created", "2025-13-6", ".txt", "C:");
+        Event same = new Event("test.txt", "Created", "2025-13-6", ".txt", "C:");
+        Event later = new Event("test.txt", "ENTRY_CREATE", "2026-01-01T00:00:00Z", ".txt", "C:\\test.txt",
+                "2026-01-01T00:00:00Z", 1, 1);
+        assertEquals(first, same);
+        assertEquals(first.hashCode(), same.hashCode());
+        assertEquals(0, first.compareTo(same));
+        assertNotEquals(first, later);
+        assertTrue(first.compareTo(later) < 0, "Unknown times should come first.");
+        assertTrue(Event.BY_TIME.compare(later, first) > 0);
+        assertTrue(Event.BY_SEQUENCE.compare(first, later) < 0);
+    }
+
+    /**
+     * Tests merging and changing the kind.
+     */
+    @Test
+    void testMerge() {
+        Event first = new Event(EventKind.CREATE, "/tmp", "a.txt", ".txt", 10, 1, null);
+        Event last = new Event(EventKind.MODIFY, "/tmp", "a.txt", ".txt", 20, 2, null);
+        Event merged = first.merge(last, 2);
+        assertEquals(EventKind.CREATE, merged.getKind());
+        assertEquals(10, merged.getTime());
+        assertEquals(20, merged.getLastSeenTime());
+        assertEquals(2, merged.getCount());
+        assertEquals(EventKind.TOUCH, last.withKind(EventKind.TOUCH).getKind());
+    }
 }
@@ -0,0 +1,198 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.EventJournal;
+import Model.JournalReplayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JournalReplayer class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class JournalReplayerTests {
+
+    /**
+     * Temporary directory holding the journal.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Creates an event.
+     *
+     * @param theName the file name.
+     * @return the event.
+     */
+    private static Event event(final String theName) {
+        return new Event(theName, "ENTRY_MODIFY", "2026-10-17T12:00:00Z", ".txt", "/watched/" + theName);
+    }
+
+    /**
+     * Tests that a flush stores everything appended and checkpoints it.
+     */
+    @Test
+    void testFlush() throws IOException {
+        List<Event> stored = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, end) -> stored.addAll(events));
+            replayer.setGroupSize(2);
+            journal.append(List.of(event("a.txt"), event("b.txt"), event("c.txt")));
+
+            assertTrue(replayer.flush());
+            assertEquals(List.of(event("a.txt"), event("b.txt"), event("c.txt")), stored);
+            assertEquals(journal.getEnd(), journal.getCheckpoint(), "Should checkpoint the end.");
+            assertEquals(3, replayer.getReplayedCount());
+            assertEquals(2, replayer.getCommitCount(), "Should commit in groups of two.");
+        }
+    }
+
+    /**
+     * Tests that a batch the sink fails to store is replayed again.
+     */
+    @Test
+    void testFailedSink() throws IOException {
+        List<Event> stored = Collections.synchronizedList(new ArrayList<>());
+        boolean[] fail = {true};
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, end) -> !fail[0] && stored.addAll(events));
+            journal.append(List.of(event("a.txt")));
+            long checkpoint = journal.getCheckpoint();
+
+            assertFalse(replayer.flush());
+            assertEquals(checkpoint, journal.getCheckpoint(), "Should not checkpoint a failed batch.");
+            assertEquals(1, replayer.getFailureCount());
+
+            fail[0] = false;
+            assertTrue(replayer.flush());
+            assertEquals(List.of(event("a.txt")), stored);
+        }
+    }
+
+    /**
+     * Tests that the background thread recovers events left by a previous run.
+     */
+    @Test
+    void testRecoverOnStart() throws IOException, InterruptedException {
+        try (EventJournal journal = new EventJournal(myDir)) {
+            journal.append(List.of(event("a.txt"), event("b.txt")));
+        }
+
+        List<Event> stored = Collections.synchronizedList(new ArrayList<>());
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, end) -> stored.addAll(events));
+            replayer.setMaxLatency(Duration.ofMillis(10));
+            replayer.start();
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (stored.size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            replayer.stop();
+            assertEquals(List.of(event("a.txt"), event("b.txt")), stored, "Should recover both events.");
+        }
+    }
+
+    /**
+     * Tests that a group stored before a crash but not checkpointed is not
+     * stored again when the sink kept its end.
+     */
+    @Test
+    void testResumeFromStored() throws IOException {
+        long[] end = {-1};
+        try (EventJournal journal = new EventJournal(myDir)) {
+            journal.append(List.of(event("a.txt"), event("b.txt")));
+            end[0] = journal.read(journal.getCheckpoint(), Integer.MAX_VALUE, new ArrayList<>());
+        }
+
+        List<Event> stored = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, theEnd) -> {
+                end[0] = theEnd;
+                return stored.addAll(events);
+            }, end[0]);
+            assertEquals(end[0], journal.getCheckpoint(), "Should checkpoint the stored position.");
+            journal.append(List.of(event("c.txt")));
+
+            assertTrue(replayer.flush());
+            assertEquals(List.of(event("c.txt")), stored, "Should not store the first group again.");
+            assertEquals(replayer.getPosition(), end[0], "Should hand the sink the end of the group.");
+        }
+    }
+
+    /**
+     * Waits until the condition holds, for at most five seconds.
+     *
+     * @param theCondition the condition.
+     */
+    private static void await(final BooleanSupplier theCondition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!theCondition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Tests that a group is committed as soon as it is full, and not before.
+     */
+    @Test
+    void testGroupSize() throws IOException, InterruptedException {
+        List<Event> stored = Collections.synchronizedList(new ArrayList<>());
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, end) -> stored.addAll(events));
+            replayer.setGroupSize(3);
+            replayer.setMaxLatency(Duration.ofHours(1));
+            replayer.start();
+
+            journal.append(List.of(event("a.txt"), event("b.txt")));
+            Thread.sleep(100);
+            assertTrue(stored.isEmpty(), "Should wait for a full group.");
+            assertEquals(2, replayer.getPendingCount());
+
+            journal.append(List.of(event("c.txt")));
+            await(() -> stored.size() == 3);
+            replayer.stop();
+            assertEquals(3, stored.size(), "Should commit the full group.");
+            assertEquals(1, replayer.getCommitCount());
+            assertFalse(replayer.getMaxCommitLatency().isNegative());
+        }
+    }
+
+    /**
+     * Tests that a group that does not fill up is committed after the latency.
+     */
+    @Test
+    void testMaxLatency() throws IOException, InterruptedException {
+        List<Event> stored = Collections.synchronizedList(new ArrayList<>());
+        try (EventJournal journal = new EventJournal(myDir)) {
+            JournalReplayer replayer = new JournalReplayer(journal, (events, end) -> stored.addAll(events));
+            replayer.setMaxLatency(Duration.ofMillis(50));
+            replayer.start();
+
+            long start = System.nanoTime();
+            journal.append(List.of(event("a.txt")));
+            await(() -> stored.size() == 1);
+            long took = System.nanoTime() - start;
+            replayer.stop();
+            assertEquals(1, stored.size());
+            assertTrue(took >= Duration.ofMillis(40).toNanos(), "Should wait for more events first.");
+            assertEquals(0, journal.getBacklog(), "Nothing should be left behind.");
+        }
+    }
+}
@@ -5,7 +5,9 @@
 package Tests;
 
 import Model.Event;
+import Model.EventJournal;
 import Model.Monitor;
+import Model.SnapshotIndex;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -14,7 +16,9 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,4 +167,64 @@ class MonitorTests {
 
 
     }
+
+    /**
+     * Tests that events the journal cannot take are marked as not journaled,
+     * so the database writes them directly instead of losing them.
+     *
+     * @throws IOException if the journal cannot be made.
+     */
+    @Test
+    void testJournalFailure() throws IOException {
+        TEST_LIST.clear();
+        MONITOR.changeExtension("none");
+        Path directory = Files.createTempDirectory("journal_test");
+        EventJournal journal = new EventJournal(directory);
+        // a closed journal fails every append
+        journal.close();
+        MONITOR.setJournal(journal);
+
+        MONITOR.startMonitoring();
+        try {
+            Files.write(new File(TEST_PATH, "journal.txt").toPath(), "initial".getBytes());
+            Thread.sleep(WAIT_TIME);
+            Files.delete(new File(TEST_PATH, "journal.txt").toPath());
+            Thread.sleep(WAIT_TIME);
+        } catch (Exception _) {}
+        MONITOR.stopMonitoring();
+        MONITOR.setJournal(null);
+
+        assertFalse(TEST_LIST.isEmpty(), "Should still capture the events");
+        assertTrue(TEST_LIST.stream().allMatch(e -> e.getSequence() == 0),
+                "Should mark every event as not journaled");
+    }
+
+    /**
+     * Tests that adding a root again does not report its catch-up changes again.
+     *
+     * @throws IOException if the files cannot be made.
+     */
+    @Test
+    void testAddRootTwice() throws IOException {
+        TEST_LIST.clear();
+        MONITOR.changeExtension("none");
+        Path root = Files.createTempDirectory("catch_up_test");
+        Files.write(root.resolve("added.txt"), "added".getBytes());
+        // an index saved before the file was made
+        SnapshotIndex.save(root, Map.of(), SnapshotIndex.fileFor(root));
+        MONITOR.addFile(root.toString());
+        MONITOR.addFile(root.toString());
+
+        MONITOR.startMonitoring();
+        try {
+            Thread.sleep(WAIT_TIME);
+        } catch (InterruptedException _) {}
+        MONITOR.stopMonitoring();
+        long reported = TEST_LIST.stream().filter(e -> e.getFilename().equals("added.txt")).count();
+        Files.deleteIfExists(SnapshotIndex.fileFor(root));
+        Files.deleteIfExists(root.resolve("added.txt"));
+        Files.deleteIfExists(root);
+
+        assertEquals(1, reported, "Should report the new file once");
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.Event;
+import Model.MoveCorrelator;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MoveCorrelator class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class MoveCorrelatorTests {
+
+    /**
+     * Window used by the tests, in nanoseconds.
+     */
+    private static final long WINDOW = Duration.ofMillis(100).toNanos();
+
+    /**
+     * Path deleted in the tests.
+     */
+    private static final Path OLD = Paths.get("dir", "old.txt");
+
+    /**
+     * Event for the deletion of the old path.
+     */
+    private static final Event DELETE =
+            new Event("old.txt", "ENTRY_DELETE", "2026-10-17T00:00:00Z", ".txt", OLD.toString());
+
+    /**
+     * Tests that a creation with the same file key claims the deletion.
+     */
+    @Test
+    void testMove() {
+        MoveCorrelator moves = new MoveCorrelator(Duration.ofNanos(WINDOW));
+        moves.deleted("inode 7", OLD, false, DELETE, 0);
+        assertNull(moves.created("inode 8"), "Other files should not match.");
+
+        MoveCorrelator.Deletion from = moves.created("inode 7");
+        assertNotNull(from);
+        assertEquals(OLD, from.getPath());
+        assertSame(DELETE, from.getEvent());
+        assertEquals(1, moves.getMoveCount());
+
+        List<MoveCorrelator.Deletion> expired = new ArrayList<>();
+        moves.expire(2 * WINDOW, false, expired::add);
+        assertTrue(expired.isEmpty(), "A claimed deletion should not be released.");
+    }
+
+    /**
+     * Tests that an unclaimed deletion is released when its window ends.
+     */
+    @Test
+    void testExpire() {
+        MoveCorrelator moves = new MoveCorrelator(Duration.ofNanos(WINDOW));
+        moves.deleted("inode 7", OLD, true, DELETE, 0);
+        moves.deleted("inode 9", Paths.get("dir", "other"), false, null, WINDOW / 2);
+
+        List<MoveCorrelator.Deletion> expired = new ArrayList<>();
+        moves.expire(WINDOW - 1, false, expired::add);
+        assertTrue(expired.isEmpty());
+        moves.expire(WINDOW, false, expired::add);
+        assertEquals(1, expired.size(), "Size should be one.");
+        assertTrue(expired.getFirst().isDirectory());
+        assertNull(moves.created("inode 7"), "An expired deletion cannot be claimed.");
+
+        moves.expire(WINDOW, true, expired::add);
+        assertEquals(2, expired.size(), "Everything should be released when asked.");
+        assertEquals(0, moves.getPendingCount());
+        assertEquals(2, moves.getExpiredCount());
+    }
+
+    /**
+     * Tests that a zero window turns correlation off.
+     */
+    @Test
+    void testDisabled() {
+        MoveCorrelator moves = new MoveCorrelator(Duration.ZERO);
+        assertFalse(moves.isEnabled());
+        moves.setWindow(Duration.ofMillis(1));
+        assertTrue(moves.isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> moves.setWindow(Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.DirectorySnapshot;
+import Model.PollingEngine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PollingEngine class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class PollingEngineTests {
+
+    /**
+     * Shortest polling interval used by the tests.
+     */
+    private static final Duration MIN = Duration.ofMillis(20);
+
+    /**
+     * Longest polling interval used by the tests.
+     */
+    private static final Duration MAX = Duration.ofMillis(200);
+
+    /**
+     * How long to wait for the engine before failing.
+     */
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Temporary directory to poll.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Changes reported by the engine, as "KIND name".
+     */
+    private List<String> myChanges;
+
+    /**
+     * The engine under test.
+     */
+    private PollingEngine myEngine;
+
+    /**
+     * Creates an engine polling the temporary directory.
+     */
+    @BeforeEach
+    void setUp() {
+        myChanges = new CopyOnWriteArrayList<>();
+        Map<Path, DirectorySnapshot> snapshots = new ConcurrentHashMap<>();
+        myEngine = new PollingEngine(snapshots,
+                (dir, kind, name) -> myChanges.add(kind.name() + " " + name), 2, MIN, MAX);
+        myEngine.register(myDir);
+        myEngine.start();
+        // the first poll only records the directory's contents
+        waitFor(() -> myEngine.getCycleCount() > 0);
+    }
+
+    /**
+     * Stops the engine.
+     */
+    @AfterEach
+    void tearDown() {
+        myEngine.stop();
+    }
+
+    /**
+     * Waits until a condition holds, failing after a timeout.
+     *
+     * @param theCondition the condition.
+     */
+    private static void waitFor(final BooleanSupplier theCondition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!theCondition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the engine.");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Tests finding created, modified and deleted files.
+     */
+    @Test
+    void testChanges() throws IOException {
+        Path file = Files.writeString(myDir.resolve("a.txt"), "a");
+        waitFor(() -> myChanges.contains("ENTRY_CREATE a.txt"));
+
+        Files.writeString(file, "a longer text");
+        waitFor(() -> myChanges.contains("ENTRY_MODIFY a.txt"));
+
+        Files.delete(file);
+        waitFor(() -> myChanges.contains("ENTRY_DELETE a.txt"));
+        assertEquals(3, myChanges.size(), "Size should be three.");
+    }
+
+    /**
+     * Tests that the interval shrinks while a directory changes and grows while it is idle.
+     */
+    @Test
+    void testAdaptiveInterval() throws IOException {
+        waitFor(() -> myEngine.getInterval(myDir).equals(MAX));
+
+        Files.writeString(myDir.resolve("b.txt"), "b");
+        waitFor(() -> !myChanges.isEmpty());
+        assertTrue(myEngine.getInterval(myDir).compareTo(MAX) < 0, "Interval should shrink.");
+
+        waitFor(() -> myEngine.getInterval(myDir).equals(MAX));
+    }
+
+    /**
+     * Tests that a deleted directory is no longer polled.
+     */
+    @Test
+    void testDeletedDirectory() throws IOException {
+        Path sub = Files.createDirectory(myDir.resolve("sub"));
+        Files.writeString(sub.resolve("c.txt"), "c");
+        myEngine.register(sub);
+        waitFor(() -> myChanges.contains("ENTRY_CREATE sub"));
+        long cycles = myEngine.getCycleCount();
+        waitFor(() -> myEngine.getCycleCount() > cycles + 1);
+
+        Files.delete(sub.resolve("c.txt"));
+        Files.delete(sub);
+        waitFor(() -> myChanges.contains("ENTRY_DELETE sub"));
+        waitFor(() -> !myEngine.isPolled(sub));
+        assertEquals(1, myEngine.getDirectoryCount());
+    }
+
+    /**
+     * Tests the cost reported for each cycle.
+     */
+    @Test
+    void testCycleCost() throws IOException {
+        Files.writeString(myDir.resolve("d.txt"), "d");
+        waitFor(() -> !myChanges.isEmpty());
+
+        PollingEngine.Cycle cycle = myEngine.getLastCycle();
+        assertNotNull(cycle);
+        assertEquals(1, cycle.getDirectories());
+        assertTrue(cycle.getEntries() >= 1, "Should count the stat calls.");
+        assertTrue(cycle.getElapsedNanos() > 0);
+        assertTrue(cycle.getCpuNanos() >= 0);
+        assertEquals(0, cycle.getFailures());
+    }
+}
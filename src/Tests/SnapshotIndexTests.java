@@ -0,0 +1,127 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.DirectorySnapshot;
+import Model.DirectoryWalker;
+import Model.SnapshotIndex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SnapshotIndex class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class SnapshotIndexTests {
+
+    /**
+     * Temporary directory holding the watched tree.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Temporary directory holding the index file.
+     */
+    @TempDir
+    Path myIndexDir;
+
+    /**
+     * Takes snapshots of every directory below the root, like a registration does.
+     *
+     * @param theRoot the root of the tree.
+     * @return the snapshots by directory.
+     */
+    private static Map<Path, DirectorySnapshot> snapshots(final Path theRoot) throws IOException {
+        Map<Path, DirectorySnapshot> snapshots = new ConcurrentHashMap<>();
+        new DirectoryWalker(theRoot, new DirectoryWalker.Registrar() {
+            @Override
+            public void register(final Path theDir) {
+            }
+
+            @Override
+            public void listed(final Path theDir, final DirectorySnapshot theSnapshot) {
+                snapshots.put(theDir, theSnapshot);
+            }
+        }).walk();
+        return snapshots;
+    }
+
+    /**
+     * Compares the index with the current tree.
+     *
+     * @param theFile the index file.
+     * @return the kind name of every difference, by path relative to the root.
+     */
+    private Map<String, String> diff(final Path theFile) throws IOException {
+        Map<String, String> changes = new HashMap<>();
+        SnapshotIndex.diff(myDir, theFile, snapshots(myDir), (dir, kind, name) ->
+                changes.put(myDir.relativize(dir.resolve(name)).toString(), kind.name()));
+        return changes;
+    }
+
+    /**
+     * Tests that an unchanged tree has no differences.
+     */
+    @Test
+    void testUnchanged() throws IOException {
+        Files.writeString(myDir.resolve("a.txt"), "a");
+        Files.createDirectories(myDir.resolve("sub").resolve("deeper"));
+        Files.writeString(myDir.resolve("sub").resolve("deeper").resolve("b.txt"), "b");
+        Path file = myIndexDir.resolve("index.idx");
+
+        assertEquals(4, SnapshotIndex.save(myDir, snapshots(myDir), file));
+        assertTrue(diff(file).isEmpty(), "Should find no changes.");
+    }
+
+    /**
+     * Tests finding changes made while nothing was watching.
+     */
+    @Test
+    void testOfflineChanges() throws IOException {
+        Path sub = Files.createDirectory(myDir.resolve("sub"));
+        Path changed = Files.writeString(sub.resolve("changed.txt"), "before");
+        Path deleted = Files.writeString(myDir.resolve("deleted.txt"), "gone");
+        Files.writeString(myDir.resolve("kept.txt"), "same");
+        Path file = myIndexDir.resolve("index.idx");
+        SnapshotIndex.save(myDir, snapshots(myDir), file);
+
+        Files.writeString(changed, "after, and longer");
+        Files.delete(deleted);
+        Path created = Files.createDirectory(sub.resolve("created"));
+        Files.writeString(created.resolve("inside.txt"), "new");
+        Map<String, String> changes = diff(file);
+
+        assertEquals(4, changes.size(), "Should find four changes.");
+        assertEquals("ENTRY_MODIFY", changes.get(myDir.relativize(changed).toString()));
+        assertEquals("ENTRY_DELETE", changes.get("deleted.txt"));
+        assertEquals("ENTRY_CREATE", changes.get(myDir.relativize(created).toString()));
+        assertEquals("ENTRY_CREATE", changes.get(myDir.relativize(created.resolve("inside.txt")).toString()));
+    }
+
+    /**
+     * Tests that a missing index, or one for another root, is not used.
+     */
+    @Test
+    void testNoIndex() throws IOException {
+        Path file = myIndexDir.resolve("index.idx");
+        assertEquals(-1, SnapshotIndex.diff(myDir, file, snapshots(myDir), (dir, kind, name) -> fail()));
+
+        SnapshotIndex.save(myIndexDir, snapshots(myIndexDir), file);
+        assertEquals(-1, SnapshotIndex.diff(myDir, file, snapshots(myDir), (dir, kind, name) -> fail()));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * TCSS 360 Course Project
+ */
+
+package Tests;
+
+import Model.DirectorySnapshot;
+import Model.PollingEngine;
+import Model.WatchManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WatchManager class.
+ *
+ * @author Adin Smith
+ * @version 10/17/2026
+ */
+class WatchManagerTests {
+
+    /**
+     * Temporary directory holding the registered directories.
+     */
+    @TempDir
+    Path myDir;
+
+    /**
+     * Watch service the watches are placed with.
+     */
+    private WatchService myService;
+
+    /**
+     * Engine the directories without a watch are handed to. Never started.
+     */
+    private PollingEngine myPoller;
+
+    /**
+     * The manager under test.
+     */
+    private WatchManager myManager;
+
+    /**
+     * Creates a manager watching with a fresh watch service.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        myService = FileSystems.getDefault().newWatchService();
+        myPoller = new PollingEngine(new ConcurrentHashMap<Path, DirectorySnapshot>(),
+                (dir, kind, name) -> { }, 1, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        myManager = new WatchManager(dir -> dir.register(myService, ENTRY_CREATE), myPoller);
+    }
+
+    /**
+     * Closes the watch service.
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        myService.close();
+    }
+
+    /**
+     * Creates the given number of subdirectories.
+     *
+     * @param theCount the number of directories.
+     * @return the directories.
+     */
+    private List<Path> createDirectories(final int theCount) throws IOException {
+        final List<Path> dirs = new ArrayList<>();
+        for (int i = 0; i < theCount; i++) {
+            dirs.add(Files.createDirectory(myDir.resolve("dir" + i)));
+        }
+        return dirs;
+    }
+
+    /**
+     * Tests that a directory registered twice uses one watch.
+     */
+    @Test
+    void testDuplicate() throws IOException {
+        assertTrue(myManager.register(myDir));
+        assertFalse(myManager.register(myDir));
+        assertFalse(myManager.registerPolled(myDir));
+        assertEquals(1, myManager.getWatchCount(), "Count should be one.");
+        assertEquals(2, myManager.getDuplicateCount());
+        assertTrue(myManager.isWatched(myDir));
+    }
+
+    /**
+     * Tests that deleting a directory cancels the watches of its whole subtree.
+     */
+    @Test
+    void testCancelSubtree() throws IOException {
+        Path a = Files.createDirectory(myDir.resolve("a"));
+        Path b = Files.createDirectory(a.resolve("b"));
+        Path sibling = Files.createDirectory(myDir.resolve("ab"));
+        for (Path dir : List.of(myDir, a, b, sibling)) {
+            myManager.register(dir);
+        }
+        WatchKey key = myService.poll();
+        assertNull(key, "Nothing should be signalled yet.");
+
+        List<Path> removed = myManager.cancelSubtree(a);
+        assertEquals(List.of(a, b), removed);
+        assertEquals(2, myManager.getWatchCount(), "Count should be two.");
+        assertTrue(myManager.isRegistered(sibling), "Siblings sharing a prefix should stay.");
+        assertFalse(myManager.isRegistered(b));
+        assertTrue(myManager.cancelSubtree(myDir.resolve("a.txt")).isEmpty());
+    }
+
+    /**
+     * Tests that a moved subtree keeps its watches under the new path.
+     */
+    @Test
+    void testMove() throws IOException {
+        Path a = Files.createDirectory(myDir.resolve("a"));
+        Path b = Files.createDirectory(a.resolve("b"));
+        myManager.register(a);
+        myManager.register(b);
+        Path moved = myDir.resolve("moved");
+        List<Path> from = new ArrayList<>();
+
+        assertEquals(2, myManager.move(a, moved, (old, now) -> from.add(old)));
+        assertEquals(List.of(a, b), from);
+        assertFalse(myManager.isRegistered(b));
+        assertTrue(myManager.isWatched(moved.resolve("b")));
+        assertEquals(2, myManager.getWatchCount(), "The watches should be kept.");
+    }
+
+    /**
+     * Tests that directories are polled once the watches are nearly used up.
+     */
+    @Test
+    void testLimit() throws IOException {
+        myManager.setWatchLimit(10);
+        List<Path> dirs = createDirectories(12);
+        for (Path dir : dirs) {
+            myManager.register(dir);
+        }
+        assertEquals(9, myManager.getWatchCount(), "Should stop at 90% of the limit.");
+        assertEquals(3, myManager.getPolledCount());
+        assertEquals(3, myManager.getOverflowCount());
+        assertTrue(myPoller.isPolled(dirs.get(11)));
+        assertFalse(myManager.isWatched(dirs.get(11)));
+    }
+
+    /**
+     * Tests that cold directories give up their watches to new ones.
+     */
+    @Test
+    void testDemoteCold() throws IOException, InterruptedException {
+        myManager.setWatchLimit(10);
+        myManager.setColdAge(Duration.ofMillis(50));
+        List<Path> dirs = createDirectories(10);
+        for (Path dir : dirs.subList(0, 9)) {
+            myManager.register(dir);
+        }
+        Thread.sleep(100);
+
+        myManager.register(dirs.get(9));
+        assertEquals(1, myManager.getDemotedCount(), "Should free watches down to 80%.");
+        assertEquals(9, myManager.getWatchCount());
+        assertTrue(myManager.isWatched(dirs.get(9)), "The new directory should be watched.");
+        assertTrue(myPoller.isPolled(dirs.get(0)), "The coldest directory should be polled.");
+    }
+
+    /**
+     * Tests that an invalid key is forgotten.
+     */
+    @Test
+    void testInvalidated() throws IOException, InterruptedException {
+        myManager.register(myDir);
+        Files.createFile(myDir.resolve("a.txt"));
+        WatchKey key = myService.take();
+        assertEquals(myDir, myManager.signalled(key));
+
+        myManager.invalidated(key);
+        assertNull(myManager.signalled(key));
+        assertTrue(myManager.isEmpty());
+    }
+}
@@ -18,6 +18,8 @@ import javafx.stage.Stage;
 import javafx.stage.DirectoryChooser;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
 
 /**
  * MainView is the JavaFX-based graphical user interface for the File System Watcher application.
@@ -94,11 +96,21 @@ public class MainView extends Application {
     /** TableView to display file system events as they occur. */
     private TableView<Event> myFileEventArea;
 
+    /** Label showing the progress of directory registration. */
+    private Label myStatusLabel;
+
     /** Singleton instance of the Monitor model. */
     private static final Monitor MONITOR = Monitor.getMonitor();
     /** Singleton instance of the DataBase model. */
     private static final DataBase DATABASE = DataBase.getDatabase();
 
+    /** Quiet window used to merge bursts of events on the same file. */
+    private static final Duration COALESCING_WINDOW = Duration.ofMillis(250);
+
+    /** Number of watch services the monitored directories are spread over. */
+    private static final int SHARD_COUNT =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
     /** Alert dialog shown when the user inputs an invalid directory. */
     private Alert myDirectoryAlert;
 
@@ -111,6 +123,12 @@ public class MainView extends Application {
     @Override
     public void start(final Stage thePrimaryStage) {
         thePrimaryStage.setTitle("File System Watcher");
+        MONITOR.setCoalescingWindow(COALESCING_WINDOW);
+        try {
+            MONITOR.setShardCount(SHARD_COUNT);
+        } catch (IOException e) {
+            System.out.println("Error creating watch shards: " + e);
+        }
 
         //Menu Bar
         myMenuBar = new MenuBar();
@@ -253,7 +271,9 @@ public class MainView extends Application {
         VBox.setVgrow(myFileEventArea, Priority.ALWAYS);
 
 
-        VBox centerContent = new VBox(20, leftControls, fileEventLabel, myFileEventArea);
+        myStatusLabel = new Label();
+
+        VBox centerContent = new VBox(20, leftControls, fileEventLabel, myFileEventArea, myStatusLabel);
         centerContent.setPadding(new Insets(40, 0, 0, 0));
 
 
@@ -273,14 +293,31 @@ public class MainView extends Application {
         thePrimaryStage.show();
     }
 
+    /**
+     * Stops monitoring when the application exits, which saves the snapshot
+     * index used to catch up on changes at the next start.
+     */
+    @Override
+    public void stop() {
+        MONITOR.stopMonitoring();
+    }
+
     /**
      * Registers event handlers for the Start, Stop, Query, Write, Browse, and About actions.
      * Handles user input validation and delegates to Monitor and DataBase.
      */
     private void addListeners() {
 
+        // events are written continuously; this only flushes what is pending,
+        // off the JavaFX thread
         myWriteButton.setOnAction(e -> {
-            DATABASE.writeEvents();
+            myWriteButton.setDisable(true);
+            DATABASE.flush().whenComplete((stored, error) -> Platform.runLater(() -> {
+                if (Boolean.TRUE.equals(stored)) {
+                    MONITOR.getEvents().clear();
+                }
+                myWriteButton.setDisable(false);
+            }));
         });
 
         // needs to be fixed
@@ -296,16 +333,33 @@ public class MainView extends Application {
                 return;
             }
 
-            try {
-                MONITOR.addFile(path);
-                MONITOR.startMonitoring();
-
-                // Disable Start button and enable Stop
-                myStartButton.setDisable(true);
-                myStopButton.setDisable(false);
-            } catch (Exception e) {
+            if (!new File(path).isDirectory()) {
                 myDirectoryAlert.showAndWait();
+                return;
             }
+
+            // register in the background so large trees don't freeze the window;
+            // directories start reporting events as soon as they are registered
+            MONITOR.startMonitoring();
+            myStatusLabel.setText("Registering directories...");
+            MONITOR.addFileAsync(path, count -> Platform.runLater(
+                            () -> myStatusLabel.setText("Registering directories... " + count)))
+                    .whenComplete((summary, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            // nothing is watched, so go back to stopped
+                            MONITOR.stopMonitoring();
+                            myStartButton.setDisable(false);
+                            myStopButton.setDisable(true);
+                            myStatusLabel.setText("");
+                            myDirectoryAlert.showAndWait();
+                        } else {
+                            myStatusLabel.setText(summary.toString());
+                        }
+                    }));
+
+            // Disable Start button and enable Stop
+            myStartButton.setDisable(true);
+            myStopButton.setDisable(false);
         });
 
         // needs to be fixed
@@ -335,11 +389,22 @@ public class MainView extends Application {
         // needs to be fixed
         myDirectoryField.setOnAction(event -> {
             String path = myDirectoryField.getText();
-            try {
-                MONITOR.addFile(path);
-            } catch (Exception e) {
+            if (path == null || !new File(path).isDirectory()) {
                 myDirectoryAlert.showAndWait();
+                return;
             }
+            // registered in the background like Start, so Enter does not freeze the window
+            myStatusLabel.setText("Registering directories...");
+            MONITOR.addFileAsync(path, count -> Platform.runLater(
+                            () -> myStatusLabel.setText("Registering directories... " + count)))
+                    .whenComplete((summary, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            myStatusLabel.setText("");
+                            myDirectoryAlert.showAndWait();
+                        } else {
+                            myStatusLabel.setText(summary.toString());
+                        }
+                    }));
         });
 
         myBrowseButton.setOnAction(event -> {
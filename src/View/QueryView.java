@@ -5,6 +5,7 @@
 package View;
 
 import Model.Event;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -14,8 +15,12 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import Model.DataBase;
+import Model.EventQuery;
 
 import java.io.File;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 
 /**
  * QueryView class used to create the query window in the program.
@@ -31,6 +36,11 @@ public class QueryView {
      */
     private static final DataBase DATABASE = DataBase.getDatabase();
 
+    /**
+     * Number of rows from the end of the results at which the next page is loaded.
+     */
+    private static final int LOAD_AHEAD_ROWS = 50;
+
     // Input fields on the left
     // These are all the form fields users will fill out before running a query
 
@@ -92,22 +102,15 @@ public class QueryView {
     private TableView<Event> myResultTable;
 
     /**
-     * String fields representing partial SQL statements to be queried later
+     * Whether the next page of results is about to be loaded.
      */
-    private String myExtensionSQL, myDirectorySQL, myStartSQL, myEndSQL, myEventSQL;
+    private boolean myLoadPending;
 
     /**
      * This method shows the popup window for querying file event data.
      * It's triggered when the Query button in the main view is clicked.
      */
     public void display() {
-        // Initialize partial SQL statements as empty
-        myExtensionSQL = "";
-        myDirectorySQL = "";
-        myStartSQL = "";
-        myEndSQL = "";
-        myEventSQL = "";
-
         Stage queryStage = new Stage();
         queryStage.setTitle("Query Form");
         queryStage.setResizable(false); // user shouldn't resize this window
@@ -162,6 +165,21 @@ public class QueryView {
         //Query Results Table
         Label resultsLabel = new Label("Query Results:");
         myResultTable = TableBuilder.createResultTable(); // defined below
+        myResultTable.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateIndex(final int theIndex) {
+                super.updateIndex(theIndex);
+                // a row near the end is shown: fetch the next page
+                if (theIndex >= table.getItems().size() - LOAD_AHEAD_ROWS && !myLoadPending
+                        && DATABASE.hasMore()) {
+                    myLoadPending = true;
+                    Platform.runLater(() -> {
+                        myLoadPending = false;
+                        DATABASE.loadMore();
+                    });
+                }
+            }
+        });
 
         //Organize everything on the left: input fields + results table
         VBox leftForm = new VBox(20, extensionRow, dateRow, directorySection, resultsLabel, myResultTable);
@@ -185,13 +203,25 @@ public class QueryView {
             // Allow user to choose where to save csv file
             FileChooser fc = new FileChooser();
             FileChooser.ExtensionFilter filter = new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv");
-            fc.getExtensionFilters().add(filter);
+            FileChooser.ExtensionFilter gzip = new FileChooser.ExtensionFilter("Gzipped CSV files (*.csv.gz)",
+                    "*.csv.gz");
+            fc.getExtensionFilters().addAll(filter, gzip);
             File file = fc.showSaveDialog(queryStage);
+            if (file == null) {
+                return;     // If user cancels the dialog box
+            }
 
-            // Get path from user and export
-            try {
-                DATABASE.export(file.getPath());
-            } catch (NullPointerException _) {}     // If user cancels the dialog box
+            // Stream every result of the last search, not only the loaded pages
+            myExportButton.setDisable(true);
+            DATABASE.export(DATABASE.getLastQuery(), file.toPath(), file.getName().endsWith(".gz"),
+                    rows -> Platform.runLater(() -> myExportButton.setText(String.format("%,d rows", rows))))
+                    .whenComplete((rows, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            System.out.println("Error writing to file: " + error);
+                        }
+                        myExportButton.setText("Export");
+                        myExportButton.setDisable(false);
+                    }));
         });
 
         // Browse button needs access to queryStage
@@ -200,9 +230,7 @@ public class QueryView {
             File chosen = dir.showDialog(queryStage);
 
             try {
-                String path = chosen.getPath();
-                myDirectorySQL = "Directory LIKE '" + path + "'";
-                myDirectoryField.setText(path);
+                myDirectoryField.setText(chosen.getPath());
             } catch (Exception _) {}    // If user cancels the dialog box
         });
 
@@ -226,34 +254,38 @@ public class QueryView {
      */
     private void addListeners() {
         mySearchButton.setOnAction(e -> {
+            EventQuery query = new EventQuery();
+
             // Extension filter
             String ext = myExtensionField.getText().trim();
-            myExtensionSQL = ext.isEmpty() ? "" : "Extension = '" + ext + "'";
+            if (!ext.isEmpty()) {
+                query.extension(ext);
+            }
 
             // Event type filter
             String type = myEventTypeDropdown.getValue();
-            myEventSQL = (type == null || type.equals("None")) ? "" : "Event = '" + type + "'";
+            if (type != null && !type.equals("None")) {
+                query.eventType(type);
+            }
 
             // Start date filter
             if (myStartDatePicker.getValue() != null) {
-                myStartSQL = "Timestamp >= '" + myStartDatePicker.getValue() + "T00:00:00'";
-            } else {
-                myStartSQL = "";
+                query.from(startOf(myStartDatePicker.getValue()));
             }
 
-            // End date filter
+            // End date filter, up to the end of the day
             if (myEndDatePicker.getValue() != null) {
-                myEndSQL = "Timestamp <= '" + myEndDatePicker.getValue() + "T23:59:59'";
-            } else {
-                myEndSQL = "";
+                query.until(startOf(myEndDatePicker.getValue().plusDays(1)));
             }
 
             // Directory filter (from user input)
             String path = myDirectoryField.getText().trim();
-            myDirectorySQL = path.isEmpty() ? "" : "Directory LIKE '%" + path + "%'";
+            if (!path.isEmpty()) {
+                query.directoryContaining(path);
+            }
 
-            // Run filtered search
-            DATABASE.search(myDirectorySQL, myStartSQL, myEndSQL, myEventSQL, myExtensionSQL);
+            // Run filtered search, loading more pages as the table scrolls
+            DATABASE.searchPages(query);
         });
 
         myEmailButton.setOnAction(e -> {
@@ -265,6 +297,16 @@ public class QueryView {
 
     }
 
+    /**
+     * Returns the start of a day in UTC, the time zone timestamps are stored in.
+     *
+     * @param theDate the day.
+     * @return the first instant of the day.
+     */
+    private static Instant startOf(final LocalDate theDate) {
+        return theDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
     /**
      * This helper builds a labeled vertical layout: label on top, field underneath.
      * Makes it easy to reuse across form rows.